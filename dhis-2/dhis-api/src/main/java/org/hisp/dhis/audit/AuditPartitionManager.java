@@ -0,0 +1,66 @@
+package org.hisp.dhis.audit;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+
+/**
+ * Manages monthly partitions of the data value and tracked entity data value
+ * audit tables. Partitions are tables which inherit from the audit table and
+ * hold the audits created in one month, so that queries with a created date
+ * range only read the relevant partitions, and expired audits can be removed
+ * by dropping partitions.
+ */
+public interface AuditPartitionManager
+{
+    /**
+     * Creates the partitions of the current and the coming months if they do
+     * not exist, and routes new audits into the partition of their month.
+     */
+    void createPartitions();
+
+    /**
+     * Moves the audits which remain in the audit tables, e.g. audits created
+     * before partitioning, into the partitions of their month. Audits are
+     * moved in batches which are committed separately.
+     *
+     * @return the number of audits moved.
+     */
+    int moveAudits();
+
+    /**
+     * Drops the partitions of months which ended more than the given number
+     * of months ago.
+     *
+     * @param retentionMonths the number of months to retain, not including
+     *        the current month.
+     * @return the names of the dropped partitions.
+     */
+    List<String> dropExpiredPartitions( int retentionMonths );
+}
@@ -106,6 +106,8 @@ public class EventDataQueryRequest
 
     protected boolean coordinatesOnly;
 
+    protected boolean approximateCount;
+
     protected String coordinateField;
 
     protected Integer page;
@@ -277,6 +279,11 @@ public class EventDataQueryRequest
         return coordinatesOnly;
     }
 
+    public boolean isApproximateCount()
+    {
+        return approximateCount;
+    }
+
     public String getCoordinateField()
     {
         return coordinateField;
@@ -331,6 +338,7 @@ public class EventDataQueryRequest
         request.desc = new HashSet<>( this.desc );
         request.timeField = this.timeField;
         request.coordinatesOnly = this.coordinatesOnly;
+        request.approximateCount = this.approximateCount;
         request.coordinateField = this.coordinateField;
         request.page = this.page;
         request.pageSize = this.pageSize;
@@ -563,6 +571,12 @@ public class EventDataQueryRequest
             return this;
         }
 
+        public EventDataQueryRequestBuilder approximateCount( boolean approximateCount )
+        {
+            this.request.approximateCount = approximateCount;
+            return this;
+        }
+
         public EventDataQueryRequestBuilder coordinateField( String coordinateField )
         {
             this.request.coordinateField = coordinateField;
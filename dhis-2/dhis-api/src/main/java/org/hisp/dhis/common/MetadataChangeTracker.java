@@ -0,0 +1,104 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+
+/**
+ * Keeps track of committed changes to identifiable objects per class within
+ * this node. Versions are incremented whenever objects of a class are
+ * created, updated or deleted, and can be used by in-memory caches of derived
+ * metadata to detect when they are stale.
+ * <p>
+ * Changes are only tracked for classes which versions have been requested, as
+ * well as their subclasses. Changes made on other nodes are not visible, which
+ * is why the tracker is disabled when this node is part of a cluster. Caches
+ * must check {@link #isEnabled()} and not be used when the tracker is disabled.
+ * The tracker is disabled until enabled at startup.
+ * <p>
+ * Changes are registered by Hibernate event listeners for entities which
+ * are saved, updated or deleted through the session only. Changes written
+ * through plain SQL, such as organisation unit parent updates, bulk HQL
+ * statements or changes made directly in the database are not tracked.
+ * Caches relying on the tracker should therefore also expire their entries
+ * after a bounded period of time.
+ */
+public interface MetadataChangeTracker
+{
+    /**
+     * Enables or disables the tracker.
+     *
+     * @param enabled whether the tracker is enabled.
+     */
+    void setEnabled( boolean enabled );
+
+    /**
+     * Indicates whether the tracker is enabled. Versions must not be used to
+     * validate caches when the tracker is disabled.
+     *
+     * @return true if the tracker is enabled.
+     */
+    boolean isEnabled();
+
+    /**
+     * Indicates whether changes to objects of the given class are tracked,
+     * which is the case if the version of the class or of a superclass has
+     * been requested.
+     *
+     * @param klass the class.
+     * @return true if changes to objects of the class are tracked.
+     */
+    boolean isTracked( Class<?> klass );
+
+    /**
+     * Registers a committed change to an object of the given class.
+     *
+     * @param klass the class of the changed object.
+     */
+    void registerChange( Class<?> klass );
+
+    /**
+     * Returns the current version of the given class. The version increases
+     * with every change to an object of the given class or a subclass. Changes
+     * to the class are tracked from the first call.
+     *
+     * @param klass the class.
+     * @return the version.
+     */
+    long getVersion( Class<?> klass );
+
+    /**
+     * Returns the combined version of the given classes. The version increases
+     * with every change to an object of any of the given classes.
+     *
+     * @param classes the classes.
+     * @return the combined version.
+     */
+    long getVersion( Collection<Class<?>> classes );
+}
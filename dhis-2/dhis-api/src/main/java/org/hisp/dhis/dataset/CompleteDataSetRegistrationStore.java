@@ -32,6 +32,7 @@ import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -70,6 +71,20 @@ public interface CompleteDataSetRegistrationStore
     CompleteDataSetRegistration getCompleteDataSetRegistration( DataSet dataSet, Period period,
         OrganisationUnit source, CategoryOptionCombo attributeOptionCombo );
 
+    /**
+     * Returns the stored CompleteDataSetRegistrations with the same data set,
+     * period, source and attribute option combo as any of the given
+     * CompleteDataSetRegistrations. The returned CompleteDataSetRegistrations
+     * refer to the objects of the given CompleteDataSetRegistrations, and hold
+     * the stored storedBy and completed properties.
+     *
+     * @param registrations the CompleteDataSetRegistrations to use as
+     *        parameters, which must refer to persisted objects.
+     * @return a list of the stored CompleteDataSetRegistrations.
+     */
+    List<CompleteDataSetRegistration> getExistingCompleteDataSetRegistrations(
+        Collection<CompleteDataSetRegistration> registrations );
+
     /**
      * Deletes a CompleteDataSetRegistration.
      *
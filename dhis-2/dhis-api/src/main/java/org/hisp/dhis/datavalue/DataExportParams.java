@@ -72,6 +72,14 @@ public class DataExportParams
 
     private Date includedDate;
 
+    /**
+     * Together with includedEndDate, restricts data to periods which include
+     * any date within the given range.
+     */
+    private Date includedStartDate;
+
+    private Date includedEndDate;
+
     private Set<OrganisationUnit> organisationUnits = new HashSet<>();
 
     private boolean includeChildren;
@@ -94,6 +102,8 @@ public class DataExportParams
 
     private Integer limit;
 
+    private DataValue resumeAfter;
+
     private IdSchemes outputIdSchemes;
 
     // -------------------------------------------------------------------------
@@ -172,6 +182,11 @@ public class DataExportParams
         return includedDate != null;
     }
 
+    public boolean hasIncludedDateRange()
+    {
+        return includedStartDate != null && includedEndDate != null;
+    }
+
     public boolean hasOrganisationUnits()
     {
         return organisationUnits != null && !organisationUnits.isEmpty();
@@ -227,6 +242,11 @@ public class DataExportParams
         return limit != null;
     }
 
+    public boolean hasResumeAfter()
+    {
+        return resumeAfter != null;
+    }
+
     /**
      * Indicates whether this parameters represents a single data value set, implying
      * that it contains exactly one of data sets, periods and organisation units.
@@ -249,6 +269,8 @@ public class DataExportParams
             add( "start date", startDate ).
             add( "end date", endDate ).
             add( "included date", includedDate ).
+            add( "included start date", includedStartDate ).
+            add( "included end date", includedEndDate ).
             add( "org units", organisationUnits ).
             add( "children", includeChildren ).
             add( "return parent org unit", returnParentOrgUnit ).
@@ -260,6 +282,7 @@ public class DataExportParams
             add( "last updated", lastUpdated ).
             add( "last updated duration", lastUpdatedDuration ).
             add( "limit", limit ).
+            add( "resume after", resumeAfter ).
             add( "output id schemes", outputIdSchemes ).toString();
     }
 
@@ -355,6 +378,28 @@ public class DataExportParams
         return this;
     }
 
+    public Date getIncludedStartDate()
+    {
+        return includedStartDate;
+    }
+
+    public DataExportParams setIncludedStartDate( Date includedStartDate )
+    {
+        this.includedStartDate = includedStartDate;
+        return this;
+    }
+
+    public Date getIncludedEndDate()
+    {
+        return includedEndDate;
+    }
+
+    public DataExportParams setIncludedEndDate( Date includedEndDate )
+    {
+        this.includedEndDate = includedEndDate;
+        return this;
+    }
+
     public Date getEndDate()
     {
         return endDate;
@@ -487,6 +532,22 @@ public class DataExportParams
         return this;
     }
 
+    /**
+     * Returns the key of the data value after which the export resumes. Only
+     * the data element, period, org unit, category option combo and attribute
+     * option combo of the data value are used.
+     */
+    public DataValue getResumeAfter()
+    {
+        return resumeAfter;
+    }
+
+    public DataExportParams setResumeAfter( DataValue resumeAfter )
+    {
+        this.resumeAfter = resumeAfter;
+        return this;
+    }
+
     public IdSchemes getOutputIdSchemes()
     {
         return outputIdSchemes;
@@ -34,6 +34,7 @@ import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -96,4 +97,21 @@ public interface DataValueAuditService
 
     int countDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
         CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType );
-}
\ No newline at end of file
+
+    /**
+     * Returns the DataValueAudits which match the given arguments and which were
+     * created within the given date range. Audit tables are partitioned by
+     * month of creation, so a date range limits the partitions which are read.
+     *
+     * @param startDate the start of the created date range, inclusive, or null.
+     * @param endDate the end of the created date range, exclusive, or null.
+     */
+    List<DataValueAudit> getDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate );
+
+    List<DataValueAudit> getDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate, int first, int max );
+
+    int countDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate );
+}
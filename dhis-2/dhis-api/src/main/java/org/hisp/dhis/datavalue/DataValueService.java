@@ -81,6 +81,17 @@ public interface DataValueService
      */
     void updateDataValues( List<DataValue> dataValues );
 
+    /**
+     * Adds, updates and deletes the given DataValues in one transaction.
+     * Updated DataValues with null value and comment properties are deleted,
+     * as with {@link #updateDataValue(DataValue)}.
+     *
+     * @param addedValues list of DataValues to add.
+     * @param updatedValues list of DataValues to update.
+     * @param deletedValues list of DataValues to delete.
+     */
+    void saveDataValues( List<DataValue> addedValues, List<DataValue> updatedValues, List<DataValue> deletedValues );
+
     /**
      * Deletes a DataValue.
      *
@@ -183,6 +194,19 @@ public interface DataValueService
     List<DataValue> getDataValues( OrganisationUnit source, Period period,
         Collection<DataElement> dataElements, CategoryOptionCombo attributeOptionCombo );
 
+    /**
+     * Returns the stored DataValues, including soft deleted ones, with the
+     * same data element, period, source, category option combo and attribute
+     * option combo as any of the given DataValues. Looks up many values with
+     * one query, for instance when importing.
+     *
+     * @param dataValues the DataValues to use as parameters, which must refer
+     *        to persisted objects.
+     * @return a list of the stored DataValues, referring to the objects of
+     * the given DataValues.
+     */
+    List<DataValue> getExistingDataValues( Collection<DataValue> dataValues );
+
     /**
      * Returns deflated data values for the given data export parameters.
      *
@@ -136,6 +136,19 @@ public interface DataValueStore
     List<DataValue> getDataValues( OrganisationUnit source, Period period, Collection<DataElement> dataElements,
         CategoryOptionCombo attributeOptionCombo );
 
+    /**
+     * Returns the stored DataValues, including soft deleted ones, with the
+     * same data element, period, source, category option combo and attribute
+     * option combo as any of the given DataValues. The returned DataValues
+     * refer to the objects of the given DataValues, and hold the stored
+     * value, storedBy, comment, followup and deleted properties.
+     *
+     * @param dataValues the DataValues to use as parameters, which must refer
+     *        to persisted objects.
+     * @return a list of the stored DataValues.
+     */
+    List<DataValue> getExistingDataValues( Collection<DataValue> dataValues );
+
     /**
      * Returns deflated data values for the given data export parameters.
      *
@@ -292,6 +292,30 @@ public interface ExpressionService
         Map<String, Integer> orgUnitCountMap, Integer days,
         MissingValueStrategy missingValueStrategy );
 
+    /**
+     * Generates the calculated values for an expression over many rows of
+     * item values, in the manner of
+     * {@link #getExpressionValue(String, Map, Map, Map, Integer, MissingValueStrategy)}.
+     * The expression is compiled once and evaluated for each row.
+     *
+     * @param expression the expression holding the formula for calculation.
+     * @param itemValues the values for each DimensionalItemObject, with one
+     *        value per row and NaN where the value is missing.
+     * @param rowCount the number of rows to evaluate.
+     * @param constantMap map of constants to use for calculation.
+     * @param orgUnitCountMap the mapping between organisation unit group uid
+     *        and count of organisation units to use in the calculation.
+     * @param days the number of days to use in the calculation.
+     * @param missingValueStrategy the strategy to use when data values are
+     *        missing when calculating the expression.
+     * @return the calculated value for each row, or NaN where the row is
+     *         skipped.
+     */
+    double[] getExpressionValues( String expression,
+        Map<? extends DimensionalItemObject, double[]> itemValues, int rowCount,
+        Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days,
+        MissingValueStrategy missingValueStrategy );
+
     // -------------------------------------------------------------------------
     // Expression logic based on regular expressions (to be refactored)
     // -------------------------------------------------------------------------
@@ -28,6 +28,7 @@ package org.hisp.dhis.predictor;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -134,4 +135,27 @@ public interface PredictorService
      * @return a List of predictor groups or null if it there are no predictor groups.
      */
     List<PredictorGroup> getAllPredictorGroups();
+
+    // -------------------------------------------------------------------------
+    // Predictor watermark
+    // -------------------------------------------------------------------------
+
+    /**
+     * Get the input data watermark of the last run of a predictor.
+     *
+     * @param predictor the predictor.
+     * @return the watermark or null if the predictor has not been run.
+     */
+    PredictorWatermark getPredictorWatermark( Predictor predictor );
+
+    /**
+     * Save or update the input data watermark of a predictor.
+     *
+     * @param predictor the predictor.
+     * @param watermark the time at which the run started reading input data.
+     * @param startDate the start date of the output periods of the run.
+     * @param endDate the end date of the output periods of the run.
+     * @param fullRun whether the run was a full run rather than incremental.
+     */
+    void savePredictorWatermark( Predictor predictor, Date watermark, Date startDate, Date endDate, boolean fullRun );
 }
@@ -0,0 +1,158 @@
+package org.hisp.dhis.predictor;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+
+/**
+ * Records the input data watermark consumed by the last run of a predictor,
+ * together with the output date range of that run. Incremental prediction
+ * runs only recompute output periods whose sample data changed after the
+ * watermark. As changes which leave no trace in the last updated time of data
+ * values, such as hard deletes, are not detected, the time of the last full
+ * run is kept as well, so that full runs can be forced periodically.
+ */
+public class PredictorWatermark
+{
+    private long id;
+
+    private Predictor predictor;
+
+    /**
+     * Time at which the last run started reading input data.
+     */
+    private Date watermark;
+
+    /**
+     * Start date of the output periods covered by the last run.
+     */
+    private Date startDate;
+
+    /**
+     * End date of the output periods covered by the last run.
+     */
+    private Date endDate;
+
+    /**
+     * Watermark of the last run which was not incremental.
+     */
+    private Date lastFullRun;
+
+    public PredictorWatermark()
+    {
+    }
+
+    public PredictorWatermark( Predictor predictor, Date watermark, Date startDate, Date endDate )
+    {
+        this.predictor = predictor;
+        this.watermark = watermark;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether the given date falls within the output date range
+     * covered by the last run.
+     *
+     * @param date the date to check.
+     * @return true if the date is within the covered range.
+     */
+    public boolean covers( Date date )
+    {
+        return startDate != null && endDate != null && !date.before( startDate ) && !date.after( endDate );
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters and setters
+    // -------------------------------------------------------------------------
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public void setId( long id )
+    {
+        this.id = id;
+    }
+
+    public Predictor getPredictor()
+    {
+        return predictor;
+    }
+
+    public void setPredictor( Predictor predictor )
+    {
+        this.predictor = predictor;
+    }
+
+    public Date getWatermark()
+    {
+        return watermark;
+    }
+
+    public void setWatermark( Date watermark )
+    {
+        this.watermark = watermark;
+    }
+
+    public Date getStartDate()
+    {
+        return startDate;
+    }
+
+    public void setStartDate( Date startDate )
+    {
+        this.startDate = startDate;
+    }
+
+    public Date getEndDate()
+    {
+        return endDate;
+    }
+
+    public void setEndDate( Date endDate )
+    {
+        this.endDate = endDate;
+    }
+
+    public Date getLastFullRun()
+    {
+        return lastFullRun;
+    }
+
+    public void setLastFullRun( Date lastFullRun )
+    {
+        this.lastFullRun = lastFullRun;
+    }
+}
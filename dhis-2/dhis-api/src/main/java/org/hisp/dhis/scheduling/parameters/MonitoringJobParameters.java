@@ -28,6 +28,7 @@ package org.hisp.dhis.scheduling.parameters;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
@@ -42,6 +43,7 @@ import org.hisp.dhis.scheduling.JobParameters;
 import org.hisp.dhis.scheduling.parameters.jackson.MonitoringJobParametersDeserializer;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -67,6 +69,14 @@ public class MonitoringJobParameters
 
     private boolean persistResults;
 
+    private boolean incremental;
+
+    private int threadPoolSize;
+
+    private Date lastSuccessfulRun;
+
+    private String lastSuccessfulRunKey;
+
     public MonitoringJobParameters()
     {
     }
@@ -142,6 +152,85 @@ public class MonitoringJobParameters
         this.persistResults = persistResults;
     }
 
+    /**
+     * Indicates whether only data which has changed since the last successful
+     * monitoring run should be validated. Requires results to be persisted.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isIncremental()
+    {
+        return incremental;
+    }
+
+    public void setIncremental( boolean incremental )
+    {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Number of threads used to validate, 0 to use the default based on the
+     * number of processor cores.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public int getThreadPoolSize()
+    {
+        return threadPoolSize;
+    }
+
+    public void setThreadPoolSize( int threadPoolSize )
+    {
+        this.threadPoolSize = threadPoolSize;
+    }
+
+    /**
+     * Start time of the last successful run of this job which persisted
+     * results. Used as the point in time since which changed data is validated
+     * by incremental runs. Internal state of the job, values given when job
+     * configurations are created or updated are ignored.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public Date getLastSuccessfulRun()
+    {
+        return lastSuccessfulRun;
+    }
+
+    public void setLastSuccessfulRun( Date lastSuccessfulRun )
+    {
+        this.lastSuccessfulRun = lastSuccessfulRun;
+    }
+
+    /**
+     * Key of the validation rule groups and relative periods of the last
+     * successful run. The last successful run is only used by incremental runs
+     * if the key is equal to the key of the current parameters. Internal
+     * state of the job, like the last successful run.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public String getLastSuccessfulRunKey()
+    {
+        return lastSuccessfulRunKey;
+    }
+
+    public void setLastSuccessfulRunKey( String lastSuccessfulRunKey )
+    {
+        this.lastSuccessfulRunKey = lastSuccessfulRunKey;
+    }
+
+    /**
+     * Returns a key of the validation rule groups and relative periods of
+     * these parameters, which determine the data validated by a run.
+     */
+    @JsonIgnore
+    public String getRunKey()
+    {
+        return validationRuleGroups.stream().sorted().collect( Collectors.joining( "," ) ) +
+            ";" + relativeStart + ";" + relativeEnd;
+    }
+
     @Override
     public Optional<ErrorReport> validate()
     {
@@ -60,6 +60,8 @@ public class PredictorJobParameters
 
     private List<String> predictorGroups = new ArrayList<>();
 
+    private boolean incremental;
+
     public PredictorJobParameters()
     {
     }
@@ -122,6 +124,22 @@ public class PredictorJobParameters
         this.predictorGroups = predictorGroups;
     }
 
+    /**
+     * Indicates whether only output periods whose sample data has changed
+     * since the last run of each predictor should be predicted.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isIncremental()
+    {
+        return incremental;
+    }
+
+    public void setIncremental( boolean incremental )
+    {
+        this.incremental = incremental;
+    }
+
     @Override
     public Optional<ErrorReport> validate()
     {
@@ -38,7 +38,8 @@ public enum Authorities
     F_ENROLLMENT_CASCADE_DELETE( "F_ENROLLMENT_CASCADE_DELETE" ),
     F_EDIT_EXPIRED( "F_EDIT_EXPIRED" ),
     F_IGNORE_TRACKER_REQUIRED_VALUE_VALIDATION( "F_IGNORE_TRACKER_REQUIRED_VALUE_VALIDATION" ),
-    F_SKIP_DATA_IMPORT_AUDIT( "F_SKIP_DATA_IMPORT_AUDIT" );
+    F_SKIP_DATA_IMPORT_AUDIT( "F_SKIP_DATA_IMPORT_AUDIT" ),
+    F_FAST_DATA_IMPORT( "F_FAST_DATA_IMPORT" );
 
     private String authority;
 
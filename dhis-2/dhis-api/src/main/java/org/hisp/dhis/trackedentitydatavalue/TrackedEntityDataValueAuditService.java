@@ -32,6 +32,7 @@ import org.hisp.dhis.common.AuditType;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.program.ProgramStageInstance;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -48,4 +49,21 @@ public interface TrackedEntityDataValueAuditService
         AuditType auditType, int first, int max );
 
     int countTrackedEntityDataValueAudits( List<DataElement> dataElements, List<ProgramStageInstance> programStageInstances, AuditType auditType );
+
+    /**
+     * Returns the audits which match the given arguments and which were
+     * created within the given date range. Audit tables are partitioned by
+     * month of creation, so a date range limits the partitions which are read.
+     *
+     * @param startDate the start of the created date range, inclusive, or null.
+     * @param endDate the end of the created date range, exclusive, or null.
+     */
+    List<TrackedEntityDataValueAudit> getTrackedEntityDataValueAudits( List<DataElement> dataElements, List<ProgramStageInstance> programStageInstances,
+        AuditType auditType, Date startDate, Date endDate );
+
+    List<TrackedEntityDataValueAudit> getTrackedEntityDataValueAudits( List<DataElement> dataElements, List<ProgramStageInstance> programStageInstances,
+        AuditType auditType, Date startDate, Date endDate, int first, int max );
+
+    int countTrackedEntityDataValueAudits( List<DataElement> dataElements, List<ProgramStageInstance> programStageInstances, AuditType auditType,
+        Date startDate, Date endDate );
 }
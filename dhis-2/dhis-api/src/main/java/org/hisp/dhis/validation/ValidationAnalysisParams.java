@@ -30,10 +30,13 @@ package org.hisp.dhis.validation;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableSet;
 import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.scheduling.JobConfiguration;
 
 import java.util.Collection;
+import java.util.Date;
 
 /**
  * This class represents the most fundamental parameters to run a validation rule analysis.
@@ -65,6 +68,8 @@ public final class ValidationAnalysisParams
      */
     private boolean includeOrgUnitDescendants = false;
 
+    private ImmutableCollection<OrganisationUnit> orgUnits;
+
     private int maxResults = ValidationService.MAX_INTERACTIVE_ALERTS;
 
     private boolean sendNotifications = false;
@@ -73,6 +78,16 @@ public final class ValidationAnalysisParams
 
     private int dayInPeriod = -1;
 
+    private Date changedSince;
+
+    private Collection<DeflatedDataValue> changedDataValues;
+
+    private boolean resolveResults = false;
+
+    private int threadPoolSize = 0;
+
+    private JobConfiguration jobConfiguration;
+
     /**
      * Gets the rules selected for analysis
      *
@@ -93,6 +108,17 @@ public final class ValidationAnalysisParams
         return orgUnit;
     }
 
+    /**
+     * Gets the organisation units selected for analysis instead of the
+     * organisation unit, if any
+     *
+     * @return a collection of organisation units to be analysed, or null.
+     */
+    public ImmutableCollection<OrganisationUnit> getOrgUnits()
+    {
+        return orgUnits;
+    }
+
     /**
      * Gets the periods selected for analysis
      *
@@ -168,6 +194,63 @@ public final class ValidationAnalysisParams
         return maxResults;
     }
 
+    /**
+     * Gets the date since which data must have changed for an organisation unit,
+     * period and attribute option combo to be validated. If null, all data is
+     * validated.
+     *
+     * @return the date since which data must have changed, or null.
+     */
+    public Date getChangedSince()
+    {
+        return changedSince;
+    }
+
+    /**
+     * Gets the data values which have changed, for which the affected
+     * organisation units, periods and attribute option combos are to be
+     * validated. If null, all data is validated.
+     *
+     * @return the changed data values, or null.
+     */
+    public Collection<DeflatedDataValue> getChangedDataValues()
+    {
+        return changedDataValues;
+    }
+
+    /**
+     * Gets whether known validation results which are no longer violated
+     * by the changed data are removed from the results and deleted.
+     *
+     * @return true if results no longer violated are resolved.
+     */
+    public boolean isResolveResults()
+    {
+        return resolveResults;
+    }
+
+    /**
+     * Gets the number of threads to use for the analysis. If 0, the number
+     * of threads is based on the number of available processor cores.
+     *
+     * @return the number of threads, or 0 to use the default.
+     */
+    public int getThreadPoolSize()
+    {
+        return threadPoolSize;
+    }
+
+    /**
+     * Gets the job configuration to report the progress of the analysis to,
+     * if the analysis runs as part of a job.
+     *
+     * @return the job configuration, or null.
+     */
+    public JobConfiguration getJobConfiguration()
+    {
+        return jobConfiguration;
+    }
+
     public static class Builder
     {
         private ValidationAnalysisParams params;
@@ -205,6 +288,19 @@ public final class ValidationAnalysisParams
             return this;
         }
 
+        /**
+         * Sets the organisation units to analyse, which takes precedence over
+         * the organisation unit of the builder.
+         *
+         * @param orgUnits the organisation units to analyse, null to use the organisation unit.
+         * @return the updated builder object
+         */
+        public Builder withOrgUnits( Collection<OrganisationUnit> orgUnits )
+        {
+            this.params.orgUnits = orgUnits != null ? ImmutableSet.copyOf( orgUnits ) : null;
+            return this;
+        }
+
         /**
          * If set to true, results will be persisted in the database
          *
@@ -255,6 +351,72 @@ public final class ValidationAnalysisParams
             return this;
         }
 
+        /**
+         * Limits the analysis to the organisation units, periods and attribute
+         * option combos with data values which have changed since the given
+         * date. Rules which use event data are always fully validated.
+         *
+         * @param changedSince the date since which data must have changed, null to validate all data.
+         * @return the updated builder object
+         */
+        public Builder withChangedSince( Date changedSince )
+        {
+            this.params.changedSince = changedSince;
+            return this;
+        }
+
+        /**
+         * Limits the analysis to the organisation units, periods and attribute
+         * option combos of the given changed data values. Rules which use event
+         * data are always fully validated.
+         *
+         * @param changedDataValues the changed data values, null to validate all data.
+         * @return the updated builder object
+         */
+        public Builder withChangedDataValues( Collection<DeflatedDataValue> changedDataValues )
+        {
+            this.params.changedDataValues = changedDataValues;
+            return this;
+        }
+
+        /**
+         * Removes known validation results which are no longer violated by
+         * the changed data, and deletes them when results are persisted.
+         * Only applies to analyses limited to changed data.
+         *
+         * @param resolveResults true to resolve results no longer violated.
+         * @return the updated builder object
+         */
+        public Builder withResolveResults( boolean resolveResults )
+        {
+            this.params.resolveResults = resolveResults;
+            return this;
+        }
+
+        /**
+         * The number of threads to use for the analysis.
+         *
+         * @param threadPoolSize the number of threads, 0 to use the default.
+         * @return the updated builder object
+         */
+        public Builder withThreadPoolSize( int threadPoolSize )
+        {
+            this.params.threadPoolSize = threadPoolSize;
+            return this;
+        }
+
+        /**
+         * The job configuration to report the progress of the analysis to.
+         *
+         * @param jobConfiguration the job configuration.
+         * @return the updated builder object
+         */
+        public Builder withJobConfiguration( JobConfiguration jobConfiguration )
+        {
+            this.params.jobConfiguration = jobConfiguration;
+            return this;
+        }
+
         /**
          * Returns the params object
          * @return the final ValidationAnalysisParams object.
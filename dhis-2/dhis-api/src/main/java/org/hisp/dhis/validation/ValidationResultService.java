@@ -89,4 +89,7 @@ public interface ValidationResultService
 
     List<ValidationResult> getValidationResults( OrganisationUnit orgUnit,
         boolean includeOrgUnitDescendants, Collection<ValidationRule> validationRules, Collection<Period> periods );
+
+    List<ValidationResult> getValidationResults( Collection<OrganisationUnit> orgUnits,
+        Collection<ValidationRule> validationRules, Collection<Period> periods );
 }
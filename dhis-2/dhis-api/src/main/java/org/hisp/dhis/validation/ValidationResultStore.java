@@ -52,4 +52,7 @@ public interface ValidationResultStore
 
     List<ValidationResult> getValidationResults( OrganisationUnit orgUnit,
         boolean includeOrgUnitDescendants, Collection<ValidationRule> validationRules, Collection<Period> periods );
+
+    List<ValidationResult> getValidationResults( Collection<OrganisationUnit> orgUnits,
+        Collection<ValidationRule> validationRules, Collection<Period> periods );
 }
@@ -68,6 +68,13 @@ public class AnalyticsTable
      */
     private List<AnalyticsTablePartition> partitionTables = new UniqueArrayList<>();
 
+    /**
+     * Indicates whether this table is updated incrementally, i.e. whether only
+     * the contained partitions are replaced and the existing master table and
+     * remaining partitions are retained.
+     */
+    private boolean incremental;
+
     // -------------------------------------------------------------------------
     // Constructors
     // -------------------------------------------------------------------------
@@ -110,6 +117,18 @@ public class AnalyticsTable
         return this;
     }
 
+    /**
+     * Sets whether this table is updated incrementally.
+     *
+     * @param incremental whether this table is updated incrementally.
+     * @return this analytics table.
+     */
+    public AnalyticsTable withIncremental( boolean incremental )
+    {
+        this.incremental = incremental;
+        return this;
+    }
+
     public String getBaseName()
     {
         return tableType.getTableName();
@@ -178,6 +197,11 @@ public class AnalyticsTable
         return partitionTables;
     }
 
+    public boolean isIncremental()
+    {
+        return incremental;
+    }
+
     // -------------------------------------------------------------------------
     // hashCode, equals, toString
     // -------------------------------------------------------------------------
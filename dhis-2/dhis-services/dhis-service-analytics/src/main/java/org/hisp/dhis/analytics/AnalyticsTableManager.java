@@ -118,6 +118,18 @@ public interface AnalyticsTableManager
      */
     Future<?> populateTablesAsync( AnalyticsTableUpdateParams params, ConcurrentLinkedQueue<AnalyticsTablePartition> tablePartitions );
 
+    /**
+     * Updates the existing analytics table in place by appending rows which
+     * were added to and removing rows which were deleted from the source table
+     * since the last update. Applies to analytics tables which are based on
+     * append-only source tables.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @return true if the analytics table was updated in place, false if the
+     *         analytics table must be regenerated.
+     */
+    boolean appendTable( AnalyticsTableUpdateParams params );
+
     /**
      * Invokes analytics table SQL hooks for the table type.
      *
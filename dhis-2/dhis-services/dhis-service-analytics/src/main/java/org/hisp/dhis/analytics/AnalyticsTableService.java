@@ -48,6 +48,16 @@ public interface AnalyticsTableService
      * @param params the {@link AnalyticsTableUpdateParams}.
      */
     void update( AnalyticsTableUpdateParams params );
+
+    /**
+     * Updates the existing analytics tables in place with changes in the
+     * source table since the last update, if supported by the type of
+     * analytics table and if incremental table updates are enabled.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @return true if the analytics tables were updated in place.
+     */
+    boolean append( AnalyticsTableUpdateParams params );
     
     /**
      * Drops main and temporary analytics tables.
@@ -0,0 +1,326 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.indicator.Indicator;
+import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.validation.ValidationRule;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Immutable in-memory snapshot of the metadata identifiers needed to parse and
+ * plan analytics queries, i.e. mappings from UID to database identifier, the
+ * organisation unit hierarchy and organisation unit group memberships. Objects
+ * are resolved from the snapshot by database identifier, which is served by the
+ * second-level cache, instead of being looked up by UID through the database.
+ */
+public class MetadataSnapshot
+{
+    /**
+     * Data dimension item classes which can be identified by UID only, in the
+     * order in which they are looked up.
+     */
+    public static final List<Class<? extends IdentifiableObject>> DATA_ITEM_CLASSES = ImmutableList.of(
+        Indicator.class, DataElement.class, ProgramIndicator.class, ValidationRule.class );
+
+    public static final MetadataSnapshot EMPTY = new MetadataSnapshot( -1L, new HashMap<>(), new ArrayList<>(), new HashMap<>() );
+
+    /**
+     * Version of the metadata which this snapshot was built from.
+     */
+    private final long version;
+
+    /**
+     * Time of creation of this snapshot.
+     */
+    private final long created;
+
+    /**
+     * Mapping of class to UID to database identifier.
+     */
+    private final Map<Class<? extends IdentifiableObject>, Map<String, Long>> identifiers;
+
+    /**
+     * Mapping of database identifier to organisation unit.
+     */
+    private final Map<Long, OrgUnitNode> orgUnits;
+
+    /**
+     * Mapping of hierarchy level to organisation units.
+     */
+    private final Map<Integer, List<OrgUnitNode>> orgUnitsByLevel;
+
+    /**
+     * Mapping of organisation unit group identifier to member organisation
+     * unit identifiers.
+     */
+    private final Map<Long, long[]> orgUnitGroupMembers;
+
+    public MetadataSnapshot( long version, Map<Class<? extends IdentifiableObject>, Map<String, Long>> identifiers,
+        List<OrgUnitNode> orgUnits, Map<Long, long[]> orgUnitGroupMembers )
+    {
+        this.version = version;
+        this.created = System.currentTimeMillis();
+        this.identifiers = Collections.unmodifiableMap( identifiers );
+        this.orgUnitGroupMembers = Collections.unmodifiableMap( orgUnitGroupMembers );
+
+        Map<Long, OrgUnitNode> orgUnitMap = new HashMap<>();
+        Map<Integer, List<OrgUnitNode>> orgUnitLevelMap = new HashMap<>();
+
+        for ( OrgUnitNode orgUnit : orgUnits )
+        {
+            orgUnitMap.put( orgUnit.getId(), orgUnit );
+            orgUnitLevelMap.computeIfAbsent( orgUnit.getLevel(), level -> new ArrayList<>() ).add( orgUnit );
+        }
+
+        this.orgUnits = Collections.unmodifiableMap( orgUnitMap );
+        this.orgUnitsByLevel = Collections.unmodifiableMap( orgUnitLevelMap );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the database identifier of the object of the given class with
+     * the given UID, or null if no such object exists in this snapshot.
+     *
+     * @param klass the class.
+     * @param uid the UID.
+     */
+    public Long getId( Class<? extends IdentifiableObject> klass, String uid )
+    {
+        Map<String, Long> map = identifiers.get( klass );
+
+        return map != null ? map.get( uid ) : null;
+    }
+
+    /**
+     * Returns the first of the {@link #DATA_ITEM_CLASSES} which has an object
+     * with the given UID, or null if no such object exists in this snapshot.
+     *
+     * @param uid the UID.
+     */
+    public Class<? extends IdentifiableObject> getDataItemClass( String uid )
+    {
+        for ( Class<? extends IdentifiableObject> klass : DATA_ITEM_CLASSES )
+        {
+            if ( getId( klass, uid ) != null )
+            {
+                return klass;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Indicates whether this snapshot contains all organisation units with the
+     * given identifiers.
+     *
+     * @param ids the organisation unit identifiers.
+     */
+    public boolean hasOrgUnits( Collection<Long> ids )
+    {
+        return !orgUnits.isEmpty() && orgUnits.keySet().containsAll( ids );
+    }
+
+    /**
+     * Returns the identifiers of organisation units at the given levels which
+     * are equal to or descendants of any of the given boundary organisation
+     * units. If no boundary organisation units are given, all organisation units
+     * at the given levels are returned.
+     *
+     * @param levels the hierarchy levels.
+     * @param boundaryIds the boundary organisation unit identifiers.
+     */
+    public List<Long> getOrgUnitIdsAtLevels( Collection<Integer> levels, Collection<Long> boundaryIds )
+    {
+        List<String> boundaryPaths = getPaths( boundaryIds );
+        List<Long> ids = new ArrayList<>();
+
+        for ( Integer level : levels )
+        {
+            for ( OrgUnitNode orgUnit : orgUnitsByLevel.getOrDefault( level, Collections.emptyList() ) )
+            {
+                if ( orgUnit.isWithin( boundaryPaths ) )
+                {
+                    ids.add( orgUnit.getId() );
+                }
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Returns the identifiers of organisation units which are members of any of
+     * the given groups and equal to or descendants of any of the given boundary
+     * organisation units. If no boundary organisation units are given, all
+     * members are returned.
+     *
+     * @param groupIds the organisation unit group identifiers.
+     * @param boundaryIds the boundary organisation unit identifiers.
+     */
+    public List<Long> getOrgUnitIdsInGroups( Collection<Long> groupIds, Collection<Long> boundaryIds )
+    {
+        List<String> boundaryPaths = getPaths( boundaryIds );
+        List<Long> ids = new ArrayList<>();
+
+        for ( Long groupId : groupIds )
+        {
+            for ( long memberId : orgUnitGroupMembers.getOrDefault( groupId, new long[0] ) )
+            {
+                OrgUnitNode orgUnit = orgUnits.get( memberId );
+
+                if ( orgUnit != null && orgUnit.isWithin( boundaryPaths ) )
+                {
+                    ids.add( memberId );
+                }
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Indicates whether this snapshot was built from the given metadata version
+     * and is not older than the given max age.
+     *
+     * @param currentVersion the current metadata version.
+     * @param maxAgeMillis the max age in milliseconds.
+     */
+    public boolean isCurrent( long currentVersion, long maxAgeMillis )
+    {
+        return version == currentVersion && ( System.currentTimeMillis() - created ) <= maxAgeMillis;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<String> getPaths( Collection<Long> orgUnitIds )
+    {
+        List<String> paths = new ArrayList<>();
+
+        for ( Long id : orgUnitIds )
+        {
+            OrgUnitNode orgUnit = orgUnits.get( id );
+
+            if ( orgUnit != null )
+            {
+                paths.add( orgUnit.getPath() );
+            }
+        }
+
+        return paths;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Node in the organisation unit hierarchy.
+     */
+    public static class OrgUnitNode
+    {
+        private final long id;
+
+        private final String path;
+
+        private final int level;
+
+        public OrgUnitNode( long id, String path, int level )
+        {
+            this.id = id;
+            this.path = path;
+            this.level = level;
+        }
+
+        /**
+         * Indicates whether this organisation unit is equal to or a descendant
+         * of any of the organisation units with the given paths. Returns true if
+         * the given paths are empty.
+         *
+         * @param boundaryPaths the paths of the boundary organisation units.
+         */
+        public boolean isWithin( Collection<String> boundaryPaths )
+        {
+            if ( boundaryPaths.isEmpty() )
+            {
+                return true;
+            }
+
+            for ( String boundaryPath : boundaryPaths )
+            {
+                if ( path != null && path.startsWith( boundaryPath ) )
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        public long getId()
+        {
+            return id;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        public int getLevel()
+        {
+            return level;
+        }
+    }
+}
@@ -63,6 +63,8 @@ import org.hisp.dhis.util.ObjectUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.Assert;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Lars Helge Overland
  */
@@ -85,11 +87,14 @@ public class DefaultDataQueryService
 
     private I18nManager i18nManager;
 
+    private MetadataSnapshotManager metadataSnapshotManager;
+
     @Autowired
     public DefaultDataQueryService( IdentifiableObjectManager idObjectManager,
         OrganisationUnitService organisationUnitService, DimensionService dimensionService,
         AnalyticsSecurityManager securityManager, SystemSettingManager systemSettingManager, AclService aclService,
-        CurrentUserService currentUserService, I18nManager i18nManager )
+        CurrentUserService currentUserService, I18nManager i18nManager,
+        MetadataSnapshotManager metadataSnapshotManager )
     {
         checkNotNull( idObjectManager );
         checkNotNull( organisationUnitService );
@@ -99,6 +104,7 @@ public class DefaultDataQueryService
         checkNotNull( aclService );
         checkNotNull( currentUserService );
         checkNotNull( i18nManager );
+        checkNotNull( metadataSnapshotManager );
 
         this.idObjectManager = idObjectManager;
         this.organisationUnitService = organisationUnitService;
@@ -108,6 +114,7 @@ public class DefaultDataQueryService
         this.aclService = aclService;
         this.currentUserService = currentUserService;
         this.i18nManager = i18nManager;
+        this.metadataSnapshotManager = metadataSnapshotManager;
     }
 
     // -------------------------------------------------------------------------
@@ -262,7 +269,7 @@ public class DefaultDataQueryService
                 {
                     String groupUid = DimensionalObjectUtils.getUidFromGroupParam( uid );
 
-                    DataElementGroup group = idObjectManager.getObject( DataElementGroup.class, inputIdScheme, groupUid );
+                    DataElementGroup group = getObject( DataElementGroup.class, inputIdScheme, groupUid );
 
                     if ( group != null )
                     {
@@ -274,7 +281,7 @@ public class DefaultDataQueryService
                 {
                     String groupUid = DimensionalObjectUtils.getUidFromGroupParam( uid );
 
-                    IndicatorGroup group = idObjectManager.getObject( IndicatorGroup.class, inputIdScheme, groupUid );
+                    IndicatorGroup group = getObject( IndicatorGroup.class, inputIdScheme, groupUid );
 
                     if ( group != null )
                     {
@@ -285,7 +292,7 @@ public class DefaultDataQueryService
                 }
                 else
                 {
-                    DimensionalItemObject dimItemObject = dimensionService.getDataDimensionalItemObject( inputIdScheme, uid );
+                    DimensionalItemObject dimItemObject = getDataDimensionalItemObject( inputIdScheme, uid );
 
                     if ( dimItemObject != null )
                     {
@@ -406,7 +413,7 @@ public class DefaultDataQueryService
                 {
                     String uid = DimensionalObjectUtils.getUidFromGroupParam( ou );
 
-                    OrganisationUnitGroup group = idObjectManager.getObject( OrganisationUnitGroup.class, inputIdScheme, uid );
+                    OrganisationUnitGroup group = getObject( OrganisationUnitGroup.class, inputIdScheme, uid );
 
                     if ( group != null )
                     {
@@ -415,7 +422,7 @@ public class DefaultDataQueryService
                 }
                 else if ( !inputIdScheme.is( IdentifiableProperty.UID ) || CodeGenerator.isValidUid( ou ) )
                 {
-                    OrganisationUnit unit = idObjectManager.getObject( OrganisationUnit.class, inputIdScheme, ou );
+                    OrganisationUnit unit = getObject( OrganisationUnit.class, inputIdScheme, ou );
 
                     if ( unit != null )
                     {
@@ -432,7 +439,7 @@ public class DefaultDataQueryService
 
             if ( !levels.isEmpty() )
             {
-                orgUnits.addAll( sort( organisationUnitService.getOrganisationUnitsAtLevels( levels, ousList ) ) );
+                orgUnits.addAll( sort( getOrganisationUnitsAtLevels( levels, ousList ) ) );
                 dimensionalKeywords.addGroupBy(
                     levels.stream().map( l -> organisationUnitService.getOrganisationUnitLevelByLevel( l ) )
                         .filter( Objects::nonNull ).collect( Collectors.toList() ) );
@@ -440,7 +447,7 @@ public class DefaultDataQueryService
 
             if ( !groups.isEmpty() )
             {
-                orgUnits.addAll( sort( organisationUnitService.getOrganisationUnits( groups, ousList ) ) );
+                orgUnits.addAll( sort( getOrganisationUnits( groups, ousList ) ) );
                 dimensionalKeywords.addGroupBy(
                     groups.stream().map( g -> new BaseNameableObject( g.getUid(), g.getCode(), g.getName() ) )
                         .collect( Collectors.toList() ) );
@@ -480,7 +487,7 @@ public class DefaultDataQueryService
 
             for ( String uid : items )
             {
-                OrganisationUnitGroup organisationUnitGroup = idObjectManager.getObject( OrganisationUnitGroup.class,
+                OrganisationUnitGroup organisationUnitGroup = getObject( OrganisationUnitGroup.class,
                     inputIdScheme, uid );
 
                 if ( organisationUnitGroup != null )
@@ -567,6 +574,106 @@ public class DefaultDataQueryService
             .collect( Collectors.toList() );
     }
 
+    /**
+     * Returns the object of the given class with the given identifier. UIDs are
+     * resolved through the metadata snapshot and the second-level cache, other
+     * identifiers and UIDs not present in the snapshot through the database.
+     */
+    private <T extends IdentifiableObject> T getObject( Class<T> klass, IdScheme idScheme, String id )
+    {
+        if ( idScheme.is( IdentifiableProperty.UID ) )
+        {
+            Long objectId = metadataSnapshotManager.getSnapshot().getId( klass, id );
+
+            T object = objectId != null ? idObjectManager.get( klass, objectId ) : null;
+
+            if ( object != null )
+            {
+                return object;
+            }
+        }
+
+        return idObjectManager.getObject( klass, idScheme, id );
+    }
+
+    /**
+     * Returns the data dimension item with the given identifier. Plain UIDs are
+     * resolved through the metadata snapshot, composite identifiers and UIDs not
+     * present in the snapshot through the dimension service.
+     */
+    private DimensionalItemObject getDataDimensionalItemObject( IdScheme idScheme, String id )
+    {
+        if ( idScheme.is( IdentifiableProperty.UID ) && !DimensionalObjectUtils.isCompositeDimensionalObject( id ) )
+        {
+            MetadataSnapshot snapshot = metadataSnapshotManager.getSnapshot();
+
+            Class<? extends IdentifiableObject> klass = snapshot.getDataItemClass( id );
+
+            IdentifiableObject object = klass != null ? idObjectManager.get( klass, snapshot.getId( klass, id ) ) : null;
+
+            if ( object instanceof DimensionalItemObject )
+            {
+                return (DimensionalItemObject) object;
+            }
+        }
+
+        return dimensionService.getDataDimensionalItemObject( idScheme, id );
+    }
+
+    /**
+     * Returns the organisation units at the given levels within the given
+     * boundaries, using the metadata snapshot when it contains the boundaries.
+     */
+    private List<OrganisationUnit> getOrganisationUnitsAtLevels( List<Integer> levels, List<OrganisationUnit> boundaries )
+    {
+        MetadataSnapshot snapshot = metadataSnapshotManager.getSnapshot();
+
+        List<Long> boundaryIds = getIds( boundaries );
+
+        if ( snapshot.hasOrgUnits( boundaryIds ) )
+        {
+            return getOrganisationUnitsByIds( snapshot.getOrgUnitIdsAtLevels( levels, boundaryIds ) );
+        }
+
+        return organisationUnitService.getOrganisationUnitsAtLevels( levels, boundaries );
+    }
+
+    /**
+     * Returns the organisation units which are members of the given groups within
+     * the given boundaries, using the metadata snapshot when it contains the
+     * boundaries.
+     */
+    private List<OrganisationUnit> getOrganisationUnits( List<OrganisationUnitGroup> groups, List<OrganisationUnit> boundaries )
+    {
+        MetadataSnapshot snapshot = metadataSnapshotManager.getSnapshot();
+
+        List<Long> boundaryIds = getIds( boundaries );
+
+        if ( snapshot.hasOrgUnits( boundaryIds ) )
+        {
+            return getOrganisationUnitsByIds( snapshot.getOrgUnitIdsInGroups( getIds( groups ), boundaryIds ) );
+        }
+
+        return organisationUnitService.getOrganisationUnits( groups, boundaries );
+    }
+
+    private List<OrganisationUnit> getOrganisationUnitsByIds( List<Long> ids )
+    {
+        List<OrganisationUnit> orgUnits = new ArrayList<>();
+
+        for ( List<Long> partition : Lists.partition( ids.stream().distinct().collect( Collectors.toList() ), 20000 ) )
+        {
+            orgUnits.addAll( idObjectManager.getById( OrganisationUnit.class, partition ) );
+        }
+
+        return orgUnits;
+    }
+
+    private List<Long> getIds( List<? extends IdentifiableObject> objects )
+    {
+        return objects.stream().map( IdentifiableObject::getId ).collect( Collectors.toList() );
+    }
+
     private List<DimensionalItemObject> getCanReadItems( User user, DimensionalObject object )
     {
         return object.getItems().stream().filter( o -> aclService.canDataOrMetadataRead( user, o ) )
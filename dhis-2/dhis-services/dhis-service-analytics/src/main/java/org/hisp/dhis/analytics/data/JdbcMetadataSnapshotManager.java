@@ -0,0 +1,206 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.analytics.MetadataSnapshot;
+import org.hisp.dhis.analytics.MetadataSnapshot.OrgUnitNode;
+import org.hisp.dhis.analytics.MetadataSnapshotManager;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.MetadataChangeTracker;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementGroup;
+import org.hisp.dhis.indicator.Indicator;
+import org.hisp.dhis.indicator.IndicatorGroup;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
+import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.util.Timer;
+import org.hisp.dhis.validation.ValidationRule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Metadata snapshot manager which builds snapshots with plain SQL queries. The
+ * snapshot is rebuilt when any of the tracked metadata classes have changed on
+ * this node, and at least every {@link #MAX_AGE_MILLIS}. Changes made on other
+ * nodes are not visible to the {@link MetadataChangeTracker}, which is disabled
+ * when this node is part of a cluster. An empty snapshot is returned when the
+ * tracker is disabled, so that all lookups go to the database.
+ */
+public class JdbcMetadataSnapshotManager
+    implements MetadataSnapshotManager
+{
+    private static final Log log = LogFactory.getLog( JdbcMetadataSnapshotManager.class );
+
+    private static final long MAX_AGE_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Mapping of class to table and identifier column.
+     */
+    private static final Map<Class<? extends IdentifiableObject>, String[]> CLASS_TABLES = ImmutableMap.<Class<? extends IdentifiableObject>, String[]>builder()
+        .put( OrganisationUnit.class, new String[] { "organisationunit", "organisationunitid" } )
+        .put( OrganisationUnitGroup.class, new String[] { "orgunitgroup", "orgunitgroupid" } )
+        .put( DataElement.class, new String[] { "dataelement", "dataelementid" } )
+        .put( DataElementGroup.class, new String[] { "dataelementgroup", "dataelementgroupid" } )
+        .put( Indicator.class, new String[] { "indicator", "indicatorid" } )
+        .put( IndicatorGroup.class, new String[] { "indicatorgroup", "indicatorgroupid" } )
+        .put( ProgramIndicator.class, new String[] { "programindicator", "programindicatorid" } )
+        .put( ValidationRule.class, new String[] { "validationrule", "validationruleid" } )
+        .build();
+
+    private static final List<Class<?>> TRACKED_CLASSES = ImmutableList.copyOf( CLASS_TABLES.keySet() );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MetadataChangeTracker metadataChangeTracker;
+
+    private volatile MetadataSnapshot snapshot = MetadataSnapshot.EMPTY;
+
+    // -------------------------------------------------------------------------
+    // MetadataSnapshotManager implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public MetadataSnapshot getSnapshot()
+    {
+        if ( !metadataChangeTracker.isEnabled() )
+        {
+            return MetadataSnapshot.EMPTY;
+        }
+
+        MetadataSnapshot current = snapshot;
+
+        if ( current.isCurrent( metadataChangeTracker.getVersion( TRACKED_CLASSES ), MAX_AGE_MILLIS ) )
+        {
+            return current;
+        }
+
+        return rebuild();
+    }
+
+    @Override
+    public void invalidate()
+    {
+        snapshot = MetadataSnapshot.EMPTY;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private synchronized MetadataSnapshot rebuild()
+    {
+        long version = metadataChangeTracker.getVersion( TRACKED_CLASSES );
+
+        if ( snapshot.isCurrent( version, MAX_AGE_MILLIS ) )
+        {
+            return snapshot; // Rebuilt by other thread
+        }
+
+        Timer timer = new Timer().start().disablePrint();
+
+        Map<Class<? extends IdentifiableObject>, Map<String, Long>> identifiers = new HashMap<>();
+
+        for ( Map.Entry<Class<? extends IdentifiableObject>, String[]> entry : CLASS_TABLES.entrySet() )
+        {
+            identifiers.put( entry.getKey(), getIdentifiers( entry.getValue()[0], entry.getValue()[1] ) );
+        }
+
+        snapshot = new MetadataSnapshot( version, identifiers, getOrgUnits(), getOrgUnitGroupMembers() );
+
+        log.info( String.format( "Built analytics metadata snapshot with version: %d in: %d ms", version, timer.getTimeInMs() ) );
+
+        return snapshot;
+    }
+
+    private Map<String, Long> getIdentifiers( String table, String idColumn )
+    {
+        final String sql = "select uid, " + idColumn + " from " + table;
+
+        Map<String, Long> map = new HashMap<>();
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        while ( rowSet.next() )
+        {
+            map.put( rowSet.getString( 1 ), rowSet.getLong( 2 ) );
+        }
+
+        return map;
+    }
+
+    private List<OrgUnitNode> getOrgUnits()
+    {
+        final String sql = "select organisationunitid, path, hierarchylevel from organisationunit";
+
+        List<OrgUnitNode> orgUnits = new ArrayList<>();
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        while ( rowSet.next() )
+        {
+            orgUnits.add( new OrgUnitNode( rowSet.getLong( 1 ), rowSet.getString( 2 ), rowSet.getInt( 3 ) ) );
+        }
+
+        return orgUnits;
+    }
+
+    private Map<Long, long[]> getOrgUnitGroupMembers()
+    {
+        final String sql = "select orgunitgroupid, organisationunitid from orgunitgroupmembers order by orgunitgroupid";
+
+        Map<Long, List<Long>> members = new HashMap<>();
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        while ( rowSet.next() )
+        {
+            members.computeIfAbsent( rowSet.getLong( 1 ), id -> new ArrayList<>() ).add( rowSet.getLong( 2 ) );
+        }
+
+        Map<Long, long[]> map = new HashMap<>();
+
+        members.forEach( ( groupId, memberIds ) -> map.put( groupId, memberIds.stream().mapToLong( Long::longValue ).toArray() ) );
+
+        return map;
+    }
+}
@@ -158,6 +158,12 @@ public class EventQueryParams
      */
     private boolean geometryOnly;
 
+    /**
+     * Indicates whether distinct counts can be approximated, which is faster
+     * for large programs. Requires the postgresql-hll database extension.
+     */
+    private boolean approximateCount;
+
     /**
      * Indicates whether the query originates from an aggregate data query.
      */
@@ -250,6 +256,7 @@ public class EventQueryParams
         params.collapseDataDimensions = this.collapseDataDimensions;
         params.coordinatesOnly = this.coordinatesOnly;
         params.geometryOnly = this.geometryOnly;
+        params.approximateCount = this.approximateCount;
         params.aggregateData = this.aggregateData;
         params.clusterSize = this.clusterSize;
         params.coordinateField = this.coordinateField;
@@ -346,6 +353,7 @@ public class EventQueryParams
             .addIgnoreNull( collapseDataDimensions )
             .addIgnoreNull( coordinatesOnly )
             .addIgnoreNull( geometryOnly )
+            .addIgnoreNull( approximateCount )
             .addIgnoreNull( aggregateData )
             .addIgnoreNull( clusterSize )
             .addIgnoreNull( coordinateField )
@@ -845,6 +853,11 @@ public class EventQueryParams
         return geometryOnly;
     }
 
+    public boolean isApproximateCount()
+    {
+        return approximateCount;
+    }
+
     public boolean isAggregateData()
     {
         return aggregateData;
@@ -1042,6 +1055,12 @@ public class EventQueryParams
             return this;
         }
 
+        public Builder withApproximateCount( boolean approximateCount )
+        {
+            this.params.approximateCount = approximateCount;
+            return this;
+        }
+
         public Builder withGeometryOnly( boolean geometryOnly )
         {
             this.params.geometryOnly = geometryOnly;
@@ -87,6 +87,12 @@ public abstract class AbstractJdbcEventAnalyticsManager
 
     protected static final int LAST_VALUE_YEARS_OFFSET = -10;
 
+    /**
+     * Base 2 logarithm of the number of HyperLogLog registers. Gives 4096
+     * registers and a standard error of 1.04 / sqrt(4096), about 1.6%.
+     */
+    protected static final int HLL_LOG2M = 12;
+
     protected final JdbcTemplate jdbcTemplate;
 
     protected final StatementBuilder statementBuilder;
@@ -416,35 +422,74 @@ public abstract class AbstractJdbcEventAnalyticsManager
         }
         else
         {
-            if ( params.hasEnrollmentProgramIndicatorDimension() )
+            String distinctColumn = getDistinctCountColumn( params );
+
+            if ( distinctColumn != null && params.isApproximateCount() )
             {
-                if ( EventOutputType.TRACKED_ENTITY_INSTANCE.equals( outputType ) && params.isProgramRegistration() )
-                {
-                    return "count(distinct tei)";
-                }
-                else // EVENT
-                {
-                    return "count(pi)";
-                }
+                return getApproximateCountClause( distinctColumn );
             }
-            else
+            else if ( distinctColumn != null )
             {
-                if ( EventOutputType.TRACKED_ENTITY_INSTANCE.equals( outputType ) && params.isProgramRegistration() )
-                {
-                    return "count(distinct " + quoteAlias( "tei") + ")";
-                }
-                else if ( EventOutputType.ENROLLMENT.equals( outputType ) )
-                {
-                    return "count(distinct " + quoteAlias( "pi") + ")";
-                }
-                else // EVENT
-                {
-                    return "count(" + quoteAlias( "psi") + ")";
-                }
+                return "count(distinct " + distinctColumn + ")";
+            }
+            else if ( params.hasEnrollmentProgramIndicatorDimension() ) // EVENT
+            {
+                return "count(pi)";
+            }
+            else // EVENT
+            {
+                return "count(" + quoteAlias( "psi") + ")";
             }
         }
     }
 
+    /**
+     * Returns the column to count distinct values of based on output type, or
+     * null if the count is not distinct.
+     *
+     * @param params the {@link EventQueryParams}.
+     */
+    protected String getDistinctCountColumn( EventQueryParams params )
+    {
+        EventOutputType outputType = params.getOutputType();
+
+        if ( params.hasValueDimension() || params.hasProgramIndicatorDimension() )
+        {
+            return null;
+        }
+        else if ( params.hasEnrollmentProgramIndicatorDimension() )
+        {
+            if ( EventOutputType.TRACKED_ENTITY_INSTANCE.equals( outputType ) && params.isProgramRegistration() )
+            {
+                return "tei";
+            }
+        }
+        else if ( EventOutputType.TRACKED_ENTITY_INSTANCE.equals( outputType ) && params.isProgramRegistration() )
+        {
+            return quoteAlias( "tei" );
+        }
+        else if ( EventOutputType.ENROLLMENT.equals( outputType ) )
+        {
+            return quoteAlias( "pi" );
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns a clause which estimates the distinct count of the given column
+     * with the HyperLogLog aggregate of the postgresql-hll extension. Values
+     * are hashed to 64 bits, and the estimate applies the bias and range
+     * corrections of the extension.
+     *
+     * @param distinctColumn the column to count distinct values of.
+     */
+    protected static String getApproximateCountClause( String distinctColumn )
+    {
+        return "coalesce(round(hll_cardinality(hll_add_agg(hll_hash_text(cast(" + distinctColumn + " as text)), " +
+            HLL_LOG2M + ")))::bigint, 0)";
+    }
+
     /**
      * Returns an item value for the given query, query item and value. Assumes that
      * data dimensions are collapsed for the given query. Returns the short name
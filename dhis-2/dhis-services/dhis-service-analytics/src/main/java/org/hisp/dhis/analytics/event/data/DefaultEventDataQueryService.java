@@ -46,6 +46,7 @@ import org.hisp.dhis.legend.LegendSet;
 import org.hisp.dhis.legend.LegendSetService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.program.*;
+import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
 import org.hisp.dhis.trackedentity.TrackedEntityAttributeService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -98,6 +99,9 @@ public class DefaultEventDataQueryService
     @Autowired
     private I18nManager i18nManager;
 
+    @Autowired
+    private DatabaseInfo databaseInfo;
+
     @Override
     public EventQueryParams getFromRequest( EventDataQueryRequest request )
     {
@@ -203,6 +207,7 @@ public class DefaultEventDataQueryService
             .withCompletedOnly( request.isCompletedOnly() )
             .withHierarchyMeta( request.isHierarchyMeta() )
             .withCoordinatesOnly( request.isCoordinatesOnly() )
+            .withApproximateCount( request.isApproximateCount() && databaseInfo.isHllSupport() )
             .withIncludeMetadataDetails( request.isIncludeMetadataDetails() )
             .withDataIdScheme( request.getDataIdScheme() )
             .withEventStatus( request.getEventStatus() )
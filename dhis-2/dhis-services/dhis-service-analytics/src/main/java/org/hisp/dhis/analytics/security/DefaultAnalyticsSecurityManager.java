@@ -33,7 +33,12 @@ import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsSecurityManager;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.event.EventQueryParams;
+import org.hisp.dhis.category.Category;
+import org.hisp.dhis.category.CategoryOption;
+import org.hisp.dhis.category.CategoryOptionGroup;
+import org.hisp.dhis.category.CategoryOptionGroupSet;
 import org.hisp.dhis.common.*;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.dataapproval.DataApproval;
 import org.hisp.dhis.dataapproval.DataApprovalLevel;
@@ -41,15 +46,28 @@ import org.hisp.dhis.dataapproval.DataApprovalLevelService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAuthorityGroup;
+import org.hisp.dhis.user.UserCredentials;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * @author Lars Helge Overland
@@ -61,6 +79,24 @@ public class DefaultAnalyticsSecurityManager
 
     private static final String AUTH_VIEW_EVENT_ANALYTICS = "F_VIEW_EVENT_ANALYTICS";
 
+    /**
+     * Classes which affect the dimension constraints of users. Changes to
+     * objects of these classes, including sharing and memberships, invalidate
+     * the cached constraints. Users and user credentials are not included, as
+     * they are updated on every login. The constraints, user groups and user
+     * roles of the user are part of the cache key instead.
+     */
+    private static final List<Class<?>> CONSTRAINT_CLASSES = ImmutableList.of(
+        UserAuthorityGroup.class, Category.class, CategoryOption.class, CategoryOptionGroup.class, CategoryOptionGroupSet.class );
+
+    /**
+     * Cache for precomputed dimension constraints per user, keyed on the
+     * constraint state of the user and the version of the
+     * {@link #CONSTRAINT_CLASSES}. Not used when metadata changes are not
+     * tracked.
+     */
+    private static Cache<String, List<DimensionConstraint>> DIMENSION_CONSTRAINT_CACHE;
+
     @Autowired
     private DataApprovalLevelService approvalLevelService;
 
@@ -76,6 +112,24 @@ public class DefaultAnalyticsSecurityManager
     @Autowired
     private CurrentUserService currentUserService;
 
+    @Autowired
+    private IdentifiableObjectManager idObjectManager;
+
+    @Autowired
+    private MetadataChangeTracker metadataChangeTracker;
+
+    @Autowired
+    private Environment env;
+
+    @PostConstruct
+    public void init()
+    {
+        DIMENSION_CONSTRAINT_CACHE = Caffeine.newBuilder()
+            .expireAfterWrite( 10, TimeUnit.MINUTES )
+            .initialCapacity( 1000 )
+            .maximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).build();
+    }
+
     // -------------------------------------------------------------------------
     // AnalyticsSecurityManager implementation
     // -------------------------------------------------------------------------
@@ -295,20 +349,22 @@ public class DefaultAnalyticsSecurityManager
             return;
         }
 
-        Set<DimensionalObject> dimensionConstraints = user.getUserCredentials().getDimensionConstraints();
+        List<DimensionConstraint> dimensionConstraints = metadataChangeTracker.isEnabled() ?
+            DIMENSION_CONSTRAINT_CACHE.get( getConstraintCacheKey( user ), key -> getDimensionConstraints( user ) ) :
+            getDimensionConstraints( user );
 
-        for ( DimensionalObject dimension : dimensionConstraints )
+        for ( DimensionConstraint dimension : dimensionConstraints )
         {
             // -----------------------------------------------------------------
             // Check if constraint already is specified with items
             // -----------------------------------------------------------------
 
-            if ( params.hasDimensionOrFilterWithItems( dimension.getUid() ) )
+            if ( params.hasDimensionOrFilterWithItems( dimension.getDimension() ) )
             {
                 continue;
             }
 
-            List<DimensionalItemObject> canReadItems = dimensionService.getCanReadDimensionItems( dimension.getDimension() );
+            List<DimensionalItemObject> canReadItems = dimension.getItems( idObjectManager );
 
             // -----------------------------------------------------------------
             // Check if current user has access to any items from constraint
@@ -333,6 +389,51 @@ public class DefaultAnalyticsSecurityManager
         }
     }
 
+    /**
+     * Returns the key of the cached dimension constraints of the given user,
+     * based on the dimension constraints, user groups and user roles of the
+     * user, and the version of the {@link #CONSTRAINT_CLASSES}.
+     *
+     * @param user the user.
+     * @return the cache key.
+     */
+    private String getConstraintCacheKey( User user )
+    {
+        UserCredentials credentials = user.getUserCredentials();
+
+        return String.join( "-", user.getUid(),
+            getSortedUids( credentials.getDimensionConstraints() ),
+            getSortedUids( user.getGroups() ),
+            getSortedUids( credentials.getUserAuthorityGroups() ),
+            String.valueOf( metadataChangeTracker.getVersion( CONSTRAINT_CLASSES ) ) );
+    }
+
+    private String getSortedUids( Collection<? extends IdentifiableObject> objects )
+    {
+        return objects != null ? IdentifiableObjectUtils.getUids( objects ).stream().sorted().collect( Collectors.joining( "," ) ) : "";
+    }
+
+    /**
+     * Computes the dimension constraints of the given user, with the items of
+     * each constraint which the user can read.
+     *
+     * @param user the user.
+     * @return a list of {@link DimensionConstraint}.
+     */
+    private List<DimensionConstraint> getDimensionConstraints( User user )
+    {
+        List<DimensionConstraint> constraints = new ArrayList<>();
+
+        for ( DimensionalObject dimension : user.getUserCredentials().getDimensionConstraints() )
+        {
+            List<DimensionalItemObject> canReadItems = dimensionService.getCanReadDimensionItems( dimension.getDimension() );
+
+            constraints.add( new DimensionConstraint( dimension, canReadItems ) );
+        }
+
+        return constraints;
+    }
+
     /**
      * Throws a {@link IllegalQueryException} with the given message if the
      * given condition is true.
@@ -348,4 +449,99 @@ public class DefaultAnalyticsSecurityManager
             throw new IllegalQueryException( message );
         }
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Precomputed dimension constraint. Holds the identifiers of the readable
+     * items rather than the items themselves, which are loaded with one query
+     * per item class for each request.
+     */
+    private static class DimensionConstraint
+    {
+        private final String dimension;
+
+        private final DimensionType dimensionType;
+
+        private final String displayName;
+
+        private final List<Class<? extends IdentifiableObject>> itemClasses = new ArrayList<>();
+
+        private final List<Long> itemIds = new ArrayList<>();
+
+        @SuppressWarnings( "unchecked" )
+        DimensionConstraint( DimensionalObject dimension, List<DimensionalItemObject> items )
+        {
+            this.dimension = dimension.getDimension();
+            this.dimensionType = dimension.getDimensionType();
+            this.displayName = dimension.getDisplayName();
+
+            if ( items != null )
+            {
+                for ( DimensionalItemObject item : items )
+                {
+                    itemClasses.add( (Class<? extends IdentifiableObject>) ReflectionUtils.getRealClass( item.getClass() ) );
+                    itemIds.add( item.getId() );
+                }
+            }
+        }
+
+        List<DimensionalItemObject> getItems( IdentifiableObjectManager idObjectManager )
+        {
+            Map<Class<? extends IdentifiableObject>, List<Long>> classIds = new HashMap<>();
+
+            for ( int i = 0; i < itemIds.size(); i++ )
+            {
+                classIds.computeIfAbsent( itemClasses.get( i ), k -> new ArrayList<>() ).add( itemIds.get( i ) );
+            }
+
+            Map<String, IdentifiableObject> objects = new HashMap<>();
+
+            for ( Map.Entry<Class<? extends IdentifiableObject>, List<Long>> entry : classIds.entrySet() )
+            {
+                List<? extends IdentifiableObject> classObjects = idObjectManager.getById( entry.getKey(), entry.getValue() );
+
+                if ( classObjects != null )
+                {
+                    classObjects.forEach( o -> objects.put( getKey( entry.getKey(), o.getId() ), o ) );
+                }
+            }
+
+            List<DimensionalItemObject> items = new ArrayList<>();
+
+            for ( int i = 0; i < itemIds.size(); i++ )
+            {
+                IdentifiableObject object = objects.get( getKey( itemClasses.get( i ), itemIds.get( i ) ) );
+
+                if ( object != null )
+                {
+                    items.add( (DimensionalItemObject) object );
+                }
+            }
+
+            return items;
+        }
+
+        private String getKey( Class<?> klass, long id )
+        {
+            return klass.getName() + "-" + id;
+        }
+
+        String getDimension()
+        {
+            return dimension;
+        }
+
+        DimensionType getDimensionType()
+        {
+            return dimensionType;
+        }
+
+        String getDisplayName()
+        {
+            return displayName;
+        }
+    }
 }
@@ -30,7 +30,9 @@ package org.hisp.dhis.analytics.table;
 
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
@@ -70,6 +72,8 @@ import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 
+import com.google.common.collect.ImmutableMap;
+
 /**
  * @author Lars Helge Overland
  */
@@ -83,6 +87,34 @@ public abstract class AbstractJdbcTableManager
     public static final String PREFIX_ORGUNITGROUPSET = "ougs_";
     public static final String PREFIX_ORGUNITLEVEL = "uidlevel";
 
+    /**
+     * State expression for metadata tables with a lastupdated column, which
+     * changes when rows are added, updated or deleted.
+     */
+    protected static final String LAST_UPDATED_STATE = "count(*) || ':' || coalesce(cast(max(lastupdated) as text), '')";
+
+    /**
+     * State expressions of the metadata tables which the org unit structure,
+     * org unit group set and attribute option group set columns of analytics
+     * tables are derived from. Link tables have no lastupdated column and
+     * are represented by a hash of their keys, which also changes when rows
+     * are moved between groups. The path hash of org units changes when the
+     * hierarchy changes.
+     */
+    protected static final Map<String, String> STRUCTURE_METADATA_STATE = ImmutableMap.<String, String>builder()
+        .put( "organisationunit", LAST_UPDATED_STATE + " || ':' || coalesce(sum(hashtext(path)), 0)" )
+        .put( "orgunitlevel", LAST_UPDATED_STATE )
+        .put( "orgunitgroup", LAST_UPDATED_STATE )
+        .put( "orgunitgroupset", LAST_UPDATED_STATE )
+        .put( "orgunitgroupmembers", getLinkState( "orgunitgroupid", "organisationunitid" ) )
+        .put( "orgunitgroupsetmembers", getLinkState( "orgunitgroupsetid", "orgunitgroupid" ) )
+        .put( "categoryoptioncombo", LAST_UPDATED_STATE )
+        .put( "categoryoptiongroup", LAST_UPDATED_STATE )
+        .put( "categoryoptiongroupset", LAST_UPDATED_STATE )
+        .put( "categoryoptiongroupmembers", getLinkState( "categoryoptiongroupid", "categoryoptionid" ) )
+        .put( "categoryoptiongroupsetmembers", getLinkState( "categoryoptiongroupsetid", "categoryoptiongroupid" ) )
+        .build();
+
     @Autowired
     protected IdentifiableObjectManager idObjectManager;
 
@@ -174,7 +206,7 @@ public abstract class AbstractJdbcTableManager
     public void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
     {
         boolean tableExists = partitionManager.tableExists( table.getTableName() );
-        boolean skipMasterTable = params.isPartialUpdate() && tableExists;
+        boolean skipMasterTable = ( params.isPartialUpdate() || table.isIncremental() ) && tableExists;
 
         log.info( String.format( "Swapping table, master table exists: %b, skip master table: %b", tableExists, skipMasterTable ) );
 
@@ -236,6 +268,15 @@ public abstract class AbstractJdbcTableManager
         return null;
     }
 
+    /**
+     * Override in order to support updating the analytics table in place.
+     */
+    @Override
+    public boolean appendTable( AnalyticsTableUpdateParams params )
+    {
+        return false;
+    }
+
     @Override
     public int invokeAnalyticsTableSqlHooks()
     {
@@ -296,6 +337,108 @@ public abstract class AbstractJdbcTableManager
         }
     }
 
+    /**
+     * Returns the time of the last successful update of the analytics table,
+     * to be used as the starting point of an incremental update. Returns null
+     * if incremental updates are disabled, if no previous update exists or if
+     * the columns of the existing analytics table do not match the given
+     * columns, in which case the table must be fully regenerated.
+     *
+     * @param lastUpdateKey the setting holding the time of the last successful
+     *        update of the analytics table.
+     * @param columns the list of {@link AnalyticsTableColumn}.
+     */
+    protected Date getLastIncrementalUpdate( SettingKey lastUpdateKey, List<AnalyticsTableColumn> columns )
+    {
+        boolean incremental = (Boolean) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_INCREMENTAL_TABLE_UPDATE );
+        Date lastUpdate = (Date) systemSettingManager.getSystemSetting( lastUpdateKey );
+
+        if ( !incremental || lastUpdate == null || !hasColumns( getTableName(), columns ) )
+        {
+            return null;
+        }
+
+        return lastUpdate;
+    }
+
+    /**
+     * Returns the time of the last successful update of the analytics table,
+     * to be used as the starting point of an incremental update, as with
+     * {@link #getLastIncrementalUpdate(SettingKey, List)}. Returns null also
+     * if the given metadata state differs from the state at the last update,
+     * as the dimension columns of all partitions must then be regenerated.
+     *
+     * @param lastUpdateKey the setting holding the time of the last successful
+     *        update of the analytics table.
+     * @param metadataStateKey the setting holding the metadata state at the
+     *        last successful update of the analytics table.
+     * @param metadataState the current metadata state.
+     * @param columns the list of {@link AnalyticsTableColumn}.
+     */
+    protected Date getLastIncrementalUpdate( SettingKey lastUpdateKey, SettingKey metadataStateKey,
+        String metadataState, List<AnalyticsTableColumn> columns )
+    {
+        Date lastUpdate = getLastIncrementalUpdate( lastUpdateKey, columns );
+
+        if ( lastUpdate != null && !metadataState.equals( systemSettingManager.getSystemSetting( metadataStateKey ) ) )
+        {
+            log.info( String.format( "Metadata changed since last update of table: %s, regenerating table", getTableName() ) );
+
+            return null;
+        }
+
+        return lastUpdate;
+    }
+
+    /**
+     * Returns the current state of the given metadata tables. The state
+     * changes when rows of the tables are added, updated or deleted, as
+     * given by the state expression of each table.
+     *
+     * @param tableStates mapping of table name to state expression.
+     */
+    protected String getMetadataState( Map<String, String> tableStates )
+    {
+        String sql = tableStates.entrySet().stream()
+            .map( e -> "select '" + e.getKey() + ":' || (" + e.getValue() + ") from " + e.getKey() )
+            .collect( Collectors.joining( " union all " ) );
+
+        return jdbcTemplate.queryForList( sql, String.class ).stream()
+            .sorted()
+            .collect( Collectors.joining( ";" ) );
+    }
+
+    /**
+     * Returns a state expression for a link table, based on a hash of the
+     * given key columns.
+     *
+     * @param columns the key columns.
+     */
+    protected static String getLinkState( String... columns )
+    {
+        return "count(*) || ':' || coalesce(sum(hashtext(" + StringUtils.join( columns, " || '-' || " ) + ")), 0)";
+    }
+
+    /**
+     * Indicates whether the given table exists and has exactly the given
+     * columns.
+     *
+     * @param tableName the table name.
+     * @param columns the list of {@link AnalyticsTableColumn}.
+     */
+    protected boolean hasColumns( String tableName, List<AnalyticsTableColumn> columns )
+    {
+        final String sql = "select column_name from information_schema.columns where table_name = ?";
+
+        Set<String> tableColumns = new HashSet<>( jdbcTemplate.queryForList( sql, String.class, tableName ) );
+
+        Set<String> columnNames = columns.stream()
+            .map( c -> StringUtils.remove( c.getName(), '"' ) )
+            .collect( Collectors.toSet() );
+
+        return !tableColumns.isEmpty() && tableColumns.equals( columnNames );
+    }
+
     /**
      * Executes a SQL statement. Ignores existing tables/indexes when attempting
      * to create new.
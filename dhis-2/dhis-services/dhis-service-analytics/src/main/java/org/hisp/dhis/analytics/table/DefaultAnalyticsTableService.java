@@ -118,6 +118,13 @@ public class DefaultAnalyticsTableService
             return;
         }
 
+        if ( tableManager.appendTable( params ) )
+        {
+            clock.logTime( "Table appended: " + tableType.getTableName() );
+            notifier.notify( jobId, "Table update done" );
+            return;
+        }
+
         final List<AnalyticsTable> tables = tableManager.getAnalyticsTables( params );
 
         if ( tables.isEmpty() )
@@ -184,6 +191,17 @@ public class DefaultAnalyticsTableService
         notifier.notify( jobId, "Table update done" );
     }
 
+    @Override
+    public boolean append( AnalyticsTableUpdateParams params )
+    {
+        if ( tableManager.validState() != null )
+        {
+            return false;
+        }
+
+        return tableManager.appendTable( params );
+    }
+
     @Override
     public void dropTables()
     {
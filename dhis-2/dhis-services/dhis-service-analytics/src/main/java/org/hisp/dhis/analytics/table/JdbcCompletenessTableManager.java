@@ -40,10 +40,15 @@ import static org.hisp.dhis.util.DateUtils.getLongDateString;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
@@ -58,10 +63,12 @@ import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupSet;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
 import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.util.DateUtils;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -71,6 +78,17 @@ import com.google.common.collect.Sets;
 public class JdbcCompletenessTableManager
     extends AbstractJdbcTableManager
 {
+    private static final Map<String, String> METADATA_STATE = ImmutableMap.<String, String>builder()
+        .putAll( STRUCTURE_METADATA_STATE )
+        .put( "dataset", LAST_UPDATED_STATE )
+        .build();
+
+    /**
+     * Metadata state at the start of the current table update, saved when the
+     * table is swapped.
+     */
+    private String metadataState;
+
     @Override
     public AnalyticsTableType getAnalyticsTableType()
     {
@@ -81,7 +99,22 @@ public class JdbcCompletenessTableManager
     @Transactional
     public List<AnalyticsTable> getAnalyticsTables( AnalyticsTableUpdateParams params )
     {
-        AnalyticsTable table = getAnalyticsTable( getDataYears( params.getFromDate() ), getDimensionColumns(), getValueColumns() );
+        List<AnalyticsTableColumn> dimensionColumns = getDimensionColumns();
+        List<AnalyticsTableColumn> valueColumns = getValueColumns();
+
+        metadataState = getMetadataState( METADATA_STATE );
+
+        Date lastUpdate = getLastIncrementalUpdate( SettingKey.LAST_SUCCESSFUL_COMPLETENESS_TABLES_UPDATE,
+            SettingKey.COMPLETENESS_TABLES_METADATA_STATE, metadataState, ListUtils.union( dimensionColumns, valueColumns ) );
+
+        List<Integer> dataYears = lastUpdate != null ?
+            getChangedDataYears( params.getFromDate(), lastUpdate, params.getStartTime() ) :
+            getDataYears( params.getFromDate() );
+
+        AnalyticsTable table = getAnalyticsTable( dataYears, dimensionColumns, valueColumns )
+            .withIncremental( lastUpdate != null );
+
+        log.info( String.format( "Completeness table incremental update: %b, years: %s", table.isIncremental(), dataYears ) );
 
         return table.hasPartitionTables() ? Lists.newArrayList( table ) : Lists.newArrayList();
     }
@@ -105,6 +138,15 @@ public class JdbcCompletenessTableManager
         return null;
     }
 
+    @Override
+    public void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        super.swapTable( params, table );
+
+        systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_COMPLETENESS_TABLES_UPDATE, params.getStartTime() );
+        systemSettingManager.saveSystemSetting( SettingKey.COMPLETENESS_TABLES_METADATA_STATE, metadataState );
+    }
+
     @Override
     protected List<String> getPartitionChecks( AnalyticsTablePartition partition )
     {
@@ -142,6 +184,23 @@ public class JdbcCompletenessTableManager
 
         select +=
             "cdr.date as value " +
+            getFromWhereClause( params.getStartTime() ) +
+            "and ps.year = " + partition.getYear();
+
+        final String sql = insert + select;
+
+        invokeTimeAndLog( sql, String.format( "Populate %s", tableName ) );
+    }
+
+    /**
+     * Returns the from and where clause of the registrations which are
+     * included in the completeness table.
+     *
+     * @param startTime the start time of the table update.
+     */
+    private String getFromWhereClause( Date startTime )
+    {
+        return
             "from completedatasetregistration cdr " +
             "inner join dataset ds on cdr.datasetid=ds.datasetid " +
             "inner join period pe on cdr.periodid=pe.periodid " +
@@ -150,14 +209,9 @@ public class JdbcCompletenessTableManager
                 "and (cast(date_trunc('month', pe.startdate) as date)=ougs.startdate or ougs.startdate is null) " +
             "left join _orgunitstructure ous on cdr.sourceid=ous.organisationunitid " +
             "inner join _categorystructure acs on cdr.attributeoptioncomboid=acs.categoryoptioncomboid " +
-            "where ps.year = " + partition.getYear() + " " +
-            "and cdr.date <= '" + getLongDateString( params.getStartTime() ) + "' " +
+            "where cdr.date <= '" + getLongDateString( startTime ) + "' " +
             "and cdr.date is not null " +
-            "and cdr.completed = true";
-
-        final String sql = insert + select;
-
-        invokeTimeAndLog( sql, String.format( "Populate %s", tableName ) );
+            "and cdr.completed = true ";
     }
 
     private List<AnalyticsTableColumn> getDimensionColumns()
@@ -234,6 +288,76 @@ public class JdbcCompletenessTableManager
         return jdbcTemplate.queryForList( sql, Integer.class );
     }
 
+    /**
+     * Returns the years for which the completeness table must be regenerated
+     * since the given last update. This includes years with registrations which
+     * were updated after the last update, and years for which the number of
+     * registrations differs from the number of rows in the analytics table,
+     * which covers registrations which were deleted. The registrations are
+     * counted with the same joins and conditions as used when populating the
+     * table. Changes to the org unit hierarchy and groups are detected through
+     * the metadata state, and require all years to be regenerated.
+     *
+     * @param earliest the earliest start date, can be null.
+     * @param lastUpdate the time of the last successful update.
+     * @param startTime the start time of the table update.
+     */
+    private List<Integer> getChangedDataYears( Date earliest, Date lastUpdate, Date startTime )
+    {
+        String updatedSql =
+            "select distinct(ps.year) " +
+            "from completedatasetregistration cdr " +
+            "inner join _periodstructure ps on cdr.periodid=ps.periodid " +
+            "where cdr.lastupdated >= '" + getLongDateString( lastUpdate ) + "'";
+
+        String sourceCountSql =
+            "select ps.year as year, count(*) as count " +
+            getFromWhereClause( startTime ) +
+            "group by ps.year";
+
+        String tableCountSql =
+            "select year as year, count(*) as count " +
+            "from " + getTableName() + " " +
+            "group by year";
+
+        Set<Integer> years = new HashSet<>( jdbcTemplate.queryForList( updatedSql, Integer.class ) );
+
+        Map<Integer, Long> sourceCounts = getYearCounts( sourceCountSql );
+        Map<Integer, Long> tableCounts = getYearCounts( tableCountSql );
+
+        for ( Integer year : Sets.union( sourceCounts.keySet(), tableCounts.keySet() ) )
+        {
+            if ( !Objects.equals( sourceCounts.get( year ), tableCounts.get( year ) ) )
+            {
+                years.add( year );
+            }
+        }
+
+        Integer earliestYear = earliest != null ? PeriodType.getCalendar().fromIso( earliest ).getYear() : null;
+
+        return years.stream()
+            .filter( year -> earliestYear == null || year >= earliestYear )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Returns a mapping of year to count based on the given SQL query, which
+     * must return the year and count columns.
+     *
+     * @param sql the SQL query.
+     */
+    private Map<Integer, Long> getYearCounts( String sql )
+    {
+        Map<Integer, Long> counts = new HashMap<>();
+
+        for ( Map<String, Object> row : jdbcTemplate.queryForList( sql ) )
+        {
+            counts.put( ( (Number) row.get( "year" ) ).intValue(), ( (Number) row.get( "count" ) ).longValue() );
+        }
+
+        return counts;
+    }
+
     @Override
     @Async
     public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions, Collection<String> dataElements, int aggregationLevel )
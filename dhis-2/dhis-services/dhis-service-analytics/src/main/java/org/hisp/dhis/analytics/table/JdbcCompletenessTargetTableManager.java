@@ -36,7 +36,9 @@ import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
@@ -53,9 +55,11 @@ import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupSet;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
+import org.hisp.dhis.setting.SettingKey;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -65,6 +69,23 @@ import com.google.common.collect.Sets;
 public class JdbcCompletenessTargetTableManager
     extends AbstractJdbcTableManager
 {
+    private static final Map<String, String> METADATA_STATE = ImmutableMap.<String, String>builder()
+        .putAll( STRUCTURE_METADATA_STATE )
+        .put( "dataset", LAST_UPDATED_STATE )
+        .put( "datasetsource", getLinkState( "datasetid", "sourceid" ) )
+        .put( "dataelementcategory", LAST_UPDATED_STATE )
+        .put( "dataelementcategoryoption", LAST_UPDATED_STATE )
+        .put( "categoryoption_organisationunits", getLinkState( "categoryoptionid", "organisationunitid" ) )
+        .put( "categoryoptioncombos_categoryoptions", getLinkState( "categoryoptioncomboid", "categoryoptionid" ) )
+        .put( "categorycombo", LAST_UPDATED_STATE )
+        .build();
+
+    /**
+     * Metadata state at the start of the current table update, saved when the
+     * table is swapped.
+     */
+    private String metadataState;
+
     @Override
     public AnalyticsTableType getAnalyticsTableType()
     {
@@ -75,7 +96,22 @@ public class JdbcCompletenessTargetTableManager
     @Transactional
     public List<AnalyticsTable> getAnalyticsTables( AnalyticsTableUpdateParams params )
     {
-        return Lists.newArrayList( new AnalyticsTable( getAnalyticsTableType(), getDimensionColumns(), getValueColumns() ) );
+        List<AnalyticsTableColumn> dimensionColumns = getDimensionColumns();
+        List<AnalyticsTableColumn> valueColumns = getValueColumns();
+
+        metadataState = getMetadataState( METADATA_STATE );
+
+        Date lastUpdate = getLastIncrementalUpdate( SettingKey.LAST_SUCCESSFUL_COMPLETENESS_TARGET_TABLES_UPDATE,
+            SettingKey.COMPLETENESS_TARGET_TABLES_METADATA_STATE, metadataState, ListUtils.union( dimensionColumns, valueColumns ) );
+
+        if ( lastUpdate != null )
+        {
+            log.info( "No metadata changes since last completeness target table update, skipping table" );
+
+            return Lists.newArrayList();
+        }
+
+        return Lists.newArrayList( new AnalyticsTable( getAnalyticsTableType(), dimensionColumns, valueColumns ) );
     }
 
     @Override
@@ -90,6 +126,15 @@ public class JdbcCompletenessTargetTableManager
         return null;
     }
 
+    @Override
+    public void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        super.swapTable( params, table );
+
+        systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_COMPLETENESS_TARGET_TABLES_UPDATE, params.getStartTime() );
+        systemSettingManager.saveSystemSetting( SettingKey.COMPLETENESS_TARGET_TABLES_METADATA_STATE, metadataState );
+    }
+
     @Override
     protected List<String> getPartitionChecks( AnalyticsTablePartition partition )
     {
@@ -41,6 +41,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
@@ -57,8 +58,11 @@ import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupSet;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
 import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.util.DateUtils;
+import org.joda.time.DateTime;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -68,6 +72,25 @@ import com.google.common.collect.Sets;
 public class JdbcValidationResultTableManager
     extends AbstractJdbcTableManager
 {
+    /**
+     * Overlap applied to the time of the last update when appending validation
+     * results, to include results which were created but not yet committed at
+     * the time of the last update. Results which already exist in the analytics
+     * table are skipped.
+     */
+    private static final int APPEND_OVERLAP_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * Metadata tables which the dimension columns of the table are based on.
+     * Changes to these tables require the table to be regenerated.
+     */
+    private static final Map<String, String> METADATA_STATE = ImmutableMap.<String, String>builder()
+        .putAll( STRUCTURE_METADATA_STATE )
+        .put( "validationrule", LAST_UPDATED_STATE )
+        .build();
+
+    private String metadataState;
+
     @Override
     public AnalyticsTableType getAnalyticsTableType()
     {
@@ -77,6 +100,8 @@ public class JdbcValidationResultTableManager
     @Override
     public List<AnalyticsTable> getAnalyticsTables( AnalyticsTableUpdateParams params )
     {
+        metadataState = getMetadataState( METADATA_STATE );
+
         AnalyticsTable table = getAnalyticsTable( getDataYears( params.getFromDate() ), getDimensionColumns(), getValueColumns() );
 
         return table.hasPartitionTables() ? Lists.newArrayList( table ) : Lists.newArrayList();
@@ -108,12 +133,111 @@ public class JdbcValidationResultTableManager
             "year = " + partition.getYear() + "" );
     }
 
+    @Override
+    public void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        super.swapTable( params, table );
+
+        systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_VALIDATION_RESULT_TABLES_UPDATE, params.getStartTime() );
+        systemSettingManager.saveSystemSetting( SettingKey.LAST_FULL_VALIDATION_RESULT_TABLES_UPDATE, params.getStartTime() );
+        systemSettingManager.saveSystemSetting( SettingKey.VALIDATION_RESULT_TABLES_METADATA_STATE, metadataState );
+    }
+
+    @Override
+    public synchronized boolean appendTable( AnalyticsTableUpdateParams params )
+    {
+        List<AnalyticsTableColumn> dimensionColumns = getDimensionColumns();
+        List<AnalyticsTableColumn> valueColumns = getValueColumns();
+
+        Date lastUpdate = getLastIncrementalUpdate( SettingKey.LAST_SUCCESSFUL_VALIDATION_RESULT_TABLES_UPDATE,
+            SettingKey.VALIDATION_RESULT_TABLES_METADATA_STATE, getMetadataState( METADATA_STATE ), ListUtils.union( dimensionColumns, valueColumns ) );
+
+        if ( lastUpdate == null || isFullUpdateDue( params ) )
+        {
+            return false;
+        }
+
+        Date appendFrom = new DateTime( lastUpdate ).minusMillis( APPEND_OVERLAP_MILLIS ).toDate();
+
+        AnalyticsTable table = getAnalyticsTable( getAppendDataYears( appendFrom ), dimensionColumns, valueColumns );
+
+        for ( AnalyticsTablePartition partition : table.getPartitionTables() )
+        {
+            if ( !partitionManager.tableExists( partition.getTableName() ) )
+            {
+                log.info( String.format( "Partition table does not exist: %s, regenerating table", partition.getTableName() ) );
+
+                return false;
+            }
+        }
+
+        for ( AnalyticsTablePartition partition : table.getPartitionTables() )
+        {
+            final String tableName = partition.getTableName();
+
+            String where =
+                "and vrs.created > '" + getLongDateString( appendFrom ) + "' " +
+                "and not exists (" +
+                    "select 1 from " + tableName + " avr " +
+                    "where avr.validationresultid=vrs.validationresultid) ";
+
+            populateTable( params, partition, tableName, where );
+        }
+
+        final String deleteSql =
+            "delete from " + getTableName() + " avr " +
+            "where not exists (" +
+                "select 1 from validationresult vrs " +
+                "where vrs.validationresultid=avr.validationresultid)";
+
+        invokeTimeAndLog( deleteSql, String.format( "Remove deleted validation results from %s", getTableName() ) );
+
+        systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_VALIDATION_RESULT_TABLES_UPDATE, params.getStartTime() );
+
+        return true;
+    }
+
+    /**
+     * Indicates whether the table is due to be regenerated in full, which is
+     * the case when the last full update is older than the full update
+     * interval. Appending only covers new and deleted validation results, so
+     * the table is regenerated periodically to pick up any other changes.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     */
+    private boolean isFullUpdateDue( AnalyticsTableUpdateParams params )
+    {
+        Date lastFullUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_FULL_VALIDATION_RESULT_TABLES_UPDATE );
+        Integer intervalDays = (Integer) systemSettingManager.getSystemSetting( SettingKey.VALIDATION_RESULT_TABLES_FULL_UPDATE_INTERVAL_DAYS );
+
+        if ( lastFullUpdate == null || new DateTime( lastFullUpdate ).plusDays( intervalDays ).toDate().before( params.getStartTime() ) )
+        {
+            log.info( String.format( "Full update of table is due: %s, last full update: %s", getTableName(), lastFullUpdate ) );
+
+            return true;
+        }
+
+        return false;
+    }
+
     @Override
     protected void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
     {
-        final String tableName = partition.getTempTableName();
+        populateTable( params, partition, partition.getTempTableName(), "" );
+    }
 
-        String insert = "insert into " + partition.getTempTableName() + " (";
+    /**
+     * Populates the given table with validation results for the year of the
+     * given partition.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     * @param tableName the name of the table to insert into.
+     * @param where additional where clause conditions, starting with "and".
+     */
+    private void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition, String tableName, String where )
+    {
+        String insert = "insert into " + tableName + " (";
 
         List<AnalyticsTableColumn> columns = partition.getMasterTable().getDimensionColumns();
         List<AnalyticsTableColumn> values = partition.getMasterTable().getValueColumns();
@@ -148,7 +272,7 @@ public class JdbcValidationResultTableManager
             "inner join _categorystructure acs on vrs.attributeoptioncomboid=acs.categoryoptioncomboid " +
             "where ps.year = " + partition.getYear() + " " +
             "and vrs.created <= '" + getLongDateString( params.getStartTime() ) + "' " +
-            "and vrs.created is not null";
+            "and vrs.created is not null " + where;
 
         final String sql = insert + select;
 
@@ -171,6 +295,22 @@ public class JdbcValidationResultTableManager
         return jdbcTemplate.queryForList( sql, Integer.class );
     }
 
+    /**
+     * Returns the years of validation results created after the given time.
+     *
+     * @param from the time after which validation results were created.
+     */
+    private List<Integer> getAppendDataYears( Date from )
+    {
+        String sql =
+            "select distinct(ps.year) " +
+            "from validationresult vrs " +
+            "inner join _periodstructure ps on vrs.periodid=ps.periodid " +
+            "where vrs.created > '" + getLongDateString( from ) + "'";
+
+        return jdbcTemplate.queryForList( sql, Integer.class );
+    }
+
     private List<AnalyticsTableColumn> getDimensionColumns()
     {
         List<AnalyticsTableColumn> columns = new ArrayList<>();
@@ -208,6 +348,7 @@ public class JdbcValidationResultTableManager
             columns.add( new AnalyticsTableColumn( column, TEXT, "ps." + column ) );
         }
 
+        columns.add( new AnalyticsTableColumn( quote( "validationresultid" ), INTEGER, NOT_NULL, "vrs.validationresultid" ) );
         columns.add( new AnalyticsTableColumn( quote( "dx" ), CHARACTER_11, NOT_NULL, "vr.uid" ) );
         columns.add( new AnalyticsTableColumn( quote( "pestartdate" ), TIMESTAMP, "pe.startdate" ) );
         columns.add( new AnalyticsTableColumn( quote( "peenddate" ), TIMESTAMP, "pe.enddate" ) );
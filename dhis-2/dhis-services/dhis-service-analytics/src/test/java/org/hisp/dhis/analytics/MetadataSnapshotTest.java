@@ -0,0 +1,123 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.analytics.MetadataSnapshot.OrgUnitNode;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.indicator.Indicator;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class MetadataSnapshotTest
+{
+    private MetadataSnapshot snapshot;
+
+    @Before
+    public void before()
+    {
+        Map<Class<? extends IdentifiableObject>, Map<String, Long>> identifiers = new HashMap<>();
+        identifiers.put( DataElement.class, ImmutableMap.of( "deabcdefghA", 1L ) );
+        identifiers.put( Indicator.class, ImmutableMap.of( "inabcdefghA", 2L ) );
+        identifiers.put( OrganisationUnit.class, ImmutableMap.of( "ouabcdefghA", 10L ) );
+
+        List<OrgUnitNode> orgUnits = Lists.newArrayList(
+            new OrgUnitNode( 10L, "/ouabcdefghA", 1 ),
+            new OrgUnitNode( 11L, "/ouabcdefghA/ouabcdefghB", 2 ),
+            new OrgUnitNode( 12L, "/ouabcdefghA/ouabcdefghC", 2 ),
+            new OrgUnitNode( 13L, "/ouabcdefghA/ouabcdefghB/ouabcdefghD", 3 ),
+            new OrgUnitNode( 14L, "/ouabcdefghA/ouabcdefghC/ouabcdefghE", 3 ) );
+
+        Map<Long, long[]> groupMembers = ImmutableMap.of( 20L, new long[] { 11L, 13L, 14L } );
+
+        snapshot = new MetadataSnapshot( 1L, identifiers, orgUnits, groupMembers );
+    }
+
+    @Test
+    public void testGetId()
+    {
+        assertEquals( Long.valueOf( 1L ), snapshot.getId( DataElement.class, "deabcdefghA" ) );
+        assertEquals( Long.valueOf( 10L ), snapshot.getId( OrganisationUnit.class, "ouabcdefghA" ) );
+        assertNull( snapshot.getId( DataElement.class, "inabcdefghA" ) );
+        assertNull( snapshot.getId( Indicator.class, "xxabcdefghA" ) );
+    }
+
+    @Test
+    public void testGetDataItemClass()
+    {
+        assertEquals( DataElement.class, snapshot.getDataItemClass( "deabcdefghA" ) );
+        assertEquals( Indicator.class, snapshot.getDataItemClass( "inabcdefghA" ) );
+        assertNull( snapshot.getDataItemClass( "ouabcdefghA" ) );
+    }
+
+    @Test
+    public void testGetOrgUnitIdsAtLevels()
+    {
+        assertEquals( Sets.newHashSet( 11L, 12L ), Sets.newHashSet( snapshot.getOrgUnitIdsAtLevels( Lists.newArrayList( 2 ), Lists.newArrayList() ) ) );
+        assertEquals( Sets.newHashSet( 13L ), Sets.newHashSet( snapshot.getOrgUnitIdsAtLevels( Lists.newArrayList( 3 ), Lists.newArrayList( 11L ) ) ) );
+        assertEquals( Sets.newHashSet( 12L, 13L, 14L ), Sets.newHashSet( snapshot.getOrgUnitIdsAtLevels( Lists.newArrayList( 3, 2 ), Lists.newArrayList( 12L, 13L, 14L ) ) ) );
+    }
+
+    @Test
+    public void testGetOrgUnitIdsInGroups()
+    {
+        assertEquals( Sets.newHashSet( 11L, 13L, 14L ), Sets.newHashSet( snapshot.getOrgUnitIdsInGroups( Lists.newArrayList( 20L ), Lists.newArrayList() ) ) );
+        assertEquals( Sets.newHashSet( 14L ), Sets.newHashSet( snapshot.getOrgUnitIdsInGroups( Lists.newArrayList( 20L ), Lists.newArrayList( 12L ) ) ) );
+        assertTrue( snapshot.getOrgUnitIdsInGroups( Lists.newArrayList( 21L ), Lists.newArrayList() ).isEmpty() );
+    }
+
+    @Test
+    public void testHasOrgUnits()
+    {
+        assertTrue( snapshot.hasOrgUnits( Lists.newArrayList( 10L, 14L ) ) );
+        assertFalse( snapshot.hasOrgUnits( Lists.newArrayList( 10L, 15L ) ) );
+        assertFalse( MetadataSnapshot.EMPTY.hasOrgUnits( Lists.newArrayList() ) );
+    }
+
+    @Test
+    public void testIsCurrent()
+    {
+        assertTrue( snapshot.isCurrent( 1L, 60000 ) );
+        assertFalse( snapshot.isCurrent( 2L, 60000 ) );
+    }
+}
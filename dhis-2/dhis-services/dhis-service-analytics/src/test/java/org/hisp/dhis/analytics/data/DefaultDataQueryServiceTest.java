@@ -35,6 +35,7 @@ import static org.hisp.dhis.common.IdScheme.UID;
 import static org.mockito.Mockito.when;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -44,6 +45,9 @@ import java.util.stream.Stream;
 import org.hamcrest.collection.IsIterableContainingInAnyOrder;
 import org.hisp.dhis.analytics.AnalyticsSecurityManager;
 import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.MetadataSnapshot;
+import org.hisp.dhis.analytics.MetadataSnapshot.OrgUnitNode;
+import org.hisp.dhis.analytics.MetadataSnapshotManager;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementGroup;
@@ -102,6 +106,9 @@ public class DefaultDataQueryServiceTest
     @Mock
     private I18n i18n;
 
+    @Mock
+    private MetadataSnapshotManager metadataSnapshotManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -125,10 +132,12 @@ public class DefaultDataQueryServiceTest
     public void setUp()
     {
         target = new DefaultDataQueryService( idObjectManager, organisationUnitService, dimensionService,
-            securityManager, systemSettingManager, aclService, currentUserService, i18nManager );
+            securityManager, systemSettingManager, aclService, currentUserService, i18nManager, metadataSnapshotManager );
 
         rb = new RequestBuilder();
 
+        when( metadataSnapshotManager.getSnapshot() ).thenReturn( MetadataSnapshot.EMPTY );
+
         when(i18nManager.getI18n()).thenReturn(i18n);
         when (i18n.getString( "LAST_12_MONTHS")).thenReturn("Last 12 months");
 
@@ -329,6 +338,50 @@ public class DefaultDataQueryServiceTest
 
     }
 
+    @Test
+    public void convertAnalyticsRequestWithOrgUnitLevelFromSnapshot()
+    {
+        OrganisationUnit level2OuA = new OrganisationUnit( "Bo" );
+        OrganisationUnit level2OuB = new OrganisationUnit( "Bombali" );
+
+        rootOu.setId( 1 );
+
+        String rootPath = "/" + rootOu.getUid();
+
+        MetadataSnapshot snapshot = new MetadataSnapshot( 1, new HashMap<>(), Lists.newArrayList(
+            new OrgUnitNode( 1, rootPath, 1 ), new OrgUnitNode( 2, rootPath + "/O6uvpzGd5pu", 2 ),
+            new OrgUnitNode( 3, rootPath + "/fdc6uOvgoji", 2 ), new OrgUnitNode( 4, "/at6UHUQatSo/jUb8gELQApl", 2 ) ),
+            new HashMap<>() );
+
+        mockDimensionService();
+
+        when( metadataSnapshotManager.getSnapshot() ).thenReturn( snapshot );
+
+        when( organisationUnitService.getOrganisationUnitLevelByLevelOrUid( "wjP19dkFeIk" ) ).thenReturn( 2 );
+
+        when( idObjectManager.getObject( OrganisationUnit.class, UID, "ImspTQPwCqd" ) ).thenReturn( rootOu );
+
+        when( idObjectManager.getById( OrganisationUnit.class, Lists.newArrayList( 2L, 3L ) ) )
+            .thenReturn( Lists.newArrayList( level2OuA, level2OuB ) );
+
+        when( organisationUnitService.getOrganisationUnitLevelByLevel( 2 ) )
+            .thenReturn( buildOrgUnitLevel( 2, "level2UID", "District", null ) );
+
+        rb.addOuFilter( "LEVEL-wjP19dkFeIk;ImspTQPwCqd" );
+        rb.addDimension( concatenateUuid( DATA_ELEMENT_1, DATA_ELEMENT_2, DATA_ELEMENT_3 ) );
+        rb.addPeDimension( PERIOD_DIMENSION );
+
+        DataQueryRequest request = DataQueryRequest.newBuilder().filter( rb.getFilterParams() )
+            .dimension( rb.getDimensionParams() ).build();
+
+        DataQueryParams params = target.getFromRequest( request );
+
+        assertThat( params.getFilterOrganisationUnits(), IsIterableContainingInAnyOrder.containsInAnyOrder( level2OuA, level2OuB ) );
+
+        Mockito.verify( idObjectManager, Mockito.never() ).get( Mockito.eq( OrganisationUnit.class ), Mockito.anyLong() );
+        Mockito.verify( organisationUnitService, Mockito.never() ).getOrganisationUnitsAtLevels( Mockito.any( Collection.class ), Mockito.any( Collection.class ) );
+    }
+
     @Test
     public void convertAnalyticsRequestWithOrgUnitLevelAndOrgUnitGroupAsFilter()
     {
@@ -0,0 +1,105 @@
+package org.hisp.dhis.analytics.event.data;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.hisp.dhis.IntegrationTest;
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.system.database.DatabaseInfo;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Tests the accuracy of approximate distinct counts in event analytics. The
+ * tests are skipped when the postgresql-hll extension is not installed.
+ */
+@Category( IntegrationTest.class )
+public class ApproximateCountTest
+    extends IntegrationTestBase
+{
+    /**
+     * Three standard errors of the estimate, exceeded by chance in about
+     * 0.3% of estimates.
+     */
+    private static final double MAX_RELATIVE_ERROR = 3 * 1.04 / Math.sqrt( 1 << AbstractJdbcEventAnalyticsManager.HLL_LOG2M );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatabaseInfo databaseInfo;
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return false;
+    }
+
+    @Override
+    public void setUpTest()
+    {
+        assumeTrue( databaseInfo.isHllSupport() );
+    }
+
+    @Test
+    public void testSmallCardinalityIsExact()
+    {
+        assertEquals( 0, getApproximateCount( 0 ) );
+        assertEquals( 1, getApproximateCount( 1 ) );
+        assertEquals( 100, getApproximateCount( 100 ) );
+    }
+
+    @Test
+    public void testLargeCardinalityIsWithinErrorBound()
+    {
+        for ( int count : new int[] { 1000, 10000, 100000, 1000000 } )
+        {
+            long estimate = getApproximateCount( count );
+
+            assertEquals( "Estimate of " + count + " distinct values", count, estimate, count * MAX_RELATIVE_ERROR );
+        }
+    }
+
+    /**
+     * Estimates the distinct count of a column in which each of the given
+     * number of distinct values occurs twice.
+     */
+    private long getApproximateCount( int count )
+    {
+        String sql = "select " + AbstractJdbcEventAnalyticsManager.getApproximateCountClause( "tei" ) + " " +
+            "from (select 'tei' || (i % " + Math.max( count, 1 ) + ") as tei " +
+            "from generate_series(1, " + ( 2 * count ) + ") as i) as ax";
+
+        return jdbcTemplate.queryForObject( sql, Long.class );
+    }
+}
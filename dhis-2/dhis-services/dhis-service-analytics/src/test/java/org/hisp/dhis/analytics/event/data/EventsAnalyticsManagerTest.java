@@ -28,13 +28,17 @@
 
 package org.hisp.dhis.analytics.event.data;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import org.hisp.dhis.analytics.EventOutputType;
+import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.GridHeader;
 import org.hisp.dhis.common.ValueType;
@@ -227,6 +231,30 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
         assertThat( sql.getValue(), is( expected ) );
     }
 
+    @Test
+    public void verifyGetAggregatedEventQueryWithApproximateCount()
+    {
+        mockRowSet();
+
+        when( rowSet.getString( "fWIAEtYVEGk" ) ).thenReturn( "2000" );
+
+        EventQueryParams params = new EventQueryParams.Builder( createRequestParams( programStage, ValueType.INTEGER ) )
+            .withOutputType( EventOutputType.ENROLLMENT )
+            .withApproximateCount( true ).build();
+
+        Grid resultGrid = subject.getAggregatedEventData( params, createGrid(), 200000 );
+
+        assertThat( resultGrid.getRows(), hasSize( 1 ) );
+        assertThat( resultGrid.getRow( 0 ).get( 3 ), is( 100 ) );
+
+        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+
+        assertThat( sql.getValue(), startsWith( "select coalesce(round(hll_cardinality(hll_add_agg(" +
+            "hll_hash_text(cast(ax.\"pi\" as text)), 12)))::bigint, 0) as value,ax.\"monthly\",ax.\"ou\",ax.\"fWIAEtYVEGk\" " +
+            "from " + getTable( programA.getUid() ) + " as ax where " ) );
+        assertThat( sql.getValue(), containsString( "group by ax.\"monthly\",ax.\"ou\",ax.\"fWIAEtYVEGk\" limit 200001" ) );
+    }
+
     private Grid createGrid()
     {
         Grid grid = new ListGrid();
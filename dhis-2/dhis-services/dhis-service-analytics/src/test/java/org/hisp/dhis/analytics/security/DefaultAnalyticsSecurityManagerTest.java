@@ -0,0 +1,197 @@
+package org.hisp.dhis.analytics.security;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createCategory;
+import static org.hisp.dhis.DhisConvenienceTest.createCategoryOption;
+import static org.hisp.dhis.DhisConvenienceTest.createPeriod;
+import static org.hisp.dhis.DhisConvenienceTest.createUser;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.category.Category;
+import org.hisp.dhis.category.CategoryOption;
+import org.hisp.dhis.common.DefaultMetadataChangeTracker;
+import org.hisp.dhis.common.DimensionService;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.MetadataChangeTracker;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserCredentials;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class DefaultAnalyticsSecurityManagerTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private DimensionService dimensionService;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private IdentifiableObjectManager idObjectManager;
+
+    @Mock
+    private Environment env;
+
+    @Spy
+    private MetadataChangeTracker metadataChangeTracker = new DefaultMetadataChangeTracker();
+
+    @InjectMocks
+    private DefaultAnalyticsSecurityManager subject;
+
+    private CategoryOption coA;
+    private CategoryOption coB;
+    private CategoryOption coC;
+
+    private Category caA;
+    private Category caB;
+
+    private User user;
+
+    private DataQueryParams params;
+
+    @Before
+    public void setUp()
+    {
+        metadataChangeTracker.setEnabled( true );
+
+        when( env.getActiveProfiles() ).thenReturn( new String[0] );
+
+        subject.init();
+
+        coA = createCategoryOption( 'A' );
+        coB = createCategoryOption( 'B' );
+        coC = createCategoryOption( 'C' );
+        coA.setId( 1 );
+        coB.setId( 2 );
+        coC.setId( 3 );
+
+        caA = createCategory( 'A', coA, coB );
+        caB = createCategory( 'B', coC );
+
+        user = createUser( 'A' );
+        user.getUserCredentials().setCatDimensionConstraints( Sets.newHashSet( caA ) );
+
+        params = DataQueryParams.newBuilder()
+            .withPeriods( Lists.newArrayList( createPeriod( "201901" ) ) )
+            .build();
+
+        when( currentUserService.getCurrentUser() ).thenReturn( user );
+        when( dimensionService.getCanReadDimensionItems( caA.getUid() ) ).thenReturn( Lists.<DimensionalItemObject>newArrayList( coA, coB ) );
+        when( dimensionService.getCanReadDimensionItems( caB.getUid() ) ).thenReturn( Lists.<DimensionalItemObject>newArrayList( coC ) );
+        when( idObjectManager.getById( CategoryOption.class, Lists.newArrayList( 1L, 2L ) ) ).thenReturn( Lists.newArrayList( coB, coA ) );
+        when( idObjectManager.getById( CategoryOption.class, Lists.newArrayList( 3L ) ) ).thenReturn( Lists.newArrayList( coC ) );
+    }
+
+    @Test
+    public void testConstraintItemsLoadedInBulk()
+    {
+        DataQueryParams constrained = subject.withDimensionConstraints( params );
+
+        assertEquals( Lists.newArrayList( coA, coB ), constrained.getFilter( caA.getUid() ).getItems() );
+
+        verify( idObjectManager ).getById( eq( CategoryOption.class ), any() );
+        verify( idObjectManager, never() ).get( eq( CategoryOption.class ), anyLong() );
+    }
+
+    @Test
+    public void testConstraintsCachedAcrossLogins()
+    {
+        subject.withDimensionConstraints( params );
+
+        metadataChangeTracker.registerChange( User.class );
+        metadataChangeTracker.registerChange( UserCredentials.class );
+
+        DataQueryParams constrained = subject.withDimensionConstraints( params );
+
+        assertEquals( Lists.newArrayList( coA, coB ), constrained.getFilter( caA.getUid() ).getItems() );
+
+        verify( dimensionService, times( 1 ) ).getCanReadDimensionItems( caA.getUid() );
+    }
+
+    @Test
+    public void testConstraintsRecomputedOnCategoryOptionChange()
+    {
+        subject.withDimensionConstraints( params );
+
+        metadataChangeTracker.registerChange( CategoryOption.class );
+
+        subject.withDimensionConstraints( params );
+
+        verify( dimensionService, times( 2 ) ).getCanReadDimensionItems( caA.getUid() );
+    }
+
+    @Test
+    public void testConstraintsRecomputedOnUserConstraintChange()
+    {
+        subject.withDimensionConstraints( params );
+
+        user.getUserCredentials().setCatDimensionConstraints( Sets.newHashSet( caA, caB ) );
+
+        DataQueryParams constrained = subject.withDimensionConstraints( params );
+
+        assertEquals( Lists.newArrayList( coC ), constrained.getFilter( caB.getUid() ).getItems() );
+
+        verify( dimensionService, times( 2 ) ).getCanReadDimensionItems( caA.getUid() );
+    }
+
+    @Test
+    public void testConstraintsNotCachedWhenTrackerDisabled()
+    {
+        metadataChangeTracker.setEnabled( false );
+
+        subject.withDimensionConstraints( params );
+        subject.withDimensionConstraints( params );
+
+        verify( dimensionService, times( 2 ) ).getCanReadDimensionItems( caA.getUid() );
+    }
+}
@@ -0,0 +1,185 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.jdbc.StatementBuilder;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class JdbcCompletenessTableManagerTest
+{
+    private static final String STATE = "dataset:2:2019-01-01;organisationunit:10:2019-01-01:12345";
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private IdentifiableObjectManager idObjectManager;
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private StatementBuilder statementBuilder;
+
+    @InjectMocks
+    private JdbcCompletenessTableManager subject;
+
+    private Date lastUpdate = new Date( System.currentTimeMillis() - 3600000 );
+
+    @Before
+    public void setUp()
+    {
+        List<String> columns = PeriodType.getAvailablePeriodTypes().stream()
+            .map( pt -> pt.getName().toLowerCase() )
+            .collect( Collectors.toList() );
+
+        columns.addAll( Lists.newArrayList( "timely", "dx", "year", "value" ) );
+
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_INCREMENTAL_TABLE_UPDATE ) ).thenReturn( true );
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_COMPLETENESS_TABLES_UPDATE ) ).thenReturn( lastUpdate );
+        when( systemSettingManager.getSystemSetting( SettingKey.COMPLETENESS_TABLES_METADATA_STATE ) ).thenReturn( STATE );
+        when( jdbcTemplate.queryForList( contains( "information_schema.columns" ), eq( String.class ), any() ) ).thenReturn( columns );
+    }
+
+    @Test
+    public void testIncrementalUpdateOfChangedYears()
+    {
+        when( jdbcTemplate.queryForList( contains( "union all" ), eq( String.class ) ) ).thenReturn(
+            Lists.newArrayList( "organisationunit:10:2019-01-01:12345", "dataset:2:2019-01-01" ) );
+        when( jdbcTemplate.queryForList( contains( "cdr.lastupdated >=" ), eq( Integer.class ) ) ).thenReturn(
+            Lists.newArrayList( 2018 ) );
+        when( jdbcTemplate.queryForList( contains( "from completedatasetregistration cdr" ) ) ).thenReturn(
+            Lists.newArrayList( getYearCount( 2016, 4 ), getYearCount( 2017, 5 ), getYearCount( 2018, 3 ) ) );
+        when( jdbcTemplate.queryForList( contains( "from analytics_completeness" ) ) ).thenReturn(
+            Lists.newArrayList( getYearCount( 2016, 4 ), getYearCount( 2017, 6 ), getYearCount( 2018, 3 ) ) );
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( AnalyticsTableUpdateParams.newBuilder().build() );
+
+        assertEquals( 1, tables.size() );
+        assertTrue( tables.get( 0 ).isIncremental() );
+        assertEquals( Lists.newArrayList( 2017, 2018 ), getYears( tables.get( 0 ) ) );
+    }
+
+    @Test
+    public void testCountQueryUsesPopulatePredicates()
+    {
+        when( jdbcTemplate.queryForList( contains( "union all" ), eq( String.class ) ) ).thenReturn(
+            Lists.newArrayList( "organisationunit:10:2019-01-01:12345", "dataset:2:2019-01-01" ) );
+
+        subject.getAnalyticsTables( AnalyticsTableUpdateParams.newBuilder().build() );
+
+        verify( jdbcTemplate ).queryForList( contains(
+            "inner join _organisationunitgroupsetstructure ougs on cdr.sourceid=ougs.organisationunitid" ) );
+        verify( jdbcTemplate ).queryForList( contains( "where cdr.date <= '" ) );
+        verify( jdbcTemplate ).queryForList( contains( "and cdr.completed = true" ) );
+    }
+
+    @Test
+    public void testFullUpdateOnHierarchyChange()
+    {
+        when( jdbcTemplate.queryForList( contains( "union all" ), eq( String.class ) ) ).thenReturn(
+            Lists.newArrayList( "organisationunit:10:2019-01-01:67890", "dataset:2:2019-01-01" ) );
+        when( jdbcTemplate.queryForList( contains( "select distinct(extract(year from pe.startdate))" ), eq( Integer.class ) ) ).thenReturn(
+            Lists.newArrayList( 2018, 2016, 2017 ) );
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( AnalyticsTableUpdateParams.newBuilder().build() );
+
+        assertEquals( 1, tables.size() );
+        assertFalse( tables.get( 0 ).isIncremental() );
+        assertEquals( Lists.newArrayList( 2016, 2017, 2018 ), getYears( tables.get( 0 ) ) );
+    }
+
+    @Test
+    public void testFullUpdateOnDeletedOrgUnit()
+    {
+        when( jdbcTemplate.queryForList( contains( "union all" ), eq( String.class ) ) ).thenReturn(
+            Lists.newArrayList( "organisationunit:9:2019-01-01:12000", "dataset:2:2019-01-01" ) );
+        when( jdbcTemplate.queryForList( contains( "select distinct(extract(year from pe.startdate))" ), eq( Integer.class ) ) ).thenReturn(
+            Lists.newArrayList( 2017 ) );
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( AnalyticsTableUpdateParams.newBuilder().build() );
+
+        assertFalse( tables.get( 0 ).isIncremental() );
+        assertEquals( Lists.newArrayList( 2017 ), getYears( tables.get( 0 ) ) );
+    }
+
+    private Map<String, Object> getYearCount( int year, long count )
+    {
+        return ImmutableMap.of( "year", year, "count", count );
+    }
+
+    private List<Integer> getYears( AnalyticsTable table )
+    {
+        return table.getPartitionTables().stream()
+            .map( AnalyticsTablePartition::getYear )
+            .collect( Collectors.toList() );
+    }
+}
@@ -0,0 +1,114 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+
+public class JdbcCompletenessTargetTableManagerTest
+{
+    private static final String STATE = "datasetsource:20:4567;organisationunit:10:2019-01-01:12345";
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private IdentifiableObjectManager idObjectManager;
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @InjectMocks
+    private JdbcCompletenessTargetTableManager subject;
+
+    @Before
+    public void setUp()
+    {
+        List<String> columns = Lists.newArrayList( "ouopeningdate", "oucloseddate", "costartdate", "coenddate", "dx", "ao", "value" );
+
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_INCREMENTAL_TABLE_UPDATE ) ).thenReturn( true );
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_COMPLETENESS_TARGET_TABLES_UPDATE ) ).thenReturn( new Date() );
+        when( systemSettingManager.getSystemSetting( SettingKey.COMPLETENESS_TARGET_TABLES_METADATA_STATE ) ).thenReturn( STATE );
+        when( jdbcTemplate.queryForList( contains( "information_schema.columns" ), eq( String.class ), any() ) ).thenReturn( columns );
+    }
+
+    @Test
+    public void testSkipTableWithoutMetadataChanges()
+    {
+        when( jdbcTemplate.queryForList( contains( "union all" ), eq( String.class ) ) ).thenReturn(
+            Lists.newArrayList( "organisationunit:10:2019-01-01:12345", "datasetsource:20:4567" ) );
+
+        assertTrue( subject.getAnalyticsTables( AnalyticsTableUpdateParams.newBuilder().build() ).isEmpty() );
+    }
+
+    @Test
+    public void testRegenerateTableOnRemovedDataSetAssignment()
+    {
+        when( jdbcTemplate.queryForList( contains( "union all" ), eq( String.class ) ) ).thenReturn(
+            Lists.newArrayList( "organisationunit:10:2019-01-01:12345", "datasetsource:19:4321" ) );
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( AnalyticsTableUpdateParams.newBuilder().build() );
+
+        assertEquals( 1, tables.size() );
+    }
+}
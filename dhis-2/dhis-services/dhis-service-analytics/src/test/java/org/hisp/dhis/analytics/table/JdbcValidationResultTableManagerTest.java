@@ -0,0 +1,183 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+
+public class JdbcValidationResultTableManagerTest
+{
+    private static final String STATE = "organisationunit:10:2019-01-01:12345;validationrule:4:2019-01-01";
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private IdentifiableObjectManager idObjectManager;
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private PartitionManager partitionManager;
+
+    @InjectMocks
+    private JdbcValidationResultTableManager subject;
+
+    private AnalyticsTableUpdateParams params;
+
+    @Before
+    public void setUp()
+    {
+        params = AnalyticsTableUpdateParams.newBuilder().build();
+
+        List<String> columns = PeriodType.getAvailablePeriodTypes().stream()
+            .map( pt -> pt.getName().toLowerCase() )
+            .collect( Collectors.toList() );
+
+        columns.addAll( Lists.newArrayList( "validationresultid", "dx", "pestartdate", "peenddate", "year", "value" ) );
+
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_INCREMENTAL_TABLE_UPDATE ) ).thenReturn( true );
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_VALIDATION_RESULT_TABLES_UPDATE ) ).thenReturn(
+            new DateTime( params.getStartTime() ).minusHours( 1 ).toDate() );
+        when( systemSettingManager.getSystemSetting( SettingKey.VALIDATION_RESULT_TABLES_METADATA_STATE ) ).thenReturn( STATE );
+        when( systemSettingManager.getSystemSetting( SettingKey.VALIDATION_RESULT_TABLES_FULL_UPDATE_INTERVAL_DAYS ) ).thenReturn( 7 );
+        when( jdbcTemplate.queryForList( contains( "information_schema.columns" ), eq( String.class ), any() ) ).thenReturn( columns );
+        when( jdbcTemplate.queryForList( contains( "where vrs.created >" ), eq( Integer.class ) ) ).thenReturn( Lists.newArrayList( 2019 ) );
+        when( partitionManager.tableExists( anyString() ) ).thenReturn( true );
+    }
+
+    @Test
+    public void testAppendTable()
+    {
+        setMetadataState( STATE );
+        setLastFullUpdate( new DateTime( params.getStartTime() ).minusDays( 2 ).toDate() );
+
+        assertTrue( subject.appendTable( params ) );
+
+        verify( jdbcTemplate ).execute( contains( "insert into analytics_validationresult_2019 " ) );
+        verify( jdbcTemplate ).execute( contains( "delete from analytics_validationresult avr" ) );
+        verify( systemSettingManager ).saveSystemSetting( SettingKey.LAST_SUCCESSFUL_VALIDATION_RESULT_TABLES_UPDATE, params.getStartTime() );
+    }
+
+    @Test
+    public void testRegenerateTableOnMetadataChange()
+    {
+        setMetadataState( "organisationunit:10:2019-01-01:67890;validationrule:4:2019-01-01" );
+        setLastFullUpdate( new DateTime( params.getStartTime() ).minusDays( 2 ).toDate() );
+
+        assertFalse( subject.appendTable( params ) );
+
+        verify( jdbcTemplate, never() ).execute( anyString() );
+    }
+
+    @Test
+    public void testRegenerateTableOnDeletedValidationRule()
+    {
+        setMetadataState( "organisationunit:10:2019-01-01:12345;validationrule:3:2019-01-01" );
+        setLastFullUpdate( new DateTime( params.getStartTime() ).minusDays( 2 ).toDate() );
+
+        assertFalse( subject.appendTable( params ) );
+
+        verify( jdbcTemplate, never() ).execute( anyString() );
+    }
+
+    @Test
+    public void testRegenerateTableWhenFullUpdateIsDue()
+    {
+        setMetadataState( STATE );
+        setLastFullUpdate( new DateTime( params.getStartTime() ).minusDays( 8 ).toDate() );
+
+        assertFalse( subject.appendTable( params ) );
+
+        verify( jdbcTemplate, never() ).execute( anyString() );
+    }
+
+    @Test
+    public void testRegenerateTableWithoutFullUpdate()
+    {
+        setMetadataState( STATE );
+        setLastFullUpdate( null );
+
+        assertFalse( subject.appendTable( params ) );
+
+        verify( jdbcTemplate, never() ).execute( anyString() );
+    }
+
+    private void setMetadataState( String state )
+    {
+        when( jdbcTemplate.queryForList( contains( "union all" ), eq( String.class ) ) ).thenReturn(
+            Lists.newArrayList( state.split( ";" ) ) );
+    }
+
+    private void setLastFullUpdate( Date date )
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_FULL_VALIDATION_RESULT_TABLES_UPDATE ) ).thenReturn( date );
+    }
+}
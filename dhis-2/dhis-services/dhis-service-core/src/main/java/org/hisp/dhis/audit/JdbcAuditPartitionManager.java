@@ -0,0 +1,301 @@
+package org.hisp.dhis.audit;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * PostgreSQL implementation of {@link AuditPartitionManager} based on table
+ * inheritance and check constraints on the created column, in the same way
+ * as the analytics tables. Queries on an audit table also read its
+ * partitions, and partitions outside of a created date range are excluded
+ * through constraint exclusion.
+ * <p>
+ * New audits are routed into the partition of their month by a before insert
+ * trigger on the audit table, which inserts the audit into the partition and
+ * skips the insert into the audit table. Inserts into the audit table hence
+ * report no affected rows, which is why the Hibernate mappings of the audits
+ * do not check the row count of inserts. Audits for which no partition exists
+ * are inserted into the audit table, and are moved by {@link #moveAudits()}.
+ */
+public class JdbcAuditPartitionManager
+    implements AuditPartitionManager
+{
+    private static final Log log = LogFactory.getLog( JdbcAuditPartitionManager.class );
+
+    /**
+     * Audit tables mapped to the indexes of their partitions, as index name
+     * suffix mapped to columns.
+     */
+    private static final Map<String, Map<String, String>> AUDIT_TABLES = ImmutableMap.of(
+        "datavalueaudit", ImmutableMap.of(
+            "created", "created",
+            "key", "dataelementid, periodid, organisationunitid, categoryoptioncomboid, attributeoptioncomboid" ),
+        "trackedentitydatavalueaudit", ImmutableMap.of(
+            "created", "created",
+            "psi", "programstageinstanceid, dataelementid" ) );
+
+    /**
+     * Audit tables mapped to their primary key columns.
+     */
+    private static final Map<String, String> AUDIT_TABLE_KEYS = ImmutableMap.of(
+        "datavalueaudit", "datavalueauditid",
+        "trackedentitydatavalueaudit", "trackedentitydatavalueauditid" );
+
+    private static final Pattern PARTITION_PATTERN = Pattern.compile( "^(.+)_(\\d{4})_(\\d{2})$" );
+
+    /**
+     * Number of months after the current month for which partitions are
+     * created in advance.
+     */
+    private static final int MONTHS_AHEAD = 12;
+
+    /**
+     * Size of the primary key ranges of the audits moved in one transaction.
+     */
+    static final int MOVE_BATCH_SIZE = 50000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // -------------------------------------------------------------------------
+    // AuditPartitionManager implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void createPartitions()
+    {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth( 1 );
+
+        for ( String table : AUDIT_TABLES.keySet() )
+        {
+            for ( int i = 0; i <= MONTHS_AHEAD; i++ )
+            {
+                createPartition( table, currentMonth.plusMonths( i ) );
+            }
+
+            createInsertTrigger( table );
+        }
+
+        log.info( "Created audit partitions until: " + currentMonth.plusMonths( MONTHS_AHEAD ) );
+    }
+
+    @Override
+    public int moveAudits()
+    {
+        LocalDate nextMonth = LocalDate.now().withDayOfMonth( 1 ).plusMonths( 1 );
+
+        int moved = 0;
+
+        for ( String table : AUDIT_TABLES.keySet() )
+        {
+            moved += moveAudits( table, nextMonth );
+        }
+
+        log.info( "Moved audits to partitions: " + moved );
+
+        return moved;
+    }
+
+    @Override
+    public List<String> dropExpiredPartitions( int retentionMonths )
+    {
+        LocalDate cutoff = LocalDate.now().withDayOfMonth( 1 ).minusMonths( retentionMonths );
+
+        List<String> dropped = new ArrayList<>();
+
+        for ( String table : AUDIT_TABLES.keySet() )
+        {
+            for ( String partition : getPartitions( table ) )
+            {
+                Matcher matcher = PARTITION_PATTERN.matcher( partition );
+
+                if ( !matcher.matches() || !table.equals( matcher.group( 1 ) ) )
+                {
+                    continue;
+                }
+
+                LocalDate month = LocalDate.of( Integer.parseInt( matcher.group( 2 ) ), Integer.parseInt( matcher.group( 3 ) ), 1 );
+
+                if ( !month.plusMonths( 1 ).isAfter( cutoff ) )
+                {
+                    jdbcTemplate.execute( "drop table " + partition );
+
+                    dropped.add( partition );
+                }
+            }
+        }
+
+        log.info( "Dropped expired audit partitions: " + dropped );
+
+        return dropped;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Moves the audits created before the given month which remain in the
+     * given audit table into the partitions of their month. The partitions
+     * are created if they do not exist. Audits are moved in ranges of
+     * {@link #MOVE_BATCH_SIZE} primary keys, each in its own transaction, and
+     * are routed into their partition by the insert trigger.
+     *
+     * @return the number of audits moved.
+     */
+    private int moveAudits( String table, LocalDate endMonth )
+    {
+        Date end = Date.valueOf( endMonth );
+
+        Date minCreated = jdbcTemplate.queryForObject( "select min(created) from only " + table, Date.class );
+
+        if ( minCreated == null || !minCreated.before( end ) )
+        {
+            return 0;
+        }
+
+        for ( LocalDate month = minCreated.toLocalDate().withDayOfMonth( 1 ); month.isBefore( endMonth ); month = month.plusMonths( 1 ) )
+        {
+            createPartition( table, month );
+        }
+
+        createInsertTrigger( table );
+
+        String key = AUDIT_TABLE_KEYS.get( table );
+
+        Long minKey = jdbcTemplate.queryForObject( "select min(" + key + ") from only " + table, Long.class );
+        Long maxKey = jdbcTemplate.queryForObject( "select max(" + key + ") from only " + table, Long.class );
+
+        if ( minKey == null || maxKey == null )
+        {
+            return 0;
+        }
+
+        String sql = "with moved as (delete from only " + table + " where " + key + " >= ? and " + key + " < ? " +
+            "and created < ? returning *), inserted as (insert into " + table + " select * from moved) " +
+            "select count(*) from moved";
+
+        int moved = 0;
+
+        for ( long from = minKey; from <= maxKey; from += MOVE_BATCH_SIZE )
+        {
+            final long batchFrom = from;
+
+            Integer count = transactionTemplate.execute( status ->
+                jdbcTemplate.queryForObject( sql, Integer.class, batchFrom, batchFrom + MOVE_BATCH_SIZE, end ) );
+
+            moved += count != null ? count : 0;
+        }
+
+        log.info( "Moved audits to partitions: " + table + ", count: " + moved );
+
+        return moved;
+    }
+
+    /**
+     * Creates the partition of the given month for the given audit table with
+     * its indexes, if it does not exist.
+     *
+     * @return the name of the partition.
+     */
+    private String createPartition( String table, LocalDate month )
+    {
+        Date start = Date.valueOf( month );
+        Date end = Date.valueOf( month.plusMonths( 1 ) );
+
+        String partition = getPartitionName( table, month );
+
+        jdbcTemplate.execute( "create table if not exists " + partition + " (check (created >= '" + start +
+            "' and created < '" + end + "')) inherits (" + table + ")" );
+
+        for ( Map.Entry<String, String> index : AUDIT_TABLES.get( table ).entrySet() )
+        {
+            jdbcTemplate.execute( "create index if not exists in_" + partition + "_" + index.getKey() +
+                " on " + partition + " (" + index.getValue() + ")" );
+        }
+
+        return partition;
+    }
+
+    /**
+     * Creates or replaces the trigger which routes audits inserted into the
+     * given audit table into the partition of their month, if it exists.
+     */
+    private void createInsertTrigger( String table )
+    {
+        String function = table + "_partition_insert";
+        String trigger = "tr_" + table + "_partition_insert";
+
+        jdbcTemplate.execute( "create or replace function " + function + "() returns trigger as $$ " +
+            "declare partition_name text := '" + table + "' || to_char(new.created, '_YYYY_MM'); " +
+            "begin " +
+            "if to_regclass(partition_name) is not null then " +
+            "execute 'insert into ' || quote_ident(partition_name) || ' select ($1).*' using new; " +
+            "return null; " +
+            "end if; " +
+            "return new; " +
+            "end; $$ language plpgsql" );
+
+        jdbcTemplate.execute( "drop trigger if exists " + trigger + " on " + table );
+
+        jdbcTemplate.execute( "create trigger " + trigger + " before insert on " + table +
+            " for each row execute procedure " + function + "()" );
+    }
+
+    private List<String> getPartitions( String table )
+    {
+        return jdbcTemplate.queryForList( "select c.relname from pg_inherits i " +
+            "inner join pg_class c on c.oid = i.inhrelid " +
+            "inner join pg_class p on p.oid = i.inhparent " +
+            "where p.relname = ?", String.class, table );
+    }
+
+    private String getPartitionName( String table, LocalDate month )
+    {
+        return String.format( "%s_%d_%02d", table, month.getYear(), month.getMonthValue() );
+    }
+}
@@ -0,0 +1,101 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the versions of tracked classes in memory. Changes are registered by
+ * the {@link org.hisp.dhis.common.hibernate.MetadataChangeEventListener}.
+ */
+public class DefaultMetadataChangeTracker
+    implements MetadataChangeTracker
+{
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final Set<Class<?>> trackedClasses = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean enabled = false;
+
+    // -------------------------------------------------------------------------
+    // MetadataChangeTracker implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void setEnabled( boolean enabled )
+    {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    public boolean isTracked( Class<?> klass )
+    {
+        return trackedClasses.stream().anyMatch( c -> c.isAssignableFrom( klass ) );
+    }
+
+    @Override
+    public void registerChange( Class<?> klass )
+    {
+        versions.computeIfAbsent( klass, k -> new AtomicLong() ).incrementAndGet();
+    }
+
+    @Override
+    public long getVersion( Class<?> klass )
+    {
+        trackedClasses.add( klass );
+
+        long version = 0;
+
+        for ( Map.Entry<Class<?>, AtomicLong> entry : versions.entrySet() )
+        {
+            if ( klass.isAssignableFrom( entry.getKey() ) )
+            {
+                version += entry.getValue().get();
+            }
+        }
+
+        return version;
+    }
+
+    @Override
+    public long getVersion( Collection<Class<?>> classes )
+    {
+        return classes.stream().mapToLong( this::getVersion ).sum();
+    }
+}
@@ -48,6 +48,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -148,6 +149,14 @@ public class DefaultCompleteDataSetRegistrationService
             attributeOptionCombo );
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<CompleteDataSetRegistration> getExistingCompleteDataSetRegistrations(
+        Collection<CompleteDataSetRegistration> registrations )
+    {
+        return completeDataSetRegistrationStore.getExistingCompleteDataSetRegistrations( registrations );
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<CompleteDataSetRegistration> getAllCompleteDataSetRegistrations()
@@ -42,8 +42,14 @@ import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodStore;
 
 import javax.persistence.criteria.CriteriaBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Lars Helge Overland
@@ -107,6 +113,64 @@ public class HibernateCompleteDataSetRegistrationStore extends HibernateGenericS
             .addPredicate( root -> builder.equal( root, new CompleteDataSetRegistration( dataSet, storedPeriod, source, attributeOptionCombo ) ) ) );
     }
 
+    @Override
+    public List<CompleteDataSetRegistration> getExistingCompleteDataSetRegistrations(
+        Collection<CompleteDataSetRegistration> registrations )
+    {
+        if ( registrations.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        Map<String, CompleteDataSetRegistration> keyMap = new HashMap<>();
+        Set<Long> dataSetIds = new HashSet<>();
+        Set<Long> periodIds = new HashSet<>();
+        Set<Long> sourceIds = new HashSet<>();
+
+        for ( CompleteDataSetRegistration registration : registrations )
+        {
+            keyMap.put( getKey( registration.getDataSet().getId(), registration.getPeriod().getId(),
+                registration.getSource().getId(), registration.getAttributeOptionCombo().getId() ), registration );
+
+            dataSetIds.add( registration.getDataSet().getId() );
+            periodIds.add( registration.getPeriod().getId() );
+            sourceIds.add( registration.getSource().getId() );
+        }
+
+        // Selects scalars to avoid loading entities into the session, and
+        // filters the combinations of the id lists on the exact keys below
+
+        String hql = "select c.dataSet.id, c.period.id, c.source.id, c.attributeOptionCombo.id, c.storedBy, c.completed " +
+            "from CompleteDataSetRegistration c " +
+            "where c.dataSet.id in (:dataSetIds) and c.period.id in (:periodIds) and c.source.id in (:sourceIds)";
+
+        List<Object[]> rows = getSession().createQuery( hql, Object[].class )
+            .setParameterList( "dataSetIds", dataSetIds )
+            .setParameterList( "periodIds", periodIds )
+            .setParameterList( "sourceIds", sourceIds )
+            .list();
+
+        List<CompleteDataSetRegistration> existingRegistrations = new ArrayList<>();
+
+        for ( Object[] row : rows )
+        {
+            CompleteDataSetRegistration key = keyMap.get( getKey( (Long) row[0], (Long) row[1], (Long) row[2], (Long) row[3] ) );
+
+            if ( key != null )
+            {
+                CompleteDataSetRegistration existingRegistration = new CompleteDataSetRegistration( key.getDataSet(),
+                    key.getPeriod(), key.getSource(), key.getAttributeOptionCombo() );
+
+                existingRegistration.setStoredBy( (String) row[4] );
+                existingRegistration.setCompleted( (Boolean) row[5] );
+
+                existingRegistrations.add( existingRegistration );
+            }
+        }
+
+        return existingRegistrations;
+    }
+
     @Override
     public void deleteCompleteDataSetRegistration( CompleteDataSetRegistration registration )
     {
@@ -155,4 +219,13 @@ public class HibernateCompleteDataSetRegistrationStore extends HibernateGenericS
 
         return rs != null ? rs.intValue() : 0;
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private String getKey( long dataSetId, long periodId, long sourceId, long attributeOptionComboId )
+    {
+        return dataSetId + "-" + periodId + "-" + sourceId + "-" + attributeOptionComboId;
+    }
 }
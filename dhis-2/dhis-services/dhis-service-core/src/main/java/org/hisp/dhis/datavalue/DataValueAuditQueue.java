@@ -0,0 +1,868 @@
+package org.hisp.dhis.datavalue;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.external.location.LocationManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Writes data value audits behind the transactions which produce them when
+ * {@link ConfigurationKey#DATA_AUDIT_WRITE_BEHIND} is enabled. Audits are
+ * appended to a journal file, which is forced to disk, and to a bounded
+ * in-process queue, and a background thread writes the queue to the database
+ * in large batches. Producers block while the queue is full.
+ * <p>
+ * The audits of a transaction are first written to a pending journal before
+ * the transaction commits, so that a failure to write them fails the commit,
+ * and are moved to the journal and the queue after the commit. Pending
+ * journals which remain after an unclean shutdown are written on the next
+ * startup. The journal directory is specific to the node, given by
+ * {@link ConfigurationKey#NODE_ID} or else the host name, so that nodes of a
+ * cluster sharing a directory never write each others journals.
+ * <p>
+ * The journal is rotated each time the queue is drained, and the rotated
+ * journal is deleted once its audits are written. Journals which remain after
+ * a failed write or an unclean shutdown are written on later runs of the
+ * writer, which means that audits are written at least once. The live queue
+ * is drained before and between old journals, so that old journals never hold
+ * up the audits of current transactions.
+ * <p>
+ * When a batch fails, its audits are inserted one by one, and audits which
+ * can not be parsed or inserted are moved to a quarantine file. A journal
+ * which fails as a whole is retried with increasing intervals, and moved to
+ * quarantine after {@link #MAX_JOURNAL_ATTEMPTS} attempts. Quarantined
+ * journals can be written again by renaming them to their original name.
+ */
+public class DataValueAuditQueue
+{
+    private static final Log log = LogFactory.getLog( DataValueAuditQueue.class );
+
+    private static final int QUEUE_CAPACITY = 100000;
+
+    private static final int BATCH_SIZE = 10000;
+
+    private static final long WRITE_DELAY_MILLIS = 1000;
+
+    private static final long BACK_PRESSURE_WAIT_MILLIS = 10;
+
+    static final int MAX_JOURNAL_ATTEMPTS = 10;
+
+    private static final int MAX_BACK_OFF_EXPONENT = 8;
+
+    private static final String JOURNAL_DIR = "audit";
+
+    static final String JOURNAL_FILE = "datavalueaudit.journal";
+
+    static final String QUARANTINE_PREFIX = "quarantine.";
+
+    static final String PENDING_PREFIX = "pending.";
+
+    static final String REJECTED_FILE = QUARANTINE_PREFIX + "datavalueaudit.rejected";
+
+    private static final String NULL = "\\N";
+
+    private static final String INSERT_SQL = "insert into datavalueaudit (datavalueauditid, dataelementid, periodid, " +
+        "organisationunitid, categoryoptioncomboid, attributeoptioncomboid, value, modifiedby, created, audittype) " +
+        "values (nextval('datavalueaudit_sequence'), ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private DhisConfigurationProvider config;
+
+    @Autowired
+    private LocationManager locationManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>( QUEUE_CAPACITY );
+
+    /**
+     * Guards the journal writer, so that every line in the queue is also in
+     * the current journal when the queue is drained.
+     */
+    private final Object journalLock = new Object();
+
+    /**
+     * Progress of rotated journals which are not yet written, by file name.
+     * Only accessed by the writer.
+     */
+    private final Map<String, JournalProgress> journalProgress = new HashMap<>();
+
+    private boolean enabled;
+
+    private File journalDir;
+
+    private FileChannel journalChannel;
+
+    private Writer journal;
+
+    private long journalCount = 0;
+
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    private ScheduledExecutorService executor;
+
+    // -------------------------------------------------------------------------
+    // Initialization
+    // -------------------------------------------------------------------------
+
+    @PostConstruct
+    public void init()
+        throws IOException
+    {
+        enabled = config.isEnabled( ConfigurationKey.DATA_AUDIT_WRITE_BEHIND );
+
+        if ( !enabled )
+        {
+            return;
+        }
+
+        journalDir = locationManager.buildDirectory( JOURNAL_DIR, getNodeDirectory() );
+
+        if ( !journalDir.exists() && !journalDir.mkdirs() )
+        {
+            throw new IOException( "Failed to create data value audit journal directory: " + journalDir );
+        }
+
+        recoverPendingJournals();
+
+        synchronized ( journalLock )
+        {
+            rotateJournal();
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            Thread thread = new Thread( runnable, "data-value-audit-writer" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        executor.scheduleWithFixedDelay( this::write, WRITE_DELAY_MILLIS, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS );
+
+        log.info( "Data value audit write-behind enabled, journal directory: " + journalDir );
+    }
+
+    @PreDestroy
+    public void destroy()
+        throws InterruptedException
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+
+        executor.shutdown();
+        executor.awaitTermination( 1, TimeUnit.MINUTES );
+
+        write();
+    }
+
+    // -------------------------------------------------------------------------
+    // Public methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether audits are written behind. When false, audits should
+     * be written directly.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Adds the given audit when the current transaction commits, or
+     * immediately if there is no transaction. The audit is written to a
+     * pending journal before the transaction commits. The audits of a
+     * transaction which is rolled back are discarded.
+     *
+     * @param audit the audit.
+     */
+    public void add( DataValueAudit audit )
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            addNow( Arrays.asList( audit ) );
+            return;
+        }
+
+        TransactionAudits audits = (TransactionAudits) TransactionSynchronizationManager.getResource( this );
+
+        if ( audits == null )
+        {
+            audits = new TransactionAudits();
+            TransactionSynchronizationManager.bindResource( this, audits );
+            TransactionSynchronizationManager.registerSynchronization( audits );
+        }
+
+        audits.lines.add( toLine( audit ) );
+    }
+
+    /**
+     * Adds the given audits immediately. Intended for audits of data values
+     * which are not written in the current transaction, such as data values
+     * written with batch handlers.
+     *
+     * @param audits the audits.
+     */
+    public void addNow( List<DataValueAudit> audits )
+    {
+        List<String> lines = new ArrayList<>( audits.size() );
+
+        for ( DataValueAudit audit : audits )
+        {
+            lines.add( toLine( audit ) );
+        }
+
+        append( lines );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Appends the given lines to the journal and the queue, and forces the
+     * journal to disk. Waits while the queue is full.
+     */
+    private void append( List<String> lines )
+    {
+        int i = 0;
+
+        while ( i < lines.size() )
+        {
+            synchronized ( journalLock )
+            {
+                try
+                {
+                    while ( i < lines.size() && queue.offer( lines.get( i ) ) )
+                    {
+                        journal.write( lines.get( i++ ) );
+                        journal.write( '\n' );
+                    }
+
+                    journal.flush();
+                    journalChannel.force( false );
+                }
+                catch ( IOException ex )
+                {
+                    throw new UncheckedIOException( "Failed to write data value audit journal", ex );
+                }
+            }
+
+            if ( i < lines.size() )
+            {
+                waitForQueue();
+            }
+        }
+    }
+
+    /**
+     * Writes the given lines to a new pending journal, and forces it to disk.
+     *
+     * @return the pending journal.
+     */
+    private File writePending( List<String> lines )
+        throws IOException
+    {
+        File pending = new File( journalDir, PENDING_PREFIX + JOURNAL_FILE + "." +
+            System.currentTimeMillis() + "-p" + pendingCount.getAndIncrement() );
+
+        writeLines( pending, lines );
+
+        return pending;
+    }
+
+    /**
+     * Renames the pending journals which remain from an earlier run to
+     * rotated journals, so that they are written by the writer. The
+     * transactions of these journals were committed or not, and the audits
+     * are written in either case.
+     */
+    private void recoverPendingJournals()
+        throws IOException
+    {
+        File[] files = journalDir.listFiles( ( dir, name ) -> name.startsWith( PENDING_PREFIX ) );
+
+        for ( File file : files != null ? files : new File[0] )
+        {
+            Files.move( file.toPath(), new File( journalDir, file.getName().substring( PENDING_PREFIX.length() ) ).toPath() );
+
+            log.warn( "Recovered pending data value audit journal: " + file.getName() );
+        }
+    }
+
+    private void deletePending( File pending )
+    {
+        try
+        {
+            Files.deleteIfExists( pending.toPath() );
+        }
+        catch ( IOException ex )
+        {
+            log.error( "Failed to delete pending data value audit journal: " + pending.getName(), ex );
+        }
+    }
+
+    /**
+     * Gets the name of the journal directory of this node, which is the node
+     * identifier if configured, or else the host name.
+     */
+    private String getNodeDirectory()
+    {
+        String nodeId = config.getProperty( ConfigurationKey.NODE_ID );
+
+        if ( StringUtils.isNotBlank( nodeId ) )
+        {
+            return nodeId;
+        }
+
+        try
+        {
+            return InetAddress.getLocalHost().getHostName();
+        }
+        catch ( UnknownHostException ex )
+        {
+            log.warn( "Failed to get host name for data value audit journal directory, configure " +
+                ConfigurationKey.NODE_ID.getKey() + " when running in a cluster" );
+
+            return "default";
+        }
+    }
+
+    private void waitForQueue()
+    {
+        try
+        {
+            Thread.sleep( BACK_PRESSURE_WAIT_MILLIS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException( "Interrupted while waiting for data value audit queue", ex );
+        }
+    }
+
+    /**
+     * Drains the queue and writes its audits, and writes the audits of the
+     * rotated journals which remain from earlier runs, draining the queue
+     * again after each journal. Exceptions are logged and not propagated so
+     * that subsequent executions are not suppressed.
+     */
+    void write()
+    {
+        List<File> journals = getRotatedJournals();
+
+        writeQueue();
+
+        for ( File file : journals )
+        {
+            writeJournal( file );
+            writeQueue();
+        }
+    }
+
+    /**
+     * Drains the queue, writes its audits and deletes the journal which was
+     * rotated with the drain. When the write fails, the rotated journal is
+     * written by a later run, starting after the audits already written.
+     */
+    private void writeQueue()
+    {
+        try
+        {
+            List<String> lines = new ArrayList<>();
+            File rotated;
+
+            synchronized ( journalLock )
+            {
+                if ( queue.isEmpty() )
+                {
+                    return;
+                }
+
+                queue.drainTo( lines );
+                rotated = rotateJournal();
+            }
+
+            JournalProgress progress = new JournalProgress();
+            journalProgress.put( rotated.getName(), progress );
+
+            for ( int i = 0; i < lines.size(); i += BATCH_SIZE )
+            {
+                List<String> batch = lines.subList( i, Math.min( i + BATCH_SIZE, lines.size() ) );
+
+                insert( batch );
+
+                progress.written += batch.size();
+            }
+
+            Files.delete( rotated.toPath() );
+            journalProgress.remove( rotated.getName() );
+
+            log.debug( "Wrote data value audits: " + lines.size() );
+        }
+        catch ( Exception ex )
+        {
+            log.error( "Failed to write data value audits: " + DebugUtils.getStackTrace( ex ) );
+        }
+    }
+
+    /**
+     * Writes the audits of the given rotated journal, and deletes the journal.
+     * Lines which were written by an earlier attempt are skipped. A failed
+     * journal is retried after a number of runs which doubles with each
+     * attempt, and is moved to quarantine after the maximum number of
+     * attempts.
+     */
+    private void writeJournal( File file )
+    {
+        JournalProgress progress = journalProgress.computeIfAbsent( file.getName(), name -> new JournalProgress() );
+
+        if ( progress.skipRuns > 0 )
+        {
+            progress.skipRuns--;
+            return;
+        }
+
+        try
+        {
+            int count = replay( file, progress );
+
+            Files.delete( file.toPath() );
+            journalProgress.remove( file.getName() );
+
+            log.info( "Wrote data value audits from journal: " + file.getName() + ", count: " + count );
+        }
+        catch ( Exception ex )
+        {
+            progress.attempts++;
+
+            if ( progress.attempts >= MAX_JOURNAL_ATTEMPTS )
+            {
+                quarantine( file );
+                journalProgress.remove( file.getName() );
+
+                log.error( "Moved data value audit journal to quarantine after " + progress.attempts +
+                    " failed attempts: " + file.getName() + ", " + DebugUtils.getStackTrace( ex ) );
+            }
+            else
+            {
+                progress.skipRuns = ( 1 << Math.min( progress.attempts, MAX_BACK_OFF_EXPONENT ) ) - 1;
+
+                log.warn( "Failed to write data value audit journal: " + file.getName() + ", attempt: " +
+                    progress.attempts + ", " + ex.getMessage() );
+            }
+        }
+    }
+
+    private int replay( File file, JournalProgress progress )
+        throws IOException
+    {
+        List<String> lines = new ArrayList<>();
+        int lineCount = 0;
+        int count = 0;
+
+        try ( BufferedReader reader = Files.newBufferedReader( file.toPath(), StandardCharsets.UTF_8 ) )
+        {
+            String line;
+
+            while ( ( line = reader.readLine() ) != null )
+            {
+                if ( lineCount++ < progress.written || line.isEmpty() )
+                {
+                    continue;
+                }
+
+                lines.add( line );
+
+                if ( lines.size() >= BATCH_SIZE )
+                {
+                    count += insert( lines );
+                    progress.written = lineCount;
+                    lines.clear();
+                }
+            }
+        }
+
+        count += insert( lines );
+        progress.written = lineCount;
+
+        return count;
+    }
+
+    /**
+     * Inserts the audits of the given lines in one batch. When the batch
+     * fails, the audits are inserted one by one. Lines which can not be parsed
+     * or inserted are moved to the quarantine file, unless no audit at all
+     * could be inserted, in which case the failure is assumed not to be
+     * caused by the audits and is propagated.
+     *
+     * @return the number of inserted audits.
+     */
+    private int insert( List<String> lines )
+        throws IOException
+    {
+        if ( lines.isEmpty() )
+        {
+            return 0;
+        }
+
+        List<String> validLines = new ArrayList<>( lines.size() );
+        List<Object[]> args = new ArrayList<>( lines.size() );
+        List<String> rejectedLines = new ArrayList<>();
+
+        for ( String line : lines )
+        {
+            try
+            {
+                args.add( toArgs( line ) );
+                validLines.add( line );
+            }
+            catch ( RuntimeException ex )
+            {
+                rejectedLines.add( line );
+            }
+        }
+
+        int count = args.size();
+
+        if ( !args.isEmpty() )
+        {
+            try
+            {
+                jdbcTemplate.batchUpdate( INSERT_SQL, args );
+            }
+            catch ( DataAccessException ex )
+            {
+                log.warn( "Failed to insert data value audit batch, inserting one by one: " + ex.getMessage() );
+
+                count = 0;
+
+                for ( int i = 0; i < args.size(); i++ )
+                {
+                    try
+                    {
+                        jdbcTemplate.update( INSERT_SQL, args.get( i ) );
+                        count++;
+                    }
+                    catch ( DataAccessException rowEx )
+                    {
+                        rejectedLines.add( validLines.get( i ) );
+                    }
+                }
+
+                if ( count == 0 )
+                {
+                    throw ex;
+                }
+            }
+        }
+
+        if ( !rejectedLines.isEmpty() )
+        {
+            reject( rejectedLines );
+        }
+
+        return count;
+    }
+
+    /**
+     * Appends the given lines to the quarantine file of rejected audits.
+     */
+    private void reject( List<String> lines )
+        throws IOException
+    {
+        File rejected = new File( journalDir, REJECTED_FILE );
+
+        writeLines( rejected, lines );
+
+        log.error( "Moved data value audits which could not be written to quarantine: " + rejected.getName() +
+            ", count: " + lines.size() );
+    }
+
+    /**
+     * Appends the given lines to the given file, and forces it to disk.
+     */
+    private void writeLines( File file, List<String> lines )
+        throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND );
+            Writer writer = new BufferedWriter( Channels.newWriter( channel, StandardCharsets.UTF_8.newEncoder(), -1 ) ) )
+        {
+            for ( String line : lines )
+            {
+                writer.write( line );
+                writer.write( '\n' );
+            }
+
+            writer.flush();
+            channel.force( false );
+        }
+    }
+
+    private void quarantine( File file )
+    {
+        try
+        {
+            Files.move( file.toPath(), new File( journalDir, QUARANTINE_PREFIX + file.getName() ).toPath() );
+        }
+        catch ( IOException ex )
+        {
+            log.error( "Failed to move data value audit journal to quarantine: " + file.getName(), ex );
+        }
+    }
+
+    /**
+     * Renames the current journal, if any, and opens a new journal. Must be
+     * called while holding the journal lock.
+     *
+     * @return the renamed journal.
+     */
+    private File rotateJournal()
+        throws IOException
+    {
+        if ( journal != null )
+        {
+            journal.close();
+        }
+
+        File current = new File( journalDir, JOURNAL_FILE );
+        File rotated = new File( journalDir, JOURNAL_FILE + "." + System.currentTimeMillis() + "-" + journalCount++ );
+
+        if ( current.exists() )
+        {
+            Files.move( current.toPath(), rotated.toPath() );
+        }
+
+        journalChannel = FileChannel.open( current.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND );
+
+        journal = new BufferedWriter( Channels.newWriter( journalChannel, StandardCharsets.UTF_8.newEncoder(), -1 ) );
+
+        return rotated;
+    }
+
+    private List<File> getRotatedJournals()
+    {
+        File[] files = journalDir.listFiles( ( dir, name ) -> name.startsWith( JOURNAL_FILE + "." ) );
+
+        List<File> journals = files != null ? new ArrayList<>( Arrays.asList( files ) ) : new ArrayList<>();
+        journals.sort( ( f1, f2 ) -> Long.compare( f1.lastModified(), f2.lastModified() ) );
+
+        return journals;
+    }
+
+    /**
+     * Gets a journal line for the given audit. Fields are separated by tabs,
+     * and tabs, line breaks and backslashes in text are escaped.
+     */
+    static String toLine( DataValueAudit audit )
+    {
+        return String.join( "\t",
+            String.valueOf( audit.getDataElement().getId() ),
+            String.valueOf( audit.getPeriod().getId() ),
+            String.valueOf( audit.getOrganisationUnit().getId() ),
+            String.valueOf( audit.getCategoryOptionCombo().getId() ),
+            String.valueOf( audit.getAttributeOptionCombo().getId() ),
+            escape( audit.getValue() ),
+            escape( audit.getModifiedBy() ),
+            audit.getCreated() != null ? String.valueOf( audit.getCreated().getTime() ) : NULL,
+            audit.getAuditType().name() );
+    }
+
+    /**
+     * Gets the insert arguments of the given journal line.
+     *
+     * @throws IllegalArgumentException if the line is malformed.
+     */
+    static Object[] toArgs( String line )
+    {
+        String[] fields = line.split( "\t", -1 );
+
+        if ( fields.length != 9 )
+        {
+            throw new IllegalArgumentException( "Malformed data value audit journal line: " + line );
+        }
+
+        return new Object[] {
+            Long.valueOf( fields[0] ),
+            Long.valueOf( fields[1] ),
+            Long.valueOf( fields[2] ),
+            Long.valueOf( fields[3] ),
+            Long.valueOf( fields[4] ),
+            unescape( fields[5] ),
+            unescape( fields[6] ),
+            NULL.equals( fields[7] ) ? null : new Timestamp( Long.valueOf( fields[7] ) ),
+            fields[8] };
+    }
+
+    private static String escape( String value )
+    {
+        if ( value == null )
+        {
+            return NULL;
+        }
+
+        return value.replace( "\\", "\\\\" ).replace( "\t", "\\t" ).replace( "\n", "\\n" ).replace( "\r", "\\r" );
+    }
+
+    private static String unescape( String value )
+    {
+        if ( NULL.equals( value ) )
+        {
+            return null;
+        }
+
+        StringBuilder builder = new StringBuilder( value.length() );
+
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+
+            if ( c == '\\' && i + 1 < value.length() )
+            {
+                char next = value.charAt( ++i );
+                builder.append( next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next );
+            }
+            else
+            {
+                builder.append( c );
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Progress of a rotated journal which is not yet written.
+     */
+    private static class JournalProgress
+    {
+        /**
+         * Number of lines of the journal which are written.
+         */
+        private int written = 0;
+
+        private int attempts = 0;
+
+        /**
+         * Number of writer runs to skip before the next attempt.
+         */
+        private int skipRuns = 0;
+    }
+
+    /**
+     * Holds the audit lines of a transaction. Writes them to a pending journal
+     * before the transaction commits, and appends them to the journal and the
+     * queue after the transaction commits. The pending journal is deleted once
+     * the lines are appended, or when the transaction is rolled back.
+     */
+    private class TransactionAudits
+        extends TransactionSynchronizationAdapter
+    {
+        private final List<String> lines = new ArrayList<>();
+
+        private File pending;
+
+        @Override
+        public void beforeCommit( boolean readOnly )
+        {
+            try
+            {
+                pending = writePending( lines );
+            }
+            catch ( IOException ex )
+            {
+                throw new UncheckedIOException( "Failed to write pending data value audit journal", ex );
+            }
+        }
+
+        @Override
+        public void afterCommit()
+        {
+            append( lines );
+
+            deletePending( pending );
+        }
+
+        @Override
+        public void afterCompletion( int status )
+        {
+            TransactionSynchronizationManager.unbindResource( DataValueAuditQueue.this );
+
+            if ( status == TransactionSynchronization.STATUS_ROLLED_BACK && pending != null )
+            {
+                deletePending( pending );
+            }
+        }
+    }
+}
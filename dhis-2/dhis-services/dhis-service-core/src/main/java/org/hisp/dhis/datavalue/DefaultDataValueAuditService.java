@@ -35,6 +35,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -55,6 +56,13 @@ public class DefaultDataValueAuditService
         this.dataValueAuditStore = dataValueAuditStore;
     }
 
+    private DataValueAuditQueue dataValueAuditQueue;
+
+    public void setDataValueAuditQueue( DataValueAuditQueue dataValueAuditQueue )
+    {
+        this.dataValueAuditQueue = dataValueAuditQueue;
+    }
+
     // -------------------------------------------------------------------------
     // DataValueAuditService implementation
     // -------------------------------------------------------------------------
@@ -63,7 +71,14 @@ public class DefaultDataValueAuditService
     @Transactional
     public void addDataValueAudit( DataValueAudit dataValueAudit )
     {
-        dataValueAuditStore.addDataValueAudit( dataValueAudit );
+        if ( dataValueAuditQueue != null && dataValueAuditQueue.isEnabled() )
+        {
+            dataValueAuditQueue.add( dataValueAudit );
+        }
+        else
+        {
+            dataValueAuditStore.addDataValueAudit( dataValueAudit );
+        }
     }
     
     @Override
@@ -110,4 +125,28 @@ public class DefaultDataValueAuditService
     {
         return dataValueAuditStore.countDataValueAudits( dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType );
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DataValueAudit> getDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate )
+    {
+        return dataValueAuditStore.getDataValueAudits( dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, startDate, endDate );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DataValueAudit> getDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate, int first, int max )
+    {
+        return dataValueAuditStore.getDataValueAudits( dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, startDate, endDate, first, max );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int countDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate )
+    {
+        return dataValueAuditStore.countDataValueAudits( dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, startDate, endDate );
+    }
 }
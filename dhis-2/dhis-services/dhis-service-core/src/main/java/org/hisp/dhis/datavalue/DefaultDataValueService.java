@@ -200,6 +200,26 @@ public class DefaultDataValueService
         }
     }
 
+    @Override
+    @Transactional
+    public void saveDataValues( List<DataValue> addedValues, List<DataValue> updatedValues, List<DataValue> deletedValues )
+    {
+        for ( DataValue dataValue : addedValues )
+        {
+            addDataValue( dataValue );
+        }
+
+        for ( DataValue dataValue : updatedValues )
+        {
+            updateDataValue( dataValue );
+        }
+
+        for ( DataValue dataValue : deletedValues )
+        {
+            deleteDataValue( dataValue );
+        }
+    }
+
     @Override
     @Transactional
     public void deleteDataValue( DataValue dataValue )
@@ -329,6 +349,13 @@ public class DefaultDataValueService
         return dataValueStore.getDataValues( source, period, dataElements, attributeOptionCombo );
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<DataValue> getExistingDataValues( Collection<DataValue> dataValues )
+    {
+        return dataValueStore.getExistingDataValues( dataValues );
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<DeflatedDataValue> getDeflatedDataValues( DataExportParams params )
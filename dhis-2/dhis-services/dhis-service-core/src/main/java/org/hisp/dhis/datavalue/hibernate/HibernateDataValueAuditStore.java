@@ -44,6 +44,7 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.function.Function;
 
@@ -104,22 +105,43 @@ public class HibernateDataValueAuditStore extends HibernateGenericStore<DataValu
     @Override
     public List<DataValueAudit> getDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
         CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType )
+    {
+        return getDataValueAudits( dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, null, null );
+    }
+
+    @Override
+    public List<DataValueAudit> getDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, int first, int max )
+    {
+        return getDataValueAudits( dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, null, null, first, max );
+    }
+
+    @Override
+    public int countDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType )
+    {
+        return countDataValueAudits( dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, null, null );
+    }
+
+    @Override
+    public List<DataValueAudit> getDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate )
     {
         CriteriaBuilder builder = getSession().getCriteriaBuilder();
 
         return getList( builder, newJpaParameters()
-            .addPredicates( getDataValueAuditPredicates( builder, dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType ) )
+            .addPredicates( getDataValueAuditPredicates( builder, dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, startDate, endDate ) )
             .addOrder( root -> builder.desc( root.get( "created" ) ) ) );
     }
 
     @Override
     public List<DataValueAudit> getDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
-        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, int first, int max )
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate, int first, int max )
     {
         CriteriaBuilder builder = getSession().getCriteriaBuilder();
 
         return getList( builder, newJpaParameters()
-            .addPredicates( getDataValueAuditPredicates( builder, dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType ) )
+            .addPredicates( getDataValueAuditPredicates( builder, dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, startDate, endDate ) )
             .addOrder( root -> builder.desc( root.get( "created" ) ) )
             .setFirstResult( first )
             .setMaxResults( max ) );
@@ -127,17 +149,17 @@ public class HibernateDataValueAuditStore extends HibernateGenericStore<DataValu
 
     @Override
     public int countDataValueAudits( List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
-        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType )
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate )
     {
         CriteriaBuilder builder = getSession().getCriteriaBuilder();
 
         return getCount( builder, newJpaParameters()
-            .addPredicates( getDataValueAuditPredicates( builder, dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType ) )
+            .addPredicates( getDataValueAuditPredicates( builder, dataElements, periods, organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, startDate, endDate ) )
             .count( root -> builder.countDistinct( root.get( "id" ) ) )).intValue();
     }
 
     private List<Function<Root<DataValueAudit>, Predicate>> getDataValueAuditPredicates( CriteriaBuilder builder, List<DataElement> dataElements, List<Period> periods, List<OrganisationUnit> organisationUnits,
-        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType )
+        CategoryOptionCombo categoryOptionCombo, CategoryOptionCombo attributeOptionCombo, AuditType auditType, Date startDate, Date endDate )
     {
         List<Period> storedPeriods = new ArrayList<>();
 
@@ -186,6 +208,18 @@ public class HibernateDataValueAuditStore extends HibernateGenericStore<DataValu
             predicates.add( root -> builder.equal( root.get( "auditType" ), auditType ) );
         }
 
+        // Created date range allows constraint exclusion of monthly partitions
+
+        if ( startDate != null )
+        {
+            predicates.add( root -> builder.greaterThanOrEqualTo( root.get( "created" ), startDate ) );
+        }
+
+        if ( endDate != null )
+        {
+            predicates.add( root -> builder.lessThan( root.get( "created" ), endDate ) );
+        }
+
         return predicates;
     }
 }
\ No newline at end of file
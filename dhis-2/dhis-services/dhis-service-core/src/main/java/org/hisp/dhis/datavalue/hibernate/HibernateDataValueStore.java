@@ -35,7 +35,9 @@ import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -338,6 +340,68 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
         return getList( query );
     }
 
+    @Override
+    public List<DataValue> getExistingDataValues( Collection<DataValue> dataValues )
+    {
+        if ( dataValues.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        Map<String, DataValue> keyMap = new HashMap<>();
+        List<String> keyRows = new ArrayList<>();
+
+        for ( DataValue dataValue : dataValues )
+        {
+            long[] ids = { dataValue.getDataElement().getId(), dataValue.getPeriod().getId(), dataValue.getSource().getId(),
+                dataValue.getCategoryOptionCombo().getId(), dataValue.getAttributeOptionCombo().getId() };
+
+            if ( keyMap.put( getKey( ids[0], ids[1], ids[2], ids[3], ids[4] ), dataValue ) == null )
+            {
+                keyRows.add( "(" + ids[0] + "," + ids[1] + "," + ids[2] + "," + ids[3] + "," + ids[4] + ")" );
+            }
+        }
+
+        // Matches the exact keys as row values rather than the combinations
+        // of separate id lists, and selects scalars to avoid loading entities
+        // into the session. Pending data values in the session are flushed
+        // through the synchronized entity class.
+
+        String sql = "select dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid, " +
+            "value, storedby, comment, followup, deleted from datavalue " +
+            "where (dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid) in (" +
+            String.join( ",", keyRows ) + ")";
+
+        @SuppressWarnings( "unchecked" )
+        List<Object[]> rows = (List<Object[]>) getUntypedSqlQuery( sql )
+            .addSynchronizedEntityClass( DataValue.class )
+            .list();
+
+        List<DataValue> existingValues = new ArrayList<>();
+
+        for ( Object[] row : rows )
+        {
+            DataValue key = keyMap.get( getKey( ((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                ((Number) row[2]).longValue(), ((Number) row[3]).longValue(), ((Number) row[4]).longValue() ) );
+
+            if ( key != null )
+            {
+                DataValue existingValue = new DataValue( key.getDataElement(), key.getPeriod(), key.getSource(),
+                    key.getCategoryOptionCombo(), key.getAttributeOptionCombo() );
+
+                existingValue.setValue( (String) row[5] );
+                existingValue.setStoredBy( (String) row[6] );
+                existingValue.setComment( (String) row[7] );
+                existingValue.setFollowup( (Boolean) row[8] );
+                existingValue.setDeleted( Boolean.TRUE.equals( row[9] ) );
+
+                existingValues.add( existingValue );
+            }
+        }
+
+        return existingValues;
+    }
+
     @Override
     public List<DeflatedDataValue> getDeflatedDataValues( DataExportParams params )
     {
@@ -347,7 +411,7 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
 
         String sql = "select dv.dataelementid, dv.periodid, " + orgUnitId +
             ", dv.categoryoptioncomboid, dv.attributeoptioncomboid, dv.value" +
-            ", dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup" +
+            ", dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup, dv.deleted" +
             " from datavalue dv";
 
         String where = "";
@@ -376,7 +440,7 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
 
             where += sqlHelper.whereAnd() + "dv.periodid in (" + periodIdList + ")";
         }
-        else if ( params.hasPeriodTypes() || params.hasStartEndDate() || params.hasIncludedDate() )
+        else if ( params.hasPeriodTypes() || params.hasStartEndDate() || params.hasIncludedDate() || params.hasIncludedDateRange() )
         {
             sql += " join period p on p.periodid = dv.periodid";
 
@@ -399,6 +463,11 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
                 where += sqlHelper.whereAnd() + "p.startdate <= '" + DateUtils.getMediumDateString( params.getIncludedDate() ) + "'"
                     + " and p.enddate >= '" + DateUtils.getMediumDateString( params.getIncludedDate() ) + "'";
             }
+            else if ( params.hasIncludedDateRange() )
+            {
+                where += sqlHelper.whereAnd() + "p.startdate <= '" + DateUtils.getMediumDateString( params.getIncludedEndDate() ) + "'"
+                    + " and p.enddate >= '" + DateUtils.getMediumDateString( params.getIncludedStartDate() ) + "'";
+            }
         }
 
         if ( params.isIncludeChildrenForOrganisationUnits() || params.isReturnParentForOrganisationUnits() )
@@ -448,7 +517,7 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
 
         if ( params.hasLastUpdated() )
         {
-            where += sqlHelper.whereAnd() + "dv.lastupdated >= " + DateUtils.getMediumDateString( params.getLastUpdated() );
+            where += sqlHelper.whereAnd() + "dv.lastupdated >= '" + DateUtils.getLongDateString( params.getLastUpdated() ) + "'";
         }
 
         if ( !params.isIncludeDeleted() )
@@ -475,10 +544,15 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
             Date lastUpdated = rowSet.getDate( 9 );
             String comment = rowSet.getString( 10 );
             boolean followup = rowSet.getBoolean( 11 );
+            boolean deleted = rowSet.getBoolean( 12 );
 
-            result.add( new DeflatedDataValue( dataElementId, periodId,
+            DeflatedDataValue dataValue = new DeflatedDataValue( dataElementId, periodId,
                 organisationUnitId, categoryOptionComboId, attributeOptionComboId,
-                value, storedBy, created, lastUpdated, comment, followup ) );
+                value, storedBy, created, lastUpdated, comment, followup );
+
+            dataValue.setDeleted( deleted );
+
+            result.add( dataValue );
         }
 
         log.debug( result.size() + " DeflatedDataValues returned from: " + sql );
@@ -523,6 +597,14 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Gets a key for the identifiers of a data value.
+     */
+    private String getKey( long dataElementId, long periodId, long sourceId, long categoryOptionComboId, long attributeOptionComboId )
+    {
+        return dataElementId + "-" + periodId + "-" + sourceId + "-" + categoryOptionComboId + "-" + attributeOptionComboId;
+    }
+
     /**
      * Gets a list of DataElementOperands to use for SQL query.
      *
@@ -61,6 +61,8 @@ import org.hisp.dhis.indicator.IndicatorValue;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
 import org.hisp.dhis.parser.expression.AbstractVisitor;
+import org.hisp.dhis.parser.expression.CompiledExpression;
+import org.hisp.dhis.parser.expression.EvaluationContext;
 import org.hisp.dhis.parser.expression.Parser;
 import org.hisp.dhis.parser.expression.ParserException;
 import org.hisp.dhis.period.Period;
@@ -212,11 +214,13 @@ public class DefaultExpressionService
 
         Integer days = period != null ? period.getDaysInPeriod() : null;
 
-        Double denominatorValue = getExpressionValue( indicator.getDenominator(),
-            valueMap, constantMap, orgUnitCountMap, days, MissingValueStrategy.NEVER_SKIP );
+        Map<String, Double> itemValueMap = getItemValueMap( valueMap );
 
-        Double numeratorValue = getExpressionValue( indicator.getNumerator(),
-            valueMap, constantMap, orgUnitCountMap, days, MissingValueStrategy.NEVER_SKIP );
+        Double denominatorValue = evaluateExpression( indicator.getDenominator(),
+            itemValueMap, constantMap, orgUnitCountMap, days, MissingValueStrategy.NEVER_SKIP );
+
+        Double numeratorValue = evaluateExpression( indicator.getNumerator(),
+            itemValueMap, constantMap, orgUnitCountMap, days, MissingValueStrategy.NEVER_SKIP );
 
         if ( denominatorValue != null && denominatorValue != 0d && numeratorValue != null )
         {
@@ -347,14 +351,179 @@ public class DefaultExpressionService
             return null;
         }
 
-        ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator(
-            valueMap, constantMap, orgUnitCountMap, days );
+        return evaluateExpression( expression, getItemValueMap( valueMap ), constantMap,
+            orgUnitCountMap, days, missingValueStrategy );
+    }
+
+    @Override
+    public double[] getExpressionValues( String expression,
+        Map<? extends DimensionalItemObject, double[]> itemValues, int rowCount,
+        Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days,
+        MissingValueStrategy missingValueStrategy )
+    {
+        checkNotNull( itemValues );
+        checkNotNull( constantMap );
+
+        double[] results = new double[rowCount];
+
+        if ( expression == null )
+        {
+            Arrays.fill( results, Double.NaN );
+
+            return results;
+        }
+
+        CompiledExpression compiledExpression;
+
+        try
+        {
+            compiledExpression = Parser.compile( expression );
+        }
+        catch ( ParserException ex )
+        {
+            log.warn( ex.getMessage() + " parsing expression '" + expression + "'" );
+
+            Arrays.fill( results, DOUBLE_VALUE_IF_NULL );
+
+            return results;
+        }
+
+        Map<String, double[]> columnMap = new HashMap<>();
+
+        for ( Map.Entry<? extends DimensionalItemObject, double[]> entry : itemValues.entrySet() )
+        {
+            if ( entry.getValue().length < rowCount )
+            {
+                throw new IllegalArgumentException( "Item " + entry.getKey().getDimensionItem() +
+                    " has " + entry.getValue().length + " values, expected " + rowCount );
+            }
 
-        Double value = visit ( expression, expressionEvaluator, true );
+            columnMap.put( entry.getKey().getDimensionItem(), entry.getValue() );
+        }
+
+        String[] itemKeys = compiledExpression.getItemKeys();
+
+        double[][] itemColumns = new double[itemKeys.length][];
+
+        double[] missingColumn = null;
+
+        for ( int i = 0; i < itemKeys.length; i++ )
+        {
+            itemColumns[i] = columnMap.get( itemKeys[i] );
+
+            if ( itemColumns[i] == null )
+            {
+                if ( missingColumn == null )
+                {
+                    missingColumn = new double[rowCount];
+
+                    Arrays.fill( missingColumn, Double.NaN );
+                }
+
+                itemColumns[i] = missingColumn;
+            }
+        }
+
+        EvaluationContext context = compiledExpression.newContext( itemColumns, constantMap, orgUnitCountMap, days );
+
+        boolean warned = false;
+
+        for ( int row = 0; row < rowCount; row++ )
+        {
+            context.setRow( row );
+
+            Double value = DOUBLE_VALUE_IF_NULL;
+
+            try
+            {
+                value = castDouble( compiledExpression.evaluate( context ) );
+            }
+            catch ( ParserException ex )
+            {
+                if ( !warned )
+                {
+                    log.warn( ex.getMessage() + " evaluating expression '" + expression + "'" );
+
+                    warned = true;
+                }
+            }
 
-        int itemsFound = expressionEvaluator.getItemsFound();
-        int itemValuesFound = expressionEvaluator.getItemValuesFound();
+            value = applyMissingValueStrategy( value, context.getItemsFound(),
+                context.getItemValuesFound(), missingValueStrategy );
 
+            results[row] = value != null ? value : Double.NaN;
+        }
+
+        return results;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Evaluates an expression, using the compiled form of the expression.
+     *
+     * @param expression the expression.
+     * @param itemValueMap item values by dimension item identifier.
+     * @param constantMap constant values by UID.
+     * @param orgUnitCountMap organisation unit group member counts by UID.
+     * @param days the number of days in the period, or null.
+     * @param missingValueStrategy the missing value strategy.
+     * @return the expression value.
+     */
+    private Double evaluateExpression( String expression, Map<String, Double> itemValueMap,
+        Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days,
+        MissingValueStrategy missingValueStrategy )
+    {
+        if ( expression == null )
+        {
+            return null;
+        }
+
+        checkNotNull( constantMap );
+
+        Double value = DOUBLE_VALUE_IF_NULL;
+
+        int itemsFound = 0;
+        int itemValuesFound = 0;
+
+        EvaluationContext context = null;
+
+        try
+        {
+            CompiledExpression compiledExpression = Parser.compile( expression );
+
+            context = compiledExpression.newContext( itemValueMap, constantMap, orgUnitCountMap, days );
+
+            value = castDouble( compiledExpression.evaluate( context ) );
+        }
+        catch ( ParserException ex )
+        {
+            log.warn( ex.getMessage() + " parsing expression '" + expression + "'" );
+        }
+
+        if ( context != null )
+        {
+            itemsFound = context.getItemsFound();
+            itemValuesFound = context.getItemValuesFound();
+        }
+
+        return applyMissingValueStrategy( value, itemsFound, itemValuesFound, missingValueStrategy );
+    }
+
+    /**
+     * Applies the missing value strategy to an evaluated expression value.
+     *
+     * @param value the expression value.
+     * @param itemsFound the number of items found in the expression.
+     * @param itemValuesFound the number of items found with values.
+     * @param missingValueStrategy the missing value strategy.
+     * @return the expression value, or null if it should be skipped.
+     */
+    private static Double applyMissingValueStrategy( Double value, int itemsFound, int itemValuesFound,
+        MissingValueStrategy missingValueStrategy )
+    {
         switch ( missingValueStrategy )
         {
             case SKIP_IF_ANY_VALUE_MISSING:
@@ -379,9 +548,22 @@ public class DefaultExpressionService
         return value;
     }
 
-    // -------------------------------------------------------------------------
-    // Supportive methods
-    // -------------------------------------------------------------------------
+    /**
+     * From a valueMap containing expression items with full
+     * DimensionalItemObjects, makes a map keyed by the identifiers found in
+     * expressions, so the items can be resolved without the overhead of
+     * calling the IdentifiableObjectManager.
+     *
+     * @param valueMap the given valueMap.
+     * @return the values by dimension item identifier.
+     */
+    private Map<String, Double> getItemValueMap( Map<DimensionalItemObject, Double> valueMap )
+    {
+        checkNotNull( valueMap );
+
+        return valueMap.entrySet().stream().collect(
+            Collectors.toMap( e -> e.getKey().getDimensionItem(), e -> e.getValue() ) );
+    }
 
     /**
      * Creates a new ExpressionItemsVisitor object.
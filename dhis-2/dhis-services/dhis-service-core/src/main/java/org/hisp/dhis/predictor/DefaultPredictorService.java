@@ -32,6 +32,7 @@ import org.hisp.dhis.common.IdentifiableObjectStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -44,6 +45,9 @@ public class DefaultPredictorService
     @Autowired
     private PredictorStore predictorStore;
 
+    @Autowired
+    private PredictorWatermarkStore predictorWatermarkStore;
+
     private IdentifiableObjectStore<PredictorGroup> predictorGroupStore;
 
     public void setPredictorGroupStore( IdentifiableObjectStore<PredictorGroup> predictorGroupStore )
@@ -145,4 +149,47 @@ public class DefaultPredictorService
     {
         return predictorGroupStore.getAll();
     }
+
+    // -------------------------------------------------------------------------
+    // Predictor watermark
+    // -------------------------------------------------------------------------
+
+    @Override
+    @Transactional(readOnly = true)
+    public PredictorWatermark getPredictorWatermark( Predictor predictor )
+    {
+        return predictorWatermarkStore.getByPredictor( predictor );
+    }
+
+    @Override
+    @Transactional
+    public void savePredictorWatermark( Predictor predictor, Date watermark, Date startDate, Date endDate, boolean fullRun )
+    {
+        PredictorWatermark predictorWatermark = predictorWatermarkStore.getByPredictor( predictor );
+
+        if ( predictorWatermark == null )
+        {
+            predictorWatermark = new PredictorWatermark( predictor, watermark, startDate, endDate );
+
+            if ( fullRun )
+            {
+                predictorWatermark.setLastFullRun( watermark );
+            }
+
+            predictorWatermarkStore.save( predictorWatermark );
+        }
+        else
+        {
+            predictorWatermark.setWatermark( watermark );
+            predictorWatermark.setStartDate( startDate );
+            predictorWatermark.setEndDate( endDate );
+
+            if ( fullRun )
+            {
+                predictorWatermark.setLastFullRun( watermark );
+            }
+
+            predictorWatermarkStore.update( predictorWatermark );
+        }
+    }
 }
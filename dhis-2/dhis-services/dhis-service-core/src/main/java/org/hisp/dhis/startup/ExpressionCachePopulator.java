@@ -0,0 +1,174 @@
+package org.hisp.dhis.startup;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.indicator.Indicator;
+import org.hisp.dhis.indicator.IndicatorService;
+import org.hisp.dhis.parser.expression.Parser;
+import org.hisp.dhis.parser.expression.ParserException;
+import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.program.ProgramIndicatorService;
+import org.hisp.dhis.system.startup.TransactionContextStartupRoutine;
+import org.hisp.dhis.system.util.Clock;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Configures the expression parser caches, and populates them with the
+ * indicator and program indicator expressions, so that the first requests
+ * after startup need not parse them. Indicator expressions are compiled, as
+ * they are evaluated through compiled expressions, while program indicator
+ * expressions are only parsed. Validation rule and predictor expressions are
+ * not evaluated through the parser, and are not loaded.
+ */
+public class ExpressionCachePopulator
+    extends TransactionContextStartupRoutine
+{
+    private static final Log log = LogFactory.getLog( ExpressionCachePopulator.class );
+
+    @Autowired
+    private DhisConfigurationProvider dhisConfigurationProvider;
+
+    @Autowired
+    private IndicatorService indicatorService;
+
+    @Autowired
+    private ProgramIndicatorService programIndicatorService;
+
+    @Override
+    public void executeInTransaction()
+    {
+        long maximumSize = Long.parseLong( dhisConfigurationProvider.getProperty( ConfigurationKey.EXPRESSION_CACHE_MAX_SIZE ) );
+        long expiration = Long.parseLong( dhisConfigurationProvider.getProperty( ConfigurationKey.EXPRESSION_CACHE_EXPIRATION ) );
+
+        Parser.configureCaches( maximumSize, expiration );
+
+        if ( !dhisConfigurationProvider.isEnabled( ConfigurationKey.EXPRESSION_CACHE_PRELOAD ) )
+        {
+            return;
+        }
+
+        Clock clock = new Clock( log ).startClock();
+
+        Set<String> compiledExpressions = getIndicatorExpressions();
+        Set<String> parsedExpressions = getProgramIndicatorExpressions();
+        parsedExpressions.removeAll( compiledExpressions );
+
+        long failed = compiledExpressions.parallelStream()
+            .filter( e -> !load( e, true ) )
+            .count();
+
+        failed += parsedExpressions.parallelStream()
+            .filter( e -> !load( e, false ) )
+            .count();
+
+        long total = compiledExpressions.size() + parsedExpressions.size();
+
+        clock.logTime( "Populated expression cache with " + ( total - failed ) +
+            " expressions, " + failed + " could not be parsed" );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Gets the distinct numerators and denominators of indicators.
+     */
+    private Set<String> getIndicatorExpressions()
+    {
+        Set<String> expressions = new HashSet<>();
+
+        for ( Indicator indicator : indicatorService.getAllIndicators() )
+        {
+            expressions.add( indicator.getNumerator() );
+            expressions.add( indicator.getDenominator() );
+        }
+
+        expressions.removeIf( Objects::isNull );
+
+        return expressions;
+    }
+
+    /**
+     * Gets the distinct expressions and filters of program indicators.
+     */
+    private Set<String> getProgramIndicatorExpressions()
+    {
+        Set<String> expressions = new HashSet<>();
+
+        for ( ProgramIndicator programIndicator : programIndicatorService.getAllProgramIndicators() )
+        {
+            expressions.add( programIndicator.getExpression() );
+            expressions.add( programIndicator.getFilter() );
+        }
+
+        expressions.removeIf( Objects::isNull );
+
+        return expressions;
+    }
+
+    /**
+     * Parses an expression into the cache, and compiles it into the cache if
+     * requested.
+     *
+     * @param expression the expression.
+     * @param compile whether to compile the expression.
+     * @return true if the expression could be parsed.
+     */
+    private boolean load( String expression, boolean compile )
+    {
+        try
+        {
+            if ( compile )
+            {
+                Parser.compile( expression );
+            }
+            else
+            {
+                Parser.parse( expression );
+            }
+
+            return true;
+        }
+        catch ( ParserException ex )
+        {
+            log.debug( ex.getMessage() + " parsing expression '" + expression + "'" );
+
+            return false;
+        }
+    }
+}
@@ -41,6 +41,8 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -74,12 +76,32 @@ public class HibernateTrackedEntityDataValueAuditStore
     @Override
     public List<TrackedEntityDataValueAudit> getTrackedEntityDataValueAudits( List<DataElement> dataElements,
         List<ProgramStageInstance> programStageInstances, AuditType auditType )
+    {
+        return getTrackedEntityDataValueAudits( dataElements, programStageInstances, auditType, null, null );
+    }
+
+    @Override
+    public List<TrackedEntityDataValueAudit> getTrackedEntityDataValueAudits( List<DataElement> dataElements,
+        List<ProgramStageInstance> programStageInstances, AuditType auditType, int first, int max )
+    {
+        return getTrackedEntityDataValueAudits( dataElements, programStageInstances, auditType, null, null, first, max );
+    }
+
+    @Override
+    public int countTrackedEntityDataValueAudits( List<DataElement> dataElements, List<ProgramStageInstance> programStageInstances, AuditType auditType )
+    {
+        return countTrackedEntityDataValueAudits( dataElements, programStageInstances, auditType, null, null );
+    }
+
+    @Override
+    public List<TrackedEntityDataValueAudit> getTrackedEntityDataValueAudits( List<DataElement> dataElements,
+        List<ProgramStageInstance> programStageInstances, AuditType auditType, Date startDate, Date endDate )
     {
         CriteriaBuilder builder = sessionFactory.getCurrentSession().getCriteriaBuilder();
         CriteriaQuery<TrackedEntityDataValueAudit> query = builder.createQuery( TrackedEntityDataValueAudit.class );
         Root<TrackedEntityDataValueAudit> root = query.from( TrackedEntityDataValueAudit.class );
         query.select( root );
-        query = getTrackedEntityDataValueAuditCriteria( dataElements, programStageInstances, auditType, builder, query, root );
+        query = getTrackedEntityDataValueAuditCriteria( dataElements, programStageInstances, auditType, startDate, endDate, builder, query, root );
         query.orderBy( builder.desc( root.get( "created" ) ) );
 
         return sessionFactory.getCurrentSession().createQuery( query ).getResultList();
@@ -87,13 +109,13 @@ public class HibernateTrackedEntityDataValueAuditStore
 
     @Override
     public List<TrackedEntityDataValueAudit> getTrackedEntityDataValueAudits( List<DataElement> dataElements,
-        List<ProgramStageInstance> programStageInstances, AuditType auditType, int first, int max )
+        List<ProgramStageInstance> programStageInstances, AuditType auditType, Date startDate, Date endDate, int first, int max )
     {
         CriteriaBuilder builder = sessionFactory.getCurrentSession().getCriteriaBuilder();
         CriteriaQuery<TrackedEntityDataValueAudit> query = builder.createQuery( TrackedEntityDataValueAudit.class );
         Root<TrackedEntityDataValueAudit> root = query.from( TrackedEntityDataValueAudit.class );
         query.select( root );
-        query = getTrackedEntityDataValueAuditCriteria( dataElements, programStageInstances, auditType, builder, query, root );
+        query = getTrackedEntityDataValueAuditCriteria( dataElements, programStageInstances, auditType, startDate, endDate, builder, query, root );
         query.orderBy( builder.desc( root.get( "created" ) ) );
 
         return sessionFactory.getCurrentSession().createQuery( query )
@@ -103,39 +125,52 @@ public class HibernateTrackedEntityDataValueAuditStore
     }
 
     @Override
-    public int countTrackedEntityDataValueAudits( List<DataElement> dataElements, List<ProgramStageInstance> programStageInstances, AuditType auditType ) {
-
+    public int countTrackedEntityDataValueAudits( List<DataElement> dataElements, List<ProgramStageInstance> programStageInstances, AuditType auditType,
+        Date startDate, Date endDate )
+    {
         CriteriaBuilder builder = sessionFactory.getCurrentSession().getCriteriaBuilder();
         CriteriaQuery<Long> query = builder.createQuery( Long.class );
         Root<TrackedEntityDataValueAudit> root = query.from( TrackedEntityDataValueAudit.class );
         query.select( builder.countDistinct( root.get( "id" ) ) );
-        query = getTrackedEntityDataValueAuditCriteria(dataElements, programStageInstances, auditType, builder, query, root );
+        query = getTrackedEntityDataValueAuditCriteria( dataElements, programStageInstances, auditType, startDate, endDate, builder, query, root );
 
         return sessionFactory.getCurrentSession().createQuery( query ).getSingleResult().intValue();
     }
 
     private CriteriaQuery getTrackedEntityDataValueAuditCriteria( List<DataElement> dataElements, List<ProgramStageInstance> programStageInstances,
-        AuditType auditType, CriteriaBuilder builder,  CriteriaQuery query, Root<TrackedEntityDataValueAudit> root )
+        AuditType auditType, Date startDate, Date endDate, CriteriaBuilder builder, CriteriaQuery query, Root<TrackedEntityDataValueAudit> root )
     {
+        List<Predicate> predicates = new ArrayList<>();
+
         if ( dataElements != null && !dataElements.isEmpty() )
         {
             Expression<DataElement> dataElementExpression = root.get( "dataElement" );
-            Predicate dataElementPredicate = dataElementExpression.in( dataElements );
-            query.where( dataElementPredicate );
+            predicates.add( dataElementExpression.in( dataElements ) );
         }
 
         if ( programStageInstances != null && !programStageInstances.isEmpty() )
         {
             Expression<DataElement> psiExpression = root.get( "programStageInstance" );
-            Predicate psiPredicate = psiExpression.in( programStageInstances );
-            query.where( psiPredicate );
+            predicates.add( psiExpression.in( programStageInstances ) );
         }
 
         if ( auditType != null )
         {
-            query.where( builder.equal( root.get( "auditType" ), auditType ) );
+            predicates.add( builder.equal( root.get( "auditType" ), auditType ) );
+        }
+
+        // Created date range allows constraint exclusion of monthly partitions
+
+        if ( startDate != null )
+        {
+            predicates.add( builder.greaterThanOrEqualTo( root.get( "created" ), startDate ) );
+        }
+
+        if ( endDate != null )
+        {
+            predicates.add( builder.lessThan( root.get( "created" ), endDate ) );
         }
 
-        return query;
+        return query.where( predicates.toArray( new Predicate[0] ) );
     }
 }
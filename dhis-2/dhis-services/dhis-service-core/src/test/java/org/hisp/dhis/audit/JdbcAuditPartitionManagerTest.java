@@ -0,0 +1,153 @@
+package org.hisp.dhis.audit;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+
+public class JdbcAuditPartitionManagerTest
+{
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private JdbcAuditPartitionManager auditPartitionManager;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private final LocalDate currentMonth = LocalDate.now().withDayOfMonth( 1 );
+
+    @Before
+    public void setUp()
+    {
+        when( transactionTemplate.execute( any() ) ).thenAnswer( invocation ->
+            invocation.<TransactionCallback<?>>getArgument( 0 ).doInTransaction( null ) );
+    }
+
+    @Test
+    public void testCreatePartitions()
+    {
+        auditPartitionManager.createPartitions();
+
+        for ( String table : Lists.newArrayList( "datavalueaudit", "trackedentitydatavalueaudit" ) )
+        {
+            verify( jdbcTemplate ).execute( startsWith( "create table if not exists " + getPartitionName( table, currentMonth ) +
+                " (check (created >= '" + Date.valueOf( currentMonth ) + "'" ) );
+            verify( jdbcTemplate ).execute( startsWith( "create table if not exists " + getPartitionName( table, currentMonth.plusMonths( 12 ) ) +
+                " (check (created >= '" + Date.valueOf( currentMonth.plusMonths( 12 ) ) + "'" ) );
+            verify( jdbcTemplate ).execute( startsWith( "create or replace function " + table + "_partition_insert() returns trigger" ) );
+            verify( jdbcTemplate ).execute( "create trigger tr_" + table + "_partition_insert before insert on " + table +
+                " for each row execute procedure " + table + "_partition_insert()" );
+        }
+
+        verify( jdbcTemplate, never() ).execute( startsWith( "create table if not exists " + getPartitionName( "datavalueaudit", currentMonth.minusMonths( 1 ) ) ) );
+    }
+
+    @Test
+    public void testMoveAuditsInBatches()
+    {
+        LocalDate firstMonth = currentMonth.minusMonths( 2 );
+        int batchSize = JdbcAuditPartitionManager.MOVE_BATCH_SIZE;
+
+        when( jdbcTemplate.queryForObject( "select min(created) from only datavalueaudit", Date.class ) )
+            .thenReturn( Date.valueOf( firstMonth.plusDays( 3 ) ) );
+        when( jdbcTemplate.queryForObject( "select min(datavalueauditid) from only datavalueaudit", Long.class ) )
+            .thenReturn( 1L );
+        when( jdbcTemplate.queryForObject( "select max(datavalueauditid) from only datavalueaudit", Long.class ) )
+            .thenReturn( 2L * batchSize + 1 );
+        when( jdbcTemplate.queryForObject( startsWith( "with moved as (delete from only datavalueaudit" ), eq( Integer.class ), any(), any(), any() ) )
+            .thenReturn( 5 );
+
+        assertEquals( 15, auditPartitionManager.moveAudits() );
+
+        verify( jdbcTemplate ).execute( startsWith( "create table if not exists " + getPartitionName( "datavalueaudit", firstMonth ) ) );
+        verify( jdbcTemplate ).execute( startsWith( "create table if not exists " + getPartitionName( "datavalueaudit", currentMonth ) ) );
+        verify( transactionTemplate, times( 3 ) ).execute( any() );
+
+        Date end = Date.valueOf( currentMonth.plusMonths( 1 ) );
+
+        verify( jdbcTemplate ).queryForObject( startsWith( "with moved" ), eq( Integer.class ), eq( 1L ), eq( 1L + batchSize ), eq( end ) );
+        verify( jdbcTemplate ).queryForObject( startsWith( "with moved" ), eq( Integer.class ), eq( 1L + batchSize ), eq( 1L + 2 * batchSize ), eq( end ) );
+        verify( jdbcTemplate ).queryForObject( startsWith( "with moved" ), eq( Integer.class ), eq( 1L + 2 * batchSize ), eq( 1L + 3 * batchSize ), eq( end ) );
+        verify( jdbcTemplate, never() ).queryForObject( startsWith( "with moved as (delete from only trackedentitydatavalueaudit" ), eq( Integer.class ), any(), any(), any() );
+    }
+
+    @Test
+    public void testDropExpiredPartitions()
+    {
+        String expired = getPartitionName( "datavalueaudit", currentMonth.minusMonths( 13 ) );
+        String retained = getPartitionName( "datavalueaudit", currentMonth.minusMonths( 12 ) );
+        String current = getPartitionName( "datavalueaudit", currentMonth );
+
+        when( jdbcTemplate.queryForList( anyString(), eq( String.class ), eq( "datavalueaudit" ) ) )
+            .thenReturn( Lists.newArrayList( expired, retained, current, "datavalueaudit_archive" ) );
+
+        List<String> dropped = auditPartitionManager.dropExpiredPartitions( 12 );
+
+        assertEquals( Lists.newArrayList( expired ), dropped );
+
+        verify( jdbcTemplate ).execute( "drop table " + expired );
+        verify( jdbcTemplate, never() ).execute( "drop table " + retained );
+        verify( jdbcTemplate, never() ).execute( "drop table " + current );
+        verify( jdbcTemplate, never() ).execute( "drop table datavalueaudit_archive" );
+    }
+
+    private String getPartitionName( String table, LocalDate month )
+    {
+        return String.format( "%s_%d_%02d", table, month.getYear(), month.getMonthValue() );
+    }
+}
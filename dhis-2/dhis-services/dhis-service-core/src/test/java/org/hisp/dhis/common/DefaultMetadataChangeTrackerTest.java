@@ -0,0 +1,101 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class DefaultMetadataChangeTrackerTest
+{
+    private final MetadataChangeTracker tracker = new DefaultMetadataChangeTracker();
+
+    private static class TrackedObject
+        extends BaseIdentifiableObject
+    {
+    }
+
+    private static class TrackedSubObject
+        extends TrackedObject
+    {
+    }
+
+    private static class OtherObject
+        extends BaseIdentifiableObject
+    {
+    }
+
+    private static class GroupObject
+        extends BaseIdentifiableObject
+    {
+    }
+
+    private static class GroupSubObject
+        extends GroupObject
+    {
+    }
+
+    private static class UntrackedObject
+        extends BaseIdentifiableObject
+    {
+    }
+
+    @Test
+    public void testIsTracked()
+    {
+        assertFalse( tracker.isTracked( GroupSubObject.class ) );
+
+        tracker.getVersion( GroupObject.class );
+
+        assertTrue( tracker.isTracked( GroupObject.class ) );
+        assertTrue( tracker.isTracked( GroupSubObject.class ) );
+        assertFalse( tracker.isTracked( UntrackedObject.class ) );
+    }
+
+    @Test
+    public void testGetVersion()
+    {
+        long version = tracker.getVersion( TrackedObject.class );
+        long combinedVersion = tracker.getVersion( Lists.<Class<?>>newArrayList( TrackedObject.class, OtherObject.class ) );
+
+        tracker.registerChange( TrackedSubObject.class );
+
+        assertEquals( version + 1, tracker.getVersion( TrackedObject.class ) );
+        assertEquals( combinedVersion + 1, tracker.getVersion( Lists.<Class<?>>newArrayList( TrackedObject.class, OtherObject.class ) ) );
+
+        tracker.registerChange( OtherObject.class );
+
+        assertEquals( version + 1, tracker.getVersion( TrackedObject.class ) );
+        assertEquals( combinedVersion + 2, tracker.getVersion( Lists.<Class<?>>newArrayList( TrackedObject.class, OtherObject.class ) ) );
+    }
+}
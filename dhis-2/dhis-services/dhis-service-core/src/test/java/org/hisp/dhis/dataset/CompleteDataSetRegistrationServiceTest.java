@@ -28,6 +28,7 @@ package org.hisp.dhis.dataset;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.collect.Lists;
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
@@ -256,6 +257,25 @@ public class CompleteDataSetRegistrationServiceTest
         assertTrue( registrations.contains( registrationB ) );
     }
 
+    @Test
+    public void testGetExisting()
+    {
+        registrationA = new CompleteDataSetRegistration( dataSetA, periodA, sourceA, optionCombo, new Date(), "userA", new Date(), "", true );
+        registrationB = new CompleteDataSetRegistration( dataSetB, periodB, sourceA, optionCombo, new Date(), "", new Date(), "", true );
+
+        completeDataSetRegistrationService.saveCompleteDataSetRegistration( registrationA );
+        completeDataSetRegistrationService.saveCompleteDataSetRegistration( registrationB );
+
+        CompleteDataSetRegistration registrationC = new CompleteDataSetRegistration( dataSetA, periodB, sourceA, optionCombo );
+
+        List<CompleteDataSetRegistration> registrations = completeDataSetRegistrationService
+            .getExistingCompleteDataSetRegistrations( Lists.newArrayList( registrationA, registrationC ) );
+
+        assertEquals( 1, registrations.size() );
+        assertEquals( registrationA, registrations.get( 0 ) );
+        assertEquals( "userA", registrations.get( 0 ).getStoredBy() );
+    }
+
     @Test
     public void testDeleteByDataSet()
     {
@@ -0,0 +1,407 @@
+package org.hisp.dhis.datavalue;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.common.AuditType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.external.location.LocationManager;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class DataValueAuditQueueTest
+{
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private LocationManager locationManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private DataValueAuditQueue auditQueue;
+
+    private File journalDir;
+
+    private DataValueAudit auditA;
+
+    private DataValueAudit auditB;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        journalDir = folder.newFolder( "audit" );
+
+        when( config.isEnabled( ConfigurationKey.DATA_AUDIT_WRITE_BEHIND ) ).thenReturn( true );
+        when( config.getProperty( ConfigurationKey.NODE_ID ) ).thenReturn( "node1" );
+        when( locationManager.buildDirectory( "audit", "node1" ) ).thenReturn( journalDir );
+
+        auditA = createAudit( 1, "Value\twith\ntabs,\r\nbreaks and \\ backslashes", "admin" );
+        auditB = createAudit( 2, null, null );
+        auditB.setCreated( null );
+    }
+
+    // -------------------------------------------------------------------------
+    // Journal format
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testJournalLine()
+    {
+        String line = DataValueAuditQueue.toLine( auditA );
+
+        assertFalse( line.contains( "\n" ) );
+        assertFalse( line.contains( "\r" ) );
+        assertEquals( 9, line.split( "\t", -1 ).length );
+
+        Object[] args = DataValueAuditQueue.toArgs( line );
+
+        assertArrayEquals( new Object[] { 11L, 12L, 13L, 14L, 15L,
+            "Value\twith\ntabs,\r\nbreaks and \\ backslashes", "admin",
+            new Timestamp( auditA.getCreated().getTime() ), "UPDATE" }, args );
+    }
+
+    @Test
+    public void testJournalLineNullValues()
+    {
+        Object[] args = DataValueAuditQueue.toArgs( DataValueAuditQueue.toLine( auditB ) );
+
+        assertNull( args[5] );
+        assertNull( args[6] );
+        assertNull( args[7] );
+    }
+
+    @Test
+    public void testJournalLineNullMarkerInText()
+    {
+        DataValueAudit audit = createAudit( 3, "\\N", "\\" );
+
+        Object[] args = DataValueAuditQueue.toArgs( DataValueAuditQueue.toLine( audit ) );
+
+        assertEquals( "\\N", args[5] );
+        assertEquals( "\\", args[6] );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testMalformedJournalLine()
+    {
+        DataValueAuditQueue.toArgs( "21\t22\t23" );
+    }
+
+    // -------------------------------------------------------------------------
+    // Rotation and replay
+    // -------------------------------------------------------------------------
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void testWriteQueue()
+        throws Exception
+    {
+        auditQueue.init();
+        auditQueue.addNow( Arrays.asList( auditA, auditB ) );
+
+        assertEquals( 2, readLines( new File( journalDir, DataValueAuditQueue.JOURNAL_FILE ) ).size() );
+
+        auditQueue.destroy();
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass( List.class );
+        verify( jdbcTemplate ).batchUpdate( anyString(), captor.capture() );
+
+        assertEquals( 2, captor.getValue().size() );
+        assertEquals( 11L, captor.getValue().get( 0 )[0] );
+        assertEquals( 21L, captor.getValue().get( 1 )[0] );
+
+        assertEquals( Arrays.asList( DataValueAuditQueue.JOURNAL_FILE ), Arrays.asList( journalDir.list() ) );
+        assertTrue( readLines( new File( journalDir, DataValueAuditQueue.JOURNAL_FILE ) ).isEmpty() );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void testReplayJournal()
+        throws Exception
+    {
+        File journal = writeJournal( DataValueAuditQueue.JOURNAL_FILE + ".1-0",
+            DataValueAuditQueue.toLine( auditA ), DataValueAuditQueue.toLine( auditB ) );
+
+        auditQueue.init();
+        auditQueue.destroy();
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass( List.class );
+        verify( jdbcTemplate ).batchUpdate( anyString(), captor.capture() );
+
+        assertEquals( 2, captor.getValue().size() );
+        assertFalse( journal.exists() );
+    }
+
+    @Test
+    public void testReplayJournalOfUncleanShutdown()
+        throws Exception
+    {
+        writeJournal( DataValueAuditQueue.JOURNAL_FILE, DataValueAuditQueue.toLine( auditA ) );
+
+        auditQueue.init();
+        auditQueue.destroy();
+
+        verify( jdbcTemplate ).batchUpdate( anyString(), anyList() );
+        assertEquals( Arrays.asList( DataValueAuditQueue.JOURNAL_FILE ), Arrays.asList( journalDir.list() ) );
+    }
+
+    @Test
+    public void testReplayPendingJournalOfUncleanShutdown()
+        throws Exception
+    {
+        File pending = writeJournal( DataValueAuditQueue.PENDING_PREFIX + DataValueAuditQueue.JOURNAL_FILE + ".1-p0",
+            DataValueAuditQueue.toLine( auditA ) );
+
+        auditQueue.init();
+        auditQueue.destroy();
+
+        verify( jdbcTemplate ).batchUpdate( anyString(), anyList() );
+        assertFalse( pending.exists() );
+        assertEquals( Arrays.asList( DataValueAuditQueue.JOURNAL_FILE ), Arrays.asList( journalDir.list() ) );
+    }
+
+    @Test
+    public void testInsertOneByOneWhenBatchFails()
+        throws Exception
+    {
+        String lineA = DataValueAuditQueue.toLine( auditA );
+        String lineB = DataValueAuditQueue.toLine( auditB );
+
+        File journal = writeJournal( DataValueAuditQueue.JOURNAL_FILE + ".1-0", lineA, "malformed", lineB );
+
+        when( jdbcTemplate.batchUpdate( anyString(), anyList() ) ).thenThrow( new DataIntegrityViolationException( "Batch" ) );
+        when( jdbcTemplate.update( anyString(), eq( 11L ), any(), any(), any(), any(), any(), any(), any(), any() ) )
+            .thenThrow( new DataIntegrityViolationException( "Row" ) );
+
+        auditQueue.init();
+        auditQueue.destroy();
+
+        verify( jdbcTemplate, times( 2 ) ).update( anyString(), any( Object[].class ) );
+
+        assertFalse( journal.exists() );
+        assertEquals( Arrays.asList( "malformed", lineA ),
+            readLines( new File( journalDir, DataValueAuditQueue.REJECTED_FILE ) ) );
+    }
+
+    @Test
+    public void testQuarantineJournal()
+        throws Exception
+    {
+        File journal = writeJournal( DataValueAuditQueue.JOURNAL_FILE + ".1-0", DataValueAuditQueue.toLine( auditA ) );
+
+        when( jdbcTemplate.batchUpdate( anyString(), anyList() ) ).thenThrow( new DataAccessResourceFailureException( "Down" ) );
+        when( jdbcTemplate.update( anyString(), any( Object[].class ) ) ).thenThrow( new DataAccessResourceFailureException( "Down" ) );
+
+        auditQueue.init();
+        auditQueue.destroy();
+
+        assertTrue( journal.exists() );
+        assertFalse( new File( journalDir, DataValueAuditQueue.REJECTED_FILE ).exists() );
+
+        for ( int i = 0; i < 10000 && journal.exists(); i++ )
+        {
+            auditQueue.write();
+        }
+
+        assertFalse( journal.exists() );
+        assertTrue( new File( journalDir, DataValueAuditQueue.QUARANTINE_PREFIX + journal.getName() ).exists() );
+        verify( jdbcTemplate, times( DataValueAuditQueue.MAX_JOURNAL_ATTEMPTS ) ).batchUpdate( anyString(), anyList() );
+    }
+
+    @Test
+    public void testRejectMalformedJournal()
+        throws Exception
+    {
+        File journal = writeJournal( DataValueAuditQueue.JOURNAL_FILE + ".1-0", "1\t2" );
+
+        auditQueue.init();
+        auditQueue.addNow( Arrays.asList( auditA ) );
+        auditQueue.destroy();
+
+        verify( jdbcTemplate ).batchUpdate( anyString(), anyList() );
+        verify( jdbcTemplate, never() ).update( anyString(), any( Object[].class ) );
+        assertFalse( journal.exists() );
+        assertEquals( Arrays.asList( "1\t2" ), readLines( new File( journalDir, DataValueAuditQueue.REJECTED_FILE ) ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Transactions
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testJournalBeforeCommit()
+        throws Exception
+    {
+        auditQueue.init();
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try
+        {
+            auditQueue.add( auditA );
+
+            TransactionSynchronization synchronization = TransactionSynchronizationManager.getSynchronizations().get( 0 );
+            synchronization.beforeCommit( false );
+
+            File[] pending = journalDir.listFiles( ( dir, name ) -> name.startsWith( DataValueAuditQueue.PENDING_PREFIX ) );
+            assertEquals( 1, pending.length );
+            assertEquals( Arrays.asList( DataValueAuditQueue.toLine( auditA ) ), readLines( pending[0] ) );
+            assertTrue( readLines( new File( journalDir, DataValueAuditQueue.JOURNAL_FILE ) ).isEmpty() );
+
+            synchronization.afterCommit();
+            synchronization.afterCompletion( TransactionSynchronization.STATUS_COMMITTED );
+
+            assertFalse( pending[0].exists() );
+            assertEquals( Arrays.asList( DataValueAuditQueue.toLine( auditA ) ),
+                readLines( new File( journalDir, DataValueAuditQueue.JOURNAL_FILE ) ) );
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        auditQueue.destroy();
+
+        verify( jdbcTemplate ).batchUpdate( anyString(), anyList() );
+    }
+
+    @Test
+    public void testDiscardPendingJournalOnRollback()
+        throws Exception
+    {
+        auditQueue.init();
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try
+        {
+            auditQueue.add( auditA );
+
+            TransactionSynchronization synchronization = TransactionSynchronizationManager.getSynchronizations().get( 0 );
+            synchronization.beforeCommit( false );
+            synchronization.afterCompletion( TransactionSynchronization.STATUS_ROLLED_BACK );
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        auditQueue.destroy();
+
+        verify( jdbcTemplate, never() ).batchUpdate( anyString(), anyList() );
+        assertEquals( Arrays.asList( DataValueAuditQueue.JOURNAL_FILE ), Arrays.asList( journalDir.list() ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private DataValueAudit createAudit( int uniqueNumber, String value, String modifiedBy )
+    {
+        DataElement dataElement = new DataElement();
+        dataElement.setId( uniqueNumber * 10 + 1 );
+        Period period = new Period();
+        period.setId( uniqueNumber * 10 + 2 );
+        OrganisationUnit orgUnit = new OrganisationUnit();
+        orgUnit.setId( uniqueNumber * 10 + 3 );
+        CategoryOptionCombo categoryOptionCombo = new CategoryOptionCombo();
+        categoryOptionCombo.setId( uniqueNumber * 10 + 4 );
+        CategoryOptionCombo attributeOptionCombo = new CategoryOptionCombo();
+        attributeOptionCombo.setId( uniqueNumber * 10 + 5 );
+
+        DataValueAudit audit = new DataValueAudit( dataElement, period, orgUnit, categoryOptionCombo,
+            attributeOptionCombo, value, modifiedBy, AuditType.UPDATE );
+        audit.setCreated( new Date() );
+
+        return audit;
+    }
+
+    private File writeJournal( String name, String... lines )
+        throws IOException
+    {
+        File file = new File( journalDir, name );
+        Files.write( file.toPath(), Arrays.asList( lines ), StandardCharsets.UTF_8 );
+        return file;
+    }
+
+    private List<String> readLines( File file )
+        throws IOException
+    {
+        return Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 );
+    }
+}
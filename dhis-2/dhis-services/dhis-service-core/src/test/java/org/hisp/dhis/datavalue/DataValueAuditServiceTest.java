@@ -38,6 +38,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
+import org.joda.time.DateTime;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -209,4 +210,24 @@ public class DataValueAuditServiceTest
         assertEquals( 2, dataValueAuditService.getDataValueAudits( dataElements, periods, orgs,
             optionCombo, null, AuditType.UPDATE ).size() );
     }
+
+    @Test
+    public void testGetDataValueAuditByCreated()
+    {
+        DataValueAudit dataValueAuditA = new DataValueAudit( dataValueA, dataValueA.getValue(), dataValueA.getStoredBy(), AuditType.UPDATE );
+        DataValueAudit dataValueAuditB = new DataValueAudit( dataValueB, dataValueB.getValue(), dataValueB.getStoredBy(), AuditType.UPDATE );
+        dataValueAuditA.setCreated( new DateTime( 2019, 3, 10, 0, 0 ).toDate() );
+        dataValueAuditB.setCreated( new DateTime( 2019, 4, 10, 0, 0 ).toDate() );
+
+        dataValueAuditService.addDataValueAudit( dataValueAuditA );
+        dataValueAuditService.addDataValueAudit( dataValueAuditB );
+
+        List<DataValueAudit> audits = dataValueAuditService.getDataValueAudits( null, null, null, null, null, null,
+            new DateTime( 2019, 3, 1, 0, 0 ).toDate(), new DateTime( 2019, 4, 1, 0, 0 ).toDate() );
+
+        assertEquals( 1, audits.size() );
+        assertEquals( dataValueAuditA, audits.get( 0 ) );
+        assertEquals( 2, dataValueAuditService.countDataValueAudits( null, null, null, null, null, null,
+            new DateTime( 2019, 3, 1, 0, 0 ).toDate(), null ) );
+    }
 }
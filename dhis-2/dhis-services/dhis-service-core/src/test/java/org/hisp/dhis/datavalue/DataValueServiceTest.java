@@ -474,4 +474,33 @@ public class DataValueServiceTest
         assertEquals( 1, dataValueService.getDataValues(  sourceB,  periodA, Lists.newArrayList( dataElementA ), optionCombo ).size() );
         assertEquals( 1, dataValueService.getDataValues(  sourceA,  periodA, Lists.newArrayList( dataElementA, dataElementB ), optionCombo ).size() );
     }
+
+    @Test
+    public void testGetExistingDataValues()
+    {
+        DataValue dataValueA = new DataValue( dataElementA, periodA, sourceA, optionCombo, optionCombo, "1" );
+        DataValue dataValueB = new DataValue( dataElementA, periodA, sourceB, optionCombo, optionCombo, "2" );
+        DataValue dataValueC = new DataValue( dataElementB, periodA, sourceB, optionCombo, optionCombo, "3" );
+        DataValue dataValueD = new DataValue( dataElementB, periodA, sourceA, optionCombo, optionCombo, "4" );
+
+        dataValueService.addDataValue( dataValueA );
+        dataValueService.addDataValue( dataValueB );
+        dataValueService.addDataValue( dataValueD );
+        dataValueService.deleteDataValue( dataValueB );
+
+        List<DataValue> existingValues = dataValueService.getExistingDataValues( Lists.newArrayList(
+            new DataValue( dataElementA, periodA, sourceA, optionCombo, optionCombo ),
+            new DataValue( dataElementA, periodA, sourceB, optionCombo, optionCombo ),
+            dataValueC ) );
+
+        assertEquals( 2, existingValues.size() );
+
+        DataValue existingA = existingValues.get( existingValues.indexOf( dataValueA ) );
+        DataValue existingB = existingValues.get( existingValues.indexOf( dataValueB ) );
+
+        assertEquals( "1", existingA.getValue() );
+        assertFalse( existingA.isDeleted() );
+        assertEquals( "2", existingB.getValue() );
+        assertTrue( existingB.isDeleted() );
+    }
 }
@@ -39,6 +39,7 @@ import static org.hisp.dhis.expression.MissingValueStrategy.SKIP_IF_ALL_VALUES_M
 import static org.hisp.dhis.expression.MissingValueStrategy.SKIP_IF_ANY_VALUE_MISSING;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -1028,6 +1029,55 @@ public class ExpressionServiceTest
         assertEquals( "0 DeE", eval( "#{dataElemenE}", NEVER_SKIP ) );
     }
 
+    @Test
+    public void testExpressionValueWithDifferentValues()
+    {
+        String expr = "#{dataElemenA} * 2 + if( #{dataElemenB} > 10, C{xxxxxxxxx05}, [days] )";
+
+        Map<DimensionalItemObject, Double> values = new HashMap<>();
+        values.put( dataElementA, 1.0 );
+        values.put( dataElementB, 11.0 );
+
+        assertEquals( 2.5, expressionService.getExpressionValue( expr, values, constantMap,
+            null, DAYS, NEVER_SKIP ), DELTA );
+
+        values.put( dataElementA, 2.0 );
+        values.put( dataElementB, 9.0 );
+
+        assertEquals( 4.0 + DAYS, expressionService.getExpressionValue( expr, values, constantMap,
+            null, DAYS, NEVER_SKIP ), DELTA );
+
+        values.remove( dataElementA );
+
+        assertNull( expressionService.getExpressionValue( expr, values, constantMap,
+            null, DAYS, SKIP_IF_ANY_VALUE_MISSING ) );
+    }
+
+    @Test
+    public void testGetExpressionValues()
+    {
+        String expr = "#{dataElemenA} * 2 + if( #{dataElemenB} > 10, C{xxxxxxxxx05}, [days] )";
+
+        Map<DimensionalItemObject, double[]> values = new HashMap<>();
+        values.put( dataElementA, new double[] { 1.0, 2.0, Double.NaN } );
+        values.put( dataElementB, new double[] { 11.0, 9.0, 9.0 } );
+
+        double[] results = expressionService.getExpressionValues( expr, values, 3, constantMap,
+            null, DAYS, NEVER_SKIP );
+
+        assertEquals( 3, results.length );
+        assertEquals( 2.5, results[0], DELTA );
+        assertEquals( 4.0 + DAYS, results[1], DELTA );
+        assertEquals( DAYS, results[2], DELTA );
+
+        results = expressionService.getExpressionValues( expr, values, 3, constantMap,
+            null, DAYS, SKIP_IF_ANY_VALUE_MISSING );
+
+        assertEquals( 2.5, results[0], DELTA );
+        assertEquals( 4.0 + DAYS, results[1], DELTA );
+        assertTrue( Double.isNaN( results[2] ) );
+    }
+
     @Test
     public void testGetExpressionOrgUnitGroups()
     {
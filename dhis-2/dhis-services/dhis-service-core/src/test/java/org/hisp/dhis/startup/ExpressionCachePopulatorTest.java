@@ -0,0 +1,131 @@
+package org.hisp.dhis.startup;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.indicator.Indicator;
+import org.hisp.dhis.indicator.IndicatorService;
+import org.hisp.dhis.parser.expression.Parser;
+import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.program.ProgramIndicatorService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Lists;
+
+public class ExpressionCachePopulatorTest
+{
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private DhisConfigurationProvider dhisConfigurationProvider;
+
+    @Mock
+    private IndicatorService indicatorService;
+
+    @Mock
+    private ProgramIndicatorService programIndicatorService;
+
+    @InjectMocks
+    private ExpressionCachePopulator populator;
+
+    @Before
+    public void setUp()
+    {
+        when( dhisConfigurationProvider.getProperty( ConfigurationKey.EXPRESSION_CACHE_MAX_SIZE ) ).thenReturn( "1000" );
+        when( dhisConfigurationProvider.getProperty( ConfigurationKey.EXPRESSION_CACHE_EXPIRATION ) ).thenReturn( "0" );
+
+        Indicator indicatorA = new Indicator();
+        indicatorA.setNumerator( "#{fbfJHSPpUQD} * 2" );
+        indicatorA.setDenominator( "1" );
+
+        Indicator indicatorB = new Indicator();
+        indicatorB.setNumerator( "1 +" );
+        indicatorB.setDenominator( "1" );
+
+        ProgramIndicator programIndicatorA = new ProgramIndicator();
+        programIndicatorA.setExpression( "#{abcdefghijk.bcdefghijkl} + 1" );
+        programIndicatorA.setFilter( "1" );
+
+        ProgramIndicator programIndicatorB = new ProgramIndicator();
+        programIndicatorB.setExpression( "#{abcdefghijk.bcdefghijkl} + 1" );
+
+        when( indicatorService.getAllIndicators() ).thenReturn( Lists.newArrayList( indicatorA, indicatorB ) );
+        when( programIndicatorService.getAllProgramIndicators() ).thenReturn(
+            Lists.newArrayList( programIndicatorA, programIndicatorB ) );
+    }
+
+    @After
+    public void tearDown()
+    {
+        Parser.configureCaches( Parser.DEFAULT_CACHE_SIZE, Parser.DEFAULT_CACHE_EXPIRATION_MINUTES );
+    }
+
+    @Test
+    public void testPopulateCaches()
+    {
+        when( dhisConfigurationProvider.isEnabled( ConfigurationKey.EXPRESSION_CACHE_PRELOAD ) ).thenReturn( true );
+
+        populator.executeInTransaction();
+
+        // Indicator expressions are compiled, the invalid numerator neither
+        // parses nor compiles
+
+        assertEquals( 2, Parser.getCompiledExpressionCacheStats().loadSuccessCount() );
+        assertEquals( 1, Parser.getCompiledExpressionCacheStats().loadFailureCount() );
+
+        // Program indicator expressions are only parsed, the filter is
+        // already parsed as an indicator denominator
+
+        assertEquals( 3, Parser.getParseTreeCacheStats().loadSuccessCount() );
+        assertEquals( 1, Parser.getParseTreeCacheStats().loadFailureCount() );
+    }
+
+    @Test
+    public void testPreloadDisabled()
+    {
+        when( dhisConfigurationProvider.isEnabled( ConfigurationKey.EXPRESSION_CACHE_PRELOAD ) ).thenReturn( false );
+
+        populator.executeInTransaction();
+
+        assertEquals( 0, Parser.getCompiledExpressionCacheStats().loadCount() );
+        assertEquals( 0, Parser.getParseTreeCacheStats().loadCount() );
+    }
+}
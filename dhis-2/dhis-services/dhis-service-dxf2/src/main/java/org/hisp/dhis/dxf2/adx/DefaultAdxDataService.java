@@ -32,7 +32,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.xerces.util.XMLChar;
-import org.hibernate.SessionFactory;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.common.IdentifiableObjectManager;
@@ -51,6 +50,7 @@ import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
 import org.hisp.dhis.dxf2.importsummary.ImportConflict;
 import org.hisp.dhis.dxf2.importsummary.ImportCount;
@@ -71,13 +71,9 @@ import org.hisp.staxwax.writer.XMLWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -85,12 +81,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import static org.apache.commons.lang3.StringUtils.trimToNull;
 import static org.hisp.dhis.system.notification.NotificationLevel.INFO;
@@ -103,8 +93,6 @@ public class DefaultAdxDataService
 {
     private static final Log log = LogFactory.getLog( DefaultAdxDataService.class );
 
-    private static final int TOTAL_MINUTES_TO_WAIT = 5;
-
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -121,9 +109,6 @@ public class DefaultAdxDataService
     @Autowired
     private IdentifiableObjectManager identifiableObjectManager;
 
-    @Autowired
-    private SessionFactory sessionFactory;
-
     @Autowired
     private Notifier notifier;
 
@@ -287,70 +272,40 @@ public class DefaultAdxDataService
 
         XMLReader adxReader = XMLFactory.getXMLReader( in );
 
-        ImportSummary importSummary;
-
         adxReader.moveToStartElement( AdxDataService.ROOT, AdxDataService.NAMESPACE );
 
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-
         // For Async runs, give the DXF import a different notification task ID so it doesn't conflict with notifications from this level.
         JobConfiguration dxfJobId = ( id == null ) ? null : new JobConfiguration( "dxfJob", JobType.DATAVALUE_IMPORT_INTERNAL, id.getUserUid(), true );
 
-        int groupCount = 0;
-
-        try ( PipedOutputStream pipeOut = new PipedOutputStream() )
-        {
-            Future<ImportSummary> futureImportSummary = executor.submit( new AdxPipedImporter(
-                dataValueSetService, adxImportOptions, dxfJobId, pipeOut, sessionFactory ) );
-            XMLOutputFactory factory = XMLOutputFactory.newInstance();
-            XMLStreamWriter dxfWriter = factory.createXMLStreamWriter( pipeOut );
-
-            List<ImportConflict> adxConflicts = new LinkedList<>();
+        notifier.notify( id, "Starting to import ADX data groups." );
 
-            dxfWriter.writeStartDocument( "1.0" );
-            dxfWriter.writeStartElement( "dataValueSet" );
-            dxfWriter.writeDefaultNamespace( "http://dhis2.org/schema/dxf/2.0" );
+        // Groups and data values are parsed on demand by the data value import
 
-            notifier.notify( id, "Starting to import ADX data groups." );
+        AdxDataValueSet dataValueSet = new AdxDataValueSet( adxReader, adxImportOptions, id,
+            dataSetMap, dataSetCallable, dataElementMap, dataElementCallable );
 
-            while ( adxReader.moveToStartElement( AdxDataService.GROUP, AdxDataService.NAMESPACE ) )
-            {
-                notifier.update( id, "Importing ADX data group: " + groupCount );
+        ImportSummary importSummary = dataValueSetService.saveDataValueSet( dataValueSet, adxImportOptions, dxfJobId );
 
-                // note this returns conflicts which are detected at ADX level
-                adxConflicts.addAll( parseAdxGroupToDxf( adxReader, dxfWriter, adxImportOptions,
-                    dataSetMap, dataSetCallable, dataElementMap, dataElementCallable) );
-                groupCount++;
-            }
+        if ( dataValueSet.getGroupException() != null )
+        {
+            AdxException ex = dataValueSet.getGroupException();
 
-            dxfWriter.writeEndElement(); // end dataValueSet
-            dxfWriter.writeEndDocument();
+            // Data values of preceding groups are saved, so the import is
+            // only reported as failed if nothing was saved
 
-            pipeOut.flush();
+            ImportCount count = importSummary.getImportCount();
+            boolean saved = count.getImported() + count.getUpdated() + count.getDeleted() > 0;
 
-            importSummary = futureImportSummary.get( TOTAL_MINUTES_TO_WAIT, TimeUnit.MINUTES );
-            importSummary.getConflicts().addAll( adxConflicts );
-            importSummary.getImportCount().incrementIgnored( adxConflicts.size() );
-        }
-        catch ( AdxException ex )
-        {
-            importSummary = new ImportSummary();
-            importSummary.setStatus( ImportStatus.ERROR );
-            importSummary.setDescription( "Data set import failed within group number: " + groupCount );
+            importSummary.setStatus( saved ? ImportStatus.WARNING : ImportStatus.ERROR );
+            importSummary.setDescription( "Data set import stopped within group number: " + dataValueSet.getGroupCount() +
+                ( saved ? ", data values of preceding groups were saved" : "" ) );
             importSummary.getConflicts().add( ex.getImportConflict() );
-            notifier.update( id, NotificationLevel.ERROR, "ADX data import done", true );
-            log.warn( "Import failed: " + DebugUtils.getStackTrace( ex ) );
-        }
-        catch ( IOException | XMLStreamException | InterruptedException | ExecutionException | TimeoutException ex )
-        {
-            importSummary = new ImportSummary();
-            importSummary.setStatus( ImportStatus.ERROR );
-            importSummary.setDescription( "Data set import failed within group number: " + groupCount );
-            notifier.update( id, NotificationLevel.ERROR, "ADX data import done", true );
-            log.warn( "Import failed: " + DebugUtils.getStackTrace( ex ) );
+            notifier.update( id, saved ? NotificationLevel.WARN : NotificationLevel.ERROR, "ADX data import done", true );
+            log.warn( "Import stopped: " + DebugUtils.getStackTrace( ex ) );
         }
 
-        executor.shutdown();
+        importSummary.getConflicts().addAll( dataValueSet.getAdxConflicts() );
+        importSummary.getImportCount().incrementIgnored( dataValueSet.getAdxConflicts().size() );
 
         notifier.update( id, INFO, "ADX data import done", true ).addJobSummary( id, importSummary, ImportSummary.class );
 
@@ -364,13 +319,127 @@ public class DefaultAdxDataService
     // Utility methods
     // -------------------------------------------------------------------------
 
-    private List<ImportConflict> parseAdxGroupToDxf( XMLReader adxReader, XMLStreamWriter dxfWriter, ImportOptions importOptions,
-        CachingMap<String, DataSet> dataSetMap, IdentifiableObjectCallable<DataSet> dataSetCallable,
-        CachingMap<String, DataElement> dataElementMap, IdentifiableObjectCallable<DataElement> dataElementCallable )
-        throws XMLStreamException, AdxException
+    /**
+     * Data value set which parses ADX groups and data values from the reader
+     * as the import asks for them. Group level errors end the iteration, data
+     * value level errors are collected as conflicts and the value is skipped.
+     */
+    private class AdxDataValueSet
+        extends DataValueSet
     {
-        List<ImportConflict> adxConflicts = new LinkedList<>();
+        private final XMLReader adxReader;
+
+        private final ImportOptions importOptions;
+
+        private final JobConfiguration id;
+
+        private final CachingMap<String, DataSet> dataSetMap;
+
+        private final IdentifiableObjectCallable<DataSet> dataSetCallable;
 
+        private final CachingMap<String, DataElement> dataElementMap;
+
+        private final IdentifiableObjectCallable<DataElement> dataElementCallable;
+
+        private final List<ImportConflict> adxConflicts = new LinkedList<>();
+
+        private Map<String, String> groupAttributes;
+
+        private org.hisp.dhis.dxf2.datavalue.DataValue nextDataValue;
+
+        private AdxException groupException;
+
+        private int groupCount = 0;
+
+        AdxDataValueSet( XMLReader adxReader, ImportOptions importOptions, JobConfiguration id,
+            CachingMap<String, DataSet> dataSetMap, IdentifiableObjectCallable<DataSet> dataSetCallable,
+            CachingMap<String, DataElement> dataElementMap, IdentifiableObjectCallable<DataElement> dataElementCallable )
+        {
+            this.adxReader = adxReader;
+            this.importOptions = importOptions;
+            this.id = id;
+            this.dataSetMap = dataSetMap;
+            this.dataSetCallable = dataSetCallable;
+            this.dataElementMap = dataElementMap;
+            this.dataElementCallable = dataElementCallable;
+        }
+
+        @Override
+        public boolean hasNextDataValue()
+        {
+            while ( nextDataValue == null && groupException == null )
+            {
+                if ( groupAttributes != null )
+                {
+                    if ( adxReader.moveToStartElement( AdxDataService.DATAVALUE, AdxDataService.GROUP ) )
+                    {
+                        try
+                        {
+                            nextDataValue = parseAdxDataValue( adxReader, groupAttributes, importOptions,
+                                dataElementMap, dataElementCallable );
+                        }
+                        catch ( AdxException ex )
+                        {
+                            adxConflicts.add( ex.getImportConflict() );
+
+                            log.info( "ADX data value conflict: " + ex.getImportConflict() );
+                        }
+
+                        continue;
+                    }
+
+                    groupAttributes = null;
+                    groupCount++;
+                }
+
+                if ( !adxReader.moveToStartElement( AdxDataService.GROUP, AdxDataService.NAMESPACE ) )
+                {
+                    return false;
+                }
+
+                notifier.update( id, "Importing ADX data group: " + groupCount );
+
+                try
+                {
+                    groupAttributes = parseAdxGroup( adxReader, importOptions, dataSetMap, dataSetCallable );
+                }
+                catch ( AdxException ex )
+                {
+                    groupException = ex;
+                }
+            }
+
+            return nextDataValue != null;
+        }
+
+        @Override
+        public org.hisp.dhis.dxf2.datavalue.DataValue getNextDataValue()
+        {
+            org.hisp.dhis.dxf2.datavalue.DataValue dataValue = nextDataValue;
+            nextDataValue = null;
+            return dataValue;
+        }
+
+        List<ImportConflict> getAdxConflicts()
+        {
+            return adxConflicts;
+        }
+
+        AdxException getGroupException()
+        {
+            return groupException;
+        }
+
+        int getGroupCount()
+        {
+            return groupCount;
+        }
+    }
+
+    private Map<String, String> parseAdxGroup( XMLReader adxReader, ImportOptions importOptions,
+        CachingMap<String, DataSet> dataSetMap, IdentifiableObjectCallable<DataSet> dataSetCallable )
+        throws AdxException
+    {
         IdScheme categoryOptionComboIdScheme = importOptions.getIdSchemes().getCategoryOptionComboIdScheme();
         IdScheme categoryOptionIdScheme = importOptions.getIdSchemes().getCategoryOptionIdScheme();
 
@@ -413,29 +482,13 @@ public class DefaultAdxDataService
                     categoryOptionIdScheme, categoryOptionComboIdScheme );
         }
 
-        // process the dataValues
-        while ( adxReader.moveToStartElement( AdxDataService.DATAVALUE, AdxDataService.GROUP ) )
-        {
-            try
-            {
-                parseADXDataValueToDxf( adxReader, dxfWriter, groupAttributes, importOptions,
-                    dataElementMap, dataElementCallable );
-            }
-            catch ( AdxException ex )
-            {
-                adxConflicts.add( ex.getImportConflict() );
-
-                log.info( "ADX data value conflict: " + ex.getImportConflict() );
-            }
-        }
-
-        return adxConflicts;
+        return groupAttributes;
     }
 
-    private void parseADXDataValueToDxf( XMLReader adxReader, XMLStreamWriter dxfWriter,
+    private org.hisp.dhis.dxf2.datavalue.DataValue parseAdxDataValue( XMLReader adxReader,
         Map<String, String> groupAttributes, ImportOptions importOptions,
         CachingMap<String, DataElement> dataElementMap, IdentifiableObjectCallable<DataElement> dataElementCallable )
-        throws XMLStreamException, AdxException
+        throws AdxException
     {
         Map<String, String> dvAttributes = adxReader.readAttributes();
 
@@ -496,21 +549,25 @@ public class DefaultAdxDataService
 
         log.debug( "Processing data value as DXF: " + dvAttributes );
 
-        dxfWriter.writeStartElement( "dataValue" );
-
-        // write the group attributes through to DXF stream
-        for ( String attribute : groupAttributes.keySet() )
-        {
-            dxfWriter.writeAttribute( attribute, groupAttributes.get( attribute ) );
-        }
-
-        // pass through the remaining attributes to DXF
-        for ( String attribute : dvAttributes.keySet() )
-        {
-            dxfWriter.writeAttribute( attribute, dvAttributes.get( attribute ) );
-        }
-
-        dxfWriter.writeEndElement(); // dataValue
+        // group attributes apply to every data value, data value attributes take precedence
+
+        Map<String, String> attributes = new HashMap<>( groupAttributes );
+        attributes.putAll( dvAttributes );
+
+        org.hisp.dhis.dxf2.datavalue.DataValue dataValue = new org.hisp.dhis.dxf2.datavalue.DataValue();
+        dataValue.setDataElement( attributes.get( AdxDataService.DATAELEMENT ) );
+        dataValue.setPeriod( attributes.get( AdxDataService.PERIOD ) );
+        dataValue.setOrgUnit( attributes.get( AdxDataService.ORGUNIT ) );
+        dataValue.setCategoryOptionCombo( attributes.get( AdxDataService.CATOPTCOMBO ) );
+        dataValue.setAttributeOptionCombo( attributes.get( AdxDataService.ATTOPTCOMBO ) );
+        dataValue.setValue( attributes.get( AdxDataService.VALUE ) );
+        dataValue.setStoredBy( attributes.get( "storedBy" ) );
+        dataValue.setLastUpdated( attributes.get( "lastUpdated" ) );
+        dataValue.setComment( attributes.get( "comment" ) );
+        dataValue.setFollowup( Boolean.valueOf( attributes.get( "followUp" ) ) );
+        dataValue.setDeleted( Boolean.valueOf( attributes.get( "deleted" ) ) );
+
+        return dataValue;
     }
 
     private Map<String, Category> getCodeCategoryMap( CategoryCombo categoryCombo )
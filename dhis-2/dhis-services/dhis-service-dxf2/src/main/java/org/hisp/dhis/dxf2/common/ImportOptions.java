@@ -102,6 +102,8 @@ public class ImportOptions
 
     private boolean skipLastUpdated;
 
+    private boolean fastImport;
+
     //--------------------------------------------------------------------------
     // Constructors
     //--------------------------------------------------------------------------
@@ -143,6 +145,7 @@ public class ImportOptions
         options.ignoreEmptyCollection = this.ignoreEmptyCollection;
         options.firstRowIsHeader = this.firstRowIsHeader;
         options.skipLastUpdated = this.skipLastUpdated;
+        options.fastImport = this.fastImport;
 
         return options;
     }
@@ -387,6 +390,17 @@ public class ImportOptions
         return skipLastUpdated;
     }
 
+    /**
+     * Indicates whether to write data values in bulk with the database
+     * COPY command, where the database and the user authorities allow it.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isFastImport()
+    {
+        return fastImport;
+    }
+
     //--------------------------------------------------------------------------
     // Set methods
     //--------------------------------------------------------------------------
@@ -600,6 +614,12 @@ public class ImportOptions
         return this;
     }
 
+    public ImportOptions setFastImport( boolean fastImport )
+    {
+        this.fastImport = fastImport;
+        return this;
+    }
+
     @Override
     public String toString()
     {
@@ -625,6 +645,7 @@ public class ImportOptions
             .add( "force", force )
             .add( "firstRowIsHeader", firstRowIsHeader )
             .add( "skipLastUpdated", skipLastUpdated )
+            .add( "fastImport", fastImport )
             .toString();
     }
 }
@@ -32,6 +32,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -89,6 +90,7 @@ import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.Clock;
 import org.hisp.dhis.system.util.ValidationUtils;
 import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
@@ -455,13 +457,16 @@ public class DefaultCompleteDataSetRegistrationExchangeService
         ImportSummary summary, MetaDataCallables mdCallables, MetaDataCaches mdCaches )
     {
         final String currentUser = currentUserService.getCurrentUsername();
+        final User user = currentUserService.getCurrentUser();
         final Set<OrganisationUnit> userOrgUnits = currentUserService.getCurrentUserOrganisationUnits();
         final I18n i18n = i18nManager.getI18n();
 
         BatchHandler<CompleteDataSetRegistration> batchHandler = batchHandlerFactory
             .createBatchHandler( CompleteDataSetRegistrationBatchHandler.class ).init();
 
-        int importCount = 0, updateCount = 0, deleteCount = 0, totalCount = 0;
+        RegistrationImportChunk chunk = new RegistrationImportChunk( config, batchHandler );
+
+        int totalCount = 0;
 
         Date now = new Date();
 
@@ -558,105 +563,29 @@ public class DefaultCompleteDataSetRegistrationExchangeService
                 }
             }
 
-            // -----------------------------------------------------------------
-            // Create complete data set registration
-            // -----------------------------------------------------------------
-
-            CompleteDataSetRegistration internalCdsr = createCompleteDataSetRegistration( cdsr, mdProps, now,
-                storedBy );
-
-            CompleteDataSetRegistration existingCdsr = config.skipExistingCheck ? null
-                : batchHandler.findObject( internalCdsr );
-
             // ---------------------------------------------------------------------
             // Data Sharing check
             // ---------------------------------------------------------------------
 
-            List<String> errors = accessManager.canWrite( currentUserService.getCurrentUser(), internalCdsr.getDataSet() );
+            List<String> errors = mdCaches.dataSetWriteErrors.get( mdProps.dataSet.getUid(),
+                () -> accessManager.canWrite( user, mdProps.dataSet ) );
+
             if ( !errors.isEmpty() )
             {
                 summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataSet", s ) ).collect( Collectors.toList() ) );
                 continue;
             }
 
-            ImportStrategy strategy = config.strategy;
-
-            boolean isDryRun = config.dryRun;
-
-            if ( !config.skipExistingCheck && existingCdsr != null )
-            {
-                // CDSR already exists
-
-                if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
-                {
-                    // Update existing CDSR
-
-                    updateCount++;
-
-                    if ( !isDryRun )
-                    {
-                        batchHandler.updateObject( internalCdsr );
-                    }
-                }
-                else if ( strategy.isDelete() )
-                {
-                    // TODO Does 'delete' even make sense for CDSR?
-
-                    // Replace existing CDSR
-
-                    deleteCount++;
-
-                    if ( !isDryRun )
-                    {
-                        batchHandler.deleteObject( internalCdsr );
-                    }
-                }
-            }
-            else
-            {
-                // CDSR does not already exist
-
-                if ( strategy.isCreateAndUpdate() || strategy.isCreate() )
-                {
-                    if ( existingCdsr != null )
-                    {
-                        // Already exists -> update
-
-                        importCount++;
-
-                        if ( !isDryRun )
-                        {
-                            batchHandler.updateObject( internalCdsr );
-                        }
-                    }
-                    else
-                    {
-                        // Does not exist -> add new CDSR
-
-                        boolean added = false;
-
-                        if ( !isDryRun )
-                        {
-                            added = batchHandler.addObject( internalCdsr );
-
-                            if ( added )
-                            {
-                                sendNotifications( config, internalCdsr );
-                            }
-                        }
+            // -----------------------------------------------------------------
+            // Create complete data set registration
+            // -----------------------------------------------------------------
 
-                        if ( isDryRun || added )
-                        {
-                            importCount++;
-                        }
-                    }
-                }
-            }
+            chunk.add( createCompleteDataSetRegistration( cdsr, mdProps, now, storedBy ) );
         }
 
-        batchHandler.flush();
+        chunk.finish();
 
-        finalizeSummary( summary, totalCount, importCount, updateCount, deleteCount );
+        finalizeSummary( summary, totalCount, chunk.importCount, chunk.updateCount, chunk.deleteCount );
 
         return totalCount;
     }
@@ -956,6 +885,8 @@ public class DefaultCompleteDataSetRegistrationExchangeService
 
         CachingMap<String, Boolean> attrOptComboOrgUnitMap = new CachingMap<>();
 
+        CachingMap<String, List<String>> dataSetWriteErrors = new CachingMap<>();
+
         void preheat( IdentifiableObjectManager manager, final ImportConfig config )
         {
             dataSets.load( manager.getAll( DataSet.class ), ds -> ds.getPropertyValue( config.dsScheme ) );
@@ -1010,6 +941,145 @@ public class DefaultCompleteDataSetRegistrationExchangeService
         }
     }
 
+    /**
+     * Saves validated complete data set registrations in chunks through the
+     * batch handler. The existing registrations of each chunk are looked up
+     * with one query, rather than with one query per registration.
+     */
+    private class RegistrationImportChunk
+    {
+        private static final int CHUNK_SIZE = 1000;
+
+        private final ImportConfig config;
+
+        private final BatchHandler<CompleteDataSetRegistration> batchHandler;
+
+        private final List<CompleteDataSetRegistration> registrations = new ArrayList<>();
+
+        private final Set<CompleteDataSetRegistration> existingRegistrations = new HashSet<>();
+
+        private int importCount = 0;
+
+        private int updateCount = 0;
+
+        private int deleteCount = 0;
+
+        RegistrationImportChunk( ImportConfig config, BatchHandler<CompleteDataSetRegistration> batchHandler )
+        {
+            this.config = config;
+            this.batchHandler = batchHandler;
+        }
+
+        /**
+         * Adds a validated registration, and saves the chunk when it is full.
+         */
+        void add( CompleteDataSetRegistration registration )
+        {
+            registrations.add( registration );
+
+            if ( registrations.size() >= CHUNK_SIZE )
+            {
+                save();
+            }
+        }
+
+        /**
+         * Saves the remaining registrations and flushes the batch handler.
+         */
+        void finish()
+        {
+            save();
+
+            batchHandler.flush();
+        }
+
+        /**
+         * Looks up the existing registrations of the chunk, and saves,
+         * updates or deletes the registrations in the given order.
+         */
+        private void save()
+        {
+            if ( registrations.isEmpty() )
+            {
+                return;
+            }
+
+            existingRegistrations.clear();
+
+            if ( !config.skipExistingCheck )
+            {
+                existingRegistrations.addAll( registrationService.getExistingCompleteDataSetRegistrations( registrations ) );
+            }
+
+            registrations.forEach( this::save );
+            registrations.clear();
+        }
+
+        private void save( CompleteDataSetRegistration internalCdsr )
+        {
+            ImportStrategy strategy = config.strategy;
+
+            boolean isDryRun = config.dryRun;
+
+            if ( !config.skipExistingCheck && existingRegistrations.contains( internalCdsr ) )
+            {
+                // CDSR already exists
+
+                if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
+                {
+                    // Update existing CDSR
+
+                    updateCount++;
+
+                    if ( !isDryRun )
+                    {
+                        batchHandler.updateObject( internalCdsr );
+                    }
+                }
+                else if ( strategy.isDelete() )
+                {
+                    // TODO Does 'delete' even make sense for CDSR?
+
+                    // Replace existing CDSR
+
+                    deleteCount++;
+
+                    if ( !isDryRun )
+                    {
+                        batchHandler.deleteObject( internalCdsr );
+                    }
+
+                    existingRegistrations.remove( internalCdsr );
+                }
+            }
+            else if ( strategy.isCreateAndUpdate() || strategy.isCreate() )
+            {
+                // CDSR does not already exist -> add new CDSR
+
+                boolean added = false;
+
+                if ( !isDryRun )
+                {
+                    added = batchHandler.addObject( internalCdsr );
+
+                    if ( added )
+                    {
+                        sendNotifications( config, internalCdsr );
+                    }
+                }
+
+                if ( isDryRun || added )
+                {
+                    importCount++;
+
+                    // Later registrations with the same key in the chunk update this one
+
+                    existingRegistrations.add( internalCdsr );
+                }
+            }
+        }
+    }
+
     private static class ImportConflictException
         extends RuntimeException
     {
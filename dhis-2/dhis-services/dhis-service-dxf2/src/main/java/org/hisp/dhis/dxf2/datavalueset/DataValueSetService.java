@@ -65,13 +65,17 @@ public interface DataValueSetService
      * @param lastUpdated filter data values updated after a time stamp.
      * @param lastUpdatedDuration the last updated duration filter.
      * @param limit max number of data values to return.
+     * @param resumeAfter the key of the data value after which to resume
+     *        the export, as comma separated data element, ISO period, org unit,
+     *        category option combo and attribute option combo identifiers
+     *        in the given identifier schemes.
      * @param idSchemes the identifier schemes.
      * @return
      */
     DataExportParams getFromUrl( Set<String> dataSets, Set<String> dataElementGroups, Set<String> periods,
         Date startDate, Date endDate, Set<String> organisationUnits, boolean includeChildren,
         Set<String> organisationUnitGroups, Set<String> attributeOptionCombos, boolean includeDeleted, Date lastUpdated,
-        String lastUpdatedDuration, Integer limit, IdSchemes idSchemes );
+        String lastUpdatedDuration, Integer limit, String resumeAfter, IdSchemes idSchemes );
 
     void validate( DataExportParams params );
 
@@ -126,4 +130,16 @@ public interface DataValueSetService
     ImportSummary saveDataValueSetCsv( InputStream in, ImportOptions importOptions, JobConfiguration id );
 
     ImportSummary saveDataValueSetPdf( InputStream in, ImportOptions importOptions, JobConfiguration id );
+
+    /**
+     * Imports the given data value set. Intended for formats which are parsed
+     * into a {@link DataValueSet} by the caller, such as ADX. Values are read
+     * from the set on the calling thread.
+     *
+     * @param dataValueSet the data value set to import.
+     * @param importOptions the import options.
+     * @param id the job configuration, can be null.
+     * @return an import summary.
+     */
+    ImportSummary saveDataValueSet( DataValueSet dataValueSet, ImportOptions importOptions, JobConfiguration id );
 }
@@ -29,6 +29,7 @@ package org.hisp.dhis.dxf2.datavalueset;
  */
 
 import static org.apache.commons.lang3.StringUtils.trimToNull;
+import static org.hisp.dhis.common.IdentifiableObjectUtils.getUids;
 import static org.hisp.dhis.system.notification.NotificationLevel.ERROR;
 import static org.hisp.dhis.system.notification.NotificationLevel.INFO;
 import static org.hisp.dhis.system.notification.NotificationLevel.WARN;
@@ -40,16 +41,30 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.calendar.CalendarService;
+import org.hisp.dhis.category.Category;
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.AuditType;
@@ -57,12 +72,15 @@ import org.hisp.dhis.common.DateRange;
 import org.hisp.dhis.common.DxfNamespaces;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdSchemes;
+import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.IdentifiableProperty;
 import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.common.MetadataChangeTracker;
 import org.hisp.dhis.commons.collection.CachingMap;
 import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.commons.util.StreamUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dataapproval.DataApproval;
 import org.hisp.dhis.dataapproval.DataApprovalService;
 import org.hisp.dhis.dataapproval.DataApprovalWorkflow;
@@ -76,7 +94,9 @@ import org.hisp.dhis.datavalue.AggregateAccessManager;
 import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueAuditQueue;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DataValuesChangedEvent;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportConflict;
 import org.hisp.dhis.dxf2.importsummary.ImportCount;
@@ -84,6 +104,8 @@ import org.hisp.dhis.dxf2.importsummary.ImportStatus;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
 import org.hisp.dhis.dxf2.pdfform.PdfDataEntryFormUtil;
 import org.hisp.dhis.dxf2.utils.InputUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.fileresource.FileResource;
 import org.hisp.dhis.fileresource.FileResourceService;
 import org.hisp.dhis.i18n.I18n;
@@ -95,6 +117,8 @@ import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.node.types.SimpleNode;
+import org.hisp.dhis.option.Option;
+import org.hisp.dhis.option.OptionSet;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
@@ -122,8 +146,15 @@ import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
 import org.hisp.staxwax.factory.XMLFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.csvreader.CsvReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Note that a mock BatchHandler factory is being injected.
@@ -138,6 +169,24 @@ public class DefaultDataValueSetService
     private static final String ERROR_OBJECT_NEEDED_TO_COMPLETE = "Must be provided to complete data set";
     private static final int CACHE_MISS_THRESHOLD = 250;
 
+    /**
+     * Classes of the meta-data which the facts in the shared meta-data cache
+     * are derived from. The combined version of these classes is part of the
+     * cache keys, so that cached facts are not used after a change. Facts
+     * which depend on the current user are not shared.
+     */
+    private static final List<Class<?>> METADATA_CACHE_CLASSES = ImmutableList.of( DataElement.class, DataSet.class,
+        CategoryCombo.class, Category.class, CategoryOption.class, CategoryOptionCombo.class, OrganisationUnit.class,
+        OptionSet.class, Option.class );
+
+    /**
+     * Node-wide cache of meta-data facts looked up during imports, shared
+     * between imports so that small imports do not start cold. Entries expire
+     * after a fixed time, so that changes which are not seen by the meta-data
+     * change tracker are picked up eventually.
+     */
+    private static Cache<String, Object> METADATA_CACHE;
+
     @Autowired
     private IdentifiableObjectManager identifiableObjectManager;
 
@@ -165,6 +214,18 @@ public class DefaultDataValueSetService
     @Autowired
     private DataValueSetStore dataValueSetStore;
 
+    @Autowired
+    private DataValueCopyStore dataValueCopyStore;
+
+    @Autowired
+    private DataValueAuditQueue dataValueAuditQueue;
+
+    @Autowired
+    private MetadataChangeTracker metadataChangeTracker;
+
+    @Autowired
+    private DhisConfigurationProvider config;
+
     @Autowired
     private SystemSettingManager systemSettingManager;
 
@@ -195,6 +256,24 @@ public class DefaultDataValueSetService
     @Autowired
     private AggregateAccessManager accessManager;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init()
+    {
+        METADATA_CACHE = Caffeine.newBuilder()
+            .expireAfterWrite( 1, TimeUnit.HOURS )
+            .initialCapacity( 1000 )
+            .maximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 100000 ).build();
+    }
+
     // Set methods for test purposes
 
     public void setBatchHandlerFactory( BatchHandlerFactory batchHandlerFactory )
@@ -214,7 +293,7 @@ public class DefaultDataValueSetService
     @Override
     public DataExportParams getFromUrl( Set<String> dataSets, Set<String> dataElementGroups, Set<String> periods, Date startDate, Date endDate,
         Set<String> organisationUnits, boolean includeChildren, Set<String> organisationUnitGroups, Set<String> attributeOptionCombos,
-        boolean includeDeleted, Date lastUpdated, String lastUpdatedDuration, Integer limit, IdSchemes outputIdSchemes )
+        boolean includeDeleted, Date lastUpdated, String lastUpdatedDuration, Integer limit, String resumeAfter, IdSchemes outputIdSchemes )
     {
         DataExportParams params = new DataExportParams();
 
@@ -259,6 +338,11 @@ public class DefaultDataValueSetService
                 CategoryOptionCombo.class, IdentifiableProperty.UID, attributeOptionCombos ) );
         }
 
+        if ( resumeAfter != null )
+        {
+            params.setResumeAfter( getResumeAfter( resumeAfter, outputIdSchemes != null ? outputIdSchemes : new IdSchemes() ) );
+        }
+
         return params
             .setIncludeChildren( includeChildren )
             .setIncludeDeleted( includeDeleted )
@@ -268,6 +352,58 @@ public class DefaultDataValueSetService
             .setOutputIdSchemes( outputIdSchemes );
     }
 
+    /**
+     * Returns the data value key for the given comma separated data element,
+     * ISO period, org unit, category option combo and attribute option combo
+     * identifiers. The identifiers are resolved with the output identifier
+     * schemes of the export, as they are taken from the last exported value.
+     * Identifiers which contain commas are not supported.
+     *
+     * @param resumeAfter the identifiers.
+     * @param idSchemes the output identifier schemes.
+     * @throws IllegalQueryException if the key is not valid.
+     */
+    private DataValue getResumeAfter( String resumeAfter, IdSchemes idSchemes )
+    {
+        String[] ids = resumeAfter.split( ",", -1 );
+
+        if ( ids.length != 5 )
+        {
+            throw new IllegalQueryException( "Resume key must contain data element, period, org unit, category option combo and attribute option combo, " +
+                "identifiers containing commas are not supported: " + resumeAfter );
+        }
+
+        DataElement dataElement = getResumeKeyObject( DataElement.class, idSchemes.getDataElementIdScheme(), ids[0] );
+        Period period = periodService.reloadIsoPeriod( ids[1] );
+        OrganisationUnit orgUnit = getResumeKeyObject( OrganisationUnit.class, idSchemes.getOrgUnitIdScheme(), ids[2] );
+        CategoryOptionCombo categoryOptionCombo = getResumeKeyObject( CategoryOptionCombo.class, idSchemes.getCategoryOptionComboIdScheme(), ids[3] );
+        CategoryOptionCombo attributeOptionCombo = getResumeKeyObject( CategoryOptionCombo.class, idSchemes.getCategoryOptionComboIdScheme(), ids[4] );
+
+        if ( dataElement == null || period == null || orgUnit == null || categoryOptionCombo == null || attributeOptionCombo == null )
+        {
+            throw new IllegalQueryException( "Resume key does not refer to a valid data value: " + resumeAfter );
+        }
+
+        return new DataValue( dataElement, period, orgUnit, categoryOptionCombo, attributeOptionCombo );
+    }
+
+    /**
+     * Returns the object with the given identifier in the given scheme. Falls
+     * back to the UID for attribute schemes, as the export writes the UID of
+     * objects without a value for the attribute.
+     */
+    private <T extends IdentifiableObject> T getResumeKeyObject( Class<T> clazz, IdScheme idScheme, String id )
+    {
+        T object = identifiableObjectManager.getObject( clazz, idScheme, id );
+
+        if ( object == null && idScheme.isAttribute() )
+        {
+            object = identifiableObjectManager.get( clazz, id );
+        }
+
+        return object;
+    }
+
     @Override
     public void validate( DataExportParams params )
     {
@@ -624,6 +760,21 @@ public class DefaultDataValueSetService
        return saveDataValueSetPdf( in, importOptions, null );
     }
 
+    @Override
+    public ImportSummary saveDataValueSet( DataValueSet dataValueSet, ImportOptions importOptions, JobConfiguration id )
+    {
+        try
+        {
+            return saveDataValueSet( importOptions, id, dataValueSet );
+        }
+        catch ( Exception ex )
+        {
+            log.error( DebugUtils.getStackTrace( ex ) );
+            notifier.notify( id, ERROR, "Process failed: " + ex.getMessage(), true );
+            return new ImportSummary( ImportStatus.ERROR, "The import process failed: " + ex.getMessage() );
+        }
+    }
+
     /**
      * There are specific id schemes for data elements and organisation units and
      * a generic id scheme for all objects. The specific id schemes will take
@@ -671,6 +822,15 @@ public class DefaultDataValueSetService
 
         log.info( String.format( "Skip audit: %b, has authority to skip: %b", skipAudit, hasSkipAuditAuth ) );
 
+        boolean hasFastImportAuth = currentUser != null && currentUser.isAuthorized( Authorities.F_FAST_DATA_IMPORT );
+        boolean fastImport = importOptions.isFastImport() && hasFastImportAuth && dataValueCopyStore.isCopySupported();
+
+        log.info( String.format( "Fast import: %b, has authority for fast import: %b", fastImport, hasFastImportAuth ) );
+
+        int importThreads = Math.max( 1, Integer.parseInt( config.getProperty( ConfigurationKey.DATA_IMPORT_THREADS ) ) );
+
+        log.info( String.format( "Import threads: %d", importThreads ) );
+
         // ---------------------------------------------------------------------
         // Get import options
         // ---------------------------------------------------------------------
@@ -708,26 +868,30 @@ public class DefaultDataValueSetService
         boolean requireCategoryOptionCombo = importOptions.isRequireCategoryOptionCombo() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_REQUIRE_CATEGORY_OPTION_COMBO );
         boolean requireAttrOptionCombo = importOptions.isRequireAttributeOptionCombo() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_REQUIRE_ATTRIBUTE_OPTION_COMBO );
         boolean forceDataInput = inputUtils.canForceDataInput( currentUser, importOptions.isForce() );
+        boolean realTimeValidation = !dryRun && (Boolean) systemSettingManager.getSystemSetting( SettingKey.REAL_TIME_VALIDATION );
 
         // ---------------------------------------------------------------------
-        // Create meta-data maps
+        // Create meta-data maps, where maps of facts derived from meta-data
+        // are backed by the shared meta-data cache
         // ---------------------------------------------------------------------
 
+        final String metadataVersion = metadataChangeTracker.getVersion( METADATA_CACHE_CLASSES ) + ":";
+
         CachingMap<String, DataElement> dataElementMap = new CachingMap<>();
         CachingMap<String, OrganisationUnit> orgUnitMap = new CachingMap<>();
         CachingMap<String, CategoryOptionCombo> optionComboMap = new CachingMap<>();
         CachingMap<String, DataSet> dataElementDataSetMap = new CachingMap<>();
         CachingMap<String, Period> periodMap = new CachingMap<>();
-        CachingMap<String, Set<PeriodType>> dataElementPeriodTypesMap = new CachingMap<>();
-        CachingMap<String, Set<CategoryOptionCombo>> dataElementCategoryOptionComboMap = new CachingMap<>();
-        CachingMap<String, Set<CategoryOptionCombo>> dataElementAttrOptionComboMap = new CachingMap<>();
-        CachingMap<String, Boolean> dataElementOrgUnitMap = new CachingMap<>();
+        CachingMap<String, Set<String>> dataElementPeriodTypesMap = new SharedCachingMap<>( METADATA_CACHE, metadataChangeTracker, metadataVersion + "dePeriodTypes:" );
+        CachingMap<String, Set<String>> dataElementCategoryOptionComboMap = new SharedCachingMap<>( METADATA_CACHE, metadataChangeTracker, metadataVersion + "deCocs:" );
+        CachingMap<String, Set<String>> dataElementAttrOptionComboMap = new SharedCachingMap<>( METADATA_CACHE, metadataChangeTracker, metadataVersion + "deAocs:" );
+        CachingMap<String, Boolean> dataElementOrgUnitMap = new SharedCachingMap<>( METADATA_CACHE, metadataChangeTracker, metadataVersion + "deOrgUnit:" );
         CachingMap<String, Boolean> dataSetLockedMap = new CachingMap<>();
         CachingMap<String, Period> dataElementLatestFuturePeriodMap = new CachingMap<>();
         CachingMap<String, Boolean> orgUnitInHierarchyMap = new CachingMap<>();
-        CachingMap<String, DateRange> attrOptionComboDateRangeMap = new CachingMap<>();
-        CachingMap<String, Boolean> attrOptionComboOrgUnitMap = new CachingMap<>();
-        CachingMap<String, Optional<Set<String>>> dataElementOptionsMap = new CachingMap<>();
+        CachingMap<String, DateRange> attrOptionComboDateRangeMap = new SharedCachingMap<>( METADATA_CACHE, metadataChangeTracker, metadataVersion + "aocDateRange:" );
+        CachingMap<String, Boolean> attrOptionComboOrgUnitMap = new SharedCachingMap<>( METADATA_CACHE, metadataChangeTracker, metadataVersion + "aocOrgUnit:" );
+        CachingMap<String, Optional<Set<String>>> dataElementOptionsMap = new SharedCachingMap<>( METADATA_CACHE, metadataChangeTracker, metadataVersion + "deOptions:" );
         CachingMap<String, Boolean> approvalMap = new CachingMap<>();
         CachingMap<String, Boolean> lowestApprovalLevelMap = new CachingMap<>();
         CachingMap<String, Boolean> periodOpenForDataElement = new CachingMap<>();
@@ -838,365 +1002,795 @@ public class DefaultDataValueSetService
 
         final Set<OrganisationUnit> currentOrgUnits = currentUserService.getCurrentUserOrganisationUnits();
 
-        BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
-        BatchHandler<DataValueAudit> auditBatchHandler = batchHandlerFactory.createBatchHandler( DataValueAuditBatchHandler.class ).init();
-
-        int importCount = 0;
-        int updateCount = 0;
-        int deleteCount = 0;
-        int totalCount = 0;
-
         // ---------------------------------------------------------------------
-        // Data values
+        // Writers, partitioned by org unit so that no two writers touch the
+        // same rows, and a reader which parses ahead of validation
         // ---------------------------------------------------------------------
 
-        Date now = new Date();
-
-        clock.logTime( "Validated outer meta-data" );
-        notifier.notify( id, notificationLevel, "Importing data values" );
+        List<DataValueImportChunk> chunks = new ArrayList<>();
 
-        while ( dataValueSet.hasNextDataValue() )
+        for ( int i = 0; i < importThreads; i++ )
         {
-            org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getNextDataValue();
+            BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
+            BatchHandler<DataValueAudit> auditBatchHandler = batchHandlerFactory.createBatchHandler( DataValueAuditBatchHandler.class ).init();
 
-            totalCount++;
+            chunks.add( new DataValueImportChunk( strategy, dryRun, skipExistingCheck, skipAudit, realTimeValidation,
+                fastImport, dataValueBatchHandler, auditBatchHandler, importThreads > 1 ? newWriterExecutor() : null ) );
+        }
+
+        // Only read ahead for sets which parse plain text, sets such as ADX
+        // look up meta-data while parsing and must stay on this thread
+
+        if ( importThreads > 1 && ( dataValueSet instanceof StreamingXmlDataValueSet || dataValueSet instanceof StreamingJsonDataValueSet
+            || dataValueSet instanceof StreamingCsvDataValueSet ) )
+        {
+            dataValueSet = new ReadAheadDataValueSet( dataValueSet );
+        }
 
-            final DataElement dataElement =
-                dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
-            final Period period = outerPeriod != null ? outerPeriod :
-                periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
-            final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
-                orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
-            CategoryOptionCombo categoryOptionCombo =
-                optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
-            CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
-                optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
+        try
+        {
+            int totalCount = 0;
 
             // -----------------------------------------------------------------
-            // Potentially heat caches
+            // Data values
             // -----------------------------------------------------------------
 
-            if ( !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
+            Date now = new Date();
 
-                log.info( "Data element cache heated after cache miss threshold reached" );
-            }
+            clock.logTime( "Validated outer meta-data" );
+            notifier.notify( id, notificationLevel, "Importing data values" );
 
-            if ( !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+            while ( dataValueSet.hasNextDataValue() )
             {
-                orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
+                org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getNextDataValue();
+
+                totalCount++;
+
+                final DataElement dataElement =
+                    dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
+                final Period period = outerPeriod != null ? outerPeriod :
+                    periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
+                final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
+                    orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
+                CategoryOptionCombo categoryOptionCombo =
+                    optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
+                CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
+                    optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
+
+                // -------------------------------------------------------------
+                // Potentially heat caches
+                // -------------------------------------------------------------
+
+                if ( !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                {
+                    dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
 
-                log.info( "Org unit cache heated after cache miss threshold reached" );
-            }
+                    log.info( "Data element cache heated after cache miss threshold reached" );
+                }
 
-            if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
-                    categoryOptComboIdScheme ) );
+                if ( !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                {
+                    orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
 
-                log.info( "Category Option Combo cache heated after cache miss threshold reached" );
-            }
+                    log.info( "Org unit cache heated after cache miss threshold reached" );
+                }
 
-            // -----------------------------------------------------------------
-            // Validation
-            // -----------------------------------------------------------------
+                if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                {
+                    optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
+                        categoryOptComboIdScheme ) );
 
-            if ( dataElement == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
-                continue;
-            }
+                    log.info( "Category Option Combo cache heated after cache miss threshold reached" );
+                }
 
-            if ( period == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
-                continue;
-            }
+                // -------------------------------------------------------------
+                // Validation
+                // -------------------------------------------------------------
 
-            if ( orgUnit == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
-                continue;
-            }
+                if ( dataElement == null )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
+                    continue;
+                }
 
-            if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
-                continue;
-            }
+                if ( period == null )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
+                    continue;
+                }
 
-            if ( categoryOptionCombo != null )
-            {
-                List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
+                if ( orgUnit == null )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
+                    continue;
+                }
 
-                if ( !errors.isEmpty() )
+                if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
                 {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
                     continue;
                 }
-            }
 
-            if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
-                continue;
-            }
+                if ( categoryOptionCombo != null )
+                {
+                    List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
 
-            if ( attrOptionCombo != null )
-            {
-                List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
+                    if ( !errors.isEmpty() )
+                    {
+                        summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                        continue;
+                    }
+                }
 
-                if ( !errors.isEmpty() )
+                if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
                 {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
                     continue;
                 }
-            }
 
-            boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
+                if ( attrOptionCombo != null )
+                {
+                    List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
 
-            if ( !inUserHierarchy )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + currentUserName ) );
-                continue;
-            }
+                    if ( !errors.isEmpty() )
+                    {
+                        summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                        continue;
+                    }
+                }
 
-            if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
-            {
-                summary.getConflicts().add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
 
-            dataValue.setValueForced(
-                ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
+                if ( !inUserHierarchy )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + currentUserName ) );
+                    continue;
+                }
 
-            String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
+                if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
+                {
+                    summary.getConflicts().add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-            if ( valueValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
-                continue;
-            }
+                dataValue.setValueForced(
+                    ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
 
-            String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
+                String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
 
-            if ( commentValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
-                continue;
-            }
+                if ( valueValid != null )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-            Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
-                Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
+                String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
 
-            if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
-                continue;
-            }
+                if ( commentValid != null )
+                {
+                    summary.getConflicts().add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
+                    continue;
+                }
 
-            // -----------------------------------------------------------------
-            // Constraints
-            // -----------------------------------------------------------------
+                Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
+                    Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
 
-            if ( categoryOptionCombo == null )
-            {
-                if ( requireCategoryOptionCombo )
+                if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
                 {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
                     continue;
                 }
-                else
+
+                // -------------------------------------------------------------
+                // Constraints
+                // -------------------------------------------------------------
+
+                if ( categoryOptionCombo == null )
+                {
+                    if ( requireCategoryOptionCombo )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
+                        continue;
+                    }
+                    else
+                    {
+                        categoryOptionCombo = fallbackCategoryOptionCombo;
+                    }
+                }
+
+                if ( attrOptionCombo == null )
+                {
+                    if ( requireAttrOptionCombo )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
+                        continue;
+                    }
+                    else
+                    {
+                        attrOptionCombo = fallbackCategoryOptionCombo;
+                    }
+                }
+
+                if ( strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
+                    () -> dataElement.getPeriodTypes().stream().map( PeriodType::getName ).collect( Collectors.toSet() ) )
+                    .contains( period.getPeriodType().getName() ) )
                 {
-                    categoryOptionCombo = fallbackCategoryOptionCombo;
+                    summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(),
+                        "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
+                    continue;
                 }
-            }
 
-            if ( attrOptionCombo == null )
-            {
-                if ( requireAttrOptionCombo )
+                if ( strictDataElements && !dataSetDataElements.contains( dataElement ) )
                 {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
+                    summary.getConflicts().add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
+                        "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
                     continue;
                 }
-                else
+
+                if ( strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
+                    () -> new HashSet<>( getUids( dataElement.getCategoryOptionCombos() ) ) ).contains( categoryOptionCombo.getUid() ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( categoryOptionCombo.getUid(),
+                        "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
+                    continue;
+                }
+
+                if ( strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
+                    () -> new HashSet<>( getUids( dataElement.getDataSetCategoryOptionCombos() ) ) ).contains( attrOptionCombo.getUid() ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( attrOptionCombo.getUid(),
+                        "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
+                    continue;
+                }
+
+                if ( strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
+                    () -> orgUnit.hasDataElement( dataElement ) ) ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
+                    continue;
+                }
+
+                boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
+
+                if ( zeroAndInsignificant )
                 {
-                    attrOptionCombo = fallbackCategoryOptionCombo;
+                    continue; // Ignore value
                 }
+
+                String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
+
+                if ( storedByValid != null )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
+                    continue;
+                }
+
+                String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? currentUserName : dataValue.getStoredBy();
+
+                final CategoryOptionCombo aoc = attrOptionCombo;
+
+                DateRange aocDateRange = attrOptionComboDateRangeMap.get( attrOptionCombo.getUid(), () -> aoc.getDateRange() );
+
+                if ( ( aocDateRange.getStartDate() != null && aocDateRange.getStartDate().compareTo( period.getStartDate() ) > 0 )
+                    || ( aocDateRange.getEndDate() != null && aocDateRange.getEndDate().compareTo( period.getEndDate() ) < 0 ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
+                    continue;
+                }
+
+                if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
+                {
+                    Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
+                    return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
+                } ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
+                    continue;
+                }
+
+                final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
+                    () -> dataElement.getApprovalDataSet() );
+
+                if ( approvalDataSet != null && !forceDataInput ) // Data element is assigned to at least one data set
+                {
+                    if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
+                        () -> isLocked( currentUser, approvalDataSet, period, orgUnit, skipLockExceptionCheck ) ) )
+                    {
+                        summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
+                            period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
+                        continue;
+                    }
+
+                    Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), () -> dataElement.getLatestOpenFuturePeriod() );
+
+                    if ( period.isAfter( latestFuturePeriod ) && isIso8601 )
+                    {
+                        summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Period: " +
+                            period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
+                        continue;
+                    }
+
+                    DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
+
+                    if ( workflow != null )
+                    {
+                        final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
+
+                        if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
+                        {
+                            DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
+
+                            return lowestApproval != null && lowestApprovalLevelMap.get( lowestApproval.getDataApprovalLevel().getUid() + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
+                                () -> approvalService.getDataApproval( lowestApproval ) != null );
+                        } ) )
+                        {
+                            summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                                "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
+                                    + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
+                            continue;
+                        }
+                    }
+                }
+
+                if ( approvalDataSet != null && !forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
+                    continue;
+                }
+
+                if ( !forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
+                    continue;
+                }
+
+                DataValue actualDataValue = null;
+                if ( strategy.isDelete() && dataElement.isFileType() )
+                {
+                    actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
+                    if ( actualDataValue == null )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
+                        continue;
+                    }
+                }
+
+                // -------------------------------------------------------------
+                // Create data value
+                // -------------------------------------------------------------
+
+                DataValue internalValue = new DataValue();
+
+                internalValue.setDataElement( dataElement );
+                internalValue.setPeriod( period );
+                internalValue.setSource( orgUnit );
+                internalValue.setCategoryOptionCombo( categoryOptionCombo );
+                internalValue.setAttributeOptionCombo( attrOptionCombo );
+                internalValue.setValue( trimToNull( dataValue.getValue() ) );
+                internalValue.setStoredBy( storedBy );
+                internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
+                internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
+                internalValue.setComment( trimToNull( dataValue.getComment() ) );
+                internalValue.setFollowup( dataValue.getFollowup() );
+                internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
+
+                // -------------------------------------------------------------
+                // Save, update or delete data value
+                // -------------------------------------------------------------
+
+                chunks.get( (int) ( orgUnit.getId() % chunks.size() ) ).add( internalValue, actualDataValue );
             }
 
-            if ( strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
-                () -> dataElement.getPeriodTypes() ).contains( period.getPeriodType() ) )
+            int importCount = 0;
+            int updateCount = 0;
+            int deleteCount = 0;
+
+            for ( DataValueImportChunk chunk : chunks )
             {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(),
-                    "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
-                continue;
+                chunk.finish();
+
+                importCount += chunk.importCount;
+                updateCount += chunk.updateCount;
+                deleteCount += chunk.deleteCount;
             }
 
-            if ( strictDataElements && !dataSetDataElements.contains( dataElement ) )
+            int ignores = totalCount - importCount - updateCount - deleteCount;
+
+            summary.setImportCount( new ImportCount( importCount, updateCount, ignores, deleteCount ) );
+            summary.setStatus( summary.getConflicts().isEmpty() ? ImportStatus.SUCCESS : ImportStatus.WARNING );
+            summary.setDescription( "Import process completed successfully" );
+
+            clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount + ", update: " + updateCount + ", delete: " + deleteCount );
+            notifier.notify( id, notificationLevel, "Import done", true ).addJobSummary( id, notificationLevel, summary, ImportSummary.class );
+        }
+        finally
+        {
+            // Stops the reader and releases the input also when the import fails
+
+            chunks.forEach( DataValueImportChunk::shutdown );
+            dataValueSet.close();
+        }
+
+        return summary;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void handleComplete( DataSet dataSet, Date completeDate, Period period, OrganisationUnit orgUnit,
+        CategoryOptionCombo attributeOptionCombo, String currentUserName, ImportSummary summary )
+    {
+        if ( orgUnit == null )
+        {
+            summary.getConflicts().add( new ImportConflict( OrganisationUnit.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
+            return;
+        }
+
+        if ( period == null )
+        {
+            summary.getConflicts().add( new ImportConflict( Period.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
+            return;
+        }
+
+        period = periodService.reloadPeriod( period );
+
+        CompleteDataSetRegistration completeAlready = registrationService
+            .getCompleteDataSetRegistration( dataSet, period, orgUnit, attributeOptionCombo );
+
+        if ( completeAlready != null )
+        {
+            // At this point, DataSet is completed. Override, eventual non-completeness
+            completeAlready.setDate( completeDate );
+            completeAlready.setStoredBy( currentUserName );
+            completeAlready.setLastUpdated( new Date() );
+            completeAlready.setLastUpdatedBy( currentUserName );
+            completeAlready.setCompleted( true );
+
+            registrationService.updateCompleteDataSetRegistration( completeAlready );
+        }
+        else
+        {
+            CompleteDataSetRegistration registration = new CompleteDataSetRegistration( dataSet, period, orgUnit,
+                attributeOptionCombo, completeDate, currentUserName, new Date(), currentUserName, true );
+
+            registrationService.saveCompleteDataSetRegistration( registration );
+        }
+
+        summary.setDataSetComplete( DateUtils.getMediumDateString( completeDate ) );
+    }
+
+    /**
+     * Checks whether the given data set is locked.
+     *
+     * @param dataSet                the data set.
+     * @param period                 the period.
+     * @param organisationUnit       the organisation unit.
+     * @param skipLockExceptionCheck whether to skip lock exception check.
+     */
+    private boolean isLocked( User user, DataSet dataSet, Period period, OrganisationUnit organisationUnit, boolean skipLockExceptionCheck )
+    {
+        return dataSet.isLocked( user, period, null ) && (skipLockExceptionCheck || lockExceptionStore.getCount( dataSet, period, organisationUnit ) == 0L);
+    }
+
+    /**
+     * Returns a single thread executor for an import writer. The thread times
+     * out when idle, so that an import which fails halfway does not leave
+     * writer threads behind.
+     */
+    private static ExecutorService newWriterExecutor()
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( 1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>() );
+        executor.allowCoreThreadTimeOut( true );
+        return executor;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Caching map which falls back to the shared meta-data cache before
+     * computing a value. The prefix of the shared cache keys should include
+     * the meta-data version. Null values are not shared. The shared cache is
+     * bypassed when meta-data changes are not tracked, e.g. in a cluster where
+     * changes made on other nodes would not invalidate the cached values.
+     */
+    static class SharedCachingMap<V>
+        extends CachingMap<String, V>
+    {
+        private final Cache<String, Object> cache;
+
+        private final MetadataChangeTracker tracker;
+
+        private final String prefix;
+
+        SharedCachingMap( Cache<String, Object> cache, MetadataChangeTracker tracker, String prefix )
+        {
+            this.cache = cache;
+            this.tracker = tracker;
+            this.prefix = prefix;
+        }
+
+        @Override
+        @SuppressWarnings( "unchecked" )
+        public V get( String key, Callable<V> callable )
+        {
+            if ( !tracker.isEnabled() )
             {
-                summary.getConflicts().add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
-                    "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
-                continue;
+                return super.get( key, callable );
             }
 
-            if ( strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
-                () -> dataElement.getCategoryOptionCombos() ).contains( categoryOptionCombo ) )
+            return super.get( key, () -> {
+                Object value = cache.getIfPresent( prefix + key );
+
+                if ( value == null )
+                {
+                    value = callable.call();
+
+                    if ( value != null )
+                    {
+                        cache.put( prefix + key, value );
+                    }
+                }
+
+                return (V) value;
+            } );
+        }
+    }
+
+    /**
+     * Saves validated data values in chunks. The existing values of each
+     * chunk are looked up with one query, rather than with one query per
+     * data value. With fast import, the data values and audits of each chunk
+     * are written with one COPY rather than through the batch handlers. With
+     * an executor, full chunks are saved on the writer thread of the executor
+     * while the next chunk is being filled.
+     * <p>
+     * Chunks saved on a writer thread run with the security context of the
+     * import, each in its own transaction which is committed when the chunk
+     * is saved. If saving a chunk fails, the writes of that chunk which use
+     * the transaction are rolled back and the import fails, while chunks
+     * saved before remain committed. Writes through the batch handlers use
+     * their own connections and are never rolled back, also without writer
+     * threads.
+     */
+    private class DataValueImportChunk
+    {
+        private static final int CHUNK_SIZE = 1000;
+
+        private final ImportStrategy strategy;
+
+        private final boolean dryRun;
+
+        private final boolean skipExistingCheck;
+
+        private final boolean skipAudit;
+
+        private final boolean realTimeValidation;
+
+        private final boolean fastImport;
+
+        private final BatchHandler<DataValue> dataValueBatchHandler;
+
+        private final BatchHandler<DataValueAudit> auditBatchHandler;
+
+        private final ExecutorService executor;
+
+        private Future<?> pendingSave;
+
+        private final List<DataValue> internalValues = new ArrayList<>();
+
+        private final List<DataValue> actualDataValues = new ArrayList<>();
+
+        private final Map<DataValue, DataValue> existingValues = new HashMap<>();
+
+        private final List<DataValue> changedValues = new ArrayList<>();
+
+        private final List<DataValue> copyValues = new ArrayList<>();
+
+        private final List<DataValueAudit> copyAudits = new ArrayList<>();
+
+        private final List<DataValueAudit> queuedAudits = new ArrayList<>();
+
+        private final Set<DataValue> copiedAdds = new HashSet<>();
+
+        private int importCount = 0;
+
+        private int updateCount = 0;
+
+        private int deleteCount = 0;
+
+        DataValueImportChunk( ImportStrategy strategy, boolean dryRun, boolean skipExistingCheck, boolean skipAudit,
+            boolean realTimeValidation, boolean fastImport, BatchHandler<DataValue> dataValueBatchHandler,
+            BatchHandler<DataValueAudit> auditBatchHandler, ExecutorService executor )
+        {
+            this.strategy = strategy;
+            this.dryRun = dryRun;
+            this.skipExistingCheck = skipExistingCheck;
+            this.skipAudit = skipAudit;
+            this.realTimeValidation = realTimeValidation;
+            this.fastImport = fastImport;
+            this.dataValueBatchHandler = dataValueBatchHandler;
+            this.auditBatchHandler = auditBatchHandler;
+            this.executor = executor;
+        }
+
+        /**
+         * Adds a validated data value, and saves the chunk when it is full.
+         *
+         * @param internalValue the data value to save.
+         * @param actualDataValue the stored file resource data value to
+         *        delete, or null.
+         */
+        void add( DataValue internalValue, DataValue actualDataValue )
+        {
+            internalValues.add( internalValue );
+            actualDataValues.add( actualDataValue );
+
+            if ( internalValues.size() >= CHUNK_SIZE )
             {
-                summary.getConflicts().add( new ImportConflict( categoryOptionCombo.getUid(),
-                    "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
-                continue;
+                submit();
             }
+        }
 
-            if ( strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
-                () -> dataElement.getDataSetCategoryOptionCombos() ).contains( attrOptionCombo ) )
+        /**
+         * Saves the remaining data values, waits for all saves to complete and
+         * flushes the batch handlers.
+         */
+        void finish()
+        {
+            submit();
+            waitForPendingSave();
+            publishChangedValues();
+            shutdown();
+
+            dataValueBatchHandler.flush();
+            auditBatchHandler.flush();
+        }
+
+        /**
+         * Shuts down the writer thread, if any. Saves already submitted are
+         * completed.
+         */
+        void shutdown()
+        {
+            if ( executor != null )
             {
-                summary.getConflicts().add( new ImportConflict( attrOptionCombo.getUid(),
-                    "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
-                continue;
+                executor.shutdown();
             }
+        }
 
-            if ( strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
-                () -> orgUnit.hasDataElement( dataElement ) ) ) )
+        /**
+         * Saves the data values added since the last submit, on the writer
+         * thread if there is an executor. Waits for the previous save first,
+         * which keeps at most one chunk per writer in memory and preserves the
+         * order of the data values.
+         */
+        private void submit()
+        {
+            if ( internalValues.isEmpty() )
             {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
-                continue;
+                return;
             }
 
-            boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
+            List<DataValue> values = new ArrayList<>( internalValues );
+            List<DataValue> actualValues = new ArrayList<>( actualDataValues );
 
-            if ( zeroAndInsignificant )
+            internalValues.clear();
+            actualDataValues.clear();
+
+            if ( executor == null )
             {
-                continue; // Ignore value
+                save( values, actualValues );
+                publishChangedValues();
             }
-
-            String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
-
-            if ( storedByValid != null )
+            else
             {
-                summary.getConflicts().add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
-                continue;
+                waitForPendingSave();
+                publishChangedValues();
+
+                pendingSave = executor.submit( new DelegatingSecurityContextRunnable( () ->
+                    transactionTemplate.execute( status -> {
+                        save( values, actualValues );
+                        return null;
+                    } ) ) );
             }
+        }
 
-            String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? currentUserName : dataValue.getStoredBy();
+        /**
+         * Publishes the values changed by completed saves for real-time
+         * validation, one event per saved chunk. Must be called on the import
+         * thread when no save is pending.
+         */
+        private void publishChangedValues()
+        {
+            if ( pendingSave != null || changedValues.isEmpty() )
+            {
+                return;
+            }
 
-            final CategoryOptionCombo aoc = attrOptionCombo;
+            eventPublisher.publishEvent( new DataValuesChangedEvent( DefaultDataValueSetService.this, new ArrayList<>( changedValues ) ) );
 
-            DateRange aocDateRange = attrOptionComboDateRangeMap.get( attrOptionCombo.getUid(), () -> aoc.getDateRange() );
+            changedValues.clear();
+        }
 
-            if ( ( aocDateRange.getStartDate() != null && aocDateRange.getStartDate().compareTo( period.getStartDate() ) > 0 )
-                || ( aocDateRange.getEndDate() != null && aocDateRange.getEndDate().compareTo( period.getEndDate() ) < 0 ) )
+        private void waitForPendingSave()
+        {
+            if ( pendingSave == null )
             {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
+                return;
             }
 
-            if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
+            try
             {
-                Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
-                return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
-            } ) )
+                pendingSave.get();
+            }
+            catch ( ExecutionException ex )
             {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
+                throw new RuntimeException( "Failed to save data values", ex.getCause() );
             }
-
-            final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
-                () -> dataElement.getApprovalDataSet() );
-
-            if ( approvalDataSet != null && !forceDataInput ) // Data element is assigned to at least one data set
+            catch ( InterruptedException ex )
             {
-                if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
-                    () -> isLocked( currentUser, approvalDataSet, period, orgUnit, skipLockExceptionCheck ) ) )
-                {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
-                        period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
-                    continue;
-                }
+                Thread.currentThread().interrupt();
 
-                Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), () -> dataElement.getLatestOpenFuturePeriod() );
-
-                if ( period.isAfter( latestFuturePeriod ) && isIso8601 )
-                {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Period: " +
-                        period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
-                    continue;
-                }
-
-                DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
-
-                if ( workflow != null )
-                {
-                    final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
+                throw new RuntimeException( "Interrupted while saving data values", ex );
+            }
+            finally
+            {
+                pendingSave = null;
+            }
+        }
 
-                    if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
-                    {
-                        DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
+        /**
+         * Looks up the existing values of the given data values, and saves,
+         * updates or deletes them in the given order.
+         */
+        private void save( List<DataValue> values, List<DataValue> actualValues )
+        {
+            existingValues.clear();
 
-                        return lowestApproval != null && lowestApprovalLevelMap.get( lowestApproval.getDataApprovalLevel().getUid() + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
-                            () -> approvalService.getDataApproval( lowestApproval ) != null );
-                    } ) )
-                    {
-                        summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                            "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
-                                + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
-                        continue;
-                    }
-                }
+            if ( !skipExistingCheck )
+            {
+                dataValueService.getExistingDataValues( values ).forEach( dv -> existingValues.put( dv, dv ) );
             }
 
-            if ( approvalDataSet != null && !forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
+            for ( int i = 0; i < values.size(); i++ )
             {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
-                continue;
+                save( values.get( i ), actualValues.get( i ) );
             }
 
-            if ( !forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
+            if ( fastImport )
             {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
-                continue;
+                dataValueCopyStore.copyDataValues( copyValues, copyAudits );
+
+                copyValues.clear();
+                copyAudits.clear();
+                copiedAdds.clear();
             }
 
-            DataValue actualDataValue = null;
-            if ( strategy.isDelete() && dataElement.isFileType() )
+            // Writing the values of the chunk before queuing their audits
+
+            if ( !queuedAudits.isEmpty() )
             {
-                actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
-                if ( actualDataValue == null )
-                {
-                    summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
-                    continue;
-                }
-            }
+                dataValueBatchHandler.flush();
 
-            // -----------------------------------------------------------------
-            // Create data value
-            // -----------------------------------------------------------------
+                dataValueAuditQueue.addNow( queuedAudits );
 
-            DataValue internalValue = new DataValue();
-
-            internalValue.setDataElement( dataElement );
-            internalValue.setPeriod( period );
-            internalValue.setSource( orgUnit );
-            internalValue.setCategoryOptionCombo( categoryOptionCombo );
-            internalValue.setAttributeOptionCombo( attrOptionCombo );
-            internalValue.setValue( trimToNull( dataValue.getValue() ) );
-            internalValue.setStoredBy( storedBy );
-            internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
-            internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
-            internalValue.setComment( trimToNull( dataValue.getComment() ) );
-            internalValue.setFollowup( dataValue.getFollowup() );
-            internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
+                queuedAudits.clear();
+            }
+        }
 
-            // -----------------------------------------------------------------
-            // Save, update or delete data value
-            // -----------------------------------------------------------------
+        private void save( DataValue internalValue, DataValue actualDataValue )
+        {
+            DataElement dataElement = internalValue.getDataElement();
+            String storedBy = internalValue.getStoredBy();
 
-            DataValue existingValue = !skipExistingCheck ? dataValueBatchHandler.findObject( internalValue ) : null;
+            DataValue existingValue = !skipExistingCheck ? existingValues.get( internalValue ) : null;
 
             // -----------------------------------------------------------------
             // Check soft deleted data values on update and import
@@ -1223,13 +1817,14 @@ public class DefaultDataValueSetService
 
                     if ( !dryRun )
                     {
-                        dataValueBatchHandler.updateObject( internalValue );
+                        DataValueAudit auditValue = !skipAudit ?
+                            new DataValueAudit( internalValue, existingValue.getValue(), storedBy, auditType ) : null;
 
-                        if ( !skipAudit )
-                        {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, auditType );
+                        updateDataValue( internalValue, auditValue );
 
-                            auditBatchHandler.addObject( auditValue );
+                        if ( realTimeValidation )
+                        {
+                            changedValues.add( internalValue );
                         }
 
                         if ( dataElement.isFileType() )
@@ -1260,13 +1855,14 @@ public class DefaultDataValueSetService
                             fileResourceService.updateFileResource( fr );
                         }
 
-                        dataValueBatchHandler.updateObject( internalValue );
+                        DataValueAudit auditValue = !skipAudit ?
+                            new DataValueAudit( internalValue, existingValue.getValue(), storedBy, AuditType.DELETE ) : null;
 
-                        if ( !skipAudit )
-                        {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, AuditType.DELETE );
+                        updateDataValue( internalValue, auditValue );
 
-                            auditBatchHandler.addObject( auditValue );
+                        if ( realTimeValidation )
+                        {
+                            changedValues.add( internalValue );
                         }
                     }
                 }
@@ -1283,7 +1879,12 @@ public class DefaultDataValueSetService
 
                             if ( !dryRun )
                             {
-                                dataValueBatchHandler.updateObject( internalValue );
+                                updateDataValue( internalValue, null );
+
+                                if ( realTimeValidation )
+                                {
+                                    changedValues.add( internalValue );
+                                }
 
                                 if ( dataElement.isFileType() )
                                 {
@@ -1301,7 +1902,12 @@ public class DefaultDataValueSetService
 
                             if ( !dryRun )
                             {
-                                added = dataValueBatchHandler.addObject( internalValue );
+                                added = addDataValue( internalValue );
+
+                                if ( added && realTimeValidation )
+                                {
+                                    changedValues.add( internalValue );
+                                }
 
                                 if ( added && dataElement.isFileType() )
                                 {
@@ -1323,79 +1929,58 @@ public class DefaultDataValueSetService
             }
         }
 
-        dataValueBatchHandler.flush();
-        auditBatchHandler.flush();
-
-        int ignores = totalCount - importCount - updateCount - deleteCount;
-
-        summary.setImportCount( new ImportCount( importCount, updateCount, ignores, deleteCount ) );
-        summary.setStatus( summary.getConflicts().isEmpty() ? ImportStatus.SUCCESS : ImportStatus.WARNING );
-        summary.setDescription( "Import process completed successfully" );
-
-        clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount + ", update: " + updateCount + ", delete: " + deleteCount );
-        notifier.notify( id, notificationLevel, "Import done", true ).addJobSummary( id, notificationLevel, summary, ImportSummary.class );
-
-        dataValueSet.close();
-
-        return summary;
-    }
-
-    // -------------------------------------------------------------------------
-    // Supportive methods
-    // -------------------------------------------------------------------------
-
-    private void handleComplete( DataSet dataSet, Date completeDate, Period period, OrganisationUnit orgUnit,
-        CategoryOptionCombo attributeOptionCombo, String currentUserName, ImportSummary summary )
-    {
-        if ( orgUnit == null )
+        /**
+         * Adds a data value, unless one with the same key was added before
+         * in the chunk.
+         *
+         * @return true if the data value was added.
+         */
+        private boolean addDataValue( DataValue internalValue )
         {
-            summary.getConflicts().add( new ImportConflict( OrganisationUnit.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
-            return;
-        }
+            if ( fastImport )
+            {
+                if ( !copiedAdds.add( internalValue ) )
+                {
+                    return false;
+                }
 
-        if ( period == null )
-        {
-            summary.getConflicts().add( new ImportConflict( Period.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
-            return;
-        }
+                copyValues.add( internalValue );
+                copyAudits.add( null );
 
-        period = periodService.reloadPeriod( period );
+                return true;
+            }
 
-        CompleteDataSetRegistration completeAlready = registrationService
-            .getCompleteDataSetRegistration( dataSet, period, orgUnit, attributeOptionCombo );
+            return dataValueBatchHandler.addObject( internalValue );
+        }
 
-        if ( completeAlready != null )
+        /**
+         * Updates a data value, and makes the update visible as the existing
+         * value to any later data value with the same key in the chunk.
+         *
+         * @param auditValue the audit of the update, or null.
+         */
+        private void updateDataValue( DataValue internalValue, DataValueAudit auditValue )
         {
-            // At this point, DataSet is completed. Override, eventual non-completeness
-            completeAlready.setDate( completeDate );
-            completeAlready.setStoredBy( currentUserName );
-            completeAlready.setLastUpdated( new Date() );
-            completeAlready.setLastUpdatedBy( currentUserName );
-            completeAlready.setCompleted( true );
+            if ( fastImport )
+            {
+                copyValues.add( internalValue );
+                copyAudits.add( auditValue );
+            }
+            else
+            {
+                dataValueBatchHandler.updateObject( internalValue );
 
-            registrationService.updateCompleteDataSetRegistration( completeAlready );
-        }
-        else
-        {
-            CompleteDataSetRegistration registration = new CompleteDataSetRegistration( dataSet, period, orgUnit,
-                attributeOptionCombo, completeDate, currentUserName, new Date(), currentUserName, true );
+                if ( auditValue != null && dataValueAuditQueue.isEnabled() )
+                {
+                    queuedAudits.add( auditValue );
+                }
+                else if ( auditValue != null )
+                {
+                    auditBatchHandler.addObject( auditValue );
+                }
+            }
 
-            registrationService.saveCompleteDataSetRegistration( registration );
+            existingValues.put( internalValue, internalValue );
         }
-
-        summary.setDataSetComplete( DateUtils.getMediumDateString( completeDate ) );
-    }
-
-    /**
-     * Checks whether the given data set is locked.
-     *
-     * @param dataSet                the data set.
-     * @param period                 the period.
-     * @param organisationUnit       the organisation unit.
-     * @param skipLockExceptionCheck whether to skip lock exception check.
-     */
-    private boolean isLocked( User user, DataSet dataSet, Period period, OrganisationUnit organisationUnit, boolean skipLockExceptionCheck )
-    {
-        return dataSet.isLocked( user, period, null ) && (skipLockExceptionCheck || lockExceptionStore.getCount( dataSet, period, organisationUnit ) == 0L);
     }
 }
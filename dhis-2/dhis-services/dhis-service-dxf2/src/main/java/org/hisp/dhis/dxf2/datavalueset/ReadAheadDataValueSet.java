@@ -0,0 +1,303 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+
+/**
+ * Data value set which parses the data values of another data value set on a
+ * separate reader thread, so that parsing overlaps with the validation and
+ * writing of the values already read. The header of the data value set is
+ * read on construction. Data values are handed over in batches through a
+ * bounded queue, which keeps memory use independent of the size of the input.
+ */
+public class ReadAheadDataValueSet
+    extends DataValueSet
+{
+    private static final Log log = LogFactory.getLog( ReadAheadDataValueSet.class );
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final int QUEUE_CAPACITY = 10;
+
+    private static final int READ_TIMEOUT_MINUTES = 10;
+
+    private static final List<DataValue> END_OF_DATA = Collections.emptyList();
+
+    private final DataValueSet source;
+
+    private final BlockingQueue<List<DataValue>> queue = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+
+    private Thread reader;
+
+    private Iterator<DataValue> batch = Collections.emptyIterator();
+
+    private boolean endOfData = false;
+
+    private volatile boolean closed = false;
+
+    private volatile RuntimeException readException;
+
+    //--------------------------------------------------------------------------
+    // Constructor
+    //--------------------------------------------------------------------------
+
+    public ReadAheadDataValueSet( DataValueSet source )
+    {
+        this.source = source;
+
+        this.idScheme = source.getIdScheme();
+        this.dataElementIdScheme = source.getDataElementIdScheme();
+        this.orgUnitIdScheme = source.getOrgUnitIdScheme();
+        this.categoryOptionComboIdScheme = source.getCategoryOptionComboIdScheme();
+        this.dataSetIdScheme = source.getDataSetIdScheme();
+        this.dryRun = source.getDryRun();
+        this.strategy = source.getStrategy();
+        this.dataSet = source.getDataSet();
+        this.completeDate = source.getCompleteDate();
+        this.period = source.getPeriod();
+        this.orgUnit = source.getOrgUnit();
+        this.attributeOptionCombo = source.getAttributeOptionCombo();
+        this.attributeCategoryOptions = source.getAttributeCategoryOptions();
+    }
+
+    //--------------------------------------------------------------------------
+    // Logic
+    //--------------------------------------------------------------------------
+
+    @Override
+    public boolean hasNextDataValue()
+    {
+        if ( reader == null )
+        {
+            reader = new Thread( this::read, "data-value-set-reader" );
+            reader.setDaemon( true );
+            reader.start();
+        }
+
+        while ( !batch.hasNext() && !endOfData )
+        {
+            List<DataValue> next = take();
+
+            if ( next == END_OF_DATA )
+            {
+                endOfData = true;
+
+                if ( readException != null )
+                {
+                    throw readException;
+                }
+            }
+            else
+            {
+                batch = next.iterator();
+            }
+        }
+
+        return batch.hasNext();
+    }
+
+    @Override
+    public DataValue getNextDataValue()
+    {
+        return batch.next();
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+
+        if ( reader != null )
+        {
+            try
+            {
+                reader.join();
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        source.close();
+    }
+
+    //--------------------------------------------------------------------------
+    // Supportive methods
+    //--------------------------------------------------------------------------
+
+    /**
+     * Reads the data values of the source data value set in batches. The
+     * values are copied, as streaming data values read their properties
+     * lazily from the shared underlying reader.
+     */
+    private void read()
+    {
+        try
+        {
+            List<DataValue> values = new ArrayList<>( BATCH_SIZE );
+
+            while ( !closed && source.hasNextDataValue() )
+            {
+                values.add( copy( source.getNextDataValue() ) );
+
+                if ( values.size() >= BATCH_SIZE )
+                {
+                    put( values );
+                    values = new ArrayList<>( BATCH_SIZE );
+                }
+            }
+
+            if ( !values.isEmpty() )
+            {
+                put( values );
+            }
+        }
+        catch ( RuntimeException ex )
+        {
+            readException = ex;
+        }
+        finally
+        {
+            if ( !closed )
+            {
+                put( END_OF_DATA );
+            }
+        }
+    }
+
+    /**
+     * Hands a batch over to the consumer. Gives up when the data value set is
+     * closed or the consumer has not taken a batch within the read timeout,
+     * so that an import which fails halfway does not block the reader. When
+     * the reader gives up, the values not handed over are lost, which the
+     * consumer is told about through the read exception.
+     */
+    private void put( List<DataValue> values )
+    {
+        try
+        {
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos( READ_TIMEOUT_MINUTES );
+
+            while ( !closed && System.nanoTime() < deadline )
+            {
+                if ( queue.offer( values, 1, TimeUnit.SECONDS ) )
+                {
+                    return;
+                }
+            }
+
+            if ( !closed )
+            {
+                readException = new IllegalStateException( "Data value set reader stopped as data values were not consumed" );
+
+                closed = true;
+
+                log.warn( readException.getMessage() );
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            readException = new IllegalStateException( "Data value set reader was interrupted", ex );
+
+            closed = true;
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes the next batch from the queue. When the reader has stopped without
+     * handing over the end of data marker, the end of data is returned once
+     * the queue is drained, so that the consumer never blocks on a stopped
+     * reader.
+     */
+    private List<DataValue> take()
+    {
+        try
+        {
+            while ( true )
+            {
+                List<DataValue> next = queue.poll( 1, TimeUnit.SECONDS );
+
+                if ( next != null )
+                {
+                    return next;
+                }
+
+                if ( !reader.isAlive() && queue.isEmpty() )
+                {
+                    if ( readException == null )
+                    {
+                        readException = new IllegalStateException( "Data value set reader stopped before the end of data" );
+                    }
+
+                    return END_OF_DATA;
+                }
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException( "Interrupted while reading data values", ex );
+        }
+    }
+
+    private static DataValue copy( DataValue value )
+    {
+        DataValue copy = new DataValue();
+
+        copy.setDataElement( value.getDataElement() );
+        copy.setPeriod( value.getPeriod() );
+        copy.setOrgUnit( value.getOrgUnit() );
+        copy.setCategoryOptionCombo( value.getCategoryOptionCombo() );
+        copy.setAttributeOptionCombo( value.getAttributeOptionCombo() );
+        copy.setValue( value.getValue() );
+        copy.setStoredBy( value.getStoredBy() );
+        copy.setCreated( value.getCreated() );
+        copy.setLastUpdated( value.getLastUpdated() );
+        copy.setComment( value.getComment() );
+        copy.setFollowup( value.getFollowup() );
+        copy.setDeleted( value.getDeleted() );
+
+        return copy;
+    }
+}
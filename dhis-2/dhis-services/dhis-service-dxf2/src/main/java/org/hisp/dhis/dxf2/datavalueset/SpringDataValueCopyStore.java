@@ -0,0 +1,207 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.util.DateUtils.getLongDateString;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes data values through a temporary staging table, loaded with the
+ * PostgreSQL COPY command. The copy of a chunk and its merge into the data
+ * value and audit tables run in one transaction, so that a failing merge
+ * writes nothing of the chunk.
+ */
+public class SpringDataValueCopyStore
+    implements DataValueCopyStore
+{
+    private static final Log log = LogFactory.getLog( SpringDataValueCopyStore.class );
+
+    private static final String STAGING_TABLE = "datavalue_import_staging";
+
+    private static final String KEY_COLUMNS = "dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid";
+
+    private static final String VALUE_COLUMNS = "value, storedby, created, lastupdated, comment, followup, deleted";
+
+    private static final String CREATE_STAGING_TABLE_SQL = "create temporary table if not exists " + STAGING_TABLE + " (" +
+        "seq integer not null, dataelementid bigint not null, periodid bigint not null, sourceid bigint not null, " +
+        "categoryoptioncomboid bigint not null, attributeoptioncomboid bigint not null, " +
+        "value text, storedby text, created timestamp, lastupdated timestamp, comment text, followup boolean, deleted boolean not null, " +
+        "auditvalue text, auditmodifiedby text, auditcreated timestamp, audittype text)";
+
+    private static final String COPY_SQL = "copy " + STAGING_TABLE + " (seq, " + KEY_COLUMNS + ", " + VALUE_COLUMNS + ", " +
+        "auditvalue, auditmodifiedby, auditcreated, audittype) from stdin with (format csv)";
+
+    private static final String MERGE_SQL = "insert into datavalue (" + KEY_COLUMNS + ", " + VALUE_COLUMNS + ") " +
+        "select distinct on (" + KEY_COLUMNS + ") " + KEY_COLUMNS + ", " + VALUE_COLUMNS + " from " + STAGING_TABLE + " " +
+        "order by " + KEY_COLUMNS + ", seq desc " +
+        "on conflict (" + KEY_COLUMNS + ") do update set value = excluded.value, storedby = excluded.storedby, " +
+        "created = excluded.created, lastupdated = excluded.lastupdated, comment = excluded.comment, " +
+        "followup = excluded.followup, deleted = excluded.deleted";
+
+    private static final String AUDIT_SQL = "insert into datavalueaudit (datavalueauditid, dataelementid, periodid, organisationunitid, " +
+        "categoryoptioncomboid, attributeoptioncomboid, value, modifiedby, created, audittype) " +
+        "select nextval('datavalueaudit_sequence'), " + KEY_COLUMNS + ", auditvalue, auditmodifiedby, auditcreated, audittype " +
+        "from " + STAGING_TABLE + " where audittype is not null order by seq";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private volatile Boolean copySupported;
+
+    // -------------------------------------------------------------------------
+    // DataValueCopyStore implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isCopySupported()
+    {
+        if ( copySupported == null )
+        {
+            copySupported = jdbcTemplate.execute( (ConnectionCallback<Boolean>) connection ->
+                connection.isWrapperFor( PGConnection.class ) );
+
+            log.info( "Data value copy supported: " + copySupported );
+        }
+
+        return copySupported;
+    }
+
+    @Override
+    public void copyDataValues( List<DataValue> dataValues, List<DataValueAudit> audits )
+    {
+        if ( dataValues.isEmpty() )
+        {
+            return;
+        }
+
+        String csv = getCsv( dataValues, audits );
+
+        transactionTemplate.execute( status -> jdbcTemplate.execute( (ConnectionCallback<Void>) connection ->
+        {
+            try ( Statement statement = connection.createStatement() )
+            {
+                statement.execute( CREATE_STAGING_TABLE_SQL );
+                statement.execute( "truncate " + STAGING_TABLE );
+
+                CopyManager copyManager = connection.unwrap( PGConnection.class ).getCopyAPI();
+
+                copyManager.copyIn( COPY_SQL, new StringReader( csv ) );
+
+                int merged = statement.executeUpdate( MERGE_SQL );
+                int audited = statement.executeUpdate( AUDIT_SQL );
+
+                statement.execute( "truncate " + STAGING_TABLE );
+
+                log.debug( "Copied data values: " + dataValues.size() + ", merged: " + merged + ", audits: " + audited );
+            }
+            catch ( IOException ex )
+            {
+                throw new SQLException( "Failed to copy data values", ex );
+            }
+
+            return null;
+        } ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Gets the staging rows for the given data values and audits in CSV
+     * format, where an unquoted empty field is null.
+     */
+    private String getCsv( List<DataValue> dataValues, List<DataValueAudit> audits )
+    {
+        StringBuilder csv = new StringBuilder();
+
+        for ( int i = 0; i < dataValues.size(); i++ )
+        {
+            DataValue dv = dataValues.get( i );
+            DataValueAudit audit = audits.get( i );
+
+            csv.append( i ).append( ',' )
+                .append( dv.getDataElement().getId() ).append( ',' )
+                .append( dv.getPeriod().getId() ).append( ',' )
+                .append( dv.getSource().getId() ).append( ',' )
+                .append( dv.getCategoryOptionCombo().getId() ).append( ',' )
+                .append( dv.getAttributeOptionCombo().getId() ).append( ',' )
+                .append( quote( dv.getValue() ) ).append( ',' )
+                .append( quote( dv.getStoredBy() ) ).append( ',' )
+                .append( quote( getLongDateString( dv.getCreated() ) ) ).append( ',' )
+                .append( quote( getLongDateString( dv.getLastUpdated() ) ) ).append( ',' )
+                .append( quote( dv.getComment() ) ).append( ',' )
+                .append( dv.isFollowup() ).append( ',' )
+                .append( dv.isDeleted() ).append( ',' );
+
+            if ( audit != null )
+            {
+                csv.append( quote( audit.getValue() ) ).append( ',' )
+                    .append( quote( audit.getModifiedBy() ) ).append( ',' )
+                    .append( quote( getLongDateString( audit.getCreated() ) ) ).append( ',' )
+                    .append( quote( audit.getAuditType().toString() ) );
+            }
+            else
+            {
+                csv.append( ",,," );
+            }
+
+            csv.append( '\n' );
+        }
+
+        return csv.toString();
+    }
+
+    /**
+     * Quotes a CSV field, or returns an empty string for null.
+     */
+    private String quote( String value )
+    {
+        return value == null ? "" : "\"" + value.replace( "\"", "\"\"" ) + "\"";
+    }
+}
@@ -37,6 +37,7 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Date;
 
 import org.apache.commons.logging.Log;
@@ -52,6 +53,7 @@ import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.staxwax.factory.XMLFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 
@@ -67,6 +69,11 @@ public class SpringDataValueSetStore
 
     private static final char CSV_DELIM = ',';
 
+    /**
+     * Number of rows fetched from the database at a time.
+     */
+    private static final int FETCH_SIZE = 10000;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -165,7 +172,7 @@ public class SpringDataValueSetStore
 
         final Calendar calendar = PeriodType.getCalendar();
 
-        jdbcTemplate.query( sql, new RowCallbackHandler()
+        query( sql, new RowCallbackHandler()
         {
             @Override
             public void processRow( ResultSet rs ) throws SQLException
@@ -202,6 +209,51 @@ public class SpringDataValueSetStore
     // Supportive methods
     //--------------------------------------------------------------------------
 
+    /**
+     * Runs the given query and passes each row to the given handler as it is
+     * fetched. Rows are fetched in batches through a forward only result set.
+     * On PostgreSQL, this requires a transaction, as the driver otherwise
+     * reads the entire result into memory. If the connection is in auto-commit
+     * mode, a transaction is started for the duration of the query.
+     *
+     * @param sql the query.
+     * @param handler the row handler.
+     */
+    private void query( final String sql, final RowCallbackHandler handler )
+    {
+        jdbcTemplate.execute( (ConnectionCallback<Object>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+
+            if ( autoCommit )
+            {
+                connection.setAutoCommit( false );
+            }
+
+            try ( Statement statement = connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( FETCH_SIZE );
+
+                try ( ResultSet rs = statement.executeQuery( sql ) )
+                {
+                    while ( rs.next() )
+                    {
+                        handler.processRow( rs );
+                    }
+                }
+            }
+            finally
+            {
+                if ( autoCommit )
+                {
+                    connection.rollback();
+                    connection.setAutoCommit( true );
+                }
+            }
+
+            return null;
+        } );
+    }
+
     private String getDataValueSql( DataExportParams params )
     {
         IdSchemes idScheme = params.getOutputIdSchemes() != null ? params.getOutputIdSchemes() : new IdSchemes();
@@ -341,6 +393,22 @@ public class SpringDataValueSetStore
             sql += "and dv.lastupdated >= '" + getLongGmtDateString( DateUtils.nowMinusDuration( params.getLastUpdatedDuration() ) ) + "' ";
         }
 
+        if ( params.hasResumeAfter() )
+        {
+            org.hisp.dhis.datavalue.DataValue key = params.getResumeAfter();
+
+            sql += "and (dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid) > (" +
+                key.getDataElement().getId() + ", " + key.getPeriod().getId() + ", " + key.getSource().getId() + ", " +
+                key.getCategoryOptionCombo().getId() + ", " + key.getAttributeOptionCombo().getId() + ") ";
+        }
+
+        if ( params.hasLimit() || params.hasResumeAfter() )
+        {
+            // Primary key order, so that limited exports can be resumed by key
+
+            sql += "order by dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid ";
+        }
+
         if ( params.hasLimit() )
         {
             sql += "limit " + params.getLimit();
@@ -40,6 +40,7 @@ import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.JobConfigurationService;
 import org.hisp.dhis.scheduling.JobParameters;
 import org.hisp.dhis.scheduling.SchedulingManager;
+import org.hisp.dhis.scheduling.parameters.MonitoringJobParameters;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.support.CronSequenceGenerator;
 
@@ -224,6 +225,7 @@ public class JobConfigurationObjectBundleHook
 
         JobConfiguration jobConfiguration = (JobConfiguration) object;
         ensureDefaultJobParametersAreUsedIfNoOtherArePresent( jobConfiguration );
+        keepMonitoringJobState( jobConfiguration, null );
     }
 
     @Override
@@ -247,6 +249,7 @@ public class JobConfigurationObjectBundleHook
         }
 
         ensureDefaultJobParametersAreUsedIfNoOtherArePresent( newObject );
+        keepMonitoringJobState( newObject, persObject );
 
         schedulingManager.stopJob( (JobConfiguration) persistedObject );
     }
@@ -306,6 +309,31 @@ public class JobConfigurationObjectBundleHook
         }
     }
 
+    /**
+     * Sets the last successful run of a monitoring job to the one of the
+     * persisted job configuration. The last successful run is internal state
+     * of the job, which is not set by clients.
+     *
+     * @param jobConfiguration the created or updated job configuration.
+     * @param persistedObject the persisted job configuration, or null if the
+     *        job configuration is created.
+     */
+    private void keepMonitoringJobState( JobConfiguration jobConfiguration, JobConfiguration persistedObject )
+    {
+        if ( !( jobConfiguration.getJobParameters() instanceof MonitoringJobParameters ) )
+        {
+            return;
+        }
+
+        MonitoringJobParameters parameters = (MonitoringJobParameters) jobConfiguration.getJobParameters();
+        MonitoringJobParameters persistedParameters = persistedObject != null &&
+            persistedObject.getJobParameters() instanceof MonitoringJobParameters ?
+            (MonitoringJobParameters) persistedObject.getJobParameters() : null;
+
+        parameters.setLastSuccessfulRun( persistedParameters != null ? persistedParameters.getLastSuccessfulRun() : null );
+        parameters.setLastSuccessfulRunKey( persistedParameters != null ? persistedParameters.getLastSuccessfulRunKey() : null );
+    }
+
     private JobParameters getDefaultJobParameters( JobConfiguration jobConfiguration )
     {
         if ( jobConfiguration.getJobType().getJobParameters() == null )
@@ -0,0 +1,183 @@
+package org.hisp.dhis.dxf2.adx;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.common.DataDimensionType;
+import org.hisp.dhis.common.IdScheme;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
+import org.hisp.dhis.dxf2.importsummary.ImportCount;
+import org.hisp.dhis.dxf2.importsummary.ImportStatus;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.system.notification.Notifier;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class DefaultAdxDataServiceTest
+{
+    private static final String GROUP_A = "<group dataSet=\"dsA\" orgUnit=\"ouA\" period=\"2019-01-01/P1M\">" +
+        "<dataValue dataElement=\"deA\" value=\"1\" />" +
+        "<dataValue dataElement=\"deB\" value=\"2\" />" +
+        "</group>";
+
+    private static final String GROUP_B = "<group dataSet=\"dsA\" orgUnit=\"ouB\" period=\"2019-02-01/P1M\">" +
+        "<dataValue dataElement=\"deA\" value=\"3\" />" +
+        "<dataValue dataElement=\"deX\" value=\"4\" />" +
+        "</group>";
+
+    private static final String GROUP_WITHOUT_ORG_UNIT = "<group dataSet=\"dsA\" period=\"2019-03-01/P1M\">" +
+        "<dataValue dataElement=\"deA\" value=\"5\" />" +
+        "</group>";
+
+    @Mock
+    private DataValueSetService dataValueSetService;
+
+    @Mock
+    private IdentifiableObjectManager identifiableObjectManager;
+
+    @Mock( answer = Answers.RETURNS_SELF )
+    private Notifier notifier;
+
+    @InjectMocks
+    private DefaultAdxDataService adxDataService;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private final List<DataValue> importedValues = new ArrayList<>();
+
+    @Before
+    public void setUp()
+    {
+        CategoryCombo defaultCombo = new CategoryCombo( CategoryCombo.DEFAULT_CATEGORY_COMBO_NAME, DataDimensionType.DISAGGREGATION );
+
+        DataSet dataSetA = new DataSet( "DataSetA", new MonthlyPeriodType() );
+        dataSetA.setUid( "dsabcdefghA" );
+        dataSetA.setCategoryCombo( defaultCombo );
+
+        DataElement dataElementA = new DataElement( "DataElementA" );
+        dataElementA.setUid( "deabcdefghA" );
+        dataElementA.setValueType( ValueType.INTEGER );
+        dataElementA.setCategoryCombo( defaultCombo );
+
+        DataElement dataElementB = new DataElement( "DataElementB" );
+        dataElementB.setUid( "deabcdefghB" );
+        dataElementB.setValueType( ValueType.INTEGER );
+        dataElementB.setCategoryCombo( defaultCombo );
+
+        when( identifiableObjectManager.getObject( eq( DataSet.class ), any( IdScheme.class ), eq( "dsA" ) ) ).thenReturn( dataSetA );
+        when( identifiableObjectManager.getObject( eq( DataElement.class ), any( IdScheme.class ), eq( "deA" ) ) ).thenReturn( dataElementA );
+        when( identifiableObjectManager.getObject( eq( DataElement.class ), any( IdScheme.class ), eq( "deB" ) ) ).thenReturn( dataElementB );
+
+        when( dataValueSetService.saveDataValueSet( any( DataValueSet.class ), any( ImportOptions.class ), any() ) ).thenAnswer( invocation -> {
+            DataValueSet dataValueSet = invocation.getArgument( 0 );
+
+            while ( dataValueSet.hasNextDataValue() )
+            {
+                importedValues.add( dataValueSet.getNextDataValue() );
+            }
+
+            return new ImportSummary( ImportStatus.SUCCESS, "Import process completed successfully",
+                new ImportCount( importedValues.size(), 0, 0, 0 ) );
+        } );
+    }
+
+    @Test
+    public void testSaveDataValueSet()
+    {
+        ImportSummary summary = saveDataValueSet( GROUP_A + GROUP_B );
+
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        assertEquals( 3, importedValues.size() );
+        assertEquals( 3, summary.getImportCount().getImported() );
+        assertEquals( 1, summary.getImportCount().getIgnored() );
+        assertEquals( 1, summary.getConflicts().size() );
+
+        DataValue dataValue = importedValues.get( 2 );
+
+        assertEquals( "deA", dataValue.getDataElement() );
+        assertEquals( "201902", dataValue.getPeriod() );
+        assertEquals( "ouB", dataValue.getOrgUnit() );
+        assertEquals( "3", dataValue.getValue() );
+    }
+
+    @Test
+    public void testSaveDataValueSetGroupErrorAfterSavedGroups()
+    {
+        ImportSummary summary = saveDataValueSet( GROUP_A + GROUP_WITHOUT_ORG_UNIT );
+
+        assertEquals( ImportStatus.WARNING, summary.getStatus() );
+        assertEquals( 2, importedValues.size() );
+        assertEquals( 2, summary.getImportCount().getImported() );
+        assertEquals( 1, summary.getConflicts().size() );
+    }
+
+    @Test
+    public void testSaveDataValueSetGroupErrorInFirstGroup()
+    {
+        ImportSummary summary = saveDataValueSet( GROUP_WITHOUT_ORG_UNIT + GROUP_A );
+
+        assertEquals( ImportStatus.ERROR, summary.getStatus() );
+        assertEquals( 0, importedValues.size() );
+        assertEquals( 0, summary.getImportCount().getImported() );
+        assertEquals( 1, summary.getConflicts().size() );
+    }
+
+    private ImportSummary saveDataValueSet( String groups )
+    {
+        String adx = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><adx xmlns=\"urn:ihe:qrph:adx:2015\">" + groups + "</adx>";
+
+        return adxDataService.saveDataValueSet( new ByteArrayInputStream( adx.getBytes( StandardCharsets.UTF_8 ) ),
+            ImportOptions.getDefaultImportOptions(), null );
+    }
+}
@@ -47,9 +47,12 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.importexport.ImportStrategy;
 import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
 import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
@@ -83,6 +86,8 @@ import java.util.Date;
 import java.util.List;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
 
 /**
  * @author Lars Helge Overland
@@ -110,6 +115,9 @@ public class DataValueSetServiceTest
     @Autowired
     private DataValueSetService dataValueSetService;
 
+    @Autowired
+    private DataValueService dataValueService;
+
     @Autowired
     private CompleteDataSetRegistrationService registrationService;
 
@@ -122,6 +130,9 @@ public class DataValueSetServiceTest
     @Autowired
     private UserService _userService;
 
+    @Autowired
+    private DhisConfigurationProvider config;
+
     private Attribute attribute;
 
     private CategoryOptionCombo ocDef;
@@ -338,6 +349,64 @@ public class DataValueSetServiceTest
         assertEquals( 0, auditValues.size() );
     }
 
+    @Test
+    public void testImportDataValueSetXmlWithWriterThreads()
+        throws Exception
+    {
+        setImportThreads( "2" );
+
+        try
+        {
+            in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
+
+            ImportSummary summary = dataValueSetService.saveDataValueSet( in );
+
+            assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+            assertEquals( 3, summary.getImportCount().getImported() );
+
+            List<DataValue> dataValues = mockDataValueBatchHandler.getInserts();
+
+            assertEquals( 3, dataValues.size() );
+            assertTrue( dataValues.contains( new DataValue( deA, peA, ouA, ocDef, ocDef ) ) );
+        }
+        finally
+        {
+            setDependency( dataValueSetService, "config", config );
+        }
+    }
+
+    @Test
+    public void testImportDataValueSetXmlWithFailingWriterThread()
+        throws Exception
+    {
+        MockBatchHandler<DataValue> failingBatchHandler = new MockBatchHandler<DataValue>()
+        {
+            @Override
+            public boolean addObject( DataValue object )
+            {
+                throw new IllegalStateException( "Failed to write data value" );
+            }
+        };
+
+        mockBatchHandlerFactory.registerBatchHandler( DataValueBatchHandler.class, failingBatchHandler );
+
+        setImportThreads( "2" );
+
+        try
+        {
+            in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
+
+            ImportSummary summary = dataValueSetService.saveDataValueSet( in );
+
+            assertEquals( ImportStatus.ERROR, summary.getStatus() );
+            assertTrue( failingBatchHandler.getInserts().isEmpty() );
+        }
+        finally
+        {
+            setDependency( dataValueSetService, "config", config );
+        }
+    }
+
     @Test
     public void testImportDataValueSetXmlPreheatCache()
         throws Exception
@@ -938,7 +1007,7 @@ public class DataValueSetServiceTest
     public void testImportDataValuesUpdatedAudit()
         throws Exception
     {
-        mockDataValueBatchHandler.withFindSelf( true );
+        addExistingDataValues();
 
         in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
 
@@ -965,7 +1034,7 @@ public class DataValueSetServiceTest
     public void testImportDataValuesUpdatedSkipAudit()
         throws Exception
     {
-        mockDataValueBatchHandler.withFindSelf( true );
+        addExistingDataValues();
 
         in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
 
@@ -1215,10 +1284,29 @@ public class DataValueSetServiceTest
         assertTrue( dataValues.contains( new DataValue( deC, peB, ouB, ocDef, ocDef ) ) );
     }
 
+    /**
+     * Adds stored values for the data values of dataValueSetA.xml.
+     */
+    private void addExistingDataValues()
+    {
+        dataValueService.addDataValue( new DataValue( deA, peA, ouA, ocDef, ocDef, "10000" ) );
+        dataValueService.addDataValue( new DataValue( deA, peA, ouB, ocDef, ocDef, "10000" ) );
+        dataValueService.addDataValue( new DataValue( deA, peB, ouA, ocDef, ocDef, "10000" ) );
+    }
+
     private Period createMonthlyPeriod( Date monthStart )
     {
         Date monthEnd = DateUtils.addDays( DateUtils.addMonths( monthStart, 1 ), -1 );
 
         return createPeriod( PeriodType.getByNameIgnoreCase( MonthlyPeriodType.NAME ), monthStart, monthEnd );
     }
+
+    private void setImportThreads( String importThreads )
+    {
+        DhisConfigurationProvider importConfig = spy( config );
+
+        doReturn( importThreads ).when( importConfig ).getProperty( ConfigurationKey.DATA_IMPORT_THREADS );
+
+        setDependency( dataValueSetService, "config", importConfig );
+    }
 }
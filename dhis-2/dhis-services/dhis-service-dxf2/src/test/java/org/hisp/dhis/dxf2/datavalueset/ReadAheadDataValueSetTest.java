@@ -0,0 +1,174 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.junit.Test;
+
+public class ReadAheadDataValueSetTest
+{
+    @Test
+    public void testReadAhead()
+    {
+        DataValueSet source = new DataValueSet();
+        source.setDataSet( "dataSetA" );
+        source.setOrgUnit( "orgUnitA" );
+
+        List<DataValue> dataValues = new ArrayList<>();
+
+        for ( int i = 0; i < 2500; i++ )
+        {
+            DataValue dataValue = new DataValue();
+            dataValue.setDataElement( "dataElementA" );
+            dataValue.setPeriod( "201901" );
+            dataValue.setValue( String.valueOf( i ) );
+            dataValues.add( dataValue );
+        }
+
+        source.setDataValues( dataValues );
+
+        DataValueSet dataValueSet = new ReadAheadDataValueSet( source );
+
+        assertEquals( "dataSetA", dataValueSet.getDataSet() );
+        assertEquals( "orgUnitA", dataValueSet.getOrgUnit() );
+
+        int count = 0;
+
+        while ( dataValueSet.hasNextDataValue() )
+        {
+            DataValue dataValue = dataValueSet.getNextDataValue();
+
+            assertEquals( "dataElementA", dataValue.getDataElement() );
+            assertEquals( String.valueOf( count++ ), dataValue.getValue() );
+        }
+
+        assertEquals( 2500, count );
+        assertFalse( dataValueSet.hasNextDataValue() );
+
+        dataValueSet.close();
+    }
+
+    @Test( timeout = 10000 )
+    public void testReadException()
+    {
+        DataValueSet source = new DataValueSet()
+        {
+            private int count = 0;
+
+            @Override
+            public boolean hasNextDataValue()
+            {
+                if ( count == 1500 )
+                {
+                    throw new IllegalArgumentException( "Invalid data value" );
+                }
+
+                return true;
+            }
+
+            @Override
+            public DataValue getNextDataValue()
+            {
+                DataValue dataValue = new DataValue();
+                dataValue.setValue( String.valueOf( count++ ) );
+                return dataValue;
+            }
+        };
+
+        DataValueSet dataValueSet = new ReadAheadDataValueSet( source );
+
+        int count = 0;
+
+        try
+        {
+            while ( dataValueSet.hasNextDataValue() )
+            {
+                dataValueSet.getNextDataValue();
+                count++;
+            }
+
+            fail( "Read exception was not thrown" );
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            assertEquals( "Invalid data value", ex.getMessage() );
+        }
+        finally
+        {
+            dataValueSet.close();
+        }
+
+        assertEquals( 1500, count );
+    }
+
+    @Test( timeout = 10000 )
+    public void testCloseBeforeEndOfData()
+    {
+        AtomicBoolean closed = new AtomicBoolean( false );
+
+        DataValueSet source = new DataValueSet()
+        {
+            @Override
+            public boolean hasNextDataValue()
+            {
+                return true;
+            }
+
+            @Override
+            public DataValue getNextDataValue()
+            {
+                return new DataValue();
+            }
+
+            @Override
+            public void close()
+            {
+                closed.set( true );
+            }
+        };
+
+        DataValueSet dataValueSet = new ReadAheadDataValueSet( source );
+
+        assertTrue( dataValueSet.hasNextDataValue() );
+        dataValueSet.getNextDataValue();
+
+        dataValueSet.close();
+
+        assertTrue( closed.get() );
+    }
+}
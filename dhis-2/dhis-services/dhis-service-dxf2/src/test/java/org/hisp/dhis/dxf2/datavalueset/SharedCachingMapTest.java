@@ -0,0 +1,105 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.common.DefaultMetadataChangeTracker;
+import org.hisp.dhis.common.MetadataChangeTracker;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dxf2.datavalueset.DefaultDataValueSetService.SharedCachingMap;
+import org.junit.Test;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+public class SharedCachingMapTest
+{
+    private final Cache<String, Object> cache = Caffeine.newBuilder().build();
+
+    private final MetadataChangeTracker tracker = new DefaultMetadataChangeTracker();
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Test
+    public void testSharedBetweenImports()
+    {
+        tracker.setEnabled( true );
+
+        String version = tracker.getVersion( DataElement.class ) + ":";
+
+        assertEquals( "valueA", newMap( version ).get( "keyA", this::lookup ) );
+        assertEquals( "valueA", newMap( version ).get( "keyA", this::lookup ) );
+        assertEquals( 1, lookups.get() );
+    }
+
+    @Test
+    public void testNotSharedAfterChange()
+    {
+        tracker.setEnabled( true );
+
+        String version = tracker.getVersion( DataElement.class ) + ":";
+
+        assertEquals( "valueA", newMap( version ).get( "keyA", this::lookup ) );
+
+        tracker.registerChange( DataElement.class );
+
+        version = tracker.getVersion( DataElement.class ) + ":";
+
+        assertEquals( "valueA", newMap( version ).get( "keyA", this::lookup ) );
+        assertEquals( 2, lookups.get() );
+    }
+
+    @Test
+    public void testNotSharedWhenTrackerDisabled()
+    {
+        tracker.setEnabled( false );
+
+        SharedCachingMap<String> mapA = newMap( "0:" );
+
+        assertEquals( "valueA", mapA.get( "keyA", this::lookup ) );
+        assertEquals( "valueA", mapA.get( "keyA", this::lookup ) );
+        assertEquals( "valueA", newMap( "0:" ).get( "keyA", this::lookup ) );
+        assertEquals( 2, lookups.get() );
+        assertEquals( 0, cache.estimatedSize() );
+    }
+
+    private SharedCachingMap<String> newMap( String version )
+    {
+        return new SharedCachingMap<>( cache, tracker, version + "test:" );
+    }
+
+    private String lookup()
+    {
+        lookups.incrementAndGet();
+        return "valueA";
+    }
+}
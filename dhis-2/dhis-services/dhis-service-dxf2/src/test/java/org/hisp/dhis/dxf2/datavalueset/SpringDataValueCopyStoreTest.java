@@ -0,0 +1,169 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+
+public class SpringDataValueCopyStoreTest
+{
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private PGConnection pgConnection;
+
+    @Mock
+    private CopyManager copyManager;
+
+    @InjectMocks
+    private SpringDataValueCopyStore copyStore;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private final TransactionStatus transactionStatus = new SimpleTransactionStatus();
+
+    private List<DataValue> dataValues;
+
+    private List<DataValueAudit> audits;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        transactionTemplate.setTransactionManager( transactionManager );
+
+        when( transactionManager.getTransaction( any() ) ).thenReturn( transactionStatus );
+        when( jdbcTemplate.execute( any( ConnectionCallback.class ) ) ).thenAnswer( invocation -> {
+            try
+            {
+                return invocation.<ConnectionCallback<?>>getArgument( 0 ).doInConnection( connection );
+            }
+            catch ( SQLException ex )
+            {
+                throw new UncategorizedSQLException( "Copy data values", null, ex );
+            }
+        } );
+        when( connection.createStatement() ).thenReturn( statement );
+        when( connection.unwrap( PGConnection.class ) ).thenReturn( pgConnection );
+        when( pgConnection.getCopyAPI() ).thenReturn( copyManager );
+
+        DataElement dataElement = new DataElement( "DataElementA" );
+        dataElement.setId( 1 );
+        Period period = new Period();
+        period.setId( 2 );
+        OrganisationUnit orgUnit = new OrganisationUnit( "OrgUnitA" );
+        orgUnit.setId( 3 );
+        CategoryOptionCombo optionCombo = new CategoryOptionCombo();
+        optionCombo.setId( 4 );
+
+        dataValues = Lists.newArrayList( new DataValue( dataElement, period, orgUnit, optionCombo, optionCombo, "10" ) );
+        audits = Lists.newArrayList( (DataValueAudit) null );
+    }
+
+    @Test
+    public void testCopyDataValues()
+        throws Exception
+    {
+        copyStore.copyDataValues( dataValues, audits );
+
+        verify( copyManager ).copyIn( startsWith( "copy datavalue_import_staging" ), any( Reader.class ) );
+        verify( statement ).executeUpdate( startsWith( "insert into datavalue (" ) );
+        verify( statement ).executeUpdate( startsWith( "insert into datavalueaudit (" ) );
+        verify( transactionManager ).commit( transactionStatus );
+        verify( transactionManager, never() ).rollback( any() );
+    }
+
+    @Test( expected = UncategorizedSQLException.class )
+    public void testCopyDataValuesRollsBackFailedMerge()
+        throws Exception
+    {
+        when( statement.executeUpdate( startsWith( "insert into datavalue (" ) ) ).thenThrow( new SQLException( "Merge failed" ) );
+
+        try
+        {
+            copyStore.copyDataValues( dataValues, audits );
+        }
+        finally
+        {
+            verify( copyManager ).copyIn( startsWith( "copy datavalue_import_staging" ), any( Reader.class ) );
+            verify( statement, never() ).executeUpdate( startsWith( "insert into datavalueaudit (" ) );
+            verify( transactionManager ).rollback( transactionStatus );
+            verify( transactionManager, never() ).commit( any() );
+        }
+    }
+}
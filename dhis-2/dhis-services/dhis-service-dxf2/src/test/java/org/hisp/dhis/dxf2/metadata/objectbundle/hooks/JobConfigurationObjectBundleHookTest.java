@@ -35,6 +35,7 @@ import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.JobConfigurationService;
 import org.hisp.dhis.scheduling.JobType;
 import org.hisp.dhis.scheduling.SchedulingManager;
+import org.hisp.dhis.scheduling.parameters.MonitoringJobParameters;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -45,6 +46,7 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -197,4 +199,48 @@ public class JobConfigurationObjectBundleHookTest
         List<ErrorReport> errorReports = hook.validateInternal( jobConfiguration );
         Assert.assertEquals( 0, errorReports.size() );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void preUpdateKeepsMonitoringJobState()
+    {
+        Date lastSuccessfulRun = new Date();
+
+        MonitoringJobParameters persistedParameters = new MonitoringJobParameters();
+        persistedParameters.setLastSuccessfulRun( lastSuccessfulRun );
+        persistedParameters.setLastSuccessfulRunKey( "runKey" );
+
+        JobConfiguration persistedJobConfiguration = new JobConfiguration();
+        persistedJobConfiguration.setJobType( JobType.MONITORING );
+        persistedJobConfiguration.setJobParameters( persistedParameters );
+
+        MonitoringJobParameters parameters = new MonitoringJobParameters();
+        parameters.setLastSuccessfulRun( new Date( 0 ) );
+        parameters.setLastSuccessfulRunKey( "clientKey" );
+
+        JobConfiguration jobConfiguration = new JobConfiguration();
+        jobConfiguration.setJobType( JobType.MONITORING );
+        jobConfiguration.setJobParameters( parameters );
+
+        hook.preUpdate( jobConfiguration, persistedJobConfiguration, null );
+
+        Assert.assertEquals( lastSuccessfulRun, parameters.getLastSuccessfulRun() );
+        Assert.assertEquals( "runKey", parameters.getLastSuccessfulRunKey() );
+    }
+
+    @Test
+    public void preCreateIgnoresMonitoringJobState()
+    {
+        MonitoringJobParameters parameters = new MonitoringJobParameters();
+        parameters.setLastSuccessfulRun( new Date() );
+        parameters.setLastSuccessfulRunKey( "clientKey" );
+
+        JobConfiguration jobConfiguration = new JobConfiguration();
+        jobConfiguration.setJobType( JobType.MONITORING );
+        jobConfiguration.setJobParameters( parameters );
+
+        hook.preCreate( jobConfiguration, null );
+
+        Assert.assertNull( parameters.getLastSuccessfulRun() );
+        Assert.assertNull( parameters.getLastSuccessfulRunKey() );
+    }
+}
@@ -34,12 +34,19 @@ import static org.hisp.dhis.system.util.ValidationUtils.dataValueIsZeroAndInsign
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -59,7 +66,10 @@ import org.hisp.dhis.common.ListMapMap;
 import org.hisp.dhis.common.Map4;
 import org.hisp.dhis.common.MapMap;
 import org.hisp.dhis.common.MapMapMap;
+import org.hisp.dhis.common.SetMap;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementOperand;
@@ -70,6 +80,9 @@ import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.expression.MissingValueStrategy;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.hibernate.HibernateUtils;
 import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
@@ -81,6 +94,8 @@ import org.hisp.dhis.program.AnalyticsType;
 import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.parameters.PredictorJobParameters;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.notification.NotificationLevel;
 import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.MathUtils;
@@ -90,7 +105,12 @@ import org.hisp.dhis.util.DateUtils;
 import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -104,6 +124,14 @@ public class DefaultPredictionService
 {
     private static final Log log = LogFactory.getLog( DefaultPredictionService.class );
 
+    private static final int ORG_UNITS_PER_BATCH = 500;
+
+    /**
+     * Each concurrent batch holds a database connection, so batches may only
+     * use this share of the connection pool.
+     */
+    private static final int CONNECTION_POOL_SHARE_DIVISOR = 4;
+
     @Autowired
     private PredictorService predictorService;
 
@@ -137,11 +165,30 @@ public class DefaultPredictionService
     @Autowired
     private BatchHandlerFactory batchHandlerFactory;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
+    @Autowired
+    private DhisConfigurationProvider config;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     public void setAnalyticsService( AnalyticsService analyticsService )
     {
         this.analyticsService = analyticsService;
     }
 
+    private int orgUnitsPerBatch = ORG_UNITS_PER_BATCH;
+
+    public void setOrgUnitsPerBatch( int orgUnitsPerBatch )
+    {
+        this.orgUnitsPerBatch = orgUnitsPerBatch;
+    }
+
     @Autowired
     private CurrentUserService currentUserService;
 
@@ -162,12 +209,20 @@ public class DefaultPredictionService
         Date startDate = DateUtils.getDateAfterAddition( new Date(), params.getRelativeStart() );
         Date endDate = DateUtils.getDateAfterAddition( new Date(), params.getRelativeEnd() );
 
-        return predictTask( startDate, endDate, params.getPredictors(), params.getPredictorGroups(), jobId );
+        return predictTask( startDate, endDate, params.getPredictors(), params.getPredictorGroups(),
+            params.isIncremental(), jobId );
     }
 
     @Override
     public PredictionSummary predictTask( Date startDate, Date endDate,
         List<String> predictors, List<String> predictorGroups, JobConfiguration jobId )
+    {
+        return predictTask( startDate, endDate, predictors, predictorGroups, false, jobId );
+    }
+
+    @Override
+    public PredictionSummary predictTask( Date startDate, Date endDate,
+        List<String> predictors, List<String> predictorGroups, boolean incremental, JobConfiguration jobId )
     {
         PredictionSummary predictionSummary;
 
@@ -175,7 +230,7 @@ public class DefaultPredictionService
         {
             notifier.notify( jobId, NotificationLevel.INFO, "Making predictions", false );
 
-            predictionSummary = predictInternal( startDate, endDate, predictors, predictorGroups );
+            predictionSummary = predictInternal( startDate, endDate, predictors, predictorGroups, incremental );
 
             notifier.update( jobId, NotificationLevel.INFO, "Prediction done", true )
                 .addJobSummary( jobId, predictionSummary, PredictionSummary.class );
@@ -192,7 +247,8 @@ public class DefaultPredictionService
         return predictionSummary;
     }
 
-    private PredictionSummary predictInternal( Date startDate, Date endDate, List<String> predictors, List<String> predictorGroups )
+    private PredictionSummary predictInternal( Date startDate, Date endDate, List<String> predictors,
+        List<String> predictorGroups, boolean incremental )
     {
         List<Predictor> predictorList = new ArrayList<>();
 
@@ -222,11 +278,30 @@ public class DefaultPredictionService
 
         log.info( "Running " + predictorList.size() + " predictors from " + startDate.toString() + " to " + endDate.toString() );
 
-        for ( Predictor predictor : predictorList )
+        ExecutorService executor = newExecutor();
+
+        PredictionDataCache dataCache = new PredictionDataCache();
+
+        try
+        {
+            for ( List<Predictor> independentPredictors : getIndependentPredictors( predictorList ) )
+            {
+                predict( independentPredictors, startDate, endDate, incremental, predictionSummary, executor, dataCache );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        if ( predictionSummary.getIncrementalPredictors() > 0 )
         {
-            predict( predictor, startDate, endDate, predictionSummary );
+            predictionSummary.setDescription( "Predictors run incrementally: " + predictionSummary.getIncrementalPredictors() +
+                ", changes to input data which are not detected by incremental runs are predicted by the next full run" );
         }
 
+        log.debug( "Prediction data cache: " + dataCache.getStats() );
+
         log.info( "Finished predictors from " + startDate.toString() + " to " + endDate.toString() + ": " + predictionSummary.toString() );
 
         return predictionSummary;
@@ -235,129 +310,567 @@ public class DefaultPredictionService
     @Override
     public void predict( Predictor predictor, Date startDate, Date endDate, PredictionSummary predictionSummary )
     {
-        Expression generator = predictor.getGenerator();
-        Expression skipTest = predictor.getSampleSkipTest();
-        DataElement outputDataElement = predictor.getOutput();
+        ExecutorService executor = newExecutor();
+
+        try
+        {
+            predict( Lists.newArrayList( predictor ), startDate, endDate, false, predictionSummary, executor,
+                new PredictionDataCache() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs predictors which are independent of each other. The organisation
+     * unit levels of each predictor are processed in turn, and the batches of
+     * organisation units of a level are predicted concurrently for all the
+     * predictors. The counts of each batch are merged into the summary in
+     * submission order. The input data watermark of each predictor is saved
+     * once all its levels are done, and cached sample data of the outputs is
+     * dropped so that later predictors read the new values.
+     *
+     * @param predictors the independent predictors.
+     * @param startDate the start date of the output periods.
+     * @param endDate the end date of the output periods.
+     * @param incremental whether to predict only where sample data changed.
+     * @param predictionSummary the prediction summary to update.
+     * @param executor the executor to run the batches on.
+     * @param dataCache the sample data cache shared by the predictors of the job.
+     */
+    private void predict( List<Predictor> predictors, Date startDate, Date endDate, boolean incremental,
+        PredictionSummary predictionSummary, ExecutorService executor, PredictionDataCache dataCache )
+    {
+        List<PredictorRun> runs = new ArrayList<>();
+
+        for ( Predictor predictor : predictors )
+        {
+            PredictorRun run = getPredictorRun( predictor, startDate, endDate, incremental );
+            run.dataCache = dataCache;
+
+            runs.add( run );
+
+            predictionSummary.incrementPredictors();
+
+            if ( run.changedSince != null )
+            {
+                predictionSummary.incrementIncrementalPredictors();
+            }
+        }
+
+        int levelCount = runs.stream().mapToInt( run -> run.orgUnitLevels.size() ).max().orElse( 0 );
+
+        for ( int i = 0; i < levelCount; i++ )
+        {
+            List<Future<PredictionSummary>> futures = new ArrayList<>();
+
+            for ( PredictorRun run : runs )
+            {
+                if ( i >= run.orgUnitLevels.size() )
+                {
+                    continue;
+                }
+
+                List<OrganisationUnit> orgUnitsAtLevel = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
+                    Lists.newArrayList( run.orgUnitLevels.get( i ) ), run.currentUserOrgUnits );
+
+                for ( List<OrganisationUnit> orgUnits : Lists.partition( orgUnitsAtLevel, orgUnitsPerBatch ) )
+                {
+                    List<Long> orgUnitIds = orgUnits.stream().map( OrganisationUnit::getId ).collect( Collectors.toList() );
+
+                    futures.add( executor.submit( new DelegatingSecurityContextCallable<>(
+                        () -> transactionTemplate.execute( status -> predictOrgUnits( run,
+                            organisationUnitService.getOrganisationUnits( orgUnitIds ) ) ) ) ) );
+                }
+            }
+
+            for ( Future<PredictionSummary> future : futures )
+            {
+                predictionSummary.merge( getResult( future ) );
+            }
+        }
+
+        for ( PredictorRun run : runs )
+        {
+            dataCache.invalidateDataElement( run.outputDataElement.getUid() );
+
+            predictorService.savePredictorWatermark( run.predictor, run.now, startDate, endDate, run.changedSince == null );
+        }
+    }
+
+    /**
+     * Prepares everything for running a predictor which is independent of
+     * the organisation units. Output periods are persisted in a separate
+     * transaction up front, so that predictions can be written through batch
+     * handlers which do not see the uncommitted changes of this transaction.
+     *
+     * @param predictor the predictor.
+     * @param startDate the start date of the output periods.
+     * @param endDate the end date of the output periods.
+     * @param incremental whether to predict only where sample data changed.
+     * @return the predictor run.
+     */
+    private PredictorRun getPredictorRun( Predictor predictor, Date startDate, Date endDate, boolean incremental )
+    {
+        PredictorRun run = new PredictorRun();
+
+        run.predictor = predictor;
+        run.generator = predictor.getGenerator();
+        run.skipTest = predictor.getSampleSkipTest();
+        run.outputDataElement = HibernateUtils.unwrap( predictor.getOutput() );
 
-        Set<String> aggregates = new HashSet<>();
         Set<String> nonAggregates = new HashSet<>();
-        expressionService.getAggregatesAndNonAggregatesInExpression( generator.getExpression(), aggregates, nonAggregates );
-        Map<String, Double> constantMap = constantService.getConstantMap();
-        Set<Period> outputPeriods = getPeriodsBetweenDates( predictor.getPeriodType(), startDate, endDate );
-        Set<Period> existingOutputPeriods = getExistingPeriods( outputPeriods );
-        ListMap<Period, Period> samplePeriodsMap = getSamplePeriodsMap( outputPeriods, predictor );
-        Set<Period> allSamplePeriods = samplePeriodsMap.uniqueValues();
-        Set<Period> existingSamplePeriods = getExistingPeriods( allSamplePeriods );
-        Set<DimensionalItemObject> aggregateDimensionItems = getDimensionItems( aggregates, skipTest );
-        Set<DimensionalItemObject> nonAggregateDimensionItems = getDimensionItems( nonAggregates, null );
+        expressionService.getAggregatesAndNonAggregatesInExpression( run.generator.getExpression(), run.aggregates, nonAggregates );
+        run.constantMap = constantService.getConstantMap();
+        run.outputPeriods = persistPeriods( getPeriodsBetweenDates( predictor.getPeriodType(), startDate, endDate ) );
+        run.samplePeriodsMap = getSamplePeriodsMap( run.outputPeriods, predictor );
+        run.allSamplePeriods = run.samplePeriodsMap.uniqueValues();
+        run.existingSamplePeriods = getExistingPeriods( run.allSamplePeriods );
+        run.aggregateDimensionItems = getDimensionItems( run.aggregates, run.skipTest );
+        run.nonAggregateDimensionItems = getDimensionItems( nonAggregates, null );
+        run.defaultOptionComboAsSet = Sets.newHashSet( categoryService.getDefaultCategoryOptionCombo().getUid() );
+        run.usingAttributeOptions = hasAttributeOptions( run.aggregateDimensionItems ) || hasAttributeOptions( run.nonAggregateDimensionItems );
+
+        run.outputOptionCombo = HibernateUtils.unwrap( predictor.getOutputCombo() == null ?
+            categoryService.getDefaultCategoryOptionCombo() : predictor.getOutputCombo() );
+
+        run.orgUnitLevels = predictor.getOrganisationUnitLevels().stream()
+            .sorted( Comparator.comparingInt( OrganisationUnitLevel::getLevel ) )
+            .collect( Collectors.toList() );
+
         User currentUser = currentUserService.getCurrentUser();
-        Set<String> defaultOptionComboAsSet = Sets.newHashSet( categoryService.getDefaultCategoryOptionCombo().getUid() );
-        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> emptyMap4 = new Map4<>();
-        MapMapMap<Period, String, DimensionalItemObject, Double> emptyMapMapMap = new MapMapMap<>();
-        boolean usingAttributeOptions = hasAttributeOptions( aggregateDimensionItems ) || hasAttributeOptions( nonAggregateDimensionItems );
 
-        CategoryOptionCombo outputOptionCombo = predictor.getOutputCombo() == null ?
-            categoryService.getDefaultCategoryOptionCombo() : predictor.getOutputCombo();
+        if ( currentUser != null )
+        {
+            run.currentUserOrgUnits = currentUser.getOrganisationUnits();
+            run.storedBy = currentUser.getUsername();
+        }
 
-        Date now = new Date();
-        Set<OrganisationUnit> currentUserOrgUnits = new HashSet<>();
-        String storedBy = "system-process";
+        PredictorWatermark watermark = incremental ? predictorService.getPredictorWatermark( predictor ) : null;
 
-        if ( currentUser != null )
+        if ( watermark != null && !isFullRunDue( watermark ) && isIncrementalPossible( run, predictor, watermark.getWatermark() ) )
         {
-            currentUserOrgUnits = currentUser.getOrganisationUnits();
-            storedBy = currentUser.getUsername();
+            setIncrementalScope( run, watermark );
         }
 
-        predictionSummary.incrementPredictors();
+        return run;
+    }
 
-        for ( OrganisationUnitLevel orgUnitLevel : predictor.getOrganisationUnitLevels() )
+    /**
+     * Checks whether a full run is due, as the last full run is longer ago than
+     * the full run interval. Incremental runs find changed input data through
+     * the last updated time of data values, which misses hard deleted data
+     * values and data values whose transaction committed long after their
+     * last updated time, so a full run is forced periodically.
+     *
+     * @param watermark the watermark of the last run.
+     * @return true if a full run is due.
+     */
+    private boolean isFullRunDue( PredictorWatermark watermark )
+    {
+        int intervalDays = (Integer) systemSettingManager.getSystemSetting( SettingKey.PREDICTOR_FULL_RUN_INTERVAL_DAYS );
+
+        return watermark.getLastFullRun() == null ||
+            watermark.getLastFullRun().before( DateUtils.getDateAfterAddition( new Date(), -intervalDays ) );
+    }
+
+    /**
+     * Checks whether the predictions of the last run can only have been made
+     * stale by changed data values. This is not the case if the predictor or
+     * any constant changed since then, or if the predictor reads event data,
+     * which has no last updated time to compare with.
+     *
+     * @param run the predictor run.
+     * @param predictor the predictor.
+     * @param watermark the watermark of the last run.
+     * @return true if an incremental run is possible.
+     */
+    private boolean isIncrementalPossible( PredictorRun run, Predictor predictor, Date watermark )
+    {
+        if ( predictor.getLastUpdated() == null || !predictor.getLastUpdated().before( watermark ) )
         {
-            List<OrganisationUnit> orgUnitsAtLevel = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
-                Lists.newArrayList( orgUnitLevel ), currentUserOrgUnits );
+            return false;
+        }
 
-            if ( orgUnitsAtLevel.size() == 0 )
+        for ( DimensionalItemObject item : Sets.union( run.aggregateDimensionItems, run.nonAggregateDimensionItems ) )
+        {
+            if ( !( item instanceof DataElement ) && !( item instanceof DataElementOperand ) )
+            {
+                return false;
+            }
+        }
+
+        for ( Constant constant : constantService.getAllConstants() )
+        {
+            if ( constant.getLastUpdated() != null && !constant.getLastUpdated().before( watermark ) )
             {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Prepares an incremental run. Output periods which were not covered by
+     * the last run are always predicted. For the other output periods, maps
+     * the id of each period holding input data to the output periods whose
+     * predictions depend on it.
+     *
+     * @param run the predictor run.
+     * @param watermark the watermark of the last run.
+     */
+    private void setIncrementalScope( PredictorRun run, PredictorWatermark watermark )
+    {
+        // Data values written by transactions which were still open when the
+        // watermark was taken carry a last updated time before it
+
+        int marginMinutes = (Integer) systemSettingManager.getSystemSetting( SettingKey.PREDICTOR_WATERMARK_MARGIN_MINUTES );
+
+        run.changedSince = new Date( watermark.getWatermark().getTime() - TimeUnit.MINUTES.toMillis( marginMinutes ) );
+        run.fullPeriods = new HashSet<>();
+        run.dependentOutputPeriods = new SetMap<>();
+
+        Map<Period, Period> existingSamplePeriodLookup = run.existingSamplePeriods.stream()
+            .collect( Collectors.toMap( p -> p, p -> p ) );
+
+        for ( Period outputPeriod : run.outputPeriods )
+        {
+            if ( !watermark.covers( outputPeriod.getStartDate() ) || !watermark.covers( outputPeriod.getEndDate() ) )
+            {
+                run.fullPeriods.add( outputPeriod );
                 continue;
             }
 
-            List<List<OrganisationUnit>> orgUnitLists = Lists.partition(orgUnitsAtLevel, 500);
+            run.dependentOutputPeriods.putValue( outputPeriod.getId(), outputPeriod );
+
+            for ( Period samplePeriod : run.samplePeriodsMap.get( outputPeriod ) )
+            {
+                Period existingPeriod = existingSamplePeriodLookup.get( samplePeriod );
+
+                if ( existingPeriod != null )
+                {
+                    run.dependentOutputPeriods.putValue( existingPeriod.getId(), outputPeriod );
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the output periods to predict for each organisation unit of a
+     * batch in an incremental run, from the input data values which were
+     * added, updated or deleted since the last run.
+     *
+     * @param run the predictor run.
+     * @param orgUnits the organisation units of the batch.
+     * @return the output periods to predict by organisation unit id.
+     */
+    private SetMap<Long, Period> getChangedCells( PredictorRun run, List<OrganisationUnit> orgUnits )
+    {
+        SetMap<Long, Period> changedCells = new SetMap<>();
+
+        if ( run.dependentOutputPeriods.isEmpty() )
+        {
+            return changedCells;
+        }
+
+        Set<DataElement> dataElements = new HashSet<>();
+
+        for ( DimensionalItemObject item : Sets.union( run.aggregateDimensionItems, run.nonAggregateDimensionItems ) )
+        {
+            dataElements.add( item instanceof DataElementOperand ? ( (DataElementOperand) item ).getDataElement() : (DataElement) item );
+        }
+
+        Set<Period> periods = new HashSet<>( run.existingSamplePeriods );
+        periods.addAll( run.outputPeriods );
+        periods.removeIf( p -> !run.dependentOutputPeriods.containsKey( p.getId() ) );
+
+        DataExportParams params = new DataExportParams();
+        params.setDataElements( dataElements );
+        params.setPeriods( periods );
+        params.setOrganisationUnits( new HashSet<>( orgUnits ) );
+        params.setReturnParentOrgUnit( true );
+        params.setLastUpdated( run.changedSince );
+        params.setIncludeDeleted( true );
+
+        for ( DeflatedDataValue dv : dataValueService.getDeflatedDataValues( params ) )
+        {
+            Set<Period> outputPeriods = run.dependentOutputPeriods.get( dv.getPeriodId() );
 
-            for ( List<OrganisationUnit> orgUnits : orgUnitLists )
+            if ( outputPeriods != null )
             {
-                Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> aggregateDataMap4 =
-                    aggregateDimensionItems.isEmpty() ? emptyMap4 :
-                        getDataValues( aggregateDimensionItems, allSamplePeriods, existingSamplePeriods, orgUnits );
+                changedCells.putValues( dv.getSourceId(), outputPeriods );
+            }
+        }
+
+        return changedCells;
+    }
 
-                Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> nonAggregateDataMap4 =
-                    nonAggregateDimensionItems.isEmpty() ? emptyMap4 :
-                        getDataValues( nonAggregateDimensionItems, outputPeriods, existingOutputPeriods, orgUnits );
+    /**
+     * Makes the predictions for a batch of organisation units and writes them
+     * to the database. Runs concurrently with other batches, and returns the
+     * counts of the batch in a separate prediction summary.
+     *
+     * @param run the predictor run.
+     * @param orgUnits the organisation units to predict for.
+     * @return the prediction summary of the batch.
+     */
+    private PredictionSummary predictOrgUnits( PredictorRun run, List<OrganisationUnit> orgUnits )
+    {
+        SetMap<Long, Period> changedCells = null;
+        Set<String> predictedCells = null;
 
-                List<DataValue> predictions = new ArrayList<>();
+        if ( run.changedSince != null )
+        {
+            changedCells = getChangedCells( run, orgUnits );
+            predictedCells = new HashSet<>();
 
-                for ( OrganisationUnit orgUnit : orgUnits )
+            if ( run.fullPeriods.isEmpty() )
+            {
+                SetMap<Long, Period> cells = changedCells;
+
+                orgUnits = orgUnits.stream().filter( ou -> cells.containsKey( ou.getId() ) ).collect( Collectors.toList() );
+
+                if ( orgUnits.isEmpty() )
                 {
-                    MapMapMap<Period, String, DimensionalItemObject, Double> aggregateDataMap = aggregateDataMap4.get( orgUnit );
+                    return new PredictionSummary();
+                }
+            }
+        }
 
-                    MapMapMap<Period, String, DimensionalItemObject, Double> nonAggregateDataMap =
-                        firstNonNull( nonAggregateDataMap4.get( orgUnit ), emptyMapMapMap );
+        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> emptyMap4 = new Map4<>();
+        MapMapMap<Period, String, DimensionalItemObject, Double> emptyMapMapMap = new MapMapMap<>();
+
+        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> aggregateDataMap4 =
+            run.aggregateDimensionItems.isEmpty() ? emptyMap4 :
+                getCachedDataValues( run, run.aggregateDimensionItems, run.allSamplePeriods, run.existingSamplePeriods, orgUnits );
 
-                    applySkipTest( aggregateDataMap, skipTest, constantMap );
+        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> nonAggregateDataMap4 =
+            run.nonAggregateDimensionItems.isEmpty() ? emptyMap4 :
+                getCachedDataValues( run, run.nonAggregateDimensionItems, run.outputPeriods, run.outputPeriods, orgUnits );
 
-                    for ( Period period : outputPeriods )
+        List<DataValue> predictions = new ArrayList<>();
+
+        for ( OrganisationUnit orgUnit : orgUnits )
+        {
+            MapMapMap<Period, String, DimensionalItemObject, Double> aggregateDataMap = aggregateDataMap4.get( orgUnit );
+
+            MapMapMap<Period, String, DimensionalItemObject, Double> nonAggregateDataMap =
+                firstNonNull( nonAggregateDataMap4.get( orgUnit ), emptyMapMapMap );
+
+            applySkipTest( aggregateDataMap, run.skipTest, run.constantMap );
+
+            for ( Period period : run.outputPeriods )
+            {
+                if ( changedCells != null )
+                {
+                    if ( !run.fullPeriods.contains( period ) &&
+                        !changedCells.getOrDefault( orgUnit.getId(), Collections.emptySet() ).contains( period ) )
                     {
-                        ListMapMap<String, String, Double> aggregateSampleMap = getAggregateSamples( aggregateDataMap,
-                            aggregates, samplePeriodsMap.get( period ), constantMap, generator.getMissingValueStrategy() );
+                        continue;
+                    }
 
-                        MapMap<String, DimensionalItemObject, Double> nonAggregateSampleMap = firstNonNull(
-                            nonAggregateDataMap.get( period ), new MapMap<>() );
+                    predictedCells.add( period.getId() + "-" + orgUnit.getId() );
+                }
 
-                        Set<String> attributeOptionCombos = usingAttributeOptions ?
-                            Sets.union( aggregateSampleMap.keySet(), nonAggregateSampleMap.keySet() ) : defaultOptionComboAsSet;
+                ListMapMap<String, String, Double> aggregateSampleMap = getAggregateSamples( aggregateDataMap,
+                    run.aggregates, run.samplePeriodsMap.get( period ), run.constantMap, run.generator.getMissingValueStrategy() );
 
-                        if ( attributeOptionCombos.isEmpty() && generator.getMissingValueStrategy() == MissingValueStrategy.NEVER_SKIP )
-                        {
-                            attributeOptionCombos = defaultOptionComboAsSet;
-                        }
+                MapMap<String, DimensionalItemObject, Double> nonAggregateSampleMap = firstNonNull(
+                    nonAggregateDataMap.get( period ), new MapMap<>() );
 
-                        ListMap<String, Double> aggregateSampleMapNonAoc = aggregateSampleMap.get( NON_AOC );
+                Set<String> attributeOptionCombos = run.usingAttributeOptions ?
+                    Sets.union( aggregateSampleMap.keySet(), nonAggregateSampleMap.keySet() ) : run.defaultOptionComboAsSet;
 
-                        Map<DimensionalItemObject, Double> nonAggregateSampleMapNonAoc = nonAggregateSampleMap.get( NON_AOC );
+                if ( attributeOptionCombos.isEmpty() && run.generator.getMissingValueStrategy() == MissingValueStrategy.NEVER_SKIP )
+                {
+                    attributeOptionCombos = run.defaultOptionComboAsSet;
+                }
 
-                        for ( String aoc : attributeOptionCombos )
-                        {
-                            if ( NON_AOC.compareTo( aoc ) == 0 )
-                            {
-                                continue;
-                            }
-
-                            ListMap<String, Double> aggregateValueMap = ListMap.union( aggregateSampleMap.get( aoc ), aggregateSampleMapNonAoc );
-
-                            Map<DimensionalItemObject, Double> nonAggregateValueMap = combine( nonAggregateSampleMap.get( aoc ), nonAggregateSampleMapNonAoc );
-
-                            Double value = expressionService.getExpressionValueRegEx( generator, nonAggregateValueMap,
-                                constantMap, null, period.getDaysInPeriod(), aggregateValueMap );
-
-                            if ( value != null && !value.isNaN() && !value.isInfinite() &&
-                                !dataValueIsZeroAndInsignificant( Double.toString( value ), outputDataElement ) )
-                            {
-                                String valueString = outputDataElement.getValueType().isInteger() ?
-                                    Long.toString( Math.round( value ) ) :
-                                    Double.toString( MathUtils.roundFraction( value, 4 ) );
-
-                                predictions.add( new DataValue( outputDataElement,
-                                    periodService.reloadPeriod( period ), orgUnit,
-                                    outputOptionCombo, categoryService.getCategoryOptionCombo( aoc ),
-                                    valueString, storedBy, now, null ) );
-                            }
-                        }
+                ListMap<String, Double> aggregateSampleMapNonAoc = aggregateSampleMap.get( NON_AOC );
+
+                Map<DimensionalItemObject, Double> nonAggregateSampleMapNonAoc = nonAggregateSampleMap.get( NON_AOC );
+
+                for ( String aoc : attributeOptionCombos )
+                {
+                    if ( NON_AOC.compareTo( aoc ) == 0 )
+                    {
+                        continue;
+                    }
+
+                    ListMap<String, Double> aggregateValueMap = ListMap.union( aggregateSampleMap.get( aoc ), aggregateSampleMapNonAoc );
+
+                    Map<DimensionalItemObject, Double> nonAggregateValueMap = combine( nonAggregateSampleMap.get( aoc ), nonAggregateSampleMapNonAoc );
+
+                    Double value = expressionService.getExpressionValueRegEx( run.generator, nonAggregateValueMap,
+                        run.constantMap, null, period.getDaysInPeriod(), aggregateValueMap );
+
+                    if ( value != null && !value.isNaN() && !value.isInfinite() &&
+                        !dataValueIsZeroAndInsignificant( Double.toString( value ), run.outputDataElement ) )
+                    {
+                        String valueString = run.outputDataElement.getValueType().isInteger() ?
+                            Long.toString( Math.round( value ) ) :
+                            Double.toString( MathUtils.roundFraction( value, 4 ) );
+
+                        predictions.add( new DataValue( run.outputDataElement, period, orgUnit,
+                            run.outputOptionCombo, categoryService.getCategoryOptionCombo( aoc ),
+                            valueString, run.storedBy, run.now, null ) );
                     }
                 }
+            }
+        }
+
+        PredictionSummary summary = new PredictionSummary();
+
+        writePredictions( predictions, run.outputDataElement, run.outputOptionCombo,
+            run.outputPeriods, orgUnits, predictedCells, run.storedBy, summary );
+
+        return summary;
+    }
 
-                writePredictions( predictions, outputDataElement, outputOptionCombo,
-                    outputPeriods, orgUnits, storedBy, predictionSummary );
+    /**
+     * Splits the predictors into lists of predictors which can run
+     * concurrently, keeping the given order. A predictor starts a new list
+     * if it reads the output of a predictor in the current list, or writes
+     * an output which is read or written by a predictor in the current list.
+     *
+     * @param predictors the predictors in the order to run them.
+     * @return lists of independent predictors.
+     */
+    private List<List<Predictor>> getIndependentPredictors( List<Predictor> predictors )
+    {
+        List<List<Predictor>> independentPredictors = new ArrayList<>();
+
+        List<Predictor> current = new ArrayList<>();
+        Set<String> currentInputs = new HashSet<>();
+        Set<String> currentOutputs = new HashSet<>();
+
+        for ( Predictor predictor : predictors )
+        {
+            Set<String> inputs = getInputDataElements( predictor );
+            String output = predictor.getOutput().getUid();
+
+            if ( currentOutputs.contains( output ) || currentInputs.contains( output ) ||
+                !Sets.intersection( currentOutputs, inputs ).isEmpty() )
+            {
+                independentPredictors.add( current );
+
+                current = new ArrayList<>();
+                currentInputs = new HashSet<>();
+                currentOutputs = new HashSet<>();
+            }
+
+            current.add( predictor );
+            currentInputs.addAll( inputs );
+            currentOutputs.add( output );
+        }
+
+        if ( !current.isEmpty() )
+        {
+            independentPredictors.add( current );
+        }
+
+        return independentPredictors;
+    }
+
+    /**
+     * Gets the UIDs of the data elements read by a predictor.
+     *
+     * @param predictor the predictor.
+     * @return the set of data element UIDs.
+     */
+    private Set<String> getInputDataElements( Predictor predictor )
+    {
+        Set<String> aggregates = new HashSet<>();
+        Set<String> nonAggregates = new HashSet<>();
+        expressionService.getAggregatesAndNonAggregatesInExpression( predictor.getGenerator().getExpression(), aggregates, nonAggregates );
+
+        Set<DimensionalItemObject> items = getDimensionItems( aggregates, predictor.getSampleSkipTest() );
+        items.addAll( getDimensionItems( nonAggregates, null ) );
+
+        Set<String> dataElements = new HashSet<>();
+
+        for ( DimensionalItemObject item : items )
+        {
+            if ( item instanceof DataElement )
+            {
+                dataElements.add( item.getUid() );
+            }
+            else if ( item instanceof DataElementOperand )
+            {
+                dataElements.add( ( (DataElementOperand) item ).getDataElement().getUid() );
             }
         }
+
+        return dataElements;
+    }
+
+    /**
+     * Persists the given periods in a separate transaction.
+     *
+     * @param periods the periods to persist.
+     * @return the persisted periods.
+     */
+    private Set<Period> persistPeriods( Set<Period> periods )
+    {
+        TransactionTemplate template = new TransactionTemplate( transactionManager,
+            new DefaultTransactionDefinition( TransactionDefinition.PROPAGATION_REQUIRES_NEW ) );
+
+        return template.execute( status -> new HashSet<>( periodService.reloadPeriods( new ArrayList<>( periods ) ) ) );
+    }
+
+    /**
+     * Creates the executor for the concurrent batches. The number of threads
+     * is {@link ConfigurationKey#PREDICTION_THREADS}, or one less than the
+     * number of CPU cores if not set, and is limited to a share of the
+     * database connection pool.
+     */
+    private ExecutorService newExecutor()
+    {
+        int threadPoolSize = Integer.parseInt( config.getProperty( ConfigurationKey.PREDICTION_THREADS ) );
+
+        if ( threadPoolSize <= 0 )
+        {
+            threadPoolSize = SystemUtils.getCpuCores();
+
+            if ( threadPoolSize > 2 )
+            {
+                threadPoolSize--;
+            }
+        }
+
+        int connectionPoolSize = Integer.parseInt( config.getProperty( ConfigurationKey.CONNECTION_POOL_MAX_SIZE ) );
+
+        threadPoolSize = Math.max( 1, Math.min( threadPoolSize, connectionPoolSize / CONNECTION_POOL_SHARE_DIVISOR ) );
+
+        log.debug( "Prediction threads: " + threadPoolSize );
+
+        return Executors.newFixedThreadPool( threadPoolSize );
+    }
+
+    private static PredictionSummary getResult( Future<PredictionSummary> future )
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException( "Predictions were interrupted", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new RuntimeException( ex.getCause() );
+        }
     }
 
     private Map<DimensionalItemObject, Double> combine ( Map<DimensionalItemObject, Double> a, Map<DimensionalItemObject, Double> b )
@@ -637,6 +1150,26 @@ public class DefaultPredictionService
         return existingPeriods;
     }
 
+    /**
+     * Gets data values through the sample data cache of the job, fetching
+     * only the dimension items which other predictors have not already
+     * fetched for the same organisation units and periods.
+     *
+     * @param run the predictor run.
+     * @param dimensionItems the dimensionItems.
+     * @param allPeriods all data Periods (to fetch event data).
+     * @param existingPeriods existing data Periods (to fetch aggregate data).
+     * @param orgUnits the roots of the OrganisationUnit trees to include.
+     * @return the map of values
+     */
+    private Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> getCachedDataValues(
+        PredictorRun run, Set<DimensionalItemObject> dimensionItems, Set<Period> allPeriods,
+        Set<Period> existingPeriods, List<OrganisationUnit> orgUnits )
+    {
+        return run.dataCache.getDataValues( dimensionItems, allPeriods, orgUnits,
+            items -> getDataValues( items, allPeriods, existingPeriods, orgUnits ) );
+    }
+
     /**
      * Gets data values for a set of DimensionalItemObjects over a set of
      * Periods for an organisation unit and/or any of the organisation unit's
@@ -849,22 +1382,27 @@ public class DefaultPredictionService
      * @param outputOptionCombo Predictor output category option commbo.
      * @param periods Periods to predict for.
      * @param orgUnits Organisation units to predict for.
+     * @param predictedCells Keys of the period and organisation unit ids which
+     *        were predicted, or null if all of them were predicted. Old values
+     *        are only deleted from predicted cells.
      * @param summary Prediction summary to update.
      */
     private void writePredictions( List<DataValue> predictions, DataElement outputDataElement,
         CategoryOptionCombo outputOptionCombo, Set<Period> periods, List<OrganisationUnit> orgUnits,
-        String storedBy, PredictionSummary summary )
+        Set<String> predictedCells, String storedBy, PredictionSummary summary )
     {
         DataExportParams params = new DataExportParams();
         params.setDataElementOperands( Sets.newHashSet( new DataElementOperand( outputDataElement, outputOptionCombo ) ) );
-        params.setPeriods( new HashSet<>( periodService.reloadPeriods( new ArrayList<>( periods ) ) ) );
+        params.setPeriods( periods );
         params.setOrganisationUnits( new HashSet<>( orgUnits ) );
         params.setReturnParentOrgUnit( true );
+        params.setIncludeDeleted( true );
 
         List<DeflatedDataValue> oldValueList = dataValueService.getDeflatedDataValues( params );
 
         Map<String, DeflatedDataValue> oldValues = oldValueList.stream().collect( Collectors.toMap(
-            d -> d.getPeriodId() + "-" + d.getSourceId() + "-" + d.getAttributeOptionComboId(), d -> d ) );
+            d -> d.getPeriodId() + "-" + d.getSourceId() + "-" + d.getAttributeOptionComboId(), d -> d,
+            ( a, b ) -> a.isDeleted() ? b : a ) );
 
         BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
 
@@ -876,7 +1414,7 @@ public class DefaultPredictionService
 
             DeflatedDataValue oldValue = oldValues.get( key );
 
-            if ( oldValue == null )
+            if ( oldValue == null || oldValue.isDeleted() )
             {
                 if ( zeroInsignificant )
                 {
@@ -886,13 +1424,20 @@ public class DefaultPredictionService
                 summary.incrementInserted();
 
                 /*
-                 * NOTE: BatchHandler is not used for inserts. When run under
-                 * the scheduler, this code needs this to be @Transactional,
-                 * but the new data value might be in a new period (just added
-                 * to the database within this transaction). In this case
-                 * BatchHandler would not see the new period.
+                 * NOTE: The output periods are persisted up front in a
+                 * separate transaction, so BatchHandler sees them. A soft
+                 * deleted value is replaced by updating it.
                  */
-                dataValueService.addDataValue( newValue );
+                if ( oldValue == null )
+                {
+                    dataValueBatchHandler.addObject( newValue );
+                }
+                else
+                {
+                    dataValueBatchHandler.updateObject( newValue );
+
+                    oldValues.remove( key );
+                }
             }
             else
             {
@@ -917,12 +1462,19 @@ public class DefaultPredictionService
         }
 
         Map<Long, OrganisationUnit> orgUnitLookup = orgUnits.stream().collect( Collectors.toMap( OrganisationUnit::getId, o -> o ) );
+        Map<Long, Period> periodLookup = periods.stream().collect( Collectors.toMap( Period::getId, p -> p ) );
 
         for ( DeflatedDataValue oldValue : oldValues.values() )
         {
+            if ( oldValue.isDeleted() || ( predictedCells != null &&
+                !predictedCells.contains( oldValue.getPeriodId() + "-" + oldValue.getSourceId() ) ) )
+            {
+                continue;
+            }
+
             summary.incrementDeleted();
 
-            DataValue toDelete = new DataValue( outputDataElement, oldValue.getPeriod(),
+            DataValue toDelete = new DataValue( outputDataElement, periodLookup.get( oldValue.getPeriodId() ),
                 orgUnitLookup.get( oldValue.getSourceId() ), outputOptionCombo,
                 categoryService.getCategoryOptionCombo( oldValue.getAttributeOptionComboId() ),
                 oldValue.getValue(), storedBy, null, null );
@@ -932,4 +1484,64 @@ public class DefaultPredictionService
 
         dataValueBatchHandler.flush();
     }
+
+    /**
+     * Everything needed to make the predictions of a predictor for a batch
+     * of organisation units. Prepared up front and only read while batches
+     * are predicted concurrently. Batches run in their own sessions, so the
+     * entities of the run are unwrapped from their proxies up front, and
+     * batches load their organisation units by id.
+     */
+    private static class PredictorRun
+    {
+        private Predictor predictor;
+
+        private Expression generator;
+
+        private Expression skipTest;
+
+        private DataElement outputDataElement;
+
+        private CategoryOptionCombo outputOptionCombo;
+
+        private Set<String> aggregates = new HashSet<>();
+
+        private Map<String, Double> constantMap;
+
+        private Set<Period> outputPeriods;
+
+        private ListMap<Period, Period> samplePeriodsMap;
+
+        private Set<Period> allSamplePeriods;
+
+        private Set<Period> existingSamplePeriods;
+
+        private Set<DimensionalItemObject> aggregateDimensionItems;
+
+        private Set<DimensionalItemObject> nonAggregateDimensionItems;
+
+        private Set<String> defaultOptionComboAsSet;
+
+        private boolean usingAttributeOptions;
+
+        private List<OrganisationUnitLevel> orgUnitLevels;
+
+        private Set<OrganisationUnit> currentUserOrgUnits = new HashSet<>();
+
+        private String storedBy = "system-process";
+
+        private Date now = new Date();
+
+        /**
+         * Last updated time from which input data counts as changed, or null
+         * to predict all organisation units and output periods.
+         */
+        private Date changedSince;
+
+        private Set<Period> fullPeriods;
+
+        private SetMap<Long, Period> dependentOutputPeriods;
+
+        private PredictionDataCache dataCache;
+    }
 }
@@ -0,0 +1,283 @@
+package org.hisp.dhis.predictor;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.Map4;
+import org.hisp.dhis.common.MapMap;
+import org.hisp.dhis.common.MapMapMap;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Cache of the sample data fetched while running predictions, shared by all
+ * the predictors of a prediction job. Values are cached by dimension item,
+ * batch of organisation units and periods, so that predictors reading the
+ * same input over the same organisation units and periods fetch it only
+ * once. The number of cached values is bounded, and the least recently used
+ * entries are evicted first.
+ * <p>
+ * Safe for use by concurrently predicted organisation unit batches. Two
+ * batches missing the same entry at the same time may both fetch it.
+ */
+public class PredictionDataCache
+{
+    private static final long DEFAULT_MAX_VALUES = 1_000_000;
+
+    private final Cache<Key, List<CachedValue>> cache;
+
+    public PredictionDataCache()
+    {
+        this( DEFAULT_MAX_VALUES );
+    }
+
+    /**
+     * @param maxValues the maximum number of data values to cache.
+     */
+    public PredictionDataCache( long maxValues )
+    {
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight( maxValues )
+            .weigher( ( Key key, List<CachedValue> values ) -> values.size() + 1 )
+            .recordStats()
+            .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Gets data values for dimension items over periods for a batch of
+     * organisation units. Items which are not cached are fetched together
+     * with the given fetcher, and cached.
+     * <p>
+     * The returned map is built for each call and may be modified.
+     *
+     * @param dimensionItems the dimension items.
+     * @param periods the periods, identifying the period range of the data.
+     * @param orgUnits the organisation units of the batch.
+     * @param fetcher fetches the data values of the given dimension items.
+     * @return the data values by organisation unit, period, attribute option
+     *         combo UID and dimension item.
+     */
+    public Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> getDataValues(
+        Set<DimensionalItemObject> dimensionItems, Set<Period> periods, List<OrganisationUnit> orgUnits,
+        Function<Set<DimensionalItemObject>, Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double>> fetcher )
+    {
+        List<Long> orgUnitIds = orgUnits.stream().map( OrganisationUnit::getId ).collect( Collectors.toList() );
+
+        Map<Key, DimensionalItemObject> itemKeys = new HashMap<>();
+
+        for ( DimensionalItemObject item : dimensionItems )
+        {
+            itemKeys.put( new Key( item.getDimensionItem(), orgUnitIds, periods ), item );
+        }
+
+        Map<Key, List<CachedValue>> values = new HashMap<>( cache.getAllPresent( itemKeys.keySet() ) );
+
+        Set<DimensionalItemObject> missingItems = itemKeys.entrySet().stream()
+            .filter( e -> !values.containsKey( e.getKey() ) )
+            .map( Map.Entry::getValue )
+            .collect( Collectors.toSet() );
+
+        if ( !missingItems.isEmpty() )
+        {
+            Map<Key, List<CachedValue>> fetchedValues = split( fetcher.apply( missingItems ), missingItems, orgUnitIds, periods );
+
+            cache.putAll( fetchedValues );
+            values.putAll( fetchedValues );
+        }
+
+        Map<Long, OrganisationUnit> orgUnitLookup = orgUnits.stream().collect( Collectors.toMap( OrganisationUnit::getId, ou -> ou ) );
+
+        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> dataValues = new Map4<>();
+
+        for ( Map.Entry<Key, DimensionalItemObject> itemKey : itemKeys.entrySet() )
+        {
+            for ( CachedValue value : values.get( itemKey.getKey() ) )
+            {
+                dataValues.putEntry( orgUnitLookup.get( value.orgUnitId ), value.period,
+                    value.attributeOptionCombo, itemKey.getValue(), value.value );
+            }
+        }
+
+        return dataValues;
+    }
+
+    /**
+     * Removes the cached data of a data element and of all its operands,
+     * to be called after values of the data element have been written.
+     *
+     * @param dataElementUid the data element UID.
+     */
+    public void invalidateDataElement( String dataElementUid )
+    {
+        String operandPrefix = dataElementUid + ".";
+
+        cache.asMap().keySet().removeIf( key ->
+            key.dimensionItem.equals( dataElementUid ) || key.dimensionItem.startsWith( operandPrefix ) );
+    }
+
+    /**
+     * Gets the hit and miss statistics of the cache.
+     *
+     * @return the cache statistics.
+     */
+    public CacheStats getStats()
+    {
+        return cache.stats();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Splits fetched data values by dimension item. Every fetched item gets
+     * an entry, so that items without data are not fetched again.
+     */
+    private Map<Key, List<CachedValue>> split( Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> dataValues,
+        Set<DimensionalItemObject> items, List<Long> orgUnitIds, Set<Period> periods )
+    {
+        Map<String, List<CachedValue>> itemValues = new HashMap<>();
+
+        for ( DimensionalItemObject item : items )
+        {
+            itemValues.put( item.getDimensionItem(), new ArrayList<>() );
+        }
+
+        for ( Map.Entry<OrganisationUnit, MapMapMap<Period, String, DimensionalItemObject, Double>> ouEntry : dataValues.entrySet() )
+        {
+            if ( ouEntry.getKey() == null )
+            {
+                continue;
+            }
+
+            for ( Map.Entry<Period, MapMap<String, DimensionalItemObject, Double>> peEntry : ouEntry.getValue().entrySet() )
+            {
+                for ( Map.Entry<String, Map<DimensionalItemObject, Double>> aocEntry : peEntry.getValue().entrySet() )
+                {
+                    for ( Map.Entry<DimensionalItemObject, Double> itemEntry : aocEntry.getValue().entrySet() )
+                    {
+                        List<CachedValue> list = itemValues.get( itemEntry.getKey().getDimensionItem() );
+
+                        if ( list != null && itemEntry.getValue() != null )
+                        {
+                            list.add( new CachedValue( ouEntry.getKey().getId(), peEntry.getKey(),
+                                aocEntry.getKey(), itemEntry.getValue() ) );
+                        }
+                    }
+                }
+            }
+        }
+
+        return itemValues.entrySet().stream().collect( Collectors.toMap(
+            e -> new Key( e.getKey(), orgUnitIds, periods ), Map.Entry::getValue ) );
+    }
+
+    /**
+     * Cache key of the data of one dimension item over a period range for a
+     * batch of organisation units.
+     */
+    private static class Key
+    {
+        private final String dimensionItem;
+
+        private final List<Long> orgUnitIds;
+
+        private final Set<Period> periods;
+
+        private final int hashCode;
+
+        Key( String dimensionItem, List<Long> orgUnitIds, Set<Period> periods )
+        {
+            this.dimensionItem = dimensionItem;
+            this.orgUnitIds = orgUnitIds;
+            this.periods = periods;
+            this.hashCode = 31 * ( 31 * dimensionItem.hashCode() + orgUnitIds.hashCode() ) + periods.hashCode();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+
+            if ( !( o instanceof Key ) )
+            {
+                return false;
+            }
+
+            Key other = (Key) o;
+
+            return hashCode == other.hashCode && dimensionItem.equals( other.dimensionItem ) &&
+                orgUnitIds.equals( other.orgUnitIds ) && periods.equals( other.periods );
+        }
+    }
+
+    private static class CachedValue
+    {
+        private final long orgUnitId;
+
+        private final Period period;
+
+        private final String attributeOptionCombo;
+
+        private final double value;
+
+        CachedValue( long orgUnitId, Period period, String attributeOptionCombo, double value )
+        {
+            this.orgUnitId = orgUnitId;
+            this.period = period;
+            this.attributeOptionCombo = attributeOptionCombo;
+            this.value = value;
+        }
+    }
+}
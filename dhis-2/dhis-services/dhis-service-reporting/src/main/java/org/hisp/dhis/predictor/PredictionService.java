@@ -44,5 +44,8 @@ public interface PredictionService
     PredictionSummary predictTask( Date startDate, Date endDate,
         List<String> predictors, List<String> predictorGroups, JobConfiguration jobId );
 
+    PredictionSummary predictTask( Date startDate, Date endDate,
+        List<String> predictors, List<String> predictorGroups, boolean incremental, JobConfiguration jobId );
+
     void predict( Predictor predictor, Date startDate, Date endDate, PredictionSummary predictionSummary );
 }
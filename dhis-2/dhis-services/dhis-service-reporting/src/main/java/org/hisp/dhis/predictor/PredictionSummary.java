@@ -47,6 +47,8 @@ public class PredictionSummary extends AbstractWebMessageResponse
 
     private int predictors = 0;
 
+    private int incrementalPredictors = 0;
+
     private int inserted = 0;
 
     private int updated = 0;
@@ -75,6 +77,11 @@ public class PredictionSummary extends AbstractWebMessageResponse
         predictors += 1;
     }
 
+    public void incrementIncrementalPredictors()
+    {
+        incrementalPredictors += 1;
+    }
+
     public void incrementUpdated()
     {
         updated += 1;
@@ -90,6 +97,16 @@ public class PredictionSummary extends AbstractWebMessageResponse
         unchanged += 1;
     }
 
+    public void merge( PredictionSummary summary )
+    {
+        predictors += summary.predictors;
+        incrementalPredictors += summary.incrementalPredictors;
+        inserted += summary.inserted;
+        updated += summary.updated;
+        deleted += summary.deleted;
+        unchanged += summary.unchanged;
+    }
+
     public int getPredictions()
     {
         return inserted + updated + unchanged;
@@ -128,6 +145,19 @@ public class PredictionSummary extends AbstractWebMessageResponse
         return predictors;
     }
 
+    /**
+     * Number of predictors which only predicted where input data changed
+     * since their last run. Such predictions do not reflect input data
+     * changes which are not detected by incremental runs, such as hard
+     * deletes, until the next full run.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public int getIncrementalPredictors()
+    {
+        return incrementalPredictors;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public int getInserted()
@@ -163,6 +193,7 @@ public class PredictionSummary extends AbstractWebMessageResponse
             "status=" + status +
             ", description='" + description + '\'' +
             ", predictors=" + predictors +
+            ", incrementalPredictors=" + incrementalPredictors +
             ", inserted=" + inserted +
             ", updated=" + updated +
             ", deleted=" + deleted +
@@ -30,7 +30,6 @@ package org.hisp.dhis.validation;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsService;
@@ -41,7 +40,6 @@ import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.MapMap;
-import org.hisp.dhis.common.MapMapMap;
 import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementOperand;
@@ -59,6 +57,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -117,23 +116,33 @@ public class DataValidationTask
 
     private ValidationRuleExtended ruleX;   // Current rule extended.
 
-    // Data for current period and all rules being evaluated:
-    private MapMapMap<Long, String, DimensionalItemObject, Double> dataMap;
+    // Data for all periods of current period type and all rules being evaluated:
+    private PeriodTypeDataValues dataValues;
 
-    private MapMapMap<Long, String, DimensionalItemObject, Double> eventMap;
+    private PeriodTypeDataValues eventValues;
 
-    private MapMapMap<Long, String, DimensionalItemObject, Double> slidingWindowEventMap;
+    // Sliding window event data for current period:
+    private PeriodTypeDataValues slidingWindowEventValues;
 
-    public void init( List<OrganisationUnit> orgUnits, ValidationRunContext context, AnalyticsService analyticsService )
+    // Data for current organisation unit and period:
+    private MapMap<String, DimensionalItemObject, Double> dataMap;
+
+    private MapMap<String, DimensionalItemObject, Double> slidingWindowDataMap;
+
+    @Override
+    public void init( List<OrganisationUnit> orgUnits, PeriodTypeExtended periodTypeX, ValidationRunContext context,
+        AnalyticsService analyticsService )
     {
         this.orgUnits = orgUnits;
+        this.periodTypeX = periodTypeX;
         this.context = context;
         this.analyticsService = analyticsService;
     }
 
     /**
-     * Evaluates validation rules for a single organisation unit. This is the
-     * central method in validation rule evaluation.
+     * Evaluates validation rules of a single period type for a block of
+     * organisation units. This is the central method in validation rule
+     * evaluation.
      */
     @Override
     @Transactional
@@ -153,7 +162,8 @@ public class DataValidationTask
 
     /**
      * Get the data needed for this task, then evaluate each combination
-     * of organisation unit / period / validation rule.
+     * of organisation unit / period / validation rule. The data of all
+     * periods of the period type is fetched at once.
      */
     private void runInternal()
     {
@@ -162,39 +172,81 @@ public class DataValidationTask
             return;
         }
 
+        List<Period> periods = periodTypeX.getPeriods().stream()
+            .filter( this::hasChangedData )
+            .sorted( Comparator.comparing( Period::getStartDate ) )
+            .collect( Collectors.toList() );
+
+        if ( periods.isEmpty() )
+        {
+            return;
+        }
+
+        getData( periods );
+
         loop:
-        for ( PeriodTypeExtended ptx : context.getPeriodTypeXs() )
+        for ( Period p : periods )
         {
-            periodTypeX = ptx;
+            period = p;
+
+            getSlidingWindowEventData();
 
-            for ( Period p : periodTypeX.getPeriods() )
+            for ( OrganisationUnit ou : orgUnits )
             {
-                period = p;
+                orgUnit = ou;
+                orgUnitId = ou.getId();
 
-                getData();
+                getOrgUnitData();
 
-                for ( OrganisationUnit ou : orgUnits )
+                for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
                 {
-                    orgUnit = ou;
-                    orgUnitId = ou.getId();
+                    ruleX = r;
+
+                    if ( context.isAnalysisComplete() )
+                    {
+                        break loop;
+                    }
 
-                    for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
+                    if ( !context.hasChangedData( orgUnitId, period, ruleX ) )
                     {
-                        ruleX = r;
-
-                        if ( context.isAnalysisComplete() )
-                        {
-                            break loop;
-                        }
-                        validationResults = new HashSet<>();
-                        validateRule();
-                        addValidationResultsToContext();
+                        continue;
                     }
+
+                    validationResults = new HashSet<>();
+                    validateRule();
+                    addValidationResultsToContext();
                 }
             }
         }
     }
 
+    /**
+     * Checks whether any rule of the current period type must be validated for
+     * any organisation unit of this task in the given period.
+     *
+     * @param period the period.
+     */
+    private boolean hasChangedData( Period period )
+    {
+        if ( !context.isChangeDriven() )
+        {
+            return true;
+        }
+
+        for ( OrganisationUnit ou : orgUnits )
+        {
+            for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
+            {
+                if ( context.hasChangedData( ou.getId(), period, r ) )
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Validates one rule / period by seeing which attribute option combos exist
      * for that data, and then iterating through those attribute option combos.
@@ -215,6 +267,13 @@ public class DataValidationTask
 
         Set<String> attributeOptionCombos = Sets.union( leftSideValues.keySet(), rightSideValues.keySet() );
 
+        // Including combos of known results when resolving results, in case their data was deleted
+        if ( context.isResolveResults() )
+        {
+            attributeOptionCombos = Sets.union( attributeOptionCombos,
+                context.getInitialAttributeOptionCombos( orgUnit, ruleX.getRule(), period ) );
+        }
+
         loop:
         for ( String optionCombo : attributeOptionCombos )
         {
@@ -243,6 +302,21 @@ public class DataValidationTask
      */
     private void validateOptionCombo( String optionCombo, Double leftSide, Double rightSide )
     {
+        // Skipping tuples without changed data in change driven runs
+        if ( context.isChangeDriven() && !context.hasChangedData( orgUnitId, period,
+            getAttributeOptionCombo( optionCombo ).getId(), ruleX ) )
+        {
+            return;
+        }
+
+        boolean violation = isViolation( leftSide, rightSide );
+
+        // Resolving known results which are no longer violated, if requested
+        if ( context.isResolveResults() && !violation )
+        {
+            context.resolveValidationResults( orgUnit, ruleX.getRule(), period, optionCombo );
+        }
+
         // Skipping any results we already know
         if ( context.skipValidationOfTuple( orgUnit, ruleX.getRule(), period, optionCombo,
             periodService.getDayInPeriod( period, new Date() ) ) )
@@ -250,8 +324,6 @@ public class DataValidationTask
             return;
         }
 
-        boolean violation = isViolation( leftSide, rightSide );
-
         if ( violation && !context.isAnalysisComplete() )
         {
             validationResults.add( new ValidationResult(
@@ -310,22 +382,44 @@ public class DataValidationTask
     }
 
     /**
-     * Gets the data we will need for this task.
+     * Gets the data we will need for this task for the given periods.
+     *
+     * @param periods the periods of the current period type.
      */
-    private void getData()
+    private void getData( List<Period> periods )
     {
-        getDataMap();
+        dataValues = getDataValues( periods );
 
-        slidingWindowEventMap = getEventMapForSlidingWindow( true, periodTypeX.getEventItems() );
-        slidingWindowEventMap
-            .putMap( getEventMapForSlidingWindow( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+        eventValues = new PeriodTypeDataValues( orgUnits, periods,
+            Sets.union( periodTypeX.getEventItems(), periodTypeX.getEventItemsWithoutAttributeOptions() ) );
 
-        slidingWindowEventMap.putMap( dataMap );
+        addEventValues( periods, true, periodTypeX.getEventItems() );
+        addEventValues( periods, false, periodTypeX.getEventItemsWithoutAttributeOptions() );
+    }
 
-        eventMap = getEventMap( true, periodTypeX.getEventItems() );
-        eventMap.putMap( getEventMap( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+    /**
+     * Gets the data for the current organisation unit and period from the
+     * data prefetched for the current period type.
+     */
+    private void getOrgUnitData()
+    {
+        dataMap = dataValues.getValues( orgUnitId, period );
+        dataMap.putMap( eventValues.getValues( orgUnitId, period ) );
 
-        dataMap.putMap( eventMap );
+        slidingWindowDataMap = slidingWindowEventValues.getValues( orgUnitId, period );
+        slidingWindowDataMap.putMap( dataValues.getValues( orgUnitId, period ) );
+    }
+
+    /**
+     * Gets the sliding window event data for the current period.
+     */
+    private void getSlidingWindowEventData()
+    {
+        slidingWindowEventValues = new PeriodTypeDataValues( orgUnits, Lists.newArrayList( period ),
+            Sets.union( periodTypeX.getEventItems(), periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+
+        addSlidingWindowEventValues( true, periodTypeX.getEventItems() );
+        addSlidingWindowEventValues( false, periodTypeX.getEventItemsWithoutAttributeOptions() );
     }
 
     /**
@@ -344,7 +438,7 @@ public class DataValidationTask
         }
         else if ( slidingWindow )
         {
-            return getExpressionValueMap( expression, slidingWindowEventMap );
+            return getExpressionValueMap( expression, slidingWindowDataMap );
         }
         else
         {
@@ -428,32 +522,22 @@ public class DataValidationTask
      * combo.
      *
      * @param expression expression to evaluate.
-     * @param valueMap   Map of value maps, by attribute option combo.
+     * @param aocValues  Map of value maps of the current organisation unit,
+     *                   by attribute option combo.
      * @return map of values.
      */
     private Map<String, Double> getExpressionValueMap( Expression expression,
-        MapMapMap<Long, String, DimensionalItemObject, Double> valueMap )
+        MapMap<String, DimensionalItemObject, Double> aocValues )
     {
         Map<String, Double> expressionValueMap = new HashMap<>();
 
-        Map<DimensionalItemObject, Double> nonAocValues = valueMap.get( orgUnitId ) == null
-            ? null : valueMap.get( orgUnitId ).get( NON_AOC );
-
-        MapMap<String, DimensionalItemObject, Double> aocValues = valueMap.get( orgUnitId );
-
-        if ( aocValues == null )
+        if ( aocValues.isEmpty() )
         {
-            if ( nonAocValues == null )
-            {
-                return expressionValueMap;
-            }
-            else
-            {
-                aocValues = new MapMap<>();
-                aocValues.putEntries( context.getDefaultAttributeCombo().getUid(), nonAocValues );
-            }
+            return expressionValueMap;
         }
 
+        Map<DimensionalItemObject, Double> nonAocValues = aocValues.get( NON_AOC );
+
         for ( Map.Entry<String, Map<DimensionalItemObject, Double>> entry : aocValues.entrySet() )
         {
             Map<DimensionalItemObject, Double> values = entry.getValue();
@@ -476,14 +560,27 @@ public class DataValidationTask
     }
 
     /**
-     * Gets data values for this task.
+     * Gets data values for this task for the given periods, sorted by start
+     * date, in a single query. Each data value is used for every period
+     * whose start date is included in the period of the data value.
+     *
+     * @param periods the periods of the current period type.
      */
-    private void getDataMap()
+    private PeriodTypeDataValues getDataValues( List<Period> periods )
     {
+        PeriodTypeDataValues values = new PeriodTypeDataValues( orgUnits, periods,
+            Sets.<DimensionalItemObject>union( periodTypeX.getDataElements(), periodTypeX.getDataElementOperands() ) );
+
+        if ( periodTypeX.getDataElements().isEmpty() && periodTypeX.getDataElementOperands().isEmpty() )
+        {
+            return values;
+        }
+
         DataExportParams params = new DataExportParams();
         params.setDataElements( periodTypeX.getDataElements() );
         params.setDataElementOperands( periodTypeX.getDataElementOperands() );
-        params.setIncludedDate( period.getStartDate() );
+        params.setIncludedStartDate( periods.get( 0 ).getStartDate() );
+        params.setIncludedEndDate( periods.get( periods.size() - 1 ).getStartDate() );
         params.setOrganisationUnits( new HashSet<>( orgUnits ) );
         params.setPeriodTypes( periodTypeX.getAllowedPeriodTypes() );
         params.setCoDimensionConstraints( context.getCoDimensionConstraints() );
@@ -496,10 +593,6 @@ public class DataValidationTask
 
         List<DeflatedDataValue> dataValues = dataValueService.getDeflatedDataValues( params );
 
-        dataMap = new MapMapMap<>();
-
-        MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates = new MapMapMap<>();
-
         for ( DeflatedDataValue dv : dataValues )
         {
             DataElement dataElement = periodTypeX.getDataElementIdMap().get( dv.getDataElementId() );
@@ -520,62 +613,56 @@ public class DataValidationTask
                 continue;
             }
 
-            if ( dataElement != null )
-            {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElement, value, p, checkForDuplicates );
-            }
+            long periodInterval = p.getEndDate().getTime() - p.getStartDate().getTime();
 
-            if ( dataElementOperand != null )
+            for ( Period pe : periods )
             {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElementOperand, value, p,
-                    checkForDuplicates );
-            }
-        }
-    }
-
-    private void addValueToDataMap( long orgUnitId, String aocUid, DimensionalItemObject dimItemObject,
-        Double value, Period p, MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates )
-    {
-        double existingValue = ObjectUtils.firstNonNull( dataMap.getValue( orgUnitId, aocUid, dimItemObject ), 0.0 );
+                if ( pe.getStartDate().after( p.getEndDate() ) )
+                {
+                    break;
+                }
 
-        long periodInterval = p.getEndDate().getTime() - p.getStartDate().getTime();
+                if ( pe.getStartDate().before( p.getStartDate() ) )
+                {
+                    continue;
+                }
 
-        Long existingPeriodInterval = checkForDuplicates.getValue( orgUnitId, aocUid, dimItemObject );
+                if ( dataElement != null )
+                {
+                    values.addValue( orgUnitId, pe, attributeOptionComboUid, dataElement, value, periodInterval );
+                }
 
-        if ( existingPeriodInterval != null )
-        {
-            if ( existingPeriodInterval < periodInterval )
-            {
-                return; // Do not overwrite the previous value if for a shorter interval
-            }
-            else if ( existingPeriodInterval > periodInterval )
-            {
-                existingValue = 0.0; // Overwrite previous value if for a longer interval
+                if ( dataElementOperand != null )
+                {
+                    values.addValue( orgUnitId, pe, attributeOptionComboUid, dataElementOperand, value,
+                        periodInterval );
+                }
             }
         }
 
-        dataMap.putEntry( orgUnitId, aocUid, dimItemObject, value + existingValue );
-
-        checkForDuplicates.putEntry( orgUnitId, aocUid, dimItemObject, periodInterval );
+        return values;
     }
 
     /**
-     * Gets aggregated event data for the given parameters.
+     * Adds aggregated event data for the given periods to the event values,
+     * using the periods as dimension of a single analytics query.
      *
+     * @param periods             the periods of the current period type.
      * @param hasAttributeOptions whether the event data has attribute options.
+     * @param eventItems          the event items.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getEventMap(
-        boolean hasAttributeOptions, Set<DimensionalItemObject> eventItems )
+    private void addEventValues( List<Period> periods, boolean hasAttributeOptions,
+        Set<DimensionalItemObject> eventItems )
     {
         if ( eventItems.isEmpty() )
         {
-            return new MapMapMap<>();
+            return;
         }
 
         DataQueryParams.Builder paramsBuilder = DataQueryParams.newBuilder()
             .withDataDimensionItems( Lists.newArrayList( eventItems ) )
             .withAttributeOptionCombos( Lists.newArrayList() )
-            .withFilterPeriods( Lists.newArrayList( period ) )
+            .withPeriods( periods )
             .withOrganisationUnits( orgUnits );
 
         if ( hasAttributeOptions )
@@ -583,20 +670,21 @@ public class DataValidationTask
             paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
         }
 
-        return getEventData( paramsBuilder.build(), hasAttributeOptions );
+        addEventData( eventValues, paramsBuilder.build(), hasAttributeOptions, eventItems, periods );
     }
 
     /**
-     * Gets sliding window aggregated event data for the given parameters.
+     * Adds sliding window aggregated event data for the current period to the
+     * sliding window event values.
      *
      * @param hasAttributeOptions whether the event data has attribute options.
+     * @param eventItems          the event items.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getEventMapForSlidingWindow(
-        boolean hasAttributeOptions, Set<DimensionalItemObject> eventItems )
+    private void addSlidingWindowEventValues( boolean hasAttributeOptions, Set<DimensionalItemObject> eventItems )
     {
         if ( eventItems.isEmpty() )
         {
-            return new MapMapMap<>();
+            return;
         }
 
         // We want to position the sliding window over the most recent data.
@@ -631,36 +719,42 @@ public class DataValidationTask
             paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
         }
 
-        return getEventData( paramsBuilder.build(), hasAttributeOptions );
+        addEventData( slidingWindowEventValues, paramsBuilder.build(), hasAttributeOptions, eventItems,
+            Lists.newArrayList( period ) );
     }
 
     /**
-     * Gets event data.
+     * Gets event data and adds it to the given values. If the query has no
+     * period dimension, the data is added for the single given period.
      *
+     * @param values              the values to add the event data to.
      * @param params              event data query parameters.
      * @param hasAttributeOptions whether the event data has attribute options.
-     * @return event data.
+     * @param eventItems          the event items.
+     * @param periods             the periods of the event data.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getEventData(
-        DataQueryParams params, boolean hasAttributeOptions )
+    private void addEventData( PeriodTypeDataValues values, DataQueryParams params, boolean hasAttributeOptions,
+        Set<DimensionalItemObject> eventItems, List<Period> periods )
     {
-        MapMapMap<Long, String, DimensionalItemObject, Double> map = new MapMapMap<>();
-
         Grid grid = analyticsService.getAggregatedDataValues( params );
 
         int dxInx = grid.getIndexOfHeader( DimensionalObject.DATA_X_DIM_ID );
+        int peInx = grid.getIndexOfHeader( DimensionalObject.PERIOD_DIM_ID );
         int ouInx = grid.getIndexOfHeader( DimensionalObject.ORGUNIT_DIM_ID );
         int aoInx = hasAttributeOptions ? grid.getIndexOfHeader( DimensionalObject.ATTRIBUTEOPTIONCOMBO_DIM_ID ) : 0;
         int vlInx = grid.getWidth() - 1;
 
         Map<String, OrganisationUnit> ouLookup = orgUnits.stream()
             .collect( Collectors.toMap( o -> o.getUid(), o -> o ) );
-        Map<String, DimensionalItemObject> dxLookup = periodTypeX.getEventItems().stream()
+        Map<String, DimensionalItemObject> dxLookup = eventItems.stream()
             .collect( Collectors.toMap( d -> d.getDimensionItem(), d -> d ) );
+        Map<String, Period> peLookup = periods.stream()
+            .collect( Collectors.toMap( p -> p.getIsoDate(), p -> p ) );
 
         for ( List<Object> row : grid.getRows() )
         {
             String dx = (String) row.get( dxInx );
+            Period pe = peInx >= 0 ? peLookup.get( (String) row.get( peInx ) ) : periods.get( 0 );
             String ao = hasAttributeOptions ? (String) row.get( aoInx ) : NON_AOC;
             String ou = (String) row.get( ouInx );
             Double vl = (Double) row.get( vlInx );
@@ -668,9 +762,12 @@ public class DataValidationTask
             OrganisationUnit orgUnit = ouLookup.get( ou );
             DimensionalItemObject eventItem = dxLookup.get( dx );
 
-            map.putEntry( orgUnit.getId(), ao, eventItem, vl );
-        }
+            // Skipping rows of items which are not among the given event items
 
-        return map;
+            if ( orgUnit != null && eventItem != null && pe != null && vl != null )
+            {
+                values.putValue( orgUnit.getId(), pe, ao, eventItem, vl );
+            }
+        }
     }
 }
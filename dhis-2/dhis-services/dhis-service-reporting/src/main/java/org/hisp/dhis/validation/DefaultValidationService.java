@@ -42,8 +42,10 @@ import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
@@ -58,6 +60,7 @@ import org.hisp.dhis.user.User;
 import org.hisp.dhis.validation.notification.ValidationNotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
@@ -102,6 +105,9 @@ public class DefaultValidationService
     @Autowired
     private ApplicationContext applicationContext;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private ValidationResultService validationResultService;
 
@@ -127,7 +133,8 @@ public class DefaultValidationService
     public Collection<ValidationResult> validationAnalysis( ValidationAnalysisParams parameters)
     {
         Clock clock = new Clock( log ).startClock().logTime( "Starting validation analysis"
-            + ( parameters.getOrgUnit() == null ? "" : " for orgUnit " + parameters.getOrgUnit().getUid()
+            + ( parameters.getOrgUnits() != null ? " for " + parameters.getOrgUnits().size() + " orgUnits" : "" )
+            + ( parameters.getOrgUnit() == null || parameters.getOrgUnits() != null ? "" : " for orgUnit " + parameters.getOrgUnit().getUid()
                 + ( parameters.isIncludeOrgUnitDescendants() ? " with descendants" : "" ) ) + ", "
             + ( parameters.getPeriods().size() == 1 ? "period " + Iterables.getOnlyElement( parameters.getPeriods() ).getIsoDate()
                 : parameters.getPeriods().size() + " periods" ) + ", "
@@ -144,9 +151,14 @@ public class DefaultValidationService
         if ( context.isPersistResults() )
         {
             validationResultService.saveValidationResults( context.getValidationResults() );
+
+            context.getResolvedValidationResults().forEach( validationResultService::deleteValidationResult );
+
+            eventPublisher.publishEvent( new ValidationResultsPersistedEvent( this, context.getValidationResults().size() ) );
         }
 
-        clock.logTime( "Finished validation analysis, " +  context.getValidationResults().size() + " results").stop();
+        clock.logTime( "Finished validation analysis, " +  context.getValidationResults().size() + " results"
+            + ( context.getResolvedValidationResults().isEmpty() ? "" : ", " + context.getResolvedValidationResults().size() + " resolved" ) ).stop();
 
         if ( context.isSendNotifications() )
         {
@@ -232,7 +244,11 @@ public class DefaultValidationService
 
         OrganisationUnit parameterOrgUnit = parameters.getOrgUnit();
         List<OrganisationUnit> orgUnits;
-        if ( parameterOrgUnit == null )
+        if ( parameters.getOrgUnits() != null )
+        {
+            orgUnits = new ArrayList<>( parameters.getOrgUnits() );
+        }
+        else if ( parameterOrgUnit == null )
         {
             orgUnits = organisationUnitService.getAllOrganisationUnits();
         }
@@ -255,14 +271,18 @@ public class DefaultValidationService
             .withOrgUnits( orgUnits )
             .withPeriodTypeXs( new ArrayList<>( periodTypeXMap.values() ) )
             .withConstantMap( constantService.getConstantMap() )
-            .withInitialResults( validationResultService
-                .getValidationResults( parameterOrgUnit,
+            .withInitialResults( parameters.getOrgUnits() != null
+                ? validationResultService.getValidationResults( parameters.getOrgUnits(), parameters.getRules(), parameters.getPeriods() )
+                : validationResultService.getValidationResults( parameterOrgUnit,
                     parameters.isIncludeOrgUnitDescendants(), parameters.getRules(), parameters.getPeriods()) )
             .withSendNotifications( parameters.isSendNotifications() )
             .withPersistResults( parameters.isPersistResults() )
+            .withResolveResults( parameters.isResolveResults() )
             .withAttributeCombo( parameters.getAttributeOptionCombo() )
             .withDefaultAttributeCombo( categoryService.getDefaultCategoryOptionCombo() )
-            .withMaxResults( parameters.getMaxResults() );
+            .withMaxResults( parameters.getMaxResults() )
+            .withThreadPoolSize( parameters.getThreadPoolSize() )
+            .withJobConfiguration( parameters.getJobConfiguration() );
 
         if ( currentUser != null )
         {
@@ -273,9 +293,108 @@ public class DefaultValidationService
                     categoryService.getCogDimensionConstraints( currentUser.getUserCredentials() ) );
         }
 
+        if ( parameters.getChangedSince() != null || parameters.getChangedDataValues() != null )
+        {
+            builder.withChangedData( getChangedData( parameters, periodTypeXMap.values() ) );
+        }
+
         return builder.build();
     }
 
+    /**
+     * Finds the data which has changed since the given point in time, or takes
+     * the given changed data values, and maps it to the periods of the
+     * validation run for which it is relevant. The
+     * map is keyed by organisation unit and period, and maps each attribute
+     * option combo to the identifiers of the changed data elements. Deleted
+     * data values are included as they may affect validation results too.
+     *
+     * @param parameters the validation analysis parameters.
+     * @param periodTypeXs the extended period types of the validation run.
+     * @return a map of changed data.
+     */
+    private Map<String, SetMap<Long, Long>> getChangedData( ValidationAnalysisParams parameters,
+        Collection<PeriodTypeExtended> periodTypeXs )
+    {
+        Map<String, SetMap<Long, Long>> changedData = new HashMap<>();
+
+        Set<DataElement> dataElements = new HashSet<>();
+
+        for ( PeriodTypeExtended periodTypeX : periodTypeXs )
+        {
+            dataElements.addAll( periodTypeX.getDataElements() );
+            periodTypeX.getDataElementOperands().forEach( deo -> dataElements.add( deo.getDataElement() ) );
+        }
+
+        if ( dataElements.isEmpty() )
+        {
+            return changedData;
+        }
+
+        Collection<DeflatedDataValue> dataValues = parameters.getChangedDataValues();
+
+        if ( dataValues == null )
+        {
+            DataExportParams exportParams = new DataExportParams()
+                .setDataElements( dataElements )
+                .setLastUpdated( parameters.getChangedSince() )
+                .setIncludeDeleted( true );
+
+            if ( parameters.getOrgUnits() != null )
+            {
+                exportParams.setOrganisationUnits( new HashSet<>( parameters.getOrgUnits() ) );
+            }
+            else if ( parameters.getOrgUnit() != null )
+            {
+                exportParams
+                    .setOrganisationUnits( Sets.newHashSet( parameters.getOrgUnit() ) )
+                    .setIncludeChildren( parameters.isIncludeOrgUnitDescendants() );
+            }
+
+            if ( parameters.getAttributeOptionCombo() != null )
+            {
+                exportParams.setAttributeOptionCombos( Sets.newHashSet( parameters.getAttributeOptionCombo() ) );
+            }
+
+            dataValues = dataValueService.getDeflatedDataValues( exportParams );
+        }
+
+        Map<Long, Period> periodMap = new HashMap<>();
+
+        for ( DeflatedDataValue dv : dataValues )
+        {
+            Period dvPeriod = periodMap.computeIfAbsent( dv.getPeriodId(), periodService::getPeriod );
+
+            if ( dvPeriod == null )
+            {
+                continue;
+            }
+
+            for ( PeriodTypeExtended periodTypeX : periodTypeXs )
+            {
+                if ( !periodTypeX.getAllowedPeriodTypes().contains( dvPeriod.getPeriodType() ) )
+                {
+                    continue;
+                }
+
+                for ( Period period : periodTypeX.getPeriods() )
+                {
+                    if ( !period.getStartDate().before( dvPeriod.getStartDate() ) &&
+                        !period.getStartDate().after( dvPeriod.getEndDate() ) )
+                    {
+                        changedData.computeIfAbsent( ValidationRunContext.getChangedDataKey( dv.getSourceId(), period ),
+                            k -> new SetMap<>() ).putValue( dv.getAttributeOptionComboId(), dv.getDataElementId() );
+                    }
+                }
+            }
+        }
+
+        log.info( "Found " + dataValues.size() + " changed data values since " + parameters.getChangedSince() +
+            " affecting " + changedData.size() + " organisation unit periods" );
+
+        return changedData;
+    }
+
     /**
      * Adds Periods to the context, grouped by period type.
      *
@@ -330,6 +449,8 @@ public class DefaultValidationService
 
         SetMap<PeriodTypeExtended, DimensionalItemId> periodItemIds = new SetMap<>();
 
+        Map<ValidationRuleExtended, Set<DimensionalItemId>> ruleItemIds = new HashMap<>();
+
         for ( ValidationRule rule : rules )
         {
             PeriodTypeExtended periodX = periodTypeXMap.get( rule.getPeriodType() );
@@ -339,7 +460,9 @@ public class DefaultValidationService
                 continue; // Don't include rules for which there are no periods.
             }
 
-            periodX.getRuleXs().add( new ValidationRuleExtended( rule ) );
+            ValidationRuleExtended ruleX = new ValidationRuleExtended( rule );
+
+            periodX.getRuleXs().add( ruleX );
 
             Set<DimensionalItemId> ruleIds = Sets.union(
                 expressionService.getDimensionalItemIdsInExpression( rule.getLeftSide().getExpression() ),
@@ -347,6 +470,8 @@ public class DefaultValidationService
 
             periodItemIds.putValues( periodX, ruleIds );
 
+            ruleItemIds.put( ruleX, ruleIds );
+
             allItemIds.addAll( ruleIds );
         }
 
@@ -385,6 +510,23 @@ public class DefaultValidationService
                 }
             }
         }
+
+        // 4. Save the data elements of each rule for change driven validation.
+
+        for ( Map.Entry<ValidationRuleExtended, Set<DimensionalItemId>> entry : ruleItemIds.entrySet() )
+        {
+            ValidationRuleExtended ruleX = entry.getKey();
+
+            for ( DimensionalItemId itemId : entry.getValue() )
+            {
+                DimensionalItemObject item = dimensionItemMap.get( itemId );
+
+                if ( item != null )
+                {
+                    ruleX.addItem( item );
+                }
+            }
+        }
     }
 
     /**
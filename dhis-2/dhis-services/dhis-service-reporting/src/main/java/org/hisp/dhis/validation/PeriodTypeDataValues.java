@@ -0,0 +1,351 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MapMap;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+
+/**
+ * Holds the values of all periods of one period type for a batch of
+ * organisation units during a validation run, keyed by organisation unit,
+ * period, dimensional item and attribute option combo.
+ * <p>
+ * The values are prefetched once for all periods and then read for each
+ * organisation unit and period. To keep the footprint small when many
+ * periods are prefetched, the values are stored in primitive arrays of an
+ * open addressing hash table with a composite long key instead of nested
+ * maps. An index from organisation unit and period to the table slots is
+ * built when values are first read.
+ */
+public class PeriodTypeDataValues
+{
+    private static final long EMPTY = -1L;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<Long, Integer> orgUnitIndex = new HashMap<>();
+
+    private final Map<Period, Integer> periodIndex = new HashMap<>();
+
+    private final Map<DimensionalItemObject, Integer> itemIndex = new HashMap<>();
+
+    private final List<DimensionalItemObject> items = new ArrayList<>();
+
+    private final Map<String, Integer> aocIndex = new HashMap<>();
+
+    private final List<String> aocs = new ArrayList<>();
+
+    private final int cellCount;
+
+    private long[] keys;
+
+    private double[] values;
+
+    private long[] intervals;
+
+    private int size;
+
+    private int[] cellStart;
+
+    private int[] cellSlots;
+
+    public PeriodTypeDataValues( Collection<OrganisationUnit> orgUnits, Collection<Period> periods,
+        Collection<? extends DimensionalItemObject> dimensionItems )
+    {
+        orgUnits.forEach( ou -> orgUnitIndex.putIfAbsent( ou.getId(), orgUnitIndex.size() ) );
+        periods.forEach( p -> periodIndex.putIfAbsent( p, periodIndex.size() ) );
+
+        for ( DimensionalItemObject item : dimensionItems )
+        {
+            if ( itemIndex.putIfAbsent( item, items.size() ) == null )
+            {
+                items.add( item );
+            }
+        }
+
+        cellCount = Math.max( orgUnitIndex.size() * periodIndex.size(), 1 );
+
+        allocate( INITIAL_CAPACITY );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds a data value. Values for the same key which are stored for periods
+     * of the same length are summed. A value stored for a shorter period
+     * replaces values stored for longer periods, and is not replaced by values
+     * stored for longer periods.
+     *
+     * @param orgUnitId the organisation unit identifier.
+     * @param period the period for which the value is used.
+     * @param aoc the attribute option combo uid.
+     * @param item the dimensional item.
+     * @param value the value.
+     * @param periodInterval the length of the period for which the value is
+     *        stored, in milliseconds.
+     */
+    public void addValue( long orgUnitId, Period period, String aoc, DimensionalItemObject item,
+        double value, long periodInterval )
+    {
+        long key = getKey( orgUnitId, period, aoc, item );
+
+        if ( key == EMPTY )
+        {
+            return;
+        }
+
+        int slot = findSlot( key );
+
+        if ( keys[slot] == EMPTY || periodInterval < intervals[slot] )
+        {
+            insert( slot, key, value, periodInterval );
+        }
+        else if ( periodInterval == intervals[slot] )
+        {
+            values[slot] += value;
+        }
+    }
+
+    /**
+     * Puts a value, replacing any value already stored for the same key.
+     *
+     * @param orgUnitId the organisation unit identifier.
+     * @param period the period for which the value is used.
+     * @param aoc the attribute option combo uid.
+     * @param item the dimensional item.
+     * @param value the value.
+     */
+    public void putValue( long orgUnitId, Period period, String aoc, DimensionalItemObject item, double value )
+    {
+        long key = getKey( orgUnitId, period, aoc, item );
+
+        if ( key != EMPTY )
+        {
+            insert( findSlot( key ), key, value, 0L );
+        }
+    }
+
+    /**
+     * Returns a new map with the values of the given organisation unit and
+     * period, by attribute option combo and dimensional item.
+     *
+     * @param orgUnitId the organisation unit identifier.
+     * @param period the period.
+     */
+    public MapMap<String, DimensionalItemObject, Double> getValues( long orgUnitId, Period period )
+    {
+        MapMap<String, DimensionalItemObject, Double> map = new MapMap<>();
+
+        Integer cell = getCell( orgUnitId, period );
+
+        if ( cell == null || size == 0 )
+        {
+            return map;
+        }
+
+        if ( cellStart == null )
+        {
+            buildCellIndex();
+        }
+
+        for ( int i = cellStart[cell]; i < cellStart[cell + 1]; i++ )
+        {
+            int slot = cellSlots[i];
+
+            long aocItem = keys[slot] / cellCount;
+
+            map.putEntry( aocs.get( (int) ( aocItem / items.size() ) ),
+                items.get( (int) ( aocItem % items.size() ) ), values[slot] );
+        }
+
+        return map;
+    }
+
+    /**
+     * Returns the number of stored values.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Integer getCell( long orgUnitId, Period period )
+    {
+        Integer ouInx = orgUnitIndex.get( orgUnitId );
+        Integer peInx = periodIndex.get( period );
+
+        return ouInx == null || peInx == null ? null : ouInx * periodIndex.size() + peInx;
+    }
+
+    /**
+     * Returns the composite key of the given value, or EMPTY if the
+     * organisation unit, period or item is not part of this batch.
+     */
+    private long getKey( long orgUnitId, Period period, String aoc, DimensionalItemObject item )
+    {
+        Integer cell = getCell( orgUnitId, period );
+        Integer itemInx = itemIndex.get( item );
+
+        if ( cell == null || itemInx == null )
+        {
+            return EMPTY;
+        }
+
+        return ( (long) getAocIndex( aoc ) * items.size() + itemInx ) * cellCount + cell;
+    }
+
+    private void insert( int slot, long key, double value, long periodInterval )
+    {
+        if ( keys[slot] == EMPTY )
+        {
+            keys[slot] = key;
+            size++;
+            cellStart = null;
+        }
+
+        values[slot] = value;
+        intervals[slot] = periodInterval;
+
+        if ( size * 2 > keys.length )
+        {
+            rehash( keys.length * 2 );
+        }
+    }
+
+    private int getAocIndex( String aoc )
+    {
+        Integer inx = aocIndex.get( aoc );
+
+        if ( inx == null )
+        {
+            inx = aocs.size();
+            aocIndex.put( aoc, inx );
+            aocs.add( aoc );
+        }
+
+        return inx;
+    }
+
+    private int findSlot( long key )
+    {
+        int mask = keys.length - 1;
+
+        long h = key * 0x9E3779B97F4A7C15L;
+
+        int slot = (int) ( h ^ ( h >>> 32 ) ) & mask;
+
+        while ( keys[slot] != EMPTY && keys[slot] != key )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+
+        return slot;
+    }
+
+    private void allocate( int capacity )
+    {
+        keys = new long[capacity];
+        values = new double[capacity];
+        intervals = new long[capacity];
+
+        Arrays.fill( keys, EMPTY );
+    }
+
+    private void rehash( int capacity )
+    {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        long[] oldIntervals = intervals;
+
+        allocate( capacity );
+
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldKeys[i] != EMPTY )
+            {
+                int slot = findSlot( oldKeys[i] );
+
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                intervals[slot] = oldIntervals[i];
+            }
+        }
+    }
+
+    /**
+     * Builds the index from organisation unit and period cells to table slots
+     * by counting sort.
+     */
+    private void buildCellIndex()
+    {
+        int[] start = new int[cellCount + 1];
+
+        for ( long key : keys )
+        {
+            if ( key != EMPTY )
+            {
+                start[(int) ( key % cellCount ) + 1]++;
+            }
+        }
+
+        for ( int c = 0; c < cellCount; c++ )
+        {
+            start[c + 1] += start[c];
+        }
+
+        int[] next = Arrays.copyOf( start, cellCount );
+
+        cellSlots = new int[size];
+
+        for ( int slot = 0; slot < keys.length; slot++ )
+        {
+            if ( keys[slot] != EMPTY )
+            {
+                cellSlots[next[(int) ( keys[slot] % cellCount )]++] = slot;
+            }
+        }
+
+        cellStart = start;
+    }
+}
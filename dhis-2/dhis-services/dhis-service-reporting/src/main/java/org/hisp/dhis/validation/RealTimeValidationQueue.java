@@ -0,0 +1,384 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.common.DimensionService;
+import org.hisp.dhis.common.DimensionalItemId;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MetadataChangeTracker;
+import org.hisp.dhis.common.SetMap;
+import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValuesChangedEvent;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Validates data entry changes in near real time when real-time validation is
+ * enabled. Changed data values are put on a bounded in-process queue when the
+ * saving transaction commits, and a background thread periodically drains the
+ * queue and re-evaluates only the form validation rules which reference the
+ * changed data elements, for the affected organisation units and periods.
+ * Validation results are persisted and notifications sent as for scheduled
+ * validation.
+ */
+public class RealTimeValidationQueue
+{
+    private static final Log log = LogFactory.getLog( RealTimeValidationQueue.class );
+
+    private static final int QUEUE_CAPACITY = 100000;
+
+    private static final long PROCESS_DELAY_SECONDS = 5;
+
+    /**
+     * Maximum age of the rule index, which bounds how long changes which are
+     * not seen by the metadata change tracker go unnoticed.
+     */
+    private static final long RULE_INDEX_MAX_AGE_MILLIS = 10 * 60 * 1000;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
+    @Autowired
+    private ValidationService validationService;
+
+    @Autowired
+    private ValidationRuleService validationRuleService;
+
+    @Autowired
+    private ExpressionService expressionService;
+
+    @Autowired
+    private DimensionService dimensionService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MetadataChangeTracker metadataChangeTracker;
+
+    private final BlockingQueue<DeflatedDataValue> queue = new LinkedBlockingQueue<>( QUEUE_CAPACITY );
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Maps data element identifiers to the identifiers of the rules which
+     * reference them.
+     */
+    private SetMap<Long, Long> ruleIndex;
+
+    private long ruleIndexVersion = -1;
+
+    private long ruleIndexTime;
+
+    // -------------------------------------------------------------------------
+    // Initialization
+    // -------------------------------------------------------------------------
+
+    @PostConstruct
+    public void init()
+    {
+        executor = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            Thread thread = new Thread( runnable, "real-time-validation" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        executor.scheduleWithFixedDelay( this::processQueue, PROCESS_DELAY_SECONDS, PROCESS_DELAY_SECONDS, TimeUnit.SECONDS );
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        executor.shutdownNow();
+    }
+
+    // -------------------------------------------------------------------------
+    // Event handling
+    // -------------------------------------------------------------------------
+
+    @TransactionalEventListener( fallbackExecution = true )
+    public void onDataValuesChanged( DataValuesChangedEvent event )
+    {
+        if ( !(Boolean) systemSettingManager.getSystemSetting( SettingKey.REAL_TIME_VALIDATION ) )
+        {
+            return;
+        }
+
+        int rejected = 0;
+
+        for ( DataValue dataValue : event.getDataValues() )
+        {
+            Period period = dataValue.getPeriod();
+
+            DeflatedDataValue value = new DeflatedDataValue( dataValue );
+            value.setPeriod( period.getPeriodType().getName(), period.getStartDate(), period.getEndDate() );
+
+            if ( !queue.offer( value ) )
+            {
+                rejected++;
+            }
+        }
+
+        if ( rejected > 0 )
+        {
+            log.warn( "Real-time validation queue is full, changes not validated: " + rejected );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Drains the queue and validates the changed data in one analysis, and
+     * removes results which are no longer violated. Exceptions are logged
+     * and not propagated so that subsequent executions are not suppressed.
+     */
+    private void processQueue()
+    {
+        List<DeflatedDataValue> values = new ArrayList<>();
+
+        queue.drainTo( values );
+
+        if ( values.isEmpty() )
+        {
+            return;
+        }
+
+        try
+        {
+            transactionTemplate.execute( status -> {
+                validate( values );
+                return null;
+            } );
+        }
+        catch ( Exception ex )
+        {
+            log.error( "Real-time validation failed: " + DebugUtils.getStackTrace( ex ) );
+        }
+    }
+
+    private void validate( List<DeflatedDataValue> values )
+    {
+        SetMap<Long, Long> index = getRuleIndex();
+
+        Map<Long, List<DeflatedDataValue>> orgUnitValues = new HashMap<>();
+
+        for ( DeflatedDataValue value : values )
+        {
+            if ( index.containsKey( value.getDataElementId() ) )
+            {
+                orgUnitValues.computeIfAbsent( value.getSourceId(), k -> new ArrayList<>() ).add( value );
+            }
+        }
+
+        if ( orgUnitValues.isEmpty() )
+        {
+            return;
+        }
+
+        Map<Long, ValidationRule> ruleMap = new HashMap<>();
+        Map<String, List<Period>> rulePeriodMap = new HashMap<>();
+
+        Set<ValidationRule> rules = new HashSet<>();
+        Set<Period> periods = new HashSet<>();
+        List<OrganisationUnit> orgUnits = organisationUnitService.getOrganisationUnits( orgUnitValues.keySet() );
+        List<DeflatedDataValue> changedValues = new ArrayList<>();
+
+        for ( OrganisationUnit orgUnit : orgUnits )
+        {
+            for ( DeflatedDataValue value : orgUnitValues.get( orgUnit.getId() ) )
+            {
+                for ( Long ruleId : index.get( value.getDataElementId() ) )
+                {
+                    ValidationRule rule = ruleMap.computeIfAbsent( ruleId, validationRuleService::getValidationRule );
+
+                    if ( rule != null )
+                    {
+                        rules.add( rule );
+                        periods.addAll( rulePeriodMap.computeIfAbsent( rule.getPeriodType().getName() + "-" + value.getPeriod().getIsoDate(),
+                            k -> getRulePeriods( rule.getPeriodType(), value.getPeriod() ) ) );
+                    }
+                }
+
+                changedValues.add( value );
+            }
+        }
+
+        if ( rules.isEmpty() || periods.isEmpty() )
+        {
+            return;
+        }
+
+        // One analysis for all organisation units, the changed data limits
+        // validation to the affected organisation units and periods
+
+        ValidationAnalysisParams params = validationService
+            .newParamsBuilder( rules, null, periods )
+            .withOrgUnits( orgUnits )
+            .withChangedDataValues( changedValues )
+            .withResolveResults( true )
+            .withMaxResults( ValidationService.MAX_SCHEDULED_ALERTS )
+            .withPersistResults( true )
+            .withSendNotifications( true )
+            .build();
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( params );
+
+        log.debug( "Real-time validation of " + changedValues.size() + " changed data values for " +
+            orgUnits.size() + " organisation units found " + results.size() + " violations" );
+    }
+
+    /**
+     * Returns the periods of the given rule period type which start within the
+     * given data value period. Data values can only affect rules with the same
+     * or a shorter period type.
+     *
+     * @param rulePeriodType the period type of the rule.
+     * @param dataPeriod the period of the changed data value.
+     * @return a list of periods.
+     */
+    private List<Period> getRulePeriods( PeriodType rulePeriodType, Period dataPeriod )
+    {
+        List<Period> periods = new ArrayList<>();
+
+        if ( rulePeriodType.getFrequencyOrder() > dataPeriod.getPeriodType().getFrequencyOrder() )
+        {
+            return periods;
+        }
+
+        Period period = rulePeriodType.createPeriod( dataPeriod.getStartDate() );
+
+        while ( !period.getStartDate().after( dataPeriod.getEndDate() ) )
+        {
+            if ( !period.getStartDate().before( dataPeriod.getStartDate() ) )
+            {
+                periods.add( periodService.reloadPeriod( period ) );
+            }
+
+            period = rulePeriodType.getNextPeriod( period );
+        }
+
+        return periods;
+    }
+
+    /**
+     * Returns the index of rules by referenced data element, which is rebuilt
+     * whenever validation rules have changed or the index is older than
+     * {@link #RULE_INDEX_MAX_AGE_MILLIS}, or for every drain when metadata
+     * changes are not tracked.
+     */
+    private SetMap<Long, Long> getRuleIndex()
+    {
+        long version = metadataChangeTracker.getVersion( ValidationRule.class );
+        long now = System.currentTimeMillis();
+
+        if ( ruleIndex != null && ruleIndexVersion == version && now - ruleIndexTime < RULE_INDEX_MAX_AGE_MILLIS &&
+            metadataChangeTracker.isEnabled() )
+        {
+            return ruleIndex;
+        }
+
+        Map<ValidationRuleExtended, Set<DimensionalItemId>> ruleItemIds = new HashMap<>();
+
+        Set<DimensionalItemId> allItemIds = new HashSet<>();
+
+        for ( ValidationRule rule : validationRuleService.getAllFormValidationRules() )
+        {
+            Set<DimensionalItemId> itemIds = Sets.union(
+                expressionService.getDimensionalItemIdsInExpression( rule.getLeftSide().getExpression() ),
+                expressionService.getDimensionalItemIdsInExpression( rule.getRightSide().getExpression() ) );
+
+            ruleItemIds.put( new ValidationRuleExtended( rule ), itemIds );
+
+            allItemIds.addAll( itemIds );
+        }
+
+        Map<DimensionalItemId, DimensionalItemObject> itemMap = dimensionService.getDataDimensionalItemObjectMap( allItemIds );
+
+        SetMap<Long, Long> index = new SetMap<>();
+
+        for ( Map.Entry<ValidationRuleExtended, Set<DimensionalItemId>> entry : ruleItemIds.entrySet() )
+        {
+            ValidationRuleExtended ruleX = entry.getKey();
+
+            entry.getValue().stream()
+                .map( itemMap::get )
+                .filter( item -> item != null )
+                .forEach( ruleX::addItem );
+
+            ruleX.getDataElementIds().forEach( id -> index.putValue( id, ruleX.getRule().getId() ) );
+        }
+
+        ruleIndex = index;
+        ruleIndexVersion = version;
+        ruleIndexTime = now;
+
+        log.info( "Built real-time validation rule index for data elements: " + index.size() );
+
+        return index;
+    }
+}
@@ -0,0 +1,76 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.analytics.AnalyticsTableService;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.commons.util.DebugUtils;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Appends persisted validation results to the validation result analytics
+ * table after the validation run is committed, so that validation results are
+ * available in analytics without waiting for the next analytics table update.
+ * Has no effect unless incremental analytics table updates are enabled.
+ */
+@Async
+public class ValidationResultAnalyticsListener
+{
+    private static final Log log = LogFactory.getLog( ValidationResultAnalyticsListener.class );
+
+    private AnalyticsTableService validationResultTableService;
+
+    public void setValidationResultTableService( AnalyticsTableService validationResultTableService )
+    {
+        this.validationResultTableService = validationResultTableService;
+    }
+
+    @TransactionalEventListener
+    public void onValidationResultsPersisted( ValidationResultsPersistedEvent event )
+    {
+        if ( event.getResultCount() == 0 )
+        {
+            return;
+        }
+
+        try
+        {
+            boolean appended = validationResultTableService.append( AnalyticsTableUpdateParams.newBuilder().build() );
+
+            log.info( String.format( "Validation results appended to analytics table: %b", appended ) );
+        }
+        catch ( Exception ex )
+        {
+            log.warn( "Failed to append validation results to analytics table: " + DebugUtils.getStackTrace( ex ) );
+        }
+    }
+}
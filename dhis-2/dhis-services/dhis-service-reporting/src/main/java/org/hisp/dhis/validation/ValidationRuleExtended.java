@@ -33,6 +33,9 @@ import java.util.Set;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hisp.dhis.common.DimensionItemType;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.dataelement.DataElementOperand;
 
 /**
  * Holds information for each validation rule that is needed during a validation
@@ -57,6 +60,10 @@ public class ValidationRuleExtended
 
     private boolean rightSlidingWindow;
 
+    private Set<Long> dataElementIds = new HashSet<>();
+
+    private boolean eventData;
+
     public ValidationRuleExtended( ValidationRule rule )
     {
         this.rule = rule;
@@ -71,7 +78,31 @@ public class ValidationRuleExtended
             .append( "rule", rule )
             .append( "organisationUnitLevels", organisationUnitLevels )
             .append( "leftSlidingWindow", leftSlidingWindow )
-            .append( "rightSlidingWindow", rightSlidingWindow ).toString();
+            .append( "rightSlidingWindow", rightSlidingWindow )
+            .append( "dataElementIds", dataElementIds )
+            .append( "eventData", eventData ).toString();
+    }
+
+    /**
+     * Registers a dimensional item referenced by the rule, keeping track of
+     * the data elements and whether the rule references event data.
+     *
+     * @param item the dimensional item object.
+     */
+    public void addItem( DimensionalItemObject item )
+    {
+        if ( DimensionItemType.DATA_ELEMENT == item.getDimensionItemType() )
+        {
+            dataElementIds.add( item.getId() );
+        }
+        else if ( DimensionItemType.DATA_ELEMENT_OPERAND == item.getDimensionItemType() )
+        {
+            dataElementIds.add( ( (DataElementOperand) item ).getDataElement().getId() );
+        }
+        else
+        {
+            eventData = true;
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -97,4 +128,36 @@ public class ValidationRuleExtended
     {
         return rightSlidingWindow;
     }
+
+    /**
+     * Gets the identifiers of the data elements referenced by the rule, either
+     * directly or through data element operands.
+     */
+    public Set<Long> getDataElementIds()
+    {
+        return dataElementIds;
+    }
+
+    /**
+     * Indicates whether the rule references event data, whose changes can not
+     * be detected through data value timestamps.
+     */
+    public boolean isEventData()
+    {
+        return eventData;
+    }
+
+    public void setEventData( boolean eventData )
+    {
+        this.eventData = eventData;
+    }
+
+    /**
+     * Indicates whether changes to the data of this rule can be tracked through
+     * data value timestamps.
+     */
+    public boolean isChangeTracked()
+    {
+        return !eventData && !dataElementIds.isEmpty();
+    }
 }
@@ -33,11 +33,15 @@ import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryOptionGroup;
 import org.hisp.dhis.common.MapMapMap;
+import org.hisp.dhis.common.SetMap;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.scheduling.JobConfiguration;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -53,7 +57,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  */
 public class ValidationRunContext
 {
-    public static final int ORG_UNITS_PER_TASK = 500;
+    public static final int ORG_UNITS_PER_TASK = 100;
 
     private Queue<ValidationResult> validationResults;
 
@@ -81,11 +85,33 @@ public class ValidationRunContext
 
     private boolean persistResults = false;
 
+    private int threadPoolSize = 0;
+
+    private JobConfiguration jobConfiguration;
+
     private MapMapMap<OrganisationUnit, ValidationRule, Period, List<ValidationResult>> initialValidationResults = new MapMapMap<>();
 
+    /**
+     * Identifiers of changed data elements by attribute option combo identifier,
+     * by organisation unit and period key. Null if all data is validated.
+     */
+    private Map<String, SetMap<Long, Long>> changedData;
+
+    /**
+     * Whether initial validation results which are no longer violated by the
+     * changed data are resolved.
+     */
+    private boolean resolveResults = false;
+
+    /**
+     * Initial validation results which are no longer violated.
+     */
+    private Queue<ValidationResult> resolvedValidationResults;
+
     public ValidationRunContext()
     {
         validationResults = new ConcurrentLinkedQueue<>();
+        resolvedValidationResults = new ConcurrentLinkedQueue<>();
     }
 
     // -------------------------------------------------------------------------
@@ -152,11 +178,26 @@ public class ValidationRunContext
         return persistResults;
     }
 
+    public int getThreadPoolSize()
+    {
+        return threadPoolSize;
+    }
+
+    public JobConfiguration getJobConfiguration()
+    {
+        return jobConfiguration;
+    }
+
     public Queue<ValidationResult> getValidationResults()
     {
         return validationResults;
     }
 
+    public Queue<ValidationResult> getResolvedValidationResults()
+    {
+        return resolvedValidationResults;
+    }
+
     public Map<Long, Period> getPeriodIdMap()
     {
         return periodIdMap;
@@ -198,9 +239,143 @@ public class ValidationRunContext
 
     }
 
+    /**
+     * Returns the attribute option combo identifiers of the initial validation
+     * results of the given organisation unit, rule and period.
+     *
+     * @param organisationUnit the organisation unit.
+     * @param validationRule the validation rule.
+     * @param period the period.
+     */
+    public Set<String> getInitialAttributeOptionCombos( OrganisationUnit organisationUnit,
+        ValidationRule validationRule, Period period )
+    {
+        List<ValidationResult> validationResultList = initialValidationResults
+            .getValue( organisationUnit, validationRule, period );
+
+        Set<String> attributeOptionCombos = new HashSet<>();
+
+        if ( validationResultList != null )
+        {
+            validationResultList.forEach( vr -> attributeOptionCombos.add( vr.getAttributeOptionCombo().getUid() ) );
+        }
+
+        return attributeOptionCombos;
+    }
+
+    /**
+     * Marks the initial validation results of the given organisation unit,
+     * rule, period and attribute option combo as resolved, as the rule is no
+     * longer violated. Resolved results are removed from the results of the
+     * analysis.
+     *
+     * @param organisationUnit the organisation unit.
+     * @param validationRule the validation rule.
+     * @param period the period.
+     * @param attributeOptionCombo the attribute option combo identifier.
+     */
+    public void resolveValidationResults( OrganisationUnit organisationUnit, ValidationRule validationRule,
+        Period period, String attributeOptionCombo )
+    {
+        List<ValidationResult> validationResultList = initialValidationResults
+            .getValue( organisationUnit, validationRule, period );
+
+        if ( validationResultList != null )
+        {
+            for ( ValidationResult vr : validationResultList )
+            {
+                if ( vr.getAttributeOptionCombo().getUid().equals( attributeOptionCombo ) )
+                {
+                    validationResults.remove( vr );
+                    resolvedValidationResults.add( vr );
+                }
+            }
+        }
+    }
+
+    /**
+     * Indicates whether only organisation units, periods and attribute option
+     * combos with changed data are validated.
+     */
+    public boolean isChangeDriven()
+    {
+        return changedData != null;
+    }
+
+    /**
+     * Indicates whether initial validation results which are no longer
+     * violated are resolved. Only applies to change driven runs.
+     */
+    public boolean isResolveResults()
+    {
+        return resolveResults && isChangeDriven();
+    }
+
+    /**
+     * Indicates whether the given rule must be validated for the given
+     * organisation unit and period, i.e. whether data for any attribute option
+     * combo referenced by the rule has changed, or changes to the data of the
+     * rule can not be tracked.
+     *
+     * @param orgUnitId the organisation unit identifier.
+     * @param period the period.
+     * @param ruleX the validation rule extended.
+     */
+    public boolean hasChangedData( long orgUnitId, Period period, ValidationRuleExtended ruleX )
+    {
+        if ( !isChangeDriven() || !ruleX.isChangeTracked() )
+        {
+            return true;
+        }
+
+        SetMap<Long, Long> aocDataElements = changedData.get( getChangedDataKey( orgUnitId, period ) );
+
+        return aocDataElements != null && aocDataElements.values().stream()
+            .anyMatch( dataElementIds -> !Collections.disjoint( dataElementIds, ruleX.getDataElementIds() ) );
+    }
+
+    /**
+     * Indicates whether the given rule must be validated for the given
+     * organisation unit, period and attribute option combo.
+     *
+     * @param orgUnitId the organisation unit identifier.
+     * @param period the period.
+     * @param aocId the attribute option combo identifier.
+     * @param ruleX the validation rule extended.
+     */
+    public boolean hasChangedData( long orgUnitId, Period period, long aocId, ValidationRuleExtended ruleX )
+    {
+        if ( !isChangeDriven() || !ruleX.isChangeTracked() )
+        {
+            return true;
+        }
+
+        SetMap<Long, Long> aocDataElements = changedData.get( getChangedDataKey( orgUnitId, period ) );
+
+        Set<Long> dataElementIds = aocDataElements != null ? aocDataElements.get( aocId ) : null;
+
+        return dataElementIds != null && !Collections.disjoint( dataElementIds, ruleX.getDataElementIds() );
+    }
+
+    /**
+     * Returns the key of changed data for the given organisation unit and
+     * period.
+     *
+     * @param orgUnitId the organisation unit identifier.
+     * @param period the period.
+     */
+    public static String getChangedDataKey( long orgUnitId, Period period )
+    {
+        return orgUnitId + "-" + period.getIsoDate();
+    }
+
+    /**
+     * Returns the number of tasks of the analysis, one for each block of
+     * organisation units and period type.
+     */
     public int getNumberOfTasks()
     {
-        return ( orgUnits.size() + ORG_UNITS_PER_TASK - 1 ) / ORG_UNITS_PER_TASK;
+        return ( ( orgUnits.size() + ORG_UNITS_PER_TASK - 1 ) / ORG_UNITS_PER_TASK ) * periodTypeXs.size();
     }
 
     public boolean isAnalysisComplete()
@@ -337,6 +512,42 @@ public class ValidationRunContext
             return this;
         }
 
+        /**
+         * Sets the number of threads to use.
+         *
+         * @param threadPoolSize 0 means based on the number of processor cores
+         */
+        public Builder withThreadPoolSize( int threadPoolSize )
+        {
+            this.context.threadPoolSize = threadPoolSize;
+            return this;
+        }
+
+        public Builder withJobConfiguration( JobConfiguration jobConfiguration )
+        {
+            this.context.jobConfiguration = jobConfiguration;
+            return this;
+        }
+
+        /**
+         * Limits validation to the organisation units, periods and attribute
+         * option combos with changed data.
+         *
+         * @param changedData identifiers of changed data elements by attribute
+         *        option combo identifier, by organisation unit and period key.
+         */
+        public Builder withChangedData( Map<String, SetMap<Long, Long>> changedData )
+        {
+            this.context.changedData = changedData;
+            return this;
+        }
+
+        public Builder withResolveResults( boolean resolveResults )
+        {
+            this.context.resolveResults = resolveResults;
+            return this;
+        }
+
         public Builder withInitialResults( Collection<ValidationResult> results )
         {
             this.context.validationResults.addAll( results );
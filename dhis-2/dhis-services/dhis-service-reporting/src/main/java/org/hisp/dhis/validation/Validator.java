@@ -28,18 +28,20 @@ package org.hisp.dhis.validation;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.google.common.collect.Lists;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.system.notification.Notifier;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Evaluates validation rules.
@@ -50,9 +52,11 @@ public class Validator
 {
     /**
      * Evaluates validation rules for a collection of organisation units. This
-     * method breaks the job down by organisation unit. It assigns the
-     * evaluation for each organisation unit to a task that can be evaluated
-     * independently in a multi-threaded environment.
+     * method breaks the job down by blocks of organisation units and period
+     * type. The evaluation for each block and period type is assigned to a
+     * task that can be evaluated independently on a work-stealing pool, so
+     * that threads finishing early take over remaining work from busy
+     * threads.
      * <p/>
      * Return early with no results if there are no organisation units
      * or no validation rules.
@@ -72,27 +76,20 @@ public class Validator
             return context.getValidationResults();
         }
 
-        ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
+        Progress progress = new Progress( context.getJobConfiguration(),
+            context.getJobConfiguration() != null ? applicationContext.getBean( Notifier.class ) : null,
+            context.getNumberOfTasks() );
 
-        List<List<OrganisationUnit>> orgUnitLists = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_TASK );
-
-        for ( List<OrganisationUnit> orgUnits : orgUnitLists )
-        {
-            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
-            task.init( orgUnits, context, analyticsService );
-
-            executor.execute( task );
-        }
-
-        executor.shutdown();
+        ForkJoinPool pool = new ForkJoinPool( threadPoolSize );
 
         try
         {
-            executor.awaitTermination( 6, TimeUnit.HOURS );
+            pool.invoke( new ValidationAction( context.getOrgUnits(), context, applicationContext,
+                analyticsService, progress ) );
         }
-        catch ( InterruptedException e )
+        finally
         {
-            executor.shutdownNow();
+            pool.shutdown();
         }
 
         reloadAttributeOptionCombos( context.getValidationResults(), categoryService );
@@ -108,11 +105,16 @@ public class Validator
      */
     private static int getThreadPoolSize( ValidationRunContext context )
     {
-        int threadPoolSize = SystemUtils.getCpuCores();
+        int threadPoolSize = context.getThreadPoolSize();
 
-        if ( threadPoolSize > 2 )
+        if ( threadPoolSize <= 0 )
         {
-            threadPoolSize--;
+            threadPoolSize = SystemUtils.getCpuCores();
+
+            if ( threadPoolSize > 2 )
+            {
+                threadPoolSize--;
+            }
         }
 
         int numberOfTasks = context.getNumberOfTasks();
@@ -140,4 +142,133 @@ public class Validator
                 .getCategoryOptionCombo( result.getAttributeOptionCombo().getId() ) );
         }
     }
+
+    /**
+     * Validates a list of organisation units. Lists larger than a block are
+     * split in halves which are forked, so that idle threads can steal them.
+     * A block is validated by one task for each period type.
+     */
+    private static class ValidationAction
+        extends RecursiveAction
+    {
+        private final List<OrganisationUnit> orgUnits;
+
+        private final ValidationRunContext context;
+
+        private final ApplicationContext applicationContext;
+
+        private final AnalyticsService analyticsService;
+
+        private final Progress progress;
+
+        ValidationAction( List<OrganisationUnit> orgUnits, ValidationRunContext context,
+            ApplicationContext applicationContext, AnalyticsService analyticsService, Progress progress )
+        {
+            this.orgUnits = orgUnits;
+            this.context = context;
+            this.applicationContext = applicationContext;
+            this.analyticsService = analyticsService;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( context.isAnalysisComplete() )
+            {
+                return;
+            }
+
+            int blockSize = ValidationRunContext.ORG_UNITS_PER_TASK;
+
+            if ( orgUnits.size() > blockSize )
+            {
+                int split = ( ( orgUnits.size() + blockSize - 1 ) / blockSize / 2 ) * blockSize;
+
+                invokeAll(
+                    split( orgUnits.subList( 0, split ) ),
+                    split( orgUnits.subList( split, orgUnits.size() ) ) );
+
+                return;
+            }
+
+            List<RecursiveAction> tasks = new ArrayList<>();
+
+            for ( PeriodTypeExtended periodTypeX : context.getPeriodTypeXs() )
+            {
+                tasks.add( new RecursiveAction()
+                {
+                    @Override
+                    protected void compute()
+                    {
+                        runTask( periodTypeX );
+                    }
+                } );
+            }
+
+            invokeAll( tasks );
+        }
+
+        private ValidationAction split( List<OrganisationUnit> orgUnitBlocks )
+        {
+            return new ValidationAction( orgUnitBlocks, context, applicationContext, analyticsService, progress );
+        }
+
+        private void runTask( PeriodTypeExtended periodTypeX )
+        {
+            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
+            task.init( orgUnits, periodTypeX, context, analyticsService );
+
+            try
+            {
+                task.run();
+            }
+            catch ( RuntimeException ex )
+            {
+                // Already logged by the task, let the other tasks continue
+            }
+            finally
+            {
+                progress.taskCompleted();
+            }
+        }
+    }
+
+    /**
+     * Reports the progress of a validation run through the notifier, once for
+     * every tenth of the tasks completed.
+     */
+    private static class Progress
+    {
+        private final JobConfiguration jobConfiguration;
+
+        private final Notifier notifier;
+
+        private final int tasks;
+
+        private final AtomicInteger completedTasks = new AtomicInteger();
+
+        Progress( JobConfiguration jobConfiguration, Notifier notifier, int tasks )
+        {
+            this.jobConfiguration = jobConfiguration;
+            this.notifier = notifier;
+            this.tasks = tasks;
+        }
+
+        void taskCompleted()
+        {
+            int completed = completedTasks.incrementAndGet();
+
+            if ( jobConfiguration == null || tasks == 0 )
+            {
+                return;
+            }
+
+            if ( ( completed * 10 ) / tasks > ( ( completed - 1 ) * 10 ) / tasks )
+            {
+                notifier.notify( jobConfiguration, "Validated " + ( completed * 100 / tasks ) + "% (" +
+                    completed + " of " + tasks + " tasks)" );
+            }
+        }
+    }
 }
@@ -36,6 +36,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.collections4.SetUtils;
@@ -46,6 +47,8 @@ import org.hisp.dhis.scheduling.AbstractJob;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.JobType;
 import org.hisp.dhis.scheduling.parameters.MonitoringJobParameters;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.dhis.validation.ValidationAnalysisParams;
@@ -81,6 +84,9 @@ public class MonitoringJob
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
     // -------------------------------------------------------------------------
     // Implementation
     // -------------------------------------------------------------------------
@@ -99,6 +105,8 @@ public class MonitoringJob
 
         MonitoringJobParameters monitoringJobParameters = (MonitoringJobParameters) jobConfiguration.getJobParameters();
 
+        final Date startTime = new Date();
+
         //TODO improve collection usage
         
         try
@@ -146,10 +154,19 @@ public class MonitoringJob
                 .withMaxResults( ValidationService.MAX_SCHEDULED_ALERTS )
                 .withSendNotifications( monitoringJobParameters.isSendNotifications() )
                 .withPersistResults( monitoringJobParameters.isPersistResults() )
+                .withChangedSince( getChangedSince( monitoringJobParameters ) )
+                .withThreadPoolSize( monitoringJobParameters.getThreadPoolSize() )
+                .withJobConfiguration( jobConfiguration )
                 .build();
 
             validationService.validationAnalysis( parameters );
 
+            if ( monitoringJobParameters.isPersistResults() )
+            {
+                monitoringJobParameters.setLastSuccessfulRun( startTime );
+                monitoringJobParameters.setLastSuccessfulRunKey( monitoringJobParameters.getRunKey() );
+            }
+
             notifier.notify( jobConfiguration, INFO, "Monitoring process done", true );
         }
         catch ( RuntimeException ex )
@@ -162,4 +179,33 @@ public class MonitoringJob
         }
     }
 
+    /**
+     * Returns the point in time since which changed data should be validated,
+     * which is the start of the last successful run of this job for
+     * incremental jobs, less the margin of
+     * {@link SettingKey#MONITORING_WATERMARK_MARGIN_MINUTES}, as data values
+     * written by transactions which were still open at the start carry a last
+     * updated time before it. The last successful run is stored in the job
+     * parameters, which are saved with the job configuration when the job
+     * has finished. Returns null, meaning all data is validated, for jobs
+     * which are not incremental, do not persist results, have never run
+     * successfully or had their validation rule groups or relative periods
+     * changed since.
+     *
+     * @param parameters the monitoring job parameters.
+     */
+    private Date getChangedSince( MonitoringJobParameters parameters )
+    {
+        if ( !parameters.isIncremental() || !parameters.isPersistResults() ||
+            parameters.getLastSuccessfulRun() == null ||
+            !parameters.getRunKey().equals( parameters.getLastSuccessfulRunKey() ) )
+        {
+            return null;
+        }
+
+        int marginMinutes = (Integer) systemSettingManager.getSystemSetting( SettingKey.MONITORING_WATERMARK_MARGIN_MINUTES );
+
+        return new Date( parameters.getLastSuccessfulRun().getTime() - TimeUnit.MINUTES.toMillis( marginMinutes ) );
+    }
+
 }
@@ -0,0 +1,158 @@
+package org.hisp.dhis.predictor;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.Map4;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class PredictionDataCacheTest
+    extends DhisConvenienceTest
+{
+    private DataElement dataElementA;
+
+    private DataElement dataElementB;
+
+    private OrganisationUnit orgUnitA;
+
+    private Period periodA;
+
+    private Set<Period> periods;
+
+    private List<OrganisationUnit> orgUnits;
+
+    private List<Set<DimensionalItemObject>> fetches;
+
+    @Before
+    public void setUpTest()
+    {
+        dataElementA = createDataElement( 'A' );
+        dataElementB = createDataElement( 'B' );
+
+        orgUnitA = createOrganisationUnit( 'A' );
+        orgUnitA.setId( 1 );
+
+        periodA = createPeriod( "200101" );
+
+        periods = Sets.newHashSet( periodA );
+        orgUnits = Lists.newArrayList( orgUnitA );
+        fetches = new ArrayList<>();
+    }
+
+    private Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> fetch( Set<DimensionalItemObject> items )
+    {
+        fetches.add( items );
+
+        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> dataValues = new Map4<>();
+
+        if ( items.contains( dataElementA ) )
+        {
+            dataValues.putEntry( orgUnitA, periodA, "aoc", dataElementA, 5.0 );
+        }
+
+        return dataValues;
+    }
+
+    @Test
+    public void testFetchOnlyMissingItems()
+    {
+        PredictionDataCache cache = new PredictionDataCache();
+
+        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> dataValues =
+            cache.getDataValues( Sets.newHashSet( dataElementA ), periods, orgUnits, this::fetch );
+
+        assertEquals( 5.0, dataValues.getValue( orgUnitA, periodA, "aoc", dataElementA ), 0.0 );
+        assertEquals( 1, fetches.size() );
+
+        dataValues = cache.getDataValues( Sets.newHashSet( dataElementA, dataElementB ), periods, orgUnits, this::fetch );
+
+        assertEquals( 5.0, dataValues.getValue( orgUnitA, periodA, "aoc", dataElementA ), 0.0 );
+        assertNull( dataValues.getValue( orgUnitA, periodA, "aoc", dataElementB ) );
+        assertEquals( 2, fetches.size() );
+        assertEquals( Sets.newHashSet( dataElementB ), fetches.get( 1 ) );
+
+        cache.getDataValues( Sets.newHashSet( dataElementA, dataElementB ), periods, orgUnits, this::fetch );
+
+        assertEquals( 2, fetches.size() );
+    }
+
+    @Test
+    public void testReturnedMapIsCopy()
+    {
+        PredictionDataCache cache = new PredictionDataCache();
+
+        cache.getDataValues( Sets.newHashSet( dataElementA ), periods, orgUnits, this::fetch ).clear();
+
+        Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> dataValues =
+            cache.getDataValues( Sets.newHashSet( dataElementA ), periods, orgUnits, this::fetch );
+
+        assertEquals( 5.0, dataValues.getValue( orgUnitA, periodA, "aoc", dataElementA ), 0.0 );
+        assertEquals( 1, fetches.size() );
+    }
+
+    @Test
+    public void testInvalidateDataElement()
+    {
+        PredictionDataCache cache = new PredictionDataCache();
+
+        cache.getDataValues( Sets.newHashSet( dataElementA ), periods, orgUnits, this::fetch );
+
+        cache.invalidateDataElement( dataElementA.getUid() );
+
+        cache.getDataValues( Sets.newHashSet( dataElementA ), periods, orgUnits, this::fetch );
+
+        assertEquals( 2, fetches.size() );
+    }
+
+    @Test
+    public void testDifferentPeriodsAreFetched()
+    {
+        PredictionDataCache cache = new PredictionDataCache();
+
+        cache.getDataValues( Sets.newHashSet( dataElementA ), periods, orgUnits, this::fetch );
+        cache.getDataValues( Sets.newHashSet( dataElementA ), Sets.newHashSet( periodA, createPeriod( "200102" ) ), orgUnits, this::fetch );
+
+        assertEquals( 2, fetches.size() );
+    }
+}
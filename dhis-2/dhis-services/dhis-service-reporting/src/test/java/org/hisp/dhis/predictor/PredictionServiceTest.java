@@ -57,6 +57,8 @@ import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
@@ -114,8 +116,13 @@ public class PredictionServiceTest
     @Autowired
     private BatchHandlerFactory batchHandlerFactory;
 
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
     private OrganisationUnitLevel orgUnitLevel1;
 
+    private static final int DEFAULT_ORG_UNITS_PER_BATCH = 500;
+
     private DataElement dataElementA;
     private DataElement dataElementB;
     private DataElement dataElementC;
@@ -274,6 +281,7 @@ public class PredictionServiceTest
     public void tearDownTest()
     {
         setDependency( predictionService, "currentUserService", currentUserService, CurrentUserService.class );
+        setDependency( predictionService, "orgUnitsPerBatch", DEFAULT_ORG_UNITS_PER_BATCH, int.class );
     }
 
     // -------------------------------------------------------------------------
@@ -521,6 +529,47 @@ public class PredictionServiceTest
         assertEquals( "Pred 1 Ins 0 Upd 0 Del 0 Unch 8", shortSummary( summary ) );
     }
 
+    @Test
+    public void testPredictConcurrentBatches()
+    {
+        setupTestData();
+
+        // One organisation unit per batch, so that the batches of both
+        // predictors are predicted concurrently in their own transactions
+
+        setDependency( predictionService, "orgUnitsPerBatch", 1, int.class );
+
+        Predictor pX = createPredictor( dataElementX, defaultCombo, "PredictConcurrentX",
+            expressionA, null, periodTypeMonthly, orgUnitLevel1, 3, 1, 0 );
+        Predictor pY = createPredictor( dataElementY, defaultCombo, "PredictConcurrentY",
+            expressionA, null, periodTypeMonthly, orgUnitLevel1, 3, 1, 0 );
+
+        predictorService.addPredictor( pX );
+        predictorService.addPredictor( pY );
+
+        List<String> predictors = Lists.newArrayList( pX.getUid(), pY.getUid() );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 12 ), predictors, null, null );
+
+        assertEquals( "Pred 2 Ins 16 Upd 0 Del 0 Unch 0", shortSummary( summary ) );
+
+        assertEquals( "5.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 8 ) ) );
+        assertEquals( "9.25", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 10 ) ) );
+        assertEquals( "15.75", getDataValue( dataElementX, defaultCombo, sourceB, makeMonth( 2001, 10 ) ) );
+        assertEquals( "15.25", getDataValue( dataElementX, defaultCombo, sourceB, makeMonth( 2001, 11 ) ) );
+
+        assertEquals( "5", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 8 ) ) );
+        assertEquals( "9", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 10 ) ) );
+        assertEquals( "16", getDataValue( dataElementY, defaultCombo, sourceB, makeMonth( 2001, 10 ) ) );
+        assertEquals( "15", getDataValue( dataElementY, defaultCombo, sourceB, makeMonth( 2001, 11 ) ) );
+
+        // The same predictions again are unchanged in every batch.
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 12 ), predictors, null, null );
+
+        assertEquals( "Pred 2 Ins 0 Upd 0 Del 0 Unch 16", shortSummary( summary ) );
+    }
+
     @Test
     public void testPredictSeasonal()
     {
@@ -1054,6 +1103,91 @@ public class PredictionServiceTest
         assertEquals( "20", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
     }
 
+    @Test
+    public void testPredictTaskIncremental()
+    {
+        setupTestData();
+
+        Predictor p = createPredictor( dataElementX, defaultCombo, "PredictIncremental",
+            expressionA, null, periodTypeMonthly, orgUnitLevel1, 3, 1, 0 );
+
+        predictorService.addPredictor( p );
+
+        List<String> predictors = Lists.newArrayList( p.getUid() );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 12 ), predictors, null, true, null );
+
+        assertEquals( "Pred 1 Ins 8 Upd 0 Del 0 Unch 0", shortSummary( summary ) );
+
+        // Nothing changed since the watermark, so nothing is predicted.
+
+        Date watermark = new DateTime().plusHours( 3 ).toDate();
+
+        predictorService.savePredictorWatermark( p, watermark, monthStart( 2001, 7 ), monthStart( 2001, 12 ), false );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 12 ), predictors, null, true, null );
+
+        assertEquals( "Pred 1 Ins 0 Upd 0 Del 0 Unch 0", shortSummary( summary ) );
+        assertEquals( 1, summary.getIncrementalPredictors() );
+
+        // Changing September for sourceA predicts only September and November for sourceA.
+
+        DataValue dataValue = createDataValue( dataElementA, periodService.reloadPeriod( makeMonth( 2001, 9 ) ),
+            sourceA, defaultCombo, defaultCombo, "10" );
+        dataValue.setLastUpdated( new DateTime().plusHours( 4 ).toDate() );
+
+        dataValueBatchHandler.updateObject( dataValue );
+        dataValueBatchHandler.flush();
+
+        predictorService.savePredictorWatermark( p, watermark, monthStart( 2001, 7 ), monthStart( 2001, 12 ), false );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 12 ), predictors, null, true, null );
+
+        assertEquals( "Pred 1 Ins 0 Upd 1 Del 0 Unch 1", shortSummary( summary ) );
+
+        assertEquals( "10.5", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 11 ) ) );
+        assertEquals( "15.25", getDataValue( dataElementX, defaultCombo, sourceB, makeMonth( 2001, 11 ) ) );
+
+        // Output periods not covered by the last run are always predicted.
+
+        predictorService.savePredictorWatermark( p, watermark, monthStart( 2001, 7 ), monthStart( 2001, 12 ), false );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2002, 1 ), predictors, null, true, null );
+
+        assertEquals( "Pred 1 Ins 2 Upd 0 Del 0 Unch 2", shortSummary( summary ) );
+    }
+
+    @Test
+    public void testPredictTaskIncrementalForcesFullRun()
+    {
+        setupTestData();
+
+        Predictor p = createPredictor( dataElementX, defaultCombo, "PredictFullRun",
+            expressionA, null, periodTypeMonthly, orgUnitLevel1, 3, 1, 0 );
+
+        predictorService.addPredictor( p );
+
+        List<String> predictors = Lists.newArrayList( p.getUid() );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 12 ), predictors, null, true, null );
+
+        assertEquals( "Pred 1 Ins 8 Upd 0 Del 0 Unch 0", shortSummary( summary ) );
+        assertEquals( 0, summary.getIncrementalPredictors() );
+
+        // With a full run interval of zero days, every run is a full run.
+
+        systemSettingManager.saveSystemSetting( SettingKey.PREDICTOR_FULL_RUN_INTERVAL_DAYS, 0 );
+
+        Date watermark = new DateTime().plusHours( 3 ).toDate();
+
+        predictorService.savePredictorWatermark( p, watermark, monthStart( 2001, 7 ), monthStart( 2001, 12 ), false );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 12 ), predictors, null, true, null );
+
+        assertEquals( "Pred 1 Ins 0 Upd 0 Del 0 Unch 8", shortSummary( summary ) );
+        assertEquals( 0, summary.getIncrementalPredictors() );
+    }
+
     @Test
     public void testPredictMedian()
     {
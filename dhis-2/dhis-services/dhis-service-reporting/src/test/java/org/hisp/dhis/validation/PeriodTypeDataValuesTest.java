@@ -0,0 +1,133 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MapMap;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class PeriodTypeDataValuesTest
+    extends DhisConvenienceTest
+{
+    private OrganisationUnit ouA;
+
+    private OrganisationUnit ouB;
+
+    private Period peA;
+
+    private Period peB;
+
+    private DataElement deA;
+
+    private DataElement deB;
+
+    private PeriodTypeDataValues values;
+
+    @Before
+    public void before()
+    {
+        ouA = createOrganisationUnit( 'A' );
+        ouA.setId( 1 );
+        ouB = createOrganisationUnit( 'B' );
+        ouB.setId( 2 );
+
+        peA = createPeriod( new MonthlyPeriodType(), getDate( 2000, 1, 1 ), getDate( 2000, 1, 31 ) );
+        peB = createPeriod( new MonthlyPeriodType(), getDate( 2000, 2, 1 ), getDate( 2000, 2, 29 ) );
+
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+
+        values = new PeriodTypeDataValues( Lists.newArrayList( ouA, ouB ), Lists.newArrayList( peA, peB ),
+            Lists.newArrayList( deA, deB ) );
+    }
+
+    @Test
+    public void testGetValues()
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            values.addValue( ouA.getId(), peA, "aoc" + i, deA, i, 10 );
+            values.addValue( ouB.getId(), peB, "aoc" + i, deB, i * 2, 10 );
+        }
+
+        assertEquals( 200, values.size() );
+
+        MapMap<String, DimensionalItemObject, Double> map = values.getValues( ouA.getId(), peA );
+
+        assertEquals( 100, map.size() );
+        assertEquals( 42d, map.getValue( "aoc42", deA ), 0.0001 );
+        assertNull( map.getValue( "aoc42", deB ) );
+
+        map = values.getValues( ouB.getId(), peB );
+
+        assertEquals( 100, map.size() );
+        assertEquals( 84d, map.getValue( "aoc42", deB ), 0.0001 );
+
+        assertTrue( values.getValues( ouA.getId(), peB ).isEmpty() );
+        assertTrue( values.getValues( 3, peA ).isEmpty() );
+    }
+
+    @Test
+    public void testAddValuePeriodInterval()
+    {
+        values.addValue( ouA.getId(), peA, "aoc", deA, 1, 20 );
+        values.addValue( ouA.getId(), peA, "aoc", deA, 2, 10 );
+        values.addValue( ouA.getId(), peA, "aoc", deA, 3, 10 );
+        values.addValue( ouA.getId(), peA, "aoc", deA, 4, 20 );
+
+        assertEquals( 5d, values.getValues( ouA.getId(), peA ).getValue( "aoc", deA ), 0.0001 );
+
+        values.putValue( ouA.getId(), peA, "aoc", deA, 7 );
+
+        assertEquals( 7d, values.getValues( ouA.getId(), peA ).getValue( "aoc", deA ), 0.0001 );
+        assertEquals( 1, values.size() );
+    }
+
+    @Test
+    public void testIgnoreUnknownKeys()
+    {
+        values.addValue( 3, peA, "aoc", deA, 1, 10 );
+        values.addValue( ouA.getId(), createPeriod( new MonthlyPeriodType(), getDate( 2000, 3, 1 ), getDate( 2000, 3, 31 ) ), "aoc", deA, 1, 10 );
+        values.putValue( ouA.getId(), peA, "aoc", createDataElement( 'C' ), 1 );
+
+        assertEquals( 0, values.size() );
+    }
+}
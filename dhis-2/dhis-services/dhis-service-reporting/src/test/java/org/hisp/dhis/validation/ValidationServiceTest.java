@@ -41,6 +41,7 @@ import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.datavalue.DataValueStore;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.mock.MockCurrentUserService;
@@ -56,6 +57,7 @@ import java.util.*;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
 import static org.hisp.dhis.expression.Expression.SEPARATOR;
 import static org.hisp.dhis.expression.ExpressionService.SYMBOL_DAYS;
 import static org.hisp.dhis.expression.MissingValueStrategy.NEVER_SKIP;
@@ -97,6 +99,9 @@ public class ValidationServiceTest
     @Autowired
     private PeriodService periodService;
 
+    @Autowired
+    private ValidationResultService validationResultService;
+
     private DataElement dataElementA;
     private DataElement dataElementB;
     private DataElement dataElementC;
@@ -591,6 +596,116 @@ public class ValidationServiceTest
         assertResultsEquals( reference, results );
     }
 
+    @Test
+    public void testValidateChangedSince()
+    {
+        useDataValue( dataElementA, periodA, sourceB, "1" );
+        useDataValue( dataElementB, periodA, sourceB, "2" );
+        useDataValue( dataElementC, periodA, sourceB, "3" );
+        useDataValue( dataElementD, periodA, sourceB, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA ); // Invalid
+        validationRuleService.saveValidationRule( validationRuleB ); // Invalid
+
+        ValidationAnalysisParams params = validationService.newParamsBuilder( null, sourceB, getDate( 2000, 2, 1 ), getDate( 2000, 6, 1 ) )
+            .withChangedSince( getDate( 2000, 1, 1 ) ).build();
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( params );
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( createValidationResult( validationRuleA, periodA, sourceB, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+        reference.add( createValidationResult( validationRuleB, periodA, sourceB, defaultCombo, -1.0, 4.0, dayInPeriodA ) );
+
+        assertResultsEquals( reference, results );
+
+        params = validationService.newParamsBuilder( null, sourceB, getDate( 2000, 2, 1 ), getDate( 2000, 6, 1 ) )
+            .withChangedSince( getDate( 2100, 1, 1 ) ).build();
+
+        assertTrue( validationService.validationAnalysis( params ).isEmpty() );
+    }
+
+    @Test
+    public void testValidateChangedDataValues()
+    {
+        useDataValue( dataElementA, periodA, sourceB, "1" );
+        useDataValue( dataElementB, periodA, sourceB, "2" );
+        useDataValue( dataElementC, periodA, sourceB, "3" );
+        useDataValue( dataElementD, periodA, sourceB, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA ); // Invalid, uses A
+        validationRuleService.saveValidationRule( validationRuleB ); // Invalid, does not use A
+
+        DeflatedDataValue changedValue = new DeflatedDataValue(
+            createDataValue( dataElementA, periodA, sourceB, optionCombo, optionCombo, "1" ) );
+
+        ValidationAnalysisParams params = validationService.newParamsBuilder( null, sourceB, getDate( 2000, 2, 1 ), getDate( 2000, 6, 1 ) )
+            .withChangedDataValues( Lists.newArrayList( changedValue ) ).build();
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( params );
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( createValidationResult( validationRuleA, periodA, sourceB, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+
+        assertResultsEquals( reference, results );
+    }
+
+    @Test
+    public void testValidateChangedDataValuesResolvesResults()
+    {
+        useDataValue( dataElementA, periodA, sourceA, "1" );
+        useDataValue( dataElementB, periodA, sourceA, "2" );
+        useDataValue( dataElementC, periodA, sourceA, "3" );
+        useDataValue( dataElementD, periodA, sourceA, "4" );
+
+        useDataValue( dataElementA, periodA, sourceB, "1" );
+        useDataValue( dataElementB, periodA, sourceB, "2" );
+        useDataValue( dataElementC, periodA, sourceB, "3" );
+        useDataValue( dataElementD, periodA, sourceB, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA ); // Invalid
+
+        List<DeflatedDataValue> changedValues = Lists.newArrayList(
+            new DeflatedDataValue( createDataValue( dataElementA, periodA, sourceA, optionCombo, optionCombo, "1" ) ),
+            new DeflatedDataValue( createDataValue( dataElementA, periodA, sourceB, optionCombo, optionCombo, "1" ) ) );
+
+        ValidationAnalysisParams params = validationService.newParamsBuilder( Lists.newArrayList( validationRuleA ), null, Lists.newArrayList( periodA ) )
+            .withOrgUnits( Lists.newArrayList( sourceA, sourceB ) )
+            .withChangedDataValues( changedValues )
+            .withPersistResults( true ).build();
+
+        assertEquals( 2, validationService.validationAnalysis( params ).size() );
+        assertEquals( 2, validationResultService.getAllValidationResults().size() );
+
+        DataValue dataValue = dataValueService.getDataValue( dataElementD, periodA, sourceB, optionCombo );
+        dataValue.setValue( "0" ); // Valid
+        dataValueService.updateDataValue( dataValue );
+
+        changedValues = Lists.newArrayList( new DeflatedDataValue( dataValue ) );
+
+        params = validationService.newParamsBuilder( Lists.newArrayList( validationRuleA ), null, Lists.newArrayList( periodA ) )
+            .withOrgUnits( Lists.newArrayList( sourceA, sourceB ) )
+            .withChangedDataValues( changedValues )
+            .withPersistResults( true ).build();
+
+        validationService.validationAnalysis( params );
+
+        assertEquals( 2, validationResultService.getAllValidationResults().size() ); // Not resolved unless requested
+
+        params = validationService.newParamsBuilder( Lists.newArrayList( validationRuleA ), null, Lists.newArrayList( periodA ) )
+            .withOrgUnits( Lists.newArrayList( sourceA, sourceB ) )
+            .withChangedDataValues( changedValues )
+            .withResolveResults( true )
+            .withPersistResults( true ).build();
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( params );
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( createValidationResult( validationRuleA, periodA, sourceA, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+
+        assertResultsEquals( reference, results );
+        assertResultsEquals( reference, validationResultService.getAllValidationResults() );
+    }
+
     @Test
     public void testValidatePeriodsRulesSources()
     {
@@ -0,0 +1,186 @@
+package org.hisp.dhis.validation.scheduling;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.scheduling.JobType;
+import org.hisp.dhis.scheduling.parameters.MonitoringJobParameters;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.notification.Notifier;
+import org.hisp.dhis.validation.ValidationAnalysisParams;
+import org.hisp.dhis.validation.ValidationRuleService;
+import org.hisp.dhis.validation.ValidationService;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Lists;
+
+public class MonitoringJobTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ValidationService validationService;
+
+    @Mock
+    private ValidationRuleService validationRuleService;
+
+    @Mock
+    private PeriodService periodService;
+
+    @Mock
+    private Notifier notifier;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @InjectMocks
+    private MonitoringJob subject;
+
+    @Before
+    @SuppressWarnings( "unchecked" )
+    public void setUp()
+    {
+        when( notifier.clear( any() ) ).thenReturn( notifier );
+        when( systemSettingManager.getSystemSetting( SettingKey.MONITORING_WATERMARK_MARGIN_MINUTES ) ).thenReturn( 0 );
+        when( validationService.newParamsBuilder( any( Collection.class ), any(), any( Collection.class ) ) ).thenAnswer(
+            invocation -> new ValidationAnalysisParams.Builder( invocation.getArgument( 0 ),
+                (OrganisationUnit) invocation.getArgument( 1 ), invocation.getArgument( 2 ) ) );
+    }
+
+    @Test
+    public void testFirstRunIsFullRun()
+    {
+        MonitoringJobParameters parameters = getParameters( "PdWlltZnVZe" );
+
+        subject.execute( getJobConfiguration( parameters ) );
+
+        assertNull( getAnalysisParams( 1 ).get( 0 ).getChangedSince() );
+        assertEquals( parameters.getRunKey(), parameters.getLastSuccessfulRunKey() );
+    }
+
+    @Test
+    public void testIncrementalRunSinceLastRunOfJob()
+    {
+        MonitoringJobParameters parameters = getParameters( "PdWlltZnVZe" );
+
+        subject.execute( getJobConfiguration( parameters ) );
+
+        Date lastSuccessfulRun = parameters.getLastSuccessfulRun();
+
+        subject.execute( getJobConfiguration( parameters ) );
+
+        assertEquals( lastSuccessfulRun, getAnalysisParams( 2 ).get( 1 ).getChangedSince() );
+    }
+
+    @Test
+    public void testIncrementalRunSubtractsMargin()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.MONITORING_WATERMARK_MARGIN_MINUTES ) ).thenReturn( 30 );
+
+        MonitoringJobParameters parameters = getParameters( "PdWlltZnVZe" );
+
+        subject.execute( getJobConfiguration( parameters ) );
+
+        Date lastSuccessfulRun = parameters.getLastSuccessfulRun();
+
+        subject.execute( getJobConfiguration( parameters ) );
+
+        assertEquals( new DateTime( lastSuccessfulRun ).minusMinutes( 30 ).toDate(), getAnalysisParams( 2 ).get( 1 ).getChangedSince() );
+    }
+
+    @Test
+    public void testLastRunIsPerJob()
+    {
+        MonitoringJobParameters parametersA = getParameters( "PdWlltZnVZe" );
+        MonitoringJobParameters parametersB = getParameters( "PdWlltZnVZe" );
+
+        subject.execute( getJobConfiguration( parametersA ) );
+        subject.execute( getJobConfiguration( parametersB ) );
+
+        assertNull( getAnalysisParams( 2 ).get( 1 ).getChangedSince() );
+    }
+
+    @Test
+    public void testFullRunAfterChangedRuleGroups()
+    {
+        MonitoringJobParameters parameters = getParameters( "PdWlltZnVZe" );
+        parameters.setLastSuccessfulRun( new DateTime().minusDays( 1 ).toDate() );
+        parameters.setLastSuccessfulRunKey( parameters.getRunKey() );
+        parameters.setValidationRuleGroups( Lists.newArrayList( "PdWlltZnVZe", "Sn9Q0Ylx4Mn" ) );
+
+        subject.execute( getJobConfiguration( parameters ) );
+
+        assertNull( getAnalysisParams( 1 ).get( 0 ).getChangedSince() );
+    }
+
+    private MonitoringJobParameters getParameters( String ruleGroup )
+    {
+        MonitoringJobParameters parameters = new MonitoringJobParameters( 0, 0, Lists.newArrayList( ruleGroup ), false, true );
+        parameters.setIncremental( true );
+
+        return parameters;
+    }
+
+    private JobConfiguration getJobConfiguration( MonitoringJobParameters parameters )
+    {
+        return new JobConfiguration( "Monitoring", JobType.MONITORING, "0 0 3 ? * *", parameters, false, true );
+    }
+
+    private List<ValidationAnalysisParams> getAnalysisParams( int runs )
+    {
+        ArgumentCaptor<ValidationAnalysisParams> captor = ArgumentCaptor.forClass( ValidationAnalysisParams.class );
+
+        verify( validationService, times( runs ) ).validationAnalysis( captor.capture() );
+
+        return captor.getAllValues();
+    }
+}
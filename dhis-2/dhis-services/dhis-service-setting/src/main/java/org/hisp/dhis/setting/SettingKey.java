@@ -108,7 +108,9 @@ public enum SettingKey
     CUSTOM_LOGIN_PAGE_LOGO( "keyCustomLoginPageLogo", Boolean.FALSE, Boolean.class ),
     CUSTOM_TOP_MENU_LOGO( "keyCustomTopMenuLogo", Boolean.FALSE, Boolean.class ),
     ANALYTICS_MAINTENANCE_MODE( "keyAnalyticsMaintenanceMode", Boolean.FALSE, Boolean.class ),
+    ANALYTICS_INCREMENTAL_TABLE_UPDATE( "keyAnalyticsIncrementalTableUpdate", Boolean.FALSE, Boolean.class ),
     DATABASE_SERVER_CPUS( "keyDatabaseServerCpus", 0, Integer.class ),
+    REAL_TIME_VALIDATION( "keyRealTimeValidation", Boolean.FALSE, Boolean.class ),
     LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME( "keyLastSuccessfulAnalyticsTablesRuntime" ),
     LAST_MONITORING_RUN( "keyLastMonitoringRun", Date.class ),
     LAST_SUCCESSFUL_DATA_VALUE_SYNC( "keyLastSuccessfulDataSynch", new Date( 0 ), Date.class ),
@@ -117,8 +119,19 @@ public enum SettingKey
     SKIP_SYNCHRONIZATION_FOR_DATA_CHANGED_BEFORE( "syncSkipSyncForDataChangedBefore", new Date( 0 ), Date.class ),
     LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE( "keyLastSuccessfulAnalyticsTablesUpdate", Date.class ),
     LAST_SUCCESSFUL_RESOURCE_TABLES_UPDATE( "keyLastSuccessfulResourceTablesUpdate", Date.class ),
+    LAST_SUCCESSFUL_COMPLETENESS_TABLES_UPDATE( "keyLastSuccessfulCompletenessTablesUpdate", Date.class ),
+    LAST_SUCCESSFUL_COMPLETENESS_TARGET_TABLES_UPDATE( "keyLastSuccessfulCompletenessTargetTablesUpdate", Date.class ),
+    COMPLETENESS_TABLES_METADATA_STATE( "keyCompletenessTablesMetadataState" ),
+    COMPLETENESS_TARGET_TABLES_METADATA_STATE( "keyCompletenessTargetTablesMetadataState" ),
+    LAST_SUCCESSFUL_VALIDATION_RESULT_TABLES_UPDATE( "keyLastSuccessfulValidationResultTablesUpdate", Date.class ),
+    LAST_FULL_VALIDATION_RESULT_TABLES_UPDATE( "keyLastFullValidationResultTablesUpdate", Date.class ),
+    VALIDATION_RESULT_TABLES_METADATA_STATE( "keyValidationResultTablesMetadataState" ),
+    VALIDATION_RESULT_TABLES_FULL_UPDATE_INTERVAL_DAYS( "keyValidationResultTablesFullUpdateIntervalDays", 7, Integer.class ),
+    PREDICTOR_WATERMARK_MARGIN_MINUTES( "keyPredictorWatermarkMarginMinutes", 60, Integer.class ),
+    PREDICTOR_FULL_RUN_INTERVAL_DAYS( "keyPredictorFullRunIntervalDays", 7, Integer.class ),
     LAST_SUCCESSFUL_SYSTEM_MONITORING_PUSH( "keyLastSuccessfulSystemMonitoringPush", Date.class ),
     LAST_SUCCESSFUL_MONITORING( "keyLastSuccessfulMonitoring", Date.class ),
+    MONITORING_WATERMARK_MARGIN_MINUTES( "keyMonitoringWatermarkMarginMinutes", 60, Integer.class ),
     HELP_PAGE_LINK( "helpPageLink", "https://dhis2.github.io/dhis2-docs/master/en/user/html/dhis2_user_manual_en.html", String.class ),
     ACCEPTANCE_REQUIRED_FOR_APPROVAL( "keyAcceptanceRequiredForApproval", Boolean.FALSE, Boolean.class ),
     SYSTEM_NOTIFICATIONS_EMAIL( "keySystemNotificationsEmail" ),
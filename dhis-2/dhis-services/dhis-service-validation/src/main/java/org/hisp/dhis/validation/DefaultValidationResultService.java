@@ -109,4 +109,12 @@ public class DefaultValidationResultService
         List<Period> persistedPeriods = periodService.reloadPeriods( new ArrayList<>( periods ) );
         return validationResultStore.getValidationResults( orgUnit, includeOrgUnitDescendants, validationRules, persistedPeriods );
     }
+
+    @Override
+    public List<ValidationResult> getValidationResults( Collection<OrganisationUnit> orgUnits,
+        Collection<ValidationRule> validationRules, Collection<Period> periods )
+    {
+        List<Period> persistedPeriods = periodService.reloadPeriods( new ArrayList<>( periods ) );
+        return validationResultStore.getValidationResults( orgUnits, validationRules, persistedPeriods );
+    }
 }
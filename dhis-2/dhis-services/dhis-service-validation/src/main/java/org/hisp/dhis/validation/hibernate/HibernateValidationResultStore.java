@@ -138,6 +138,24 @@ public class HibernateValidationResultStore
         return query.list();
     }
 
+    @Override
+    public List<ValidationResult> getValidationResults( Collection<OrganisationUnit> orgUnits,
+        Collection<ValidationRule> validationRules, Collection<Period> periods )
+    {
+        if ( isEmpty( orgUnits ) || isEmpty( validationRules ) || isEmpty( periods ) )
+        {
+            return new ArrayList<>();
+        }
+
+        Query<ValidationResult> query = getQuery( "from ValidationResult vr where vr.organisationUnit in :orgUnits and vr.validationRule in :validationRules and vr.period in :periods " );
+
+        query.setParameter( "orgUnits", orgUnits );
+        query.setParameter( "validationRules", validationRules );
+        query.setParameter( "periods", periods );
+
+        return query.list();
+    }
+
     @Override
     public void save( ValidationResult validationResult )
     {
@@ -0,0 +1,12 @@
+-- Create predictor watermark table used by incremental prediction runs
+
+create table if not exists predictorwatermark (
+  predictorwatermarkid int8 not null,
+  predictorid int8 not null,
+  watermark timestamp not null,
+  startdate timestamp,
+  enddate timestamp,
+  constraint predictorwatermark_pkey primary key(predictorwatermarkid),
+  constraint uk_predictorwatermark_predictorid unique (predictorid),
+  constraint fk_predictorwatermark_predictorid foreign key (predictorid) references predictor(predictorid)
+);
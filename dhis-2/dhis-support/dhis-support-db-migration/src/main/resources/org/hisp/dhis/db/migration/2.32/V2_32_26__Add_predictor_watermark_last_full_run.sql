@@ -0,0 +1,3 @@
+-- Add time of the last full run to predictor watermarks, used to force periodic full prediction runs
+
+alter table predictorwatermark add column if not exists lastfullrun timestamp;
@@ -0,0 +1,128 @@
+package org.hisp.dhis.parser.expression;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An expression compiled into a tree of expression nodes. The items of the
+ * expression are resolved to slots at compile time, so that an evaluation
+ * looks up each item value once and then evaluates the nodes without any
+ * parse tree walking or map lookups.
+ * <p/>
+ * Compiled expressions hold no evaluation state, and may be shared between
+ * threads.
+ */
+public class CompiledExpression
+{
+    private final ExpressionNode root;
+
+    private final String[] itemKeys;
+
+    CompiledExpression( ExpressionNode root, List<String> itemKeys )
+    {
+        this.root = root;
+        this.itemKeys = itemKeys.toArray( new String[0] );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates the context for an evaluation of this expression.
+     *
+     * @param itemValueMap item values by item key, e.g. data element UID or
+     *        data element UID and category option combo UID.
+     * @param constantMap constant values by UID.
+     * @param orgUnitCountMap organisation unit group member counts by UID.
+     * @param days the number of days in the period, or null.
+     * @return the evaluation context.
+     */
+    public EvaluationContext newContext( Map<String, Double> itemValueMap, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days )
+    {
+        double[][] itemValues = new double[itemKeys.length][1];
+
+        for ( int i = 0; i < itemKeys.length; i++ )
+        {
+            Double value = itemValueMap.get( itemKeys[i] );
+
+            itemValues[i][0] = value != null ? value : Double.NaN;
+        }
+
+        return new EvaluationContext( itemValues, constantMap, orgUnitCountMap, days );
+    }
+
+    /**
+     * Creates the context for evaluating this expression over many rows of
+     * item values. The context is reused for all rows, by setting the row
+     * before each evaluation.
+     *
+     * @param itemColumns item values by item slot, in the order of
+     *        {@link #getItemKeys()}, each with a value per row and NaN for a
+     *        missing value.
+     * @param constantMap constant values by UID.
+     * @param orgUnitCountMap organisation unit group member counts by UID.
+     * @param days the number of days in the period, or null.
+     * @return the evaluation context.
+     */
+    public EvaluationContext newContext( double[][] itemColumns, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days )
+    {
+        if ( itemColumns.length != itemKeys.length )
+        {
+            throw new IllegalArgumentException( "Expected " + itemKeys.length + " item columns, found " + itemColumns.length );
+        }
+
+        return new EvaluationContext( itemColumns, constantMap, orgUnitCountMap, days );
+    }
+
+    /**
+     * Gets the keys of the items in this expression, in slot order.
+     *
+     * @return the item keys.
+     */
+    public String[] getItemKeys()
+    {
+        return itemKeys.clone();
+    }
+
+    /**
+     * Evaluates this expression.
+     *
+     * @param context the evaluation context.
+     * @return the expression value.
+     */
+    public Object evaluate( EvaluationContext context )
+    {
+        return root.evaluate( context );
+    }
+}
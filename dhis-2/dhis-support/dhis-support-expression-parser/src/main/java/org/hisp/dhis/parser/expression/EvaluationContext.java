@@ -0,0 +1,191 @@
+package org.hisp.dhis.parser.expression;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Map;
+
+import static org.hisp.dhis.parser.expression.ParserUtils.DOUBLE_VALUE_IF_NULL;
+
+/**
+ * Values and state for evaluations of a compiled expression.
+ * <p/>
+ * Item values are held by column, one array per item slot with a value
+ * for each row, and NaN for a missing value. Each evaluation is for the
+ * current row.
+ * <p/>
+ * Counts the items found, and how many of them had values, for subsequent
+ * MissingValueStrategy analysis. Items tested for null values are not
+ * counted.
+ */
+public class EvaluationContext
+{
+    private static final Double VALUE_IF_NULL = DOUBLE_VALUE_IF_NULL;
+
+    private final double[][] itemValues;
+
+    private final Map<String, Double> constantMap;
+
+    private final Map<String, Integer> orgUnitCountMap;
+
+    private final Double days;
+
+    private int row = 0;
+
+    private int itemsFound = 0;
+
+    private int itemValuesFound = 0;
+
+    EvaluationContext( double[][] itemValues, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days )
+    {
+        this.itemValues = itemValues;
+        this.constantMap = constantMap;
+        this.orgUnitCountMap = orgUnitCountMap;
+        this.days = days != null ? days.doubleValue() : null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Sets the row of item values to evaluate next, and resets the item
+     * counts.
+     *
+     * @param row the row index.
+     */
+    public void setRow( int row )
+    {
+        this.row = row;
+        this.itemsFound = 0;
+        this.itemValuesFound = 0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public int getItemsFound()
+    {
+        return itemsFound;
+    }
+
+    public int getItemValuesFound()
+    {
+        return itemValuesFound;
+    }
+
+    // -------------------------------------------------------------------------
+    // Item access for expression nodes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Gets an item value, replacing a missing value with the default and
+     * counting the item.
+     *
+     * @param slot the item slot.
+     * @return the item value.
+     */
+    double getItemDouble( int slot )
+    {
+        double value = itemValues[slot][row];
+
+        itemsFound++;
+
+        if ( Double.isNaN( value ) )
+        {
+            return DOUBLE_VALUE_IF_NULL;
+        }
+
+        itemValuesFound++;
+
+        return value;
+    }
+
+    /**
+     * Gets an item value.
+     *
+     * @param slot the item slot.
+     * @param replaceNulls whether to replace a missing value with the
+     *        default and count the item.
+     * @return the item value.
+     */
+    Double getItemValue( int slot, boolean replaceNulls )
+    {
+        double value = itemValues[slot][row];
+
+        if ( replaceNulls )
+        {
+            itemsFound++;
+
+            if ( Double.isNaN( value ) )
+            {
+                return VALUE_IF_NULL;
+            }
+
+            itemValuesFound++;
+        }
+
+        return Double.isNaN( value ) ? null : value;
+    }
+
+    Double getConstant( String uid, String text )
+    {
+        Double value = constantMap.get( uid );
+
+        if ( value == null ) // Shouldn't happen for a valid expression.
+        {
+            throw new ParserExceptionWithoutContext( "Can't find constant " + text );
+        }
+
+        return value;
+    }
+
+    double getOrgUnitGroupCount( String uid, String text )
+    {
+        if ( orgUnitCountMap == null )
+        {
+            return 0d;
+        }
+
+        Integer count = orgUnitCountMap.get( uid );
+
+        if ( count == null ) // Shouldn't happen for a valid expression.
+        {
+            throw new ParserExceptionWithoutContext( "Can't find count for organisation unit " + text );
+        }
+
+        return count.doubleValue();
+    }
+
+    Double getDays()
+    {
+        return days;
+    }
+}
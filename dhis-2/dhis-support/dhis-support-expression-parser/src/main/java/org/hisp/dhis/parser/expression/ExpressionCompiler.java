@@ -0,0 +1,463 @@
+package org.hisp.dhis.parser.expression;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import static java.lang.Math.pow;
+import static org.apache.commons.text.StringEscapeUtils.unescapeJava;
+import static org.hisp.dhis.parser.expression.ParserUtils.*;
+import static org.hisp.dhis.parser.expression.antlr.ExpressionParser.*;
+
+/**
+ * Compiles an expression parse tree into a tree of expression nodes, which
+ * can be evaluated many times without walking the parse tree.
+ * <p/>
+ * Evaluation follows the same rules as visiting the parse tree to compute
+ * the expression value: missing item values are replaced by the default
+ * and counted, except where tested for nulls; and, or and if only evaluate
+ * what they need. Errors that the visitor would report while evaluating,
+ * such as items which are not valid in this kind of expression, are also
+ * reported when evaluating, not when compiling.
+ * <p/>
+ * A compiler instance compiles one expression.
+ */
+public class ExpressionCompiler
+    extends AbstractVisitor
+{
+    private final Map<String, Integer> itemSlots = new HashMap<>();
+
+    private final List<String> itemKeys = new ArrayList<>();
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Compiles an expression parse tree.
+     *
+     * @param parseTree the parse tree.
+     * @return the compiled expression.
+     */
+    public CompiledExpression compile( ParseTree parseTree )
+    {
+        ExpressionNode root = (ExpressionNode) visit( parseTree );
+
+        return new CompiledExpression( root, itemKeys );
+    }
+
+    // -------------------------------------------------------------------------
+    // Visitor methods
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Object visitOperator( ExprContext ctx )
+    {
+        if ( ctx.op.getType() == PAREN )
+        {
+            return compile( ctx.expr( 0 ) );
+        }
+
+        ExpressionNode a = compile( ctx.expr( 0 ) );
+        ExpressionNode b = ctx.expr().size() > 1 ? compile( ctx.expr( 1 ) ) : null;
+
+        switch ( ctx.op.getType() )
+        {
+            case PLUS:
+                if ( b == null ) // Unary plus operator
+                {
+                    return (ExpressionNode) c -> castDouble( a.evaluate( c ) );
+                }
+                return doubleNode( c -> a.evaluateDouble( c ) + b.evaluateDouble( c ) );
+
+            case MINUS:
+                if ( b == null ) // Unary minus operator
+                {
+                    return doubleNode( c -> - a.evaluateDouble( c ) );
+                }
+                return doubleNode( c -> a.evaluateDouble( c ) - b.evaluateDouble( c ) );
+
+            case POWER:
+                return doubleNode( c -> pow( a.evaluateDouble( c ), b.evaluateDouble( c ) ) );
+
+            case MUL:
+                return doubleNode( c -> a.evaluateDouble( c ) * b.evaluateDouble( c ) );
+
+            case DIV:
+                return doubleNode( c -> a.evaluateDouble( c ) / b.evaluateDouble( c ) );
+
+            case MOD:
+                return doubleNode( c -> a.evaluateDouble( c ) % b.evaluateDouble( c ) );
+
+            case NOT:
+            case EXCLAMATION_POINT:
+                return booleanNode( c -> ! a.evaluateBoolean( c ) );
+
+            case AND:
+            case AMPERSAND_2:
+                return booleanNode( c -> a.evaluateBoolean( c ) && b.evaluateBoolean( c ) );
+
+            case OR:
+            case VERTICAL_BAR_2:
+                return booleanNode( c -> a.evaluateBoolean( c ) || b.evaluateBoolean( c ) );
+
+            case EQ:
+                return booleanNode( c -> compare( a, b, c ) == 0 );
+
+            case NE:
+                return booleanNode( c -> compare( a, b, c ) != 0 );
+
+            case GT:
+                return booleanNode( c -> compare( a, b, c ) > 0 );
+
+            case LT:
+                return booleanNode( c -> compare( a, b, c ) < 0 );
+
+            case GEQ:
+                return booleanNode( c -> compare( a, b, c ) >= 0 );
+
+            case LEQ:
+                return booleanNode( c -> compare( a, b, c ) <= 0 );
+
+            default:
+                throw new InternalParserException( "Expecting operator, found " + ctx.op.getText() );
+        }
+    }
+
+    @Override
+    public Object visitFunction( FunctionContext ctx )
+    {
+        switch ( ctx.fun.getType() )
+        {
+            case FIRST_NON_NULL:
+                return firstNonNull( ctx.itemNumStringLiteral() );
+
+            case GREATEST:
+                return greatestOrLeast( ctx.expr(), 1.0 );
+
+            case IF:
+                ExpressionNode test = compile( ctx.expr( 0 ) );
+                ExpressionNode ifTrue = compile( ctx.expr( 1 ) );
+                ExpressionNode ifFalse = compile( ctx.expr( 2 ) );
+
+                return (ExpressionNode) c -> test.evaluateBoolean( c ) ? ifTrue.evaluate( c ) : ifFalse.evaluate( c );
+
+            case IS_NOT_NULL:
+                ExpressionNode notNullItem = (ExpressionNode) visitAllowingNulls( ctx.item() );
+
+                return booleanNode( c -> notNullItem.evaluate( c ) != null );
+
+            case IS_NULL:
+                ExpressionNode nullItem = (ExpressionNode) visitAllowingNulls( ctx.item() );
+
+                return booleanNode( c -> nullItem.evaluate( c ) == null );
+
+            case LEAST:
+                return greatestOrLeast( ctx.expr(), -1.0 );
+
+            default:
+                throw new InternalParserException( "Expecting function, found " + ctx.fun.getText() );
+        }
+    }
+
+    @Override
+    public Object visitItem( ItemContext ctx )
+    {
+        switch ( ctx.it.getType() )
+        {
+            case HASH_BRACE:
+                if ( isDataElementOperandSyntax( ctx ) )
+                {
+                    return itemNode(
+                        ctx.uid0.getText() + "." +
+                            ( ctx.uid1 == null ? "*" : ctx.uid1.getText() ) +
+                            ( ctx.uid2 == null ? "" : "." + ctx.uid2.getText() ) );
+                }
+                else // Data element:
+                {
+                    return itemNode(
+                        ctx.uid0.getText() );
+                }
+
+            case A_BRACE:
+                if ( !isExpressionProgramAttribute( ctx ) )
+                {
+                    return errorNode( "Program attribute must have two UIDs: " + ctx.getText() );
+                }
+                // Fall through
+            case D_BRACE:
+                return itemNode(
+                    ctx.uid0.getText() + "." +
+                        ctx.uid1.getText() );
+
+            case C_BRACE:
+                String constantUid = ctx.uid0.getText();
+                String constantText = ctx.getText();
+
+                return (ExpressionNode) c -> c.getConstant( constantUid, constantText );
+
+            case I_BRACE:
+            case N_BRACE:
+                return itemNode( ctx.uid0.getText() );
+
+            case OUG_BRACE:
+                String groupUid = ctx.uid0.getText();
+                String groupText = ctx.getText();
+
+                return doubleNode( c -> c.getOrgUnitGroupCount( groupUid, groupText ) );
+
+            case R_BRACE:
+                return itemNode(
+                    ctx.uid0.getText() + "." +
+                        ctx.REPORTING_RATE_TYPE().getText() );
+
+            case DAYS:
+                return (ExpressionNode) EvaluationContext::getDays;
+
+            default:
+                return errorNode( "Item not recognized for this type of expression: " + ctx.getText() );
+        }
+    }
+
+    @Override
+    public Object visitProgramVariable( ProgramVariableContext ctx )
+    {
+        return errorNode( "Program variable not valid in this expression" );
+    }
+
+    @Override
+    public Object visitProgramFunction( ProgramFunctionContext ctx )
+    {
+        return errorNode( "Program function not valid in this expression" );
+    }
+
+    @Override
+    public Object visitLiteral( LiteralContext ctx )
+    {
+        return constantNode( super.visitLiteral( ctx ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private ExpressionNode compile( ParserRuleContext ctx )
+    {
+        return (ExpressionNode) visit( ctx );
+    }
+
+    /**
+     * Creates a node for an item value, assigning the item a slot the first
+     * time it is found.
+     *
+     * @param itemKey the item key.
+     * @return the item node.
+     */
+    private ExpressionNode itemNode( String itemKey )
+    {
+        int slot = itemSlots.computeIfAbsent( itemKey, k -> {
+            itemKeys.add( k );
+            return itemKeys.size() - 1;
+        } );
+
+        if ( !replaceNulls )
+        {
+            return c -> c.getItemValue( slot, false );
+        }
+
+        return new ExpressionNode()
+        {
+            @Override
+            public Object evaluate( EvaluationContext context )
+            {
+                return context.getItemValue( slot, true );
+            }
+
+            @Override
+            public double evaluateDouble( EvaluationContext context )
+            {
+                return context.getItemDouble( slot );
+            }
+        };
+    }
+
+    /**
+     * Returns the first non-null value. All the values are evaluated first,
+     * as when visiting the parse tree.
+     */
+    private ExpressionNode firstNonNull( List<ItemNumStringLiteralContext> contexts )
+    {
+        ExpressionNode[] nodes = contexts.stream()
+            .map( this::getItemNumStringLiteral )
+            .toArray( ExpressionNode[]::new );
+
+        return c -> {
+            Object result = null;
+
+            for ( ExpressionNode node : nodes )
+            {
+                Object value = node.evaluate( c );
+
+                if ( result == null )
+                {
+                    result = value;
+                }
+            }
+
+            return result;
+        };
+    }
+
+    private ExpressionNode getItemNumStringLiteral( ItemNumStringLiteralContext ctx )
+    {
+        if ( ctx.item() != null )
+        {
+            return (ExpressionNode) visitAllowingNulls( ctx.item() );
+        }
+        else if ( ctx.numStringLiteral().stringLiteral() != null )
+        {
+            return constantNode( unescapeJava( trimQuotes( ctx.getText() ) ) );
+        }
+
+        return constantNode( ctx.getText() );
+    }
+
+    /**
+     * Returns the greatest or least value. All the values are evaluated
+     * first, as when visiting the parse tree.
+     */
+    private ExpressionNode greatestOrLeast( List<ExprContext> contexts, double greatestLeast )
+    {
+        ExpressionNode[] nodes = contexts.stream()
+            .map( this::compile )
+            .toArray( ExpressionNode[]::new );
+
+        return c -> {
+            Double returnVal = null;
+
+            for ( ExpressionNode node : nodes )
+            {
+                Double val = castDouble( node.evaluate( c ) );
+
+                if ( returnVal == null || val != null && ( val - returnVal ) * greatestLeast > 0 )
+                {
+                    returnVal = val;
+                }
+            }
+
+            return returnVal;
+        };
+    }
+
+    /**
+     * Compares two Doubles, Strings or Booleans.
+     */
+    private static int compare( ExpressionNode a, ExpressionNode b, EvaluationContext c )
+    {
+        Object o1 = a.evaluate( c );
+        Object o2 = b.evaluate( c );
+
+        if ( o1 == null || o2 == null )
+        {
+            throw new InternalParserException( "found null when comparing '" + o1 + "' with '" + o2 + "'" );
+        }
+        else if ( o1 instanceof Double )
+        {
+            return ( (Double) o1 ).compareTo( castDouble( o2 ) );
+        }
+        else if ( o1 instanceof String )
+        {
+            return ( (String) o1 ).compareTo( castString( o2 ) );
+        }
+        else if ( o1 instanceof Boolean )
+        {
+            return ( (Boolean) o1 ).compareTo( castBoolean( o2 ) );
+        }
+        else
+        {
+            throw new InternalParserException( "trying to compare class " + o1.getClass().getName() );
+        }
+    }
+
+    private static ExpressionNode doubleNode( ToDoubleFunction<EvaluationContext> function )
+    {
+        return new ExpressionNode()
+        {
+            @Override
+            public Object evaluate( EvaluationContext context )
+            {
+                return function.applyAsDouble( context );
+            }
+
+            @Override
+            public double evaluateDouble( EvaluationContext context )
+            {
+                return function.applyAsDouble( context );
+            }
+        };
+    }
+
+    private static ExpressionNode booleanNode( Predicate<EvaluationContext> predicate )
+    {
+        return new ExpressionNode()
+        {
+            @Override
+            public Object evaluate( EvaluationContext context )
+            {
+                return predicate.test( context );
+            }
+
+            @Override
+            public boolean evaluateBoolean( EvaluationContext context )
+            {
+                return predicate.test( context );
+            }
+        };
+    }
+
+    private static ExpressionNode constantNode( Object value )
+    {
+        return c -> value;
+    }
+
+    private static ExpressionNode errorNode( String message )
+    {
+        return c -> {
+            throw new ParserExceptionWithoutContext( message );
+        };
+    }
+}
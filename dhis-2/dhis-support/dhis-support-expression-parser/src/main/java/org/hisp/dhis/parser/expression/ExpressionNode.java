@@ -0,0 +1,72 @@
+package org.hisp.dhis.parser.expression;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.parser.expression.ParserUtils.castBoolean;
+import static org.hisp.dhis.parser.expression.ParserUtils.castDouble;
+
+/**
+ * Node of a compiled expression, which evaluates its part of the expression
+ * without walking the parse tree.
+ * <p/>
+ * Numeric and boolean nodes override the primitive evaluation methods, so
+ * that intermediate values are not boxed.
+ */
+public interface ExpressionNode
+{
+    /**
+     * Evaluates the node.
+     *
+     * @param context the evaluation context.
+     * @return the Double, String or Boolean value, or null.
+     */
+    Object evaluate( EvaluationContext context );
+
+    /**
+     * Evaluates the node as a number.
+     *
+     * @param context the evaluation context.
+     * @return the numeric value.
+     */
+    default double evaluateDouble( EvaluationContext context )
+    {
+        return castDouble( evaluate( context ) );
+    }
+
+    /**
+     * Evaluates the node as a boolean.
+     *
+     * @param context the evaluation context.
+     * @return the boolean value.
+     */
+    default boolean evaluateBoolean( EvaluationContext context )
+    {
+        return castBoolean( evaluate( context ) );
+    }
+}
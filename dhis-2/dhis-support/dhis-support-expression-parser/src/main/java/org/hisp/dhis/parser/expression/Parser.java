@@ -30,6 +30,7 @@ package org.hisp.dhis.parser.expression;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
@@ -50,14 +51,92 @@ import java.util.concurrent.TimeUnit;
  */
 public class Parser
 {
-    private static Cache<String, ParseTree> EXPRESSION_PARSE_TREES = Caffeine.newBuilder()
-        .expireAfterAccess( 10, TimeUnit.MINUTES ).initialCapacity( 10000 )
-        .maximumSize( 50000 ).build();
+    public static final long DEFAULT_CACHE_SIZE = 50000;
+
+    public static final long DEFAULT_CACHE_EXPIRATION_MINUTES = 1440;
+
+    private static volatile Cache<String, ParseTree> EXPRESSION_PARSE_TREES =
+        newCache( DEFAULT_CACHE_SIZE, DEFAULT_CACHE_EXPIRATION_MINUTES );
+
+    private static volatile Cache<String, CompiledExpression> COMPILED_EXPRESSIONS =
+        newCache( DEFAULT_CACHE_SIZE, DEFAULT_CACHE_EXPIRATION_MINUTES );
+
+    // -------------------------------------------------------------------------
+    // Cache configuration and statistics
+    // -------------------------------------------------------------------------
+
+    /**
+     * Replaces the parse tree and compiled expression caches with empty
+     * caches of the given size and expiration. Intended to be called at
+     * startup, before the caches are populated.
+     *
+     * @param maximumSize the maximum number of expressions in each cache.
+     * @param expirationMinutes minutes after last access before an expression
+     *        is evicted, or 0 for no expiration.
+     */
+    public static synchronized void configureCaches( long maximumSize, long expirationMinutes )
+    {
+        EXPRESSION_PARSE_TREES = newCache( maximumSize, expirationMinutes );
+        COMPILED_EXPRESSIONS = newCache( maximumSize, expirationMinutes );
+    }
+
+    /**
+     * Gets the statistics of the parse tree cache.
+     *
+     * @return the cache statistics.
+     */
+    public static CacheStats getParseTreeCacheStats()
+    {
+        return EXPRESSION_PARSE_TREES.stats();
+    }
+
+    /**
+     * Gets the approximate number of expressions in the parse tree cache.
+     *
+     * @return the approximate cache size.
+     */
+    public static long getParseTreeCacheSize()
+    {
+        return EXPRESSION_PARSE_TREES.estimatedSize();
+    }
+
+    /**
+     * Gets the statistics of the compiled expression cache.
+     *
+     * @return the cache statistics.
+     */
+    public static CacheStats getCompiledExpressionCacheStats()
+    {
+        return COMPILED_EXPRESSIONS.stats();
+    }
+
+    /**
+     * Gets the approximate number of expressions in the compiled expression
+     * cache.
+     *
+     * @return the approximate cache size.
+     */
+    public static long getCompiledExpressionCacheSize()
+    {
+        return COMPILED_EXPRESSIONS.estimatedSize();
+    }
 
     // -------------------------------------------------------------------------
     // Logic
     // -------------------------------------------------------------------------
 
+    /**
+     * Parses an expression into the parse tree cache, if it is not there
+     * already, so later visits and listens to it need not parse it.
+     *
+     * @param expr the expression to parse
+     * @throws ParserException if the expression cannot be parsed
+     */
+    public static void parse( String expr )
+    {
+        getParseTree( expr );
+    }
+
     /**
      * Parses an expression and visits the parsed nodes using the ANTLR4
      * visitor pattern.
@@ -89,10 +168,46 @@ public class Parser
         walker.walk( listener, parseTree );
     }
 
+    /**
+     * Compiles an expression into a tree of expression nodes which can be
+     * evaluated many times without walking the parse tree, from the cache
+     * if possible.
+     *
+     * @param expr the expression to compile
+     * @return the compiled expression
+     */
+    public static CompiledExpression compile( String expr )
+    {
+        return COMPILED_EXPRESSIONS.get( expr, e -> new ExpressionCompiler().compile( getParseTree( e ) ) );
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Creates an expression cache which records statistics.
+     *
+     * @param maximumSize the maximum number of expressions in the cache.
+     * @param expirationMinutes minutes after last access before an expression
+     *        is evicted, or 0 for no expiration.
+     * @return the cache.
+     */
+    private static <V> Cache<String, V> newCache( long maximumSize, long expirationMinutes )
+    {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .initialCapacity( (int) Math.min( maximumSize, 10000 ) )
+            .maximumSize( maximumSize )
+            .recordStats();
+
+        if ( expirationMinutes > 0 )
+        {
+            builder.expireAfterAccess( expirationMinutes, TimeUnit.MINUTES );
+        }
+
+        return builder.build();
+    }
+
     /**
      * Gets the ANTLR4 parse tree for the given expression string,
      * from the cache if possible.
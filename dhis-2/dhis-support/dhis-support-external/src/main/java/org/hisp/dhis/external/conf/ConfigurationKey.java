@@ -77,6 +77,13 @@ public enum ConfigurationKey
     PROGRAM_TEMPORARY_OWNERSHIP_TIMEOUT( "tracker.temporary.ownership.timeout", "3", false ),
     LEADER_TIME_TO_LIVE( "leader.time.to.live.minutes", "2", false ),
     ANALYTICS_CACHE_EXPIRATION( "analytics.cache.expiration", "0" ),
+    EXPRESSION_CACHE_MAX_SIZE( "expression.cache.max_size", "50000", false ),
+    EXPRESSION_CACHE_EXPIRATION( "expression.cache.expiration", "1440", false ),
+    EXPRESSION_CACHE_PRELOAD( "expression.cache.preload", "on", false ),
+    DATA_IMPORT_THREADS( "data.import.threads", "1", false ),
+    PREDICTION_THREADS( "prediction.threads", "0", false ),
+    DATA_AUDIT_WRITE_BEHIND( "data.audit.write_behind", "off", false ),
+    AUDIT_RETENTION_MONTHS( "audit.retention.months", "0", false ),
     AMQP_MODE( "amqp.mode", "EMBEDDED" ),
     AMQP_HOST( "amqp.host", "127.0.0.1" ),
     AMQP_PORT( "amqp.port", "15672" ),
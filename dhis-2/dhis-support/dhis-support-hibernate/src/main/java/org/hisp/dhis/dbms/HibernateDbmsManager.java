@@ -239,6 +239,7 @@ public class HibernateDbmsManager
         emptyTable( "predictorgroupusergroupaccesses" );
 
         emptyTable( "predictororgunitlevels" );
+        emptyTable( "predictorwatermark" );
         emptyTable( "predictor" );
 
         emptyTable( "datadimensionitem" );
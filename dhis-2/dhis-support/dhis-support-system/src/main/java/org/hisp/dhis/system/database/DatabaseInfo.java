@@ -50,6 +50,8 @@ public class DatabaseInfo
 
     private boolean spatialSupport;
 
+    private boolean hllSupport;
+
     // -------------------------------------------------------------------------
     // Constructor
     // -------------------------------------------------------------------------
@@ -140,6 +142,18 @@ public class DatabaseInfo
         this.spatialSupport = spatialSupport;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isHllSupport()
+    {
+        return hllSupport;
+    }
+
+    public void setHllSupport( boolean hllSupport )
+    {
+        this.hllSupport = hllSupport;
+    }
+
     // -------------------------------------------------------------------------
     // toString
     // -------------------------------------------------------------------------
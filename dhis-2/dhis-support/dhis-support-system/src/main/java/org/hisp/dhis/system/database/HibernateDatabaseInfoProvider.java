@@ -75,6 +75,7 @@ public class HibernateDatabaseInfoProvider
         checkDatabaseConnectivity();
 
         boolean spatialSupport = false;
+        boolean hllSupport = false;
 
         // Check if postgis is installed, fail startup if not
 
@@ -87,6 +88,10 @@ public class HibernateDatabaseInfoProvider
                 log.error( POSTGIS_MISSING_ERROR );
                 throw new IllegalStateException( POSTGIS_MISSING_ERROR );
             }
+
+            // HyperLogLog is optional, distinct counts are exact without it
+
+            hllSupport = isHllSupport();
         }
 
         String url = config.getProperty( ConfigurationKey.CONNECTION_URL );
@@ -99,6 +104,7 @@ public class HibernateDatabaseInfoProvider
         info.setPassword( password );
         info.setUrl( url );
         info.setSpatialSupport( spatialSupport );
+        info.setHllSupport( hllSupport );
         info.setDatabaseVersion( getDatabaseVersion() );
     }
 
@@ -191,4 +197,32 @@ public class HibernateDatabaseInfoProvider
             return false;
         }
     }
+
+    /**
+     * Attempts to create the postgresql-hll extension. Checks if HyperLogLog
+     * operations are supported.
+     */
+    private boolean isHllSupport()
+    {
+        try
+        {
+            jdbcTemplate.execute( "create extension if not exists hll;" );
+        }
+        catch ( Exception ex )
+        {
+        }
+
+        try
+        {
+            jdbcTemplate.queryForObject( "select hll_cardinality(hll_empty());", Double.class );
+
+            return true;
+        }
+        catch ( Exception ex )
+        {
+            log.info( "HyperLogLog extension not available, distinct counts in analytics will be exact" );
+            log.debug( "Exception when checking hll_cardinality()", ex );
+            return false;
+        }
+    }
 }
@@ -186,6 +186,8 @@ public class AuditController
         @RequestParam( required = false ) String co,
         @RequestParam( required = false ) String cc,
         @RequestParam( required = false ) AuditType auditType,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
         @RequestParam( required = false ) Boolean skipPaging,
         @RequestParam( required = false ) Boolean paging,
         @RequestParam( required = false, defaultValue = "50" ) int pageSize,
@@ -214,17 +216,17 @@ public class AuditController
         if ( PagerUtils.isSkipPaging( skipPaging, paging ) )
         {
             dataValueAudits = dataValueAuditService.getDataValueAudits( dataElements, periods,
-                organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType );
+                organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, startDate, endDate );
         }
         else
         {
             int total = dataValueAuditService.countDataValueAudits( dataElements, periods, organisationUnits, categoryOptionCombo,
-                attributeOptionCombo, auditType );
+                attributeOptionCombo, auditType, startDate, endDate );
 
             pager = new Pager( page, total, pageSize );
 
             dataValueAudits = dataValueAuditService.getDataValueAudits( dataElements, periods,
-                organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, pager.getOffset(), pager.getPageSize() );
+                organisationUnits, categoryOptionCombo, attributeOptionCombo, auditType, startDate, endDate, pager.getOffset(), pager.getPageSize() );
         }
 
         RootNode rootNode = NodeUtils.createMetadata();
@@ -246,6 +248,8 @@ public class AuditController
         @RequestParam( required = false, defaultValue = "" ) List<String> de,
         @RequestParam( required = false, defaultValue = "" ) List<String> psi,
         @RequestParam( required = false ) AuditType auditType,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
         @RequestParam( required = false ) Boolean skipPaging,
         @RequestParam( required = false ) Boolean paging,
         @RequestParam( required = false, defaultValue = "50" ) int pageSize,
@@ -268,16 +272,17 @@ public class AuditController
         if ( PagerUtils.isSkipPaging( skipPaging, paging ) )
         {
             dataValueAudits = trackedEntityDataValueAuditService.getTrackedEntityDataValueAudits(
-                dataElements, programStageInstances, auditType );
+                dataElements, programStageInstances, auditType, startDate, endDate );
         }
         else
         {
-            int total = trackedEntityDataValueAuditService.countTrackedEntityDataValueAudits( dataElements, programStageInstances, auditType );
+            int total = trackedEntityDataValueAuditService.countTrackedEntityDataValueAudits( dataElements, programStageInstances, auditType,
+                startDate, endDate );
 
             pager = new Pager( page, total, pageSize );
 
             dataValueAudits = trackedEntityDataValueAuditService.getTrackedEntityDataValueAudits(
-                dataElements, programStageInstances, auditType, pager.getOffset(), pager.getPageSize() );
+                dataElements, programStageInstances, auditType, startDate, endDate, pager.getOffset(), pager.getPageSize() );
         }
 
         RootNode rootNode = NodeUtils.createMetadata();
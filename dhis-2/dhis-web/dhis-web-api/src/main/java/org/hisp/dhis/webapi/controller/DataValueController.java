@@ -32,8 +32,14 @@ import static org.hisp.dhis.webapi.utils.ContextUtils.setNoStore;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -45,6 +51,7 @@ import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.DhisApiVersion;
+import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.dataelement.DataElement;
@@ -53,6 +60,12 @@ import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.datavalue.AggregateAccessManager;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DataValuesChangedEvent;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.dxf2.importsummary.ImportConflict;
+import org.hisp.dhis.dxf2.importsummary.ImportCount;
+import org.hisp.dhis.dxf2.importsummary.ImportStatus;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
 import org.hisp.dhis.dxf2.utils.InputUtils;
 import org.hisp.dhis.dxf2.webmessage.WebMessage;
 import org.hisp.dhis.dxf2.webmessage.WebMessageException;
@@ -69,14 +82,17 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.render.RenderService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.util.ValidationUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
+import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.jclouds.rest.AuthorizationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -138,6 +154,12 @@ public class DataValueController
     @Autowired
     private AggregateAccessManager accessManager;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RenderService renderService;
+
     // ---------------------------------------------------------------------
     // POST
     // ---------------------------------------------------------------------
@@ -285,6 +307,8 @@ public class DataValueController
                 StringUtils.trimToNull( value ), storedBy, now, StringUtils.trimToNull( comment ) );
 
             dataValueService.addDataValue( dataValue );
+
+            publishDataValueChanged( dataValue );
         }
         else
         {
@@ -293,6 +317,7 @@ public class DataValueController
                 if ( comment == null )
                 {
                     dataValueService.deleteDataValue( dataValue );
+                    publishDataValueChanged( dataValue );
                     return;
                 }
                 else
@@ -349,6 +374,8 @@ public class DataValueController
             dataValue.setStoredBy( storedBy );
 
             dataValueService.updateDataValue( dataValue );
+
+            publishDataValueChanged( dataValue );
         }
 
         if ( fileResource != null )
@@ -357,6 +384,282 @@ public class DataValueController
         }
     }
 
+    /**
+     * Saves a batch of data value changes of one form, which is a data set,
+     * period, organisation unit and attribute option combo. The permission,
+     * lock and input period checks of the form are evaluated once, and the
+     * changes are written in one transaction. Invalid data values are
+     * returned as conflicts of the import summary and are not saved.
+     */
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_DATAVALUE_ADD')" )
+    @RequestMapping( value = "/batch", method = RequestMethod.POST, consumes = "application/json" )
+    public void saveDataValues(
+        @RequestParam( required = false ) boolean force,
+        HttpServletRequest request, HttpServletResponse response )
+        throws WebMessageException, IOException
+    {
+        boolean strictPeriods = (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_STRICT_PERIODS );
+        boolean strictCategoryOptionCombos = (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_STRICT_CATEGORY_OPTION_COMBOS );
+        boolean strictOrgUnits = (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_STRICT_ORGANISATION_UNITS );
+        boolean requireCategoryOptionCombo = (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_REQUIRE_CATEGORY_OPTION_COMBO );
+        User currentUser = currentUserService.getCurrentUser();
+
+        DataValueSet dataValueSet = renderService.fromJson( request.getInputStream(), DataValueSet.class );
+
+        // ---------------------------------------------------------------------
+        // Form validation
+        // ---------------------------------------------------------------------
+
+        DataSet dataSet = getAndValidateDataSet( dataValueSet.getDataSet() );
+
+        Period period = getAndValidatePeriod( dataValueSet.getPeriod() );
+
+        OrganisationUnit organisationUnit = getAndValidateOrganisationUnit( dataValueSet.getOrgUnit() );
+
+        Set<String> attributeCategoryOptions = dataValueSet.getAttributeCategoryOptions() != null ?
+            new HashSet<>( dataValueSet.getAttributeCategoryOptions() ) : null;
+
+        CategoryOptionCombo attributeOptionCombo = inputUtils.getAttributeOptionCombo( dataSet.getCategoryCombo(),
+            attributeCategoryOptions, dataValueSet.getAttributeOptionCombo(), IdScheme.UID );
+
+        validateAttributeOptionComboWithOrgUnitAndPeriod( attributeOptionCombo, organisationUnit, period );
+
+        List<String> attributeOptionComboErrors = accessManager.canWriteCached( currentUser, attributeOptionCombo );
+
+        if ( !attributeOptionComboErrors.isEmpty() )
+        {
+            throw new WebMessageException( WebMessageUtils.conflict( "User does not have write access to attribute option combo: " + attributeOptionCombo.getUid() + ", errors: " + attributeOptionComboErrors ) );
+        }
+
+        if ( !inputUtils.canForceDataInput( currentUser, force ) )
+        {
+            validateDataSetNotLocked( null, period, dataSet, organisationUnit, attributeOptionCombo );
+        }
+
+        validateDataInputPeriodForDataElementAndPeriod( null, period, dataSet );
+
+        // ---------------------------------------------------------------------
+        // Data value validation
+        // ---------------------------------------------------------------------
+
+        ImportSummary summary = new ImportSummary();
+
+        List<org.hisp.dhis.dxf2.datavalue.DataValue> validValues = new ArrayList<>();
+        List<DataElement> dataElements = new ArrayList<>();
+        List<CategoryOptionCombo> categoryOptionCombos = new ArrayList<>();
+
+        for ( org.hisp.dhis.dxf2.datavalue.DataValue value : dataValueSet.getDataValues() )
+        {
+            try
+            {
+                validateInForm( value, dataValueSet, attributeOptionCombo );
+
+                DataElement dataElement = getAndValidateDataElement( currentUser, value.getDataElement() );
+
+                if ( !dataSet.getDataElements().contains( dataElement ) )
+                {
+                    throw new WebMessageException( WebMessageUtils.conflict( "Data set: " + dataSet.getUid() + " does not contain data element: " + dataElement.getUid() ) );
+                }
+
+                if ( dataElement.isFileType() )
+                {
+                    throw new WebMessageException( WebMessageUtils.conflict( "File data values must be saved individually: " + dataElement.getUid() ) );
+                }
+
+                CategoryOptionCombo categoryOptionCombo = getAndValidateCategoryOptionCombo( value.getCategoryOptionCombo(), requireCategoryOptionCombo );
+
+                validateInvalidFuturePeriod( period, dataElement );
+
+                if ( ValidationUtils.dataValueIsValid( value.getValue(), dataElement ) != null )
+                {
+                    throw new WebMessageException( WebMessageUtils.conflict( "Invalid value: " + value.getValue() + ", must match data element type: " + dataElement.getValueType() ) );
+                }
+
+                if ( ValidationUtils.commentIsValid( value.getComment() ) != null )
+                {
+                    throw new WebMessageException( WebMessageUtils.conflict( "Invalid comment: " + value.getComment() ) );
+                }
+
+                OptionSet optionSet = dataElement.getOptionSet();
+
+                if ( !Strings.isNullOrEmpty( value.getValue() ) && optionSet != null && !optionSet.getOptionCodesAsSet().contains( value.getValue() ) )
+                {
+                    throw new WebMessageException( WebMessageUtils.conflict( "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
+                }
+
+                List<String> categoryOptionComboErrors = accessManager.canWriteCached( currentUser, categoryOptionCombo );
+
+                if ( !categoryOptionComboErrors.isEmpty() )
+                {
+                    throw new WebMessageException( WebMessageUtils.conflict( "User does not have write access to category option combo: " + categoryOptionCombo.getUid() + ", errors: " + categoryOptionComboErrors ) );
+                }
+
+                if ( strictPeriods && !dataElement.getPeriodTypes().contains( period.getPeriodType() ) )
+                {
+                    throw new WebMessageException( WebMessageUtils.conflict(
+                        "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
+                }
+
+                if ( strictCategoryOptionCombos && !dataElement.getCategoryOptionCombos().contains( categoryOptionCombo ) )
+                {
+                    throw new WebMessageException( WebMessageUtils.conflict(
+                        "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
+                }
+
+                if ( strictOrgUnits && !organisationUnit.hasDataElement( dataElement ) )
+                {
+                    throw new WebMessageException( WebMessageUtils.conflict(
+                        "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + organisationUnit.getUid() ) );
+                }
+
+                validValues.add( value );
+                dataElements.add( dataElement );
+                categoryOptionCombos.add( categoryOptionCombo );
+            }
+            catch ( WebMessageException ex )
+            {
+                summary.getConflicts().add( new ImportConflict( value.getDataElement(), ex.getWebMessage().getMessage() ) );
+            }
+        }
+
+        // ---------------------------------------------------------------------
+        // Assemble data values, with one query for the existing values
+        // ---------------------------------------------------------------------
+
+        String storedBy = currentUserService.getCurrentUsername();
+
+        Date now = new Date();
+
+        Map<String, DataValue> existingValues = new HashMap<>();
+
+        for ( DataValue dataValue : dataValueService.getDataValues( organisationUnit, period, new HashSet<>( dataElements ), attributeOptionCombo ) )
+        {
+            existingValues.put( dataValue.getDataElement().getUid() + dataValue.getCategoryOptionCombo().getUid(), dataValue );
+        }
+
+        // ---------------------------------------------------------------------
+        // Values of the same cell are applied in order to one data value, and
+        // the final state of each data value decides whether it is added,
+        // updated or deleted. New data values are never updated or deleted.
+        // ---------------------------------------------------------------------
+
+        Map<String, DataValue> newValues = new HashMap<>();
+        Map<String, DataValue> changedValues = new LinkedHashMap<>();
+        Set<String> deletedKeys = new HashSet<>();
+
+        for ( int i = 0; i < validValues.size(); i++ )
+        {
+            org.hisp.dhis.dxf2.datavalue.DataValue value = validValues.get( i );
+            DataElement dataElement = dataElements.get( i );
+            CategoryOptionCombo categoryOptionCombo = categoryOptionCombos.get( i );
+
+            String val = value.getValue();
+            String comment = value.getComment();
+
+            String key = dataElement.getUid() + categoryOptionCombo.getUid();
+
+            DataValue dataValue = existingValues.get( key );
+
+            if ( dataValue == null )
+            {
+                dataValue = newValues.computeIfAbsent( key, k -> new DataValue( dataElement, period, organisationUnit,
+                    categoryOptionCombo, attributeOptionCombo, null, storedBy, now, null ) );
+            }
+
+            changedValues.put( key, dataValue );
+
+            if ( val == null && ValueType.TRUE_ONLY.equals( dataElement.getValueType() ) )
+            {
+                if ( comment == null )
+                {
+                    deletedKeys.add( key );
+
+                    continue;
+                }
+                else
+                {
+                    val = DataValue.FALSE;
+                }
+            }
+
+            deletedKeys.remove( key );
+
+            // -----------------------------------------------------------------
+            // Value and comment are sent individually, so null checks must be
+            // made for each. Empty string is sent for clearing a value.
+            // -----------------------------------------------------------------
+
+            if ( val != null )
+            {
+                dataValue.setValue( StringUtils.trimToNull( val ) );
+            }
+
+            if ( comment != null )
+            {
+                dataValue.setComment( StringUtils.trimToNull( comment ) );
+            }
+
+            if ( Boolean.TRUE.equals( value.getFollowup() ) && !newValues.containsKey( key ) )
+            {
+                dataValue.toggleFollowUp();
+            }
+
+            dataValue.setLastUpdated( now );
+            dataValue.setStoredBy( storedBy );
+        }
+
+        List<DataValue> addedValues = new ArrayList<>();
+        List<DataValue> updatedValues = new ArrayList<>();
+        List<DataValue> deletedValues = new ArrayList<>();
+
+        for ( Map.Entry<String, DataValue> entry : changedValues.entrySet() )
+        {
+            DataValue dataValue = entry.getValue();
+
+            if ( newValues.containsKey( entry.getKey() ) )
+            {
+                if ( !deletedKeys.contains( entry.getKey() ) && !dataValue.isNullValue() )
+                {
+                    addedValues.add( dataValue );
+                }
+            }
+            else if ( deletedKeys.contains( entry.getKey() ) )
+            {
+                deletedValues.add( dataValue );
+            }
+            else
+            {
+                updatedValues.add( dataValue );
+            }
+        }
+
+        List<DataValue> pendingValues = new ArrayList<>();
+        pendingValues.addAll( addedValues );
+        pendingValues.addAll( updatedValues );
+        pendingValues.addAll( deletedValues );
+
+        // ---------------------------------------------------------------------
+        // Save data values in one transaction
+        // ---------------------------------------------------------------------
+
+        dataValueService.saveDataValues( addedValues, updatedValues, deletedValues );
+
+        if ( !pendingValues.isEmpty() )
+        {
+            eventPublisher.publishEvent( new DataValuesChangedEvent( this, pendingValues ) );
+        }
+
+        int clearedCount = (int) updatedValues.stream().filter( DataValue::isNullValue ).count();
+        int ignoreCount = dataValueSet.getDataValues().size() - pendingValues.size();
+
+        summary.setImportCount( new ImportCount( addedValues.size(), updatedValues.size() - clearedCount,
+            ignoreCount, deletedValues.size() + clearedCount ) );
+        summary.setStatus( summary.getConflicts().isEmpty() ? ImportStatus.SUCCESS : ImportStatus.WARNING );
+
+        response.setContentType( ContextUtils.CONTENT_TYPE_JSON );
+        renderService.toJson( response.getOutputStream(), summary );
+    }
+
     // ---------------------------------------------------------------------
     // DELETE
     // ---------------------------------------------------------------------
@@ -428,6 +731,8 @@ public class DataValueController
 
 
         dataValueService.deleteDataValue( dataValue );
+
+        publishDataValueChanged( dataValue );
     }
 
     // ---------------------------------------------------------------------
@@ -598,6 +903,41 @@ public class DataValueController
         return dataElement;
     }
 
+    private DataSet getAndValidateDataSet( String ds )
+        throws WebMessageException
+    {
+        if ( ds == null )
+        {
+            throw new WebMessageException( WebMessageUtils.conflict( "Data set is required" ) );
+        }
+
+        DataSet dataSet = dataSetService.getDataSet( ds );
+
+        if ( dataSet == null )
+        {
+            throw new WebMessageException( WebMessageUtils.conflict( "Data set not found or not accessible: " + ds ) );
+        }
+
+        return dataSet;
+    }
+
+    /**
+     * Validates that the period, organisation unit and attribute option combo
+     * of the given data value are either not set or equal to those of the
+     * given form.
+     */
+    private void validateInForm( org.hisp.dhis.dxf2.datavalue.DataValue value, DataValueSet form,
+        CategoryOptionCombo attributeOptionCombo )
+        throws WebMessageException
+    {
+        if ( ( value.getPeriod() != null && !value.getPeriod().equals( form.getPeriod() ) )
+            || ( value.getOrgUnit() != null && !value.getOrgUnit().equals( form.getOrgUnit() ) )
+            || ( value.getAttributeOptionCombo() != null && !value.getAttributeOptionCombo().equals( attributeOptionCombo.getUid() ) ) )
+        {
+            throw new WebMessageException( WebMessageUtils.conflict( "Data value must have the period, organisation unit and attribute option combo of the batch" ) );
+        }
+    }
+
     private CategoryOptionCombo getAndValidateCategoryOptionCombo( String co, boolean requireCategoryOptionCombo )
         throws WebMessageException
     {
@@ -776,4 +1116,9 @@ public class DataValueController
 
         return fileResource;
     }
+
+    private void publishDataValueChanged( DataValue dataValue )
+    {
+        eventPublisher.publishEvent( new DataValuesChangedEvent( this, Collections.singletonList( dataValue ) ) );
+    }
 }
@@ -122,6 +122,7 @@ public class DataValueSetController
         @RequestParam( required = false ) Date lastUpdated,
         @RequestParam( required = false ) String lastUpdatedDuration,
         @RequestParam( required = false ) Integer limit,
+        @RequestParam( required = false ) String resumeAfter,
         @RequestParam( required = false ) String compression,
         IdSchemes idSchemes, HttpServletResponse response ) throws IOException
     {
@@ -130,7 +131,7 @@ public class DataValueSetController
 
         DataExportParams params = dataValueSetService.getFromUrl( dataSet, dataElementGroup,
             period, startDate, endDate, orgUnit, children, orgUnitGroup, attributeOptionCombo, 
-            includeDeleted, lastUpdated, lastUpdatedDuration, limit, idSchemes );
+            includeDeleted, lastUpdated, lastUpdatedDuration, limit, resumeAfter, idSchemes );
 
         OutputStream outputStream = compress( response, Compression.fromValue( compression ), "xml" );
 
@@ -177,6 +178,7 @@ public class DataValueSetController
         @RequestParam( required = false ) Date lastUpdated,
         @RequestParam( required = false ) String lastUpdatedDuration,
         @RequestParam( required = false ) Integer limit,
+        @RequestParam( required = false ) String resumeAfter,
         @RequestParam( required = false ) String compression,
         IdSchemes idSchemes, HttpServletResponse response ) throws IOException
     {
@@ -185,7 +187,7 @@ public class DataValueSetController
 
         DataExportParams params = dataValueSetService.getFromUrl( dataSet, dataElementGroup,
             period, startDate, endDate, orgUnit, children, orgUnitGroup, attributeOptionCombo,
-            includeDeleted, lastUpdated, lastUpdatedDuration, limit, idSchemes );
+            includeDeleted, lastUpdated, lastUpdatedDuration, limit, resumeAfter, idSchemes );
 
         OutputStream outputStream = compress( response, Compression.fromValue( compression ), "json" );
 
@@ -207,6 +209,7 @@ public class DataValueSetController
         @RequestParam( required = false ) Date lastUpdated,
         @RequestParam( required = false ) String lastUpdatedDuration,
         @RequestParam( required = false ) Integer limit,
+        @RequestParam( required = false ) String resumeAfter,
         @RequestParam( required = false ) String compression,
         IdSchemes idSchemes,
         HttpServletResponse response ) throws IOException
@@ -216,7 +219,7 @@ public class DataValueSetController
 
         DataExportParams params = dataValueSetService.getFromUrl( dataSet, dataElementGroup,
             period, startDate, endDate, orgUnit, children, orgUnitGroup, attributeOptionCombo,
-            includeDeleted, lastUpdated, lastUpdatedDuration, limit, idSchemes );
+            includeDeleted, lastUpdated, lastUpdatedDuration, limit, resumeAfter, idSchemes );
 
         OutputStream outputStream = compress( response, Compression.fromValue( compression ), "csv" );
 
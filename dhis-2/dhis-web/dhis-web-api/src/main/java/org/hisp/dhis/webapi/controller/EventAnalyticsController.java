@@ -102,6 +102,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) ProgramStatus programStatus,
         @RequestParam( required = false ) boolean collapseDataDimensions,
         @RequestParam( required = false ) boolean aggregateData,
+        @RequestParam( required = false ) boolean approximateCount,
         @RequestParam( required = false ) boolean includeMetadataDetails,
         @RequestParam( required = false ) DisplayProperty displayProperty,
         @RequestParam( required = false ) Date relativePeriodDate,
@@ -121,7 +122,7 @@ public class EventAnalyticsController
             .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
-            .aggregateData( aggregateData ).includeMetadataDetails( includeMetadataDetails )
+            .aggregateData( aggregateData ).approximateCount( approximateCount ).includeMetadataDetails( includeMetadataDetails )
             .displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .timeField( timeField ).orgUnitField( orgUnitField ).userOrgUnit( userOrgUnit ).apiVersion( apiVersion ).build();
 
@@ -154,6 +155,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) ProgramStatus programStatus,
         @RequestParam( required = false ) boolean collapseDataDimensions,
         @RequestParam( required = false ) boolean aggregateData,
+        @RequestParam( required = false ) boolean approximateCount,
         @RequestParam( required = false ) DisplayProperty displayProperty,
         @RequestParam( required = false ) Date relativePeriodDate,
         @RequestParam( required = false ) String timeField,
@@ -171,7 +173,7 @@ public class EventAnalyticsController
             .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
-            .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
+            .aggregateData( aggregateData ).approximateCount( approximateCount ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .timeField( timeField ).orgUnitField( orgUnitField ).userOrgUnit( userOrgUnit ).apiVersion( apiVersion ).build();
 
         EventQueryParams params = eventDataQueryService.getFromRequest( request );
@@ -204,6 +206,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) ProgramStatus programStatus,
         @RequestParam( required = false ) boolean collapseDataDimensions,
         @RequestParam( required = false ) boolean aggregateData,
+        @RequestParam( required = false ) boolean approximateCount,
         @RequestParam( required = false ) DisplayProperty displayProperty,
         @RequestParam( required = false ) Date relativePeriodDate,
         @RequestParam( required = false ) String timeField,
@@ -221,7 +224,7 @@ public class EventAnalyticsController
             .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
-            .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
+            .aggregateData( aggregateData ).approximateCount( approximateCount ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .timeField( timeField ).orgUnitField( orgUnitField ).userOrgUnit( userOrgUnit ).apiVersion( apiVersion ).build();
 
         EventQueryParams params = eventDataQueryService.getFromRequest( request );
@@ -254,6 +257,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) ProgramStatus programStatus,
         @RequestParam( required = false ) boolean collapseDataDimensions,
         @RequestParam( required = false ) boolean aggregateData,
+        @RequestParam( required = false ) boolean approximateCount,
         @RequestParam( required = false ) DisplayProperty displayProperty,
         @RequestParam( required = false ) Date relativePeriodDate,
         @RequestParam( required = false ) String timeField,
@@ -271,7 +275,7 @@ public class EventAnalyticsController
             .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
-            .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
+            .aggregateData( aggregateData ).approximateCount( approximateCount ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .timeField( timeField ).orgUnitField( orgUnitField ).userOrgUnit( userOrgUnit ).apiVersion( apiVersion ).build();
 
         EventQueryParams params = eventDataQueryService.getFromRequest( request );
@@ -304,6 +308,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) ProgramStatus programStatus,
         @RequestParam( required = false ) boolean collapseDataDimensions,
         @RequestParam( required = false ) boolean aggregateData,
+        @RequestParam( required = false ) boolean approximateCount,
         @RequestParam( required = false ) DisplayProperty displayProperty,
         @RequestParam( required = false ) Date relativePeriodDate,
         @RequestParam( required = false ) String timeField,
@@ -321,7 +326,7 @@ public class EventAnalyticsController
             .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
-            .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
+            .aggregateData( aggregateData ).approximateCount( approximateCount ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .timeField( timeField ).orgUnitField( orgUnitField ).userOrgUnit( userOrgUnit ).apiVersion( apiVersion ).build();
 
         EventQueryParams params = eventDataQueryService.getFromRequest( request );
@@ -354,6 +359,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) ProgramStatus programStatus,
         @RequestParam( required = false ) boolean collapseDataDimensions,
         @RequestParam( required = false ) boolean aggregateData,
+        @RequestParam( required = false ) boolean approximateCount,
         @RequestParam( required = false ) DisplayProperty displayProperty,
         @RequestParam( required = false ) Date relativePeriodDate,
         @RequestParam( required = false ) String timeField,
@@ -371,7 +377,7 @@ public class EventAnalyticsController
             .completedOnly( completedOnly ).hierarchyMeta( hierarchyMeta ).showHierarchy( showHierarchy )
             .sortOrder( sortOrder ).limit( limit ).outputType( outputType ).eventStatus( eventStatus )
             .programStatus( programStatus ).collapseDataDimensions( collapseDataDimensions )
-            .aggregateData( aggregateData ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
+            .aggregateData( aggregateData ).approximateCount( approximateCount ).displayProperty( displayProperty ).relativePeriodDate( relativePeriodDate )
             .timeField( timeField ).orgUnitField( orgUnitField ).userOrgUnit( userOrgUnit ).apiVersion( apiVersion ).build();
 
         EventQueryParams params = eventDataQueryService.getFromRequest( request );
@@ -52,8 +52,10 @@ import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.node.NodeUtils;
 import org.hisp.dhis.node.exception.InvalidTypeException;
 import org.hisp.dhis.node.types.CollectionNode;
+import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.node.types.SimpleNode;
+import org.hisp.dhis.parser.expression.Parser;
 import org.hisp.dhis.render.RenderService;
 import org.hisp.dhis.scheduling.JobType;
 import org.hisp.dhis.setting.StyleManager;
@@ -70,6 +72,7 @@ import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -83,6 +86,7 @@ import com.fasterxml.jackson.dataformat.csv.CsvFactory;
 import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -359,6 +363,22 @@ public class SystemController
         return rootNode;
     }
 
+    @RequestMapping( value = "/expressionCache", method = RequestMethod.GET )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public @ResponseBody RootNode getExpressionCacheStatistics( HttpServletResponse response )
+    {
+        RootNode rootNode = NodeUtils.createRootNode( "expressionCache" );
+
+        rootNode.addChild( getCacheNode( "parseTrees", Parser.getParseTreeCacheSize(),
+            Parser.getParseTreeCacheStats() ) );
+        rootNode.addChild( getCacheNode( "compiledExpressions", Parser.getCompiledExpressionCacheSize(),
+            Parser.getCompiledExpressionCacheStats() ) );
+
+        setNoStore( response );
+
+        return rootNode;
+    }
+
     @RequestMapping( value = "/ping", method = RequestMethod.GET )
     @ResponseStatus( HttpStatus.OK )
     public @ResponseBody String ping( HttpServletResponse response )
@@ -384,6 +404,19 @@ public class SystemController
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    private ComplexNode getCacheNode( String name, long size, CacheStats stats )
+    {
+        ComplexNode node = new ComplexNode( name );
+
+        node.addChild( new SimpleNode( "size", size ) );
+        node.addChild( new SimpleNode( "hitCount", stats.hitCount() ) );
+        node.addChild( new SimpleNode( "missCount", stats.missCount() ) );
+        node.addChild( new SimpleNode( "hitRate", stats.hitRate() ) );
+        node.addChild( new SimpleNode( "evictionCount", stats.evictionCount() ) );
+
+        return node;
+    }
+
     private List<StyleObject> getFlagObjects()
     {
         I18n i18n = i18nManager.getI18n();
@@ -0,0 +1,302 @@
+package org.hisp.dhis.webapi.controller;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.IdScheme;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dataset.DataSetService;
+import org.hisp.dhis.datavalue.AggregateAccessManager;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.dxf2.importsummary.ImportCount;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.dxf2.utils.InputUtils;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.render.RenderService;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.CurrentUserService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.google.common.collect.Lists;
+
+public class DataValueControllerTest
+{
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private DataValueService dataValueService;
+
+    @Mock
+    private DataSetService dataSetService;
+
+    @Mock
+    private IdentifiableObjectManager idObjectManager;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private InputUtils inputUtils;
+
+    @Mock
+    private AggregateAccessManager accessManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private RenderService renderService;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @InjectMocks
+    private DataValueController controller;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DataElement dataElementA;
+
+    private DataElement dataElementB;
+
+    private OrganisationUnit orgUnitA;
+
+    private Period periodA;
+
+    private CategoryOptionCombo optionCombo;
+
+    private ArgumentCaptor<List<DataValue>> addedCaptor;
+
+    private ArgumentCaptor<List<DataValue>> updatedCaptor;
+
+    private ArgumentCaptor<List<DataValue>> deletedCaptor;
+
+    @Before
+    public void setUp()
+    {
+        dataElementA = new DataElement( "DataElementA" );
+        dataElementA.setUid( "deabcdefghA" );
+        dataElementA.setValueType( ValueType.INTEGER );
+
+        dataElementB = new DataElement( "DataElementB" );
+        dataElementB.setUid( "deabcdefghB" );
+        dataElementB.setValueType( ValueType.TRUE_ONLY );
+
+        DataSet dataSetA = new DataSet( "DataSetA", new MonthlyPeriodType() );
+        dataSetA.setUid( "dsabcdefghA" );
+        dataSetA.addDataSetElement( dataElementA );
+        dataSetA.addDataSetElement( dataElementB );
+
+        orgUnitA = new OrganisationUnit( "OrgUnitA" );
+        orgUnitA.setUid( "ouabcdefghA" );
+
+        periodA = PeriodType.getPeriodFromIsoString( "201901" );
+
+        optionCombo = new CategoryOptionCombo();
+        optionCombo.setUid( "cocabcdefgA" );
+
+        when( systemSettingManager.getSystemSetting( any( SettingKey.class ) ) ).thenReturn( false );
+        when( dataSetService.getDataSet( "dsabcdefghA" ) ).thenReturn( dataSetA );
+        when( idObjectManager.get( DataElement.class, "deabcdefghA" ) ).thenReturn( dataElementA );
+        when( idObjectManager.get( DataElement.class, "deabcdefghB" ) ).thenReturn( dataElementB );
+        when( idObjectManager.get( OrganisationUnit.class, "ouabcdefghA" ) ).thenReturn( orgUnitA );
+        when( organisationUnitService.isInUserHierarchyCached( orgUnitA ) ).thenReturn( true );
+        when( categoryService.getDefaultCategoryOptionCombo() ).thenReturn( optionCombo );
+        when( inputUtils.getAttributeOptionCombo( nullable( CategoryCombo.class ), nullable( Set.class ),
+            nullable( String.class ), nullable( IdScheme.class ) ) ).thenReturn( optionCombo );
+    }
+
+    @Test
+    public void testSaveDataValuesEmptyThenValueForNewCell()
+        throws Exception
+    {
+        ImportSummary summary = saveDataValues( Lists.newArrayList(),
+            newValue( dataElementA, "" ), newValue( dataElementA, "5" ) );
+
+        List<DataValue> added = addedCaptor.getValue();
+
+        assertEquals( 1, added.size() );
+        assertEquals( "5", added.get( 0 ).getValue() );
+        assertTrue( updatedCaptor.getValue().isEmpty() );
+        assertTrue( deletedCaptor.getValue().isEmpty() );
+        assertImportCount( summary, 1, 0, 1, 0 );
+    }
+
+    @Test
+    public void testSaveDataValuesEmptyValueForNewCell()
+        throws Exception
+    {
+        ImportSummary summary = saveDataValues( Lists.newArrayList(), newValue( dataElementA, "" ) );
+
+        assertTrue( addedCaptor.getValue().isEmpty() );
+        assertTrue( updatedCaptor.getValue().isEmpty() );
+        assertTrue( deletedCaptor.getValue().isEmpty() );
+        assertImportCount( summary, 0, 0, 1, 0 );
+    }
+
+    @Test
+    public void testSaveDataValuesTrueOnlyForNewCell()
+        throws Exception
+    {
+        ImportSummary summary = saveDataValues( Lists.newArrayList(),
+            newValue( dataElementB, "true" ), newValue( dataElementB, null ) );
+
+        assertTrue( addedCaptor.getValue().isEmpty() );
+        assertTrue( updatedCaptor.getValue().isEmpty() );
+        assertTrue( deletedCaptor.getValue().isEmpty() );
+        assertImportCount( summary, 0, 0, 2, 0 );
+
+        summary = saveDataValues( Lists.newArrayList(),
+            newValue( dataElementB, null ), newValue( dataElementB, "true" ) );
+
+        List<DataValue> added = addedCaptor.getValue();
+
+        assertEquals( 1, added.size() );
+        assertEquals( "true", added.get( 0 ).getValue() );
+        assertImportCount( summary, 1, 0, 1, 0 );
+    }
+
+    @Test
+    public void testSaveDataValuesUpdateAndDeleteExisting()
+        throws Exception
+    {
+        DataValue existingA = new DataValue( dataElementA, periodA, orgUnitA, optionCombo, optionCombo, "1" );
+        DataValue existingB = new DataValue( dataElementB, periodA, orgUnitA, optionCombo, optionCombo, "true" );
+
+        ImportSummary summary = saveDataValues( Lists.newArrayList( existingA, existingB ),
+            newValue( dataElementA, "2" ), newValue( dataElementB, null ) );
+
+        assertTrue( addedCaptor.getValue().isEmpty() );
+        assertEquals( Lists.newArrayList( existingA ), updatedCaptor.getValue() );
+        assertEquals( Lists.newArrayList( existingB ), deletedCaptor.getValue() );
+        assertEquals( "2", existingA.getValue() );
+        assertImportCount( summary, 0, 1, 0, 1 );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private org.hisp.dhis.dxf2.datavalue.DataValue newValue( DataElement dataElement, String value )
+    {
+        org.hisp.dhis.dxf2.datavalue.DataValue dataValue = new org.hisp.dhis.dxf2.datavalue.DataValue();
+        dataValue.setDataElement( dataElement.getUid() );
+        dataValue.setValue( value );
+        return dataValue;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private ImportSummary saveDataValues( Collection<DataValue> existingValues,
+        org.hisp.dhis.dxf2.datavalue.DataValue... values )
+        throws Exception
+    {
+        DataValueSet dataValueSet = new DataValueSet();
+        dataValueSet.setDataSet( "dsabcdefghA" );
+        dataValueSet.setPeriod( "201901" );
+        dataValueSet.setOrgUnit( "ouabcdefghA" );
+        dataValueSet.setDataValues( Lists.newArrayList( values ) );
+
+        when( renderService.fromJson( nullable( InputStream.class ), eq( DataValueSet.class ) ) ).thenReturn( dataValueSet );
+        when( dataValueService.getDataValues( any( OrganisationUnit.class ), any( Period.class ), any( Collection.class ),
+            any( CategoryOptionCombo.class ) ) ).thenReturn( Lists.newArrayList( existingValues ) );
+
+        controller.saveDataValues( false, request, response );
+
+        addedCaptor = ArgumentCaptor.forClass( List.class );
+        updatedCaptor = ArgumentCaptor.forClass( List.class );
+        deletedCaptor = ArgumentCaptor.forClass( List.class );
+
+        verify( dataValueService, atLeastOnce() ).saveDataValues( addedCaptor.capture(), updatedCaptor.capture(), deletedCaptor.capture() );
+
+        ArgumentCaptor<ImportSummary> summaryCaptor = ArgumentCaptor.forClass( ImportSummary.class );
+
+        verify( renderService, atLeastOnce() ).toJson( nullable( OutputStream.class ), summaryCaptor.capture() );
+
+        return summaryCaptor.getValue();
+    }
+
+    private void assertImportCount( ImportSummary summary, int imported, int updated, int ignored, int deleted )
+    {
+        ImportCount count = summary.getImportCount();
+
+        assertEquals( imported, count.getImported() );
+        assertEquals( updated, count.getUpdated() );
+        assertEquals( ignored, count.getIgnored() );
+        assertEquals( deleted, count.getDeleted() );
+    }
+}